@@ -31,6 +31,7 @@ public class ModbusTcpConfiguration {
     private int connectMaxTries;
     private int reconnectAfterMillis;
     private int connectTimeoutMillis;
+    private int maxPipelinedTransactions;
     private boolean enableDiscovery;
 
     public @Nullable String getHost() {
@@ -97,6 +98,14 @@ public class ModbusTcpConfiguration {
         this.connectTimeoutMillis = connectTimeoutMillis;
     }
 
+    public int getMaxPipelinedTransactions() {
+        return maxPipelinedTransactions;
+    }
+
+    public void setMaxPipelinedTransactions(int maxPipelinedTransactions) {
+        this.maxPipelinedTransactions = maxPipelinedTransactions;
+    }
+
     public boolean isDiscoveryEnabled() {
         return enableDiscovery;
     }
@@ -134,6 +134,7 @@ public class ModbusDataThingHandler extends BaseThingHandler {
     private volatile Optional<Integer> readSubIndex = Optional.empty();
     private volatile @Nullable Integer writeStart;
     private volatile int pollStart;
+    private volatile int extractIndex;
     private volatile int slaveId;
     private volatile @Nullable ModbusReadFunctionCode functionCode;
     private volatile @Nullable ModbusReadRequestBlueprint readRequest;
@@ -147,6 +148,11 @@ public class ModbusDataThingHandler extends BaseThingHandler {
     private volatile Map<String, ChannelUID> channelCache = new HashMap<>();
     private volatile Map<ChannelUID, Long> channelLastUpdated = new HashMap<>(NUMER_OF_CHANNELS_HINT);
     private volatile Map<ChannelUID, State> channelLastState = new HashMap<>(NUMER_OF_CHANNELS_HINT);
+    // Raw value of the last read, its decoded numeric state, and the data channel states derived from it
+    private volatile boolean lastRawValuePresent;
+    private volatile long lastRawValue;
+    private volatile State lastNumericState = UnDefType.UNDEF;
+    private volatile Map<ChannelUID, State> lastRawValueStates = Collections.emptyMap();
 
     private volatile LocalDateTime lastStatusInfoUpdate = LocalDateTime.MIN;
     private volatile ThingStatusInfo statusInfo = new ThingStatusInfo(ThingStatus.UNKNOWN, ThingStatusDetail.NONE,
@@ -377,6 +383,8 @@ public class ModbusDataThingHandler extends BaseThingHandler {
             validateAndParseReadParameters(localConfig);
             validateAndParseWriteParameters(localConfig);
             validateMustReadOrWrite();
+            extractIndex = calculateExtractIndex();
+            invalidateLastRawValue();
 
             updateStatusIfChanged(ThingStatus.ONLINE);
         } catch (ModbusConfigurationException | EndpointNotInitializedException e) {
@@ -399,6 +407,7 @@ public class ModbusDataThingHandler extends BaseThingHandler {
         readSubIndex = Optional.empty();
         writeStart = null;
         pollStart = 0;
+        extractIndex = 0;
         slaveId = 0;
         comms = null;
         functionCode = null;
@@ -413,6 +422,20 @@ public class ModbusDataThingHandler extends BaseThingHandler {
         statusInfo = new ThingStatusInfo(ThingStatus.UNKNOWN, ThingStatusDetail.NONE, null);
         channelLastUpdated = new HashMap<>(NUMER_OF_CHANNELS_HINT);
         channelLastState = new HashMap<>(NUMER_OF_CHANNELS_HINT);
+        invalidateLastRawValue();
+    }
+
+    @Override
+    public synchronized void channelLinked(ChannelUID channelUID) {
+        // linked channels are part of the cached states
+        invalidateLastRawValue();
+        super.channelLinked(channelUID);
+    }
+
+    @Override
+    public synchronized void channelUnlinked(ChannelUID channelUID) {
+        invalidateLastRawValue();
+        super.channelUnlinked(channelUID);
     }
 
     @Override
@@ -680,31 +703,21 @@ public class ModbusDataThingHandler extends BaseThingHandler {
         if (readValueType == null) {
             return;
         }
-        State numericState;
-
-        // extractIndex:
-        // e.g. with bit, extractIndex=4 means 5th bit (from right) ("10.4" -> 5th bit of register 10, "10.4" -> 5th bit
-        // of register 10)
-        // bit of second register)
-        // e.g. with 8bit integer, extractIndex=3 means high byte of second register
-        //
-        // with <16 bit types, this is the index of the N'th 1-bit/8-bit item. Each register has 16/2 items,
-        // respectively.
-        // with >=16 bit types, this is index of first register
-        int extractIndex;
-        if (readValueType.getBits() >= 16) {
-            // Invariant, checked in initialize
-            assert readSubIndex.orElse(0) == 0;
-            extractIndex = readIndex.get() - pollStart;
-        } else {
-            int subIndex = readSubIndex.orElse(0);
-            int itemsPerRegister = 16 / readValueType.getBits();
-            extractIndex = (readIndex.get() - pollStart) * itemsPerRegister + subIndex;
+        int extractIndex = this.extractIndex;
+        long rawValue = ModbusBitUtilities.extractRawFromRegisters(registers, extractIndex, readValueType);
+        boolean unchanged = isLastRawValue(rawValue);
+        if (unchanged && isReadTransformationIdentity()) {
+            Map<ChannelUID, State> values = processUnchangedValue();
+            logger.debug(
+                    "Thing {} value unchanged, channels updated: {}. readValueType={}, extractIndex={}, raw value {}. Registers {} for request {}",
+                    thing.getUID(), values, readValueType, extractIndex, rawValue, registers, request);
+            return;
         }
-        numericState = ModbusBitUtilities.extractStateFromRegisters(registers, extractIndex, readValueType)
-                .map(state -> (State) state).orElse(UnDefType.UNDEF);
+        State numericState = unchanged ? lastNumericState
+                : ModbusBitUtilities.stateFromRawValue(rawValue, readValueType).map(state -> (State) state)
+                        .orElse(UnDefType.UNDEF);
         boolean boolValue = !numericState.equals(DecimalType.ZERO);
-        Map<ChannelUID, State> values = processUpdatedValue(numericState, boolValue);
+        Map<ChannelUID, State> values = processUpdatedValue(rawValue, numericState, boolValue);
         logger.debug(
                 "Thing {} channels updated: {}. readValueType={}, readIndex={}, readSubIndex(or 0)={}, extractIndex={} -> numeric value {} and boolValue={}. Registers {} for request {}",
                 thing.getUID(), values, readValueType, readIndex, readSubIndex.orElse(0), extractIndex, numericState,
@@ -717,9 +730,17 @@ public class ModbusDataThingHandler extends BaseThingHandler {
         } else if (!isReadEnabled) {
             return;
         }
-        boolean boolValue = bits.getBit(readIndex.get() - pollStart);
+        boolean boolValue = bits.getBit(extractIndex);
+        long rawValue = boolValue ? 1 : 0;
+        if (isLastRawValue(rawValue) && isReadTransformationIdentity()) {
+            Map<ChannelUID, State> values = processUnchangedValue();
+            logger.debug(
+                    "Thing {} value unchanged, channels updated: {}. readIndex={}, boolValue={}. Bits {} for request {}",
+                    thing.getUID(), values, readIndex, boolValue, bits, request);
+            return;
+        }
         DecimalType numericState = boolValue ? new DecimalType(BigDecimal.ONE) : DecimalType.ZERO;
-        Map<ChannelUID, State> values = processUpdatedValue(numericState, boolValue);
+        Map<ChannelUID, State> values = processUpdatedValue(rawValue, numericState, boolValue);
         logger.debug(
                 "Thing {} channels updated: {}. readValueType={}, readIndex={} -> numeric value {} and boolValue={}. Bits {} for request {}",
                 thing.getUID(), values, readValueType, readIndex, numericState, boolValue, bits, request);
@@ -811,14 +832,87 @@ public class ModbusDataThingHandler extends BaseThingHandler {
         }
     }
 
+    /**
+     * Calculate the index of the read value in the polled data
+     *
+     * e.g. with bit, extractIndex=4 means 5th bit (from right) ("10.4" -> 5th bit of register 10)
+     * e.g. with 8bit integer, extractIndex=3 means high byte of second register
+     *
+     * With <16 bit types, this is the index of the N'th 1-bit/8-bit item. Each register has 16/8 items,
+     * respectively. With >=16 bit types, this is index of first register. With coils and discrete inputs, this is the
+     * index of the bit.
+     *
+     * @return index of the value to extract, or 0 when reading is not enabled
+     */
+    private int calculateExtractIndex() {
+        ValueType readValueType = this.readValueType;
+        if (!isReadEnabled || readValueType == null || !readIndex.isPresent()) {
+            return 0;
+        }
+        ModbusReadFunctionCode functionCode = this.functionCode;
+        if (functionCode == ModbusReadFunctionCode.READ_COILS
+                || functionCode == ModbusReadFunctionCode.READ_INPUT_DISCRETES) {
+            return readIndex.get() - pollStart;
+        } else if (readValueType.getBits() >= 16) {
+            // Invariant, checked in validateReadIndex
+            assert readSubIndex.orElse(0) == 0;
+            return readIndex.get() - pollStart;
+        } else {
+            int subIndex = readSubIndex.orElse(0);
+            int itemsPerRegister = 16 / readValueType.getBits();
+            return (readIndex.get() - pollStart) * itemsPerRegister + subIndex;
+        }
+    }
+
+    private boolean isLastRawValue(long rawValue) {
+        return lastRawValuePresent && lastRawValue == rawValue;
+    }
+
+    private boolean isReadTransformationIdentity() {
+        Transformation localReadTransformation = readTransformation;
+        return localReadTransformation != null && localReadTransformation.isIdentityTransform();
+    }
+
+    private void invalidateLastRawValue() {
+        lastRawValuePresent = false;
+        lastRawValue = 0;
+        lastNumericState = UnDefType.UNDEF;
+        lastRawValueStates = Collections.emptyMap();
+    }
+
+    /**
+     * Update linked channels with the states of the last read, without decoding the value again
+     *
+     * Only used with identity transformation. Other transformations (e.g. MAP or JS) are run for every read, since
+     * their result for the same value changes when the transformation file is edited.
+     *
+     * Unchanged values are only published again when updateUnchangedValuesEveryMillis has elapsed.
+     *
+     * @return data channel states
+     */
+    private Map<ChannelUID, State> processUnchangedValue() {
+        Map<ChannelUID, State> states = lastRawValueStates;
+        updateExpiredChannels(states);
+        updateLastReadSuccess();
+        return states;
+    }
+
+    private void updateLastReadSuccess() {
+        ChannelUID lastReadSuccessUID = getChannelUID(ModbusBindingConstantsInternal.CHANNEL_LAST_READ_SUCCESS);
+        if (isLinked(lastReadSuccessUID)) {
+            tryUpdateState(lastReadSuccessUID, new DateTimeType());
+        }
+    }
+
     /**
      * Update linked channels
      *
+     * @param rawValue raw value of the polled data, used to detect unchanged values on the next read
      * @param numericState numeric state corresponding to polled data (or UNDEF with floating point NaN or infinity)
      * @param boolValue boolean value corresponding to polled data
      * @return updated channel data
      */
-    private Map<ChannelUID, State> processUpdatedValue(State numericState, boolean boolValue) {
+    private Map<ChannelUID, State> processUpdatedValue(long rawValue, State numericState, boolean boolValue) {
         Transformation localReadTransformation = readTransformation;
         if (localReadTransformation == null) {
             // We should always have transformation available if thing is initalized properly
@@ -879,11 +973,12 @@ public class ModbusDataThingHandler extends BaseThingHandler {
             }
         });
 
-        ChannelUID lastReadSuccessUID = getChannelUID(ModbusBindingConstantsInternal.CHANNEL_LAST_READ_SUCCESS);
-        if (isLinked(lastReadSuccessUID)) {
-            states.put(lastReadSuccessUID, new DateTimeType());
-        }
+        lastRawValue = rawValue;
+        lastNumericState = numericState;
+        lastRawValueStates = states;
+        lastRawValuePresent = true;
         updateExpiredChannels(states);
+        updateLastReadSuccess();
         return states;
     }
 
@@ -60,6 +60,7 @@ public class ModbusTcpThingHandler
         poolConfiguration.setInterConnectDelayMillis(config.getTimeBetweenReconnectMillis());
         poolConfiguration.setInterTransactionDelayMillis(config.getTimeBetweenTransactionsMillis());
         poolConfiguration.setReconnectAfterMillis(config.getReconnectAfterMillis());
+        poolConfiguration.setMaxPipelinedTransactions(Math.max(1, config.getMaxPipelinedTransactions()));
     }
 
     @SuppressWarnings("null") // since Optional.map is always called with NonNull argument
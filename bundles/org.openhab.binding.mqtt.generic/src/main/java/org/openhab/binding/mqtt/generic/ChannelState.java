@@ -52,6 +52,7 @@ public class ChannelState implements MqttMessageSubscriber {
 
     /** Channel value **/
     protected final Value cachedValue;
+    private final @Nullable TopicPayloadCache payloadCache;
 
     // Runtime variables
     private @Nullable MqttBrokerConnection connection;
@@ -74,10 +75,27 @@ public class ChannelState implements MqttMessageSubscriber {
      */
     public ChannelState(ChannelConfig config, ChannelUID channelUID, Value cachedValue,
             @Nullable ChannelStateUpdateListener channelStateUpdateListener) {
+        this(config, channelUID, cachedValue, channelStateUpdateListener, null);
+    }
+
+    /**
+     * Creates a new channel state, which shares the decoded messages with the other channel states of the thing.
+     *
+     * @param config The channel configuration
+     * @param channelUID The channelUID is used for the {@link ChannelStateUpdateListener} to notify about value changes
+     * @param cachedValue MQTT only notifies us once about a value, during the subscribe. The channel state therefore
+     *            needs a cache for the current value.
+     * @param channelStateUpdateListener A channel state update listener
+     * @param payloadCache The decoded messages shared by the channel states of a thing, or null to decode every
+     *            message on its own
+     */
+    public ChannelState(ChannelConfig config, ChannelUID channelUID, Value cachedValue,
+            @Nullable ChannelStateUpdateListener channelStateUpdateListener, @Nullable TopicPayloadCache payloadCache) {
         this.config = config;
         this.channelStateUpdateListener = channelStateUpdateListener;
         this.channelUID = channelUID;
         this.cachedValue = cachedValue;
+        this.payloadCache = payloadCache;
         this.readOnly = StringUtils.isBlank(config.commandTopic);
     }
 
@@ -154,7 +172,9 @@ public class ChannelState implements MqttMessageSubscriber {
         }
 
         // String value: Apply transformations
-        String strValue = new String(payload, StandardCharsets.UTF_8);
+        final TopicPayloadCache payloadCache = this.payloadCache;
+        String strValue = payloadCache != null ? payloadCache.decode(topic, payload)
+                : new String(payload, StandardCharsets.UTF_8);
         for (ChannelStateTransformation t : transformationsIn) {
             String transformedValue = t.processValue(strValue);
             if (transformedValue != null) {
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Holds the decoded text of the last message of each topic, shared by the {@link ChannelState}s of a thing.
+ * <p>
+ * The broker connection passes the same payload array to all subscribers of a topic. Channels reading different
+ * fields of the same message therefore decode it only once, and all their transformations get the same String
+ * instance, so a transformation service caching its parsed documents by text parses the message only once as well.
+ * </p>
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class TopicPayloadCache {
+
+    /**
+     * A payload and its decoded text
+     */
+    private static class DecodedPayload {
+        private final byte[] payload;
+        private final String text;
+
+        DecodedPayload(byte[] payload, String text) {
+            this.payload = payload;
+            this.text = text;
+        }
+    }
+
+    private final Map<String, DecodedPayload> lastPayloads = new ConcurrentHashMap<>();
+
+    /**
+     * Decode an UTF8 encoded payload. Decoding the same payload array of a topic again returns the same String
+     * instance.
+     *
+     * @param topic The topic of the message
+     * @param payload The byte payload
+     * @return The decoded payload
+     */
+    public String decode(String topic, byte[] payload) {
+        DecodedPayload decoded = lastPayloads.get(topic);
+        if (decoded == null || decoded.payload != payload) {
+            decoded = new DecodedPayload(payload, new String(payload, StandardCharsets.UTF_8));
+            lastPayloads.put(topic, decoded);
+        }
+        return decoded.text;
+    }
+
+    /**
+     * Forget the payloads of all topics
+     */
+    public void clear() {
+        lastPayloads.clear();
+    }
+}
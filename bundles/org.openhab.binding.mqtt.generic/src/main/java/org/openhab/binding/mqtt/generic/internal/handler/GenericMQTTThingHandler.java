@@ -30,6 +30,7 @@ import org.openhab.binding.mqtt.generic.ChannelState;
 import org.openhab.binding.mqtt.generic.ChannelStateTransformation;
 import org.openhab.binding.mqtt.generic.ChannelStateUpdateListener;
 import org.openhab.binding.mqtt.generic.MqttChannelStateDescriptionProvider;
+import org.openhab.binding.mqtt.generic.TopicPayloadCache;
 import org.openhab.binding.mqtt.generic.TransformationServiceProvider;
 import org.openhab.binding.mqtt.generic.utils.FutureCollector;
 import org.openhab.binding.mqtt.generic.values.Value;
@@ -56,6 +57,8 @@ public class GenericMQTTThingHandler extends AbstractMQTTThingHandler implements
     final Map<ChannelUID, ChannelState> channelStateByChannelUID = new HashMap<>();
     protected final MqttChannelStateDescriptionProvider stateDescProvider;
     protected final TransformationServiceProvider transformationServiceProvider;
+    // the last message of each topic, decoded once for all channels of the topic
+    private final TopicPayloadCache payloadCache = new TopicPayloadCache();
 
     /**
      * Creates a new Thing handler for generic MQTT channels.
@@ -92,6 +95,7 @@ public class GenericMQTTThingHandler extends AbstractMQTTThingHandler implements
     @Override
     protected void stop() {
         channelStateByChannelUID.values().forEach(c -> c.getCache().resetState());
+        payloadCache.clear();
         super.stop();
     }
 
@@ -122,7 +126,7 @@ public class GenericMQTTThingHandler extends AbstractMQTTThingHandler implements
      * @return
      */
     protected ChannelState createChannelState(ChannelConfig channelConfig, ChannelUID channelUID, Value valueState) {
-        ChannelState state = new ChannelState(channelConfig, channelUID, valueState, this);
+        ChannelState state = new ChannelState(channelConfig, channelUID, valueState, this, payloadCache);
         String[] transformations;
 
         // Incoming value transformations
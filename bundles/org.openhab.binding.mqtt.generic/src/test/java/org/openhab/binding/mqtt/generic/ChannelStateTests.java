@@ -20,6 +20,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
@@ -35,6 +36,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -322,4 +324,65 @@ public class ChannelStateTests {
         assertThat(value.getChannelState(), is(instanceOf(RawType.class)));
         assertThat(((RawType) value.getChannelState()).getMimeType(), is("image/jpeg"));
     }
+
+    @Test
+    public void transformationsReceiveUtf8DecodedPayload() {
+        ChannelStateTransformation transformation = mock(ChannelStateTransformation.class);
+        doReturn("1").when(transformation).processValue(any());
+
+        ChannelState subject = new ChannelState(config, channelUID, new TextValue(), channelStateUpdateListener);
+        subject.addTransformation(transformation);
+
+        String message = "{\"room\":\"K\u00fcche\",\"temperature\":23.2}";
+        subject.processMessage("state", message.getBytes(StandardCharsets.UTF_8));
+
+        verify(transformation).processValue(message);
+    }
+
+    @Test
+    public void channelsOnSameTopicShareDecodedPayload() {
+        ChannelStateTransformation first = mock(ChannelStateTransformation.class);
+        ChannelStateTransformation second = mock(ChannelStateTransformation.class);
+        doReturn("1").when(first).processValue(any());
+        doReturn("2").when(second).processValue(any());
+
+        TopicPayloadCache payloadCache = new TopicPayloadCache();
+        ChannelState subject1 = new ChannelState(config, channelUID, new TextValue(), channelStateUpdateListener,
+                payloadCache);
+        ChannelState subject2 = new ChannelState(config, channelUID, new TextValue(), channelStateUpdateListener,
+                payloadCache);
+        subject1.addTransformation(first);
+        subject2.addTransformation(second);
+
+        // The broker connection passes the same payload array to all subscribers of the topic
+        byte[] payload = "{\"a\":1,\"b\":2}".getBytes(StandardCharsets.UTF_8);
+        subject1.processMessage("state", payload);
+        subject2.processMessage("state", payload);
+
+        ArgumentCaptor<String> firstInput = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> secondInput = ArgumentCaptor.forClass(String.class);
+        verify(first).processValue(firstInput.capture());
+        verify(second).processValue(secondInput.capture());
+        assertThat(firstInput.getValue(), is("{\"a\":1,\"b\":2}"));
+        assertThat(firstInput.getValue(), is(sameInstance(secondInput.getValue())));
+    }
+
+    @Test
+    public void payloadCacheDecodesEachMessageOfATopic() {
+        TopicPayloadCache payloadCache = new TopicPayloadCache();
+        byte[] payload = "23.2".getBytes(StandardCharsets.UTF_8);
+        String decoded = payloadCache.decode("temperature", payload);
+
+        assertThat(decoded, is("23.2"));
+        assertThat(payloadCache.decode("temperature", payload), is(sameInstance(decoded)));
+
+        // Messages of other topics don't replace the message of the topic
+        assertThat(payloadCache.decode("humidity", "55".getBytes(StandardCharsets.UTF_8)), is("55"));
+        assertThat(payloadCache.decode("temperature", payload), is(sameInstance(decoded)));
+
+        // A new message with the same content is decoded again
+        byte[] nextPayload = "23.2".getBytes(StandardCharsets.UTF_8);
+        assertThat(payloadCache.decode("temperature", nextPayload), is(not(sameInstance(decoded))));
+        assertThat(payloadCache.decode("temperature", nextPayload), is(decoded));
+    }
 }
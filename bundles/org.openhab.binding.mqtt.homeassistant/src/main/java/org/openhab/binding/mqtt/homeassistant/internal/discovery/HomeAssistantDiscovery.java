@@ -13,16 +13,15 @@
 package org.openhab.binding.mqtt.homeassistant.internal.discovery;
 
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -32,6 +31,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.mqtt.discovery.AbstractMQTTDiscovery;
 import org.openhab.binding.mqtt.discovery.MQTTTopicDiscoveryService;
 import org.openhab.binding.mqtt.generic.MqttChannelTypeProvider;
+import org.openhab.binding.mqtt.generic.tools.DelayedBatchProcessing;
 import org.openhab.binding.mqtt.homeassistant.generic.internal.MqttBindingConstants;
 import org.openhab.binding.mqtt.homeassistant.internal.BaseChannelConfiguration;
 import org.openhab.binding.mqtt.homeassistant.internal.ChannelConfigurationTypeAdapterFactory;
@@ -45,12 +45,14 @@ import org.openhab.core.thing.ThingTypeUID;
 import org.openhab.core.thing.ThingUID;
 import org.openhab.core.thing.type.ThingType;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 
 /**
  * The {@link HomeAssistantDiscovery} is responsible for discovering device nodes that follow the
@@ -61,13 +63,11 @@ import com.google.gson.GsonBuilder;
 @Component(service = DiscoveryService.class, configurationPid = "discovery.mqttha")
 @NonNullByDefault
 public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
-    @SuppressWarnings("unused")
     private final Logger logger = LoggerFactory.getLogger(HomeAssistantDiscovery.class);
     protected final Map<String, Set<HaID>> componentsPerThingID = new TreeMap<>();
     protected final Map<String, ThingUID> thingIDPerTopic = new TreeMap<>();
-    protected final Map<String, DiscoveryResult> results = new ConcurrentHashMap<>();
 
-    private @Nullable ScheduledFuture<?> future;
+    private final DelayedBatchProcessing<RetainedConfig> delayedProcessing;
     private final Gson gson;
 
     public static final Map<String, String> HA_COMP_TO_NAME = new TreeMap<>();
@@ -95,6 +95,7 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
     public HomeAssistantDiscovery() {
         super(null, 3, true, BASE_TOPIC + "/#");
         this.gson = new GsonBuilder().registerTypeAdapterFactory(new ChannelConfigurationTypeAdapterFactory()).create();
+        this.delayedProcessing = new DelayedBatchProcessing<>(2000, this::processConfigs, scheduler);
     }
 
     @Reference
@@ -121,6 +122,29 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         this.typeProvider = null;
     }
 
+    @Override
+    @Deactivate
+    protected void deactivate() {
+        super.deactivate();
+        // Configs received until now are discarded
+        delayedProcessing.join();
+    }
+
+    @Override
+    protected synchronized void stopScan() {
+        super.stopScan();
+        if (!isBackgroundDiscoveryEnabled()) {
+            // Not subscribed anymore, configs received until now are discarded
+            delayedProcessing.join();
+        }
+    }
+
+    @Override
+    protected void stopBackgroundDiscovery() {
+        super.stopBackgroundDiscovery();
+        delayedProcessing.join();
+    }
+
     @Override
     public Set<@NonNull ThingTypeUID> getSupportedThingTypes() {
         return typeProvider.getThingTypeUIDs();
@@ -139,34 +163,109 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
             return;
         }
 
-        // Reset the found-component timer.
-        // We will collect components for the thing label description for another 2 seconds.
-        final ScheduledFuture<?> future = this.future;
-        if (future != null) {
-            future.cancel(false);
+        // Retained configs arrive in a burst on (re)connect. We collect them until no new config was received for
+        // another 2 seconds and process them as one batch.
+        delayedProcessing.accept(new RetainedConfig(connectionBridge, topic, payload));
+    }
+
+    @Override
+    public void topicVanished(ThingUID connectionBridge, MqttBrokerConnection connection, String topic) {
+        if (!topic.endsWith("/config")) {
+            return;
+        }
+        // Queued as well, so that a removal is not overtaken by a config of the same batch
+        delayedProcessing.accept(new RetainedConfig(connectionBridge, topic, new byte[0]));
+    }
+
+    /**
+     * Process a batch of received and vanished configs.
+     *
+     * Configs are deduplicated by their {@link HaID}, only the last config received for a component is used. A single
+     * {@link DiscoveryResult} is published per Thing, listing the components found in this and in previous batches.
+     *
+     * @param configs configs in the order they have been received
+     */
+    protected synchronized void processConfigs(List<RetainedConfig> configs) {
+        final long started = System.nanoTime();
+
+        Map<HaID, RetainedConfig> latestConfigs = new LinkedHashMap<>();
+        int invalid = 0;
+        for (RetainedConfig config : configs) {
+            try {
+                HaID haID = new HaID(config.topic);
+                // re-insert to keep the order of the last occurrence
+                latestConfigs.remove(haID);
+                latestConfigs.put(haID, config);
+            } catch (IllegalArgumentException e) {
+                logger.debug("Ignoring config of topic {}: {}", config.topic, e.getMessage());
+                invalid++;
+            }
         }
-        this.future = scheduler.schedule(this::publishResults, 2, TimeUnit.SECONDS);
 
-        BaseChannelConfiguration config = BaseChannelConfiguration
-                .fromString(new String(payload, StandardCharsets.UTF_8), gson);
+        final int duplicates = configs.size() - latestConfigs.size() - invalid;
+
+        // Vanished configs
+        latestConfigs.entrySet().removeIf(entry -> {
+            if (entry.getValue().payload.length == 0) {
+                removeComponent(entry.getKey(), entry.getValue().topic);
+                return true;
+            }
+            return false;
+        });
+
+        final List<@Nullable ParsedConfig> parsedConfigs = latestConfigs.entrySet().stream()
+                .map(entry -> parse(entry.getKey(), entry.getValue())).collect(Collectors.toList());
 
         // We will of course find multiple of the same unique Thing IDs, for each different component another one.
         // Therefore the components are assembled into a list and given to the DiscoveryResult label for the user to
         // easily recognize object capabilities.
+        Map<ThingUID, ParsedConfig> configPerThing = new LinkedHashMap<>();
+        for (ParsedConfig parsed : parsedConfigs) {
+            if (parsed == null) {
+                invalid++;
+                continue;
+            }
+            thingIDPerTopic.put(parsed.retainedConfig.topic, parsed.thingUID);
+            // We need to keep track of already found component topics for a specific thing
+            componentsPerThingID.computeIfAbsent(parsed.thingUID.getId(), key -> ConcurrentHashMap.newKeySet())
+                    .add(parsed.haID);
+            // The last config of a Thing provides its name and properties
+            configPerThing.put(parsed.thingUID, parsed);
+        }
 
-        HaID haID = new HaID(topic);
-        final String thingID = config.getThingId(haID.objectID);
+        List<DiscoveryResult> results = configPerThing.values().stream().map(this::createResult)
+                .collect(Collectors.toList());
+        publishResults(results);
 
-        final ThingTypeUID typeID = new ThingTypeUID(MqttBindingConstants.BINDING_ID,
-                MqttBindingConstants.HOMEASSISTANT_MQTT_THING.getId() + "_" + thingID);
+        logger.debug("Processed {} HomeAssistant configs ({} duplicates, {} invalid) into {} discovery results in {} ms",
+                configs.size(), duplicates, invalid, results.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
 
-        final ThingUID thingUID = new ThingUID(typeID, connectionBridge, thingID);
+    private @Nullable ParsedConfig parse(HaID haID, RetainedConfig retainedConfig) {
+        final @Nullable BaseChannelConfiguration config;
+        try {
+            config = BaseChannelConfiguration.fromString(new String(retainedConfig.payload, StandardCharsets.UTF_8),
+                    gson);
+        } catch (JsonParseException e) {
+            logger.debug("Configuration of HomeAssistant component {} invalid: {}", haID, e.getMessage());
+            return null;
+        }
+        if (config == null) {
+            return null;
+        }
 
-        thingIDPerTopic.put(topic, thingUID);
+        final String thingID = config.getThingId(haID.objectID);
+        final ThingTypeUID typeID = new ThingTypeUID(MqttBindingConstants.BINDING_ID,
+                MqttBindingConstants.HOMEASSISTANT_MQTT_THING.getId() + "_" + thingID);
+        return new ParsedConfig(haID, retainedConfig, config,
+                new ThingUID(typeID, retainedConfig.connectionBridge, thingID));
+    }
 
-        // We need to keep track of already found component topics for a specific thing
-        Set<HaID> components = componentsPerThingID.computeIfAbsent(thingID, key -> ConcurrentHashMap.newKeySet());
-        components.add(haID);
+    private DiscoveryResult createResult(ParsedConfig parsed) {
+        final BaseChannelConfiguration config = parsed.config;
+        final String thingID = parsed.thingUID.getId();
+        Set<HaID> components = componentsPerThingID.getOrDefault(thingID, Collections.emptySet());
 
         final String componentNames = components.stream().map(id -> id.component)
                 .map(c -> HA_COMP_TO_NAME.getOrDefault(c, c)).collect(Collectors.joining(", "));
@@ -174,25 +273,18 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         final List<String> topics = components.stream().map(HaID::toShortTopic).collect(Collectors.toList());
 
         Map<String, Object> properties = new HashMap<>();
-        HandlerConfiguration handlerConfig = new HandlerConfiguration(haID.baseTopic, topics);
+        HandlerConfiguration handlerConfig = new HandlerConfiguration(parsed.haID.baseTopic, topics);
         properties = handlerConfig.appendToProperties(properties);
         properties = config.appendToProperties(properties);
         properties.put("deviceId", thingID);
 
-        // Because we need the new properties map with the updated "components" list
-        results.put(thingUID.getAsString(),
-                DiscoveryResultBuilder.create(thingUID).withProperties(properties)
-                        .withRepresentationProperty("deviceId").withBridge(connectionBridge)
-                        .withLabel(config.getThingName() + " (" + componentNames + ")").build());
+        return DiscoveryResultBuilder.create(parsed.thingUID).withProperties(properties)
+                .withRepresentationProperty("deviceId").withBridge(parsed.retainedConfig.connectionBridge)
+                .withLabel(config.getThingName() + " (" + componentNames + ")").build();
     }
 
-    protected void publishResults() {
-        Collection<DiscoveryResult> localResults;
-
-        localResults = new ArrayList<>(results.values());
-        results.clear();
-        componentsPerThingID.clear();
-        for (DiscoveryResult result : localResults) {
+    protected void publishResults(Collection<DiscoveryResult> results) {
+        for (DiscoveryResult result : results) {
             final ThingTypeUID typeID = result.getThingTypeUID();
             ThingType type = typeProvider.derive(typeID, MqttBindingConstants.HOMEASSISTANT_MQTT_THING).build();
             typeProvider.setThingTypeIfAbsent(typeID, type);
@@ -201,22 +293,43 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         }
     }
 
-    @Override
-    public void topicVanished(ThingUID connectionBridge, MqttBrokerConnection connection, String topic) {
-        if (!topic.endsWith("/config")) {
-            return;
-        }
-        if (thingIDPerTopic.containsKey(topic)) {
-            ThingUID thingUID = thingIDPerTopic.remove(topic);
-            final String thingID = thingUID.getId();
-
-            HaID haID = new HaID(topic);
-
-            Set<HaID> components = componentsPerThingID.getOrDefault(thingID, Collections.emptySet());
+    private void removeComponent(HaID haID, String topic) {
+        ThingUID thingUID = thingIDPerTopic.remove(topic);
+        if (thingUID != null) {
+            Set<HaID> components = componentsPerThingID.getOrDefault(thingUID.getId(), Collections.emptySet());
             components.remove(haID);
             if (components.isEmpty()) {
                 thingRemoved(thingUID);
             }
         }
     }
+
+    /**
+     * A retained config as received from the broker. An empty payload denotes a vanished config.
+     */
+    protected static class RetainedConfig {
+        private final ThingUID connectionBridge;
+        private final String topic;
+        private final byte[] payload;
+
+        public RetainedConfig(ThingUID connectionBridge, String topic, byte[] payload) {
+            this.connectionBridge = connectionBridge;
+            this.topic = topic;
+            this.payload = payload;
+        }
+    }
+
+    private static class ParsedConfig {
+        private final HaID haID;
+        private final RetainedConfig retainedConfig;
+        private final BaseChannelConfiguration config;
+        private final ThingUID thingUID;
+
+        ParsedConfig(HaID haID, RetainedConfig retainedConfig, BaseChannelConfiguration config, ThingUID thingUID) {
+            this.haID = haID;
+            this.retainedConfig = retainedConfig;
+            this.config = config;
+            this.thingUID = thingUID;
+        }
+    }
 }
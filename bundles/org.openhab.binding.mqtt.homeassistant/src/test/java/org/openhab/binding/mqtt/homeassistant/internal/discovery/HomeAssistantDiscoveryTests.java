@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.homeassistant.internal.discovery;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.binding.mqtt.homeassistant.internal.discovery.HomeAssistantDiscovery.RetainedConfig;
+import org.openhab.core.config.discovery.DiscoveryResult;
+import org.openhab.core.thing.ThingUID;
+
+/**
+ * Tests the batch processing of retained configs by {@link HomeAssistantDiscovery}
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class HomeAssistantDiscoveryTests {
+
+    private static final ThingUID BRIDGE_UID = new ThingUID("mqtt:broker:myBroker");
+
+    private static final String SWITCH_TOPIC = "homeassistant/switch/node1/switch1/config";
+    private static final String SENSOR_TOPIC = "homeassistant/sensor/node1/sensor1/config";
+    private static final String OTHER_TOPIC = "homeassistant/switch/node2/switch2/config";
+
+    private List<DiscoveryResult> discovered;
+    private List<ThingUID> removed;
+    private TestableHomeAssistantDiscovery discovery;
+
+    /**
+     * Discovery capturing the results instead of publishing them
+     */
+    private class TestableHomeAssistantDiscovery extends HomeAssistantDiscovery {
+        @Override
+        protected void publishResults(Collection<DiscoveryResult> results) {
+            discovered.addAll(results);
+        }
+
+        @Override
+        protected void thingRemoved(ThingUID thingUID) {
+            removed.add(thingUID);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        discovered = new ArrayList<>();
+        removed = new ArrayList<>();
+        discovery = new TestableHomeAssistantDiscovery();
+    }
+
+    private static String config(String name, String deviceId, String deviceName) {
+        return "{\"name\":\"" + name + "\",\"state_topic\":\"state\",\"command_topic\":\"command\","
+                + "\"device\":{\"identifiers\":[\"" + deviceId + "\"],\"name\":\"" + deviceName + "\"}}";
+    }
+
+    private static RetainedConfig received(String topic, String payload) {
+        return new RetainedConfig(BRIDGE_UID, topic, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static RetainedConfig vanished(String topic) {
+        return new RetainedConfig(BRIDGE_UID, topic, new byte[0]);
+    }
+
+    @Test
+    public void duplicateConfigsResultInOneResultPerThing() {
+        discovery.processConfigs(List.of(received(SWITCH_TOPIC, config("Switch", "device1", "Old name")),
+                received(SENSOR_TOPIC, config("Sensor", "device1", "Device 1")),
+                received(SWITCH_TOPIC, config("Switch", "device1", "Device 1"))));
+
+        assertThat(discovered.size(), is(1));
+        DiscoveryResult result = discovered.get(0);
+        assertThat(result.getThingUID().getId(), is("device1"));
+        assertThat(result.getLabel(), startsWith("Device 1 ("));
+        @SuppressWarnings("unchecked")
+        List<String> topics = (List<String>) result.getProperties().get("topics");
+        assertThat(topics, containsInAnyOrder("switch/node1/switch1", "sensor/node1/sensor1"));
+    }
+
+    @Test
+    public void configsOfDifferentThingsResultInOneResultEach() {
+        discovery.processConfigs(List.of(received(SWITCH_TOPIC, config("Switch", "device1", "Device 1")),
+                received(OTHER_TOPIC, config("Switch", "device2", "Device 2"))));
+
+        assertThat(discovered.size(), is(2));
+    }
+
+    @Test
+    public void vanishAfterConfigInSameBatchIsNotDiscovered() {
+        discovery.processConfigs(List.of(received(SWITCH_TOPIC, config("Switch", "device1", "Device 1")),
+                received(OTHER_TOPIC, config("Switch", "device2", "Device 2")), vanished(SWITCH_TOPIC)));
+
+        assertThat(discovered.size(), is(1));
+        assertThat(discovered.get(0).getThingUID().getId(), is("device2"));
+        // the Thing was never published, so there is nothing to remove
+        assertThat(removed.size(), is(0));
+    }
+
+    @Test
+    public void vanishInLaterBatchRemovesThing() {
+        discovery.processConfigs(List.of(received(SWITCH_TOPIC, config("Switch", "device1", "Device 1"))));
+        discovery.processConfigs(List.of(vanished(SWITCH_TOPIC)));
+
+        assertThat(discovered.size(), is(1));
+        assertThat(removed, is(List.of(discovered.get(0).getThingUID())));
+    }
+
+    @Test
+    public void componentsOfPreviousBatchesAreKept() {
+        discovery.processConfigs(List.of(received(SWITCH_TOPIC, config("Switch", "device1", "Device 1"))));
+        discovery.processConfigs(List.of(received(SENSOR_TOPIC, config("Sensor", "device1", "Device 1"))));
+
+        assertThat(discovered.size(), is(2));
+        @SuppressWarnings("unchecked")
+        List<String> topics = (List<String>) discovered.get(1).getProperties().get("topics");
+        assertThat(topics, containsInAnyOrder("switch/node1/switch1", "sensor/node1/sensor1"));
+    }
+
+    @Test
+    public void vanishOfOneComponentKeepsThing() {
+        discovery.processConfigs(List.of(received(SWITCH_TOPIC, config("Switch", "device1", "Device 1")),
+                received(SENSOR_TOPIC, config("Sensor", "device1", "Device 1"))));
+        discovery.processConfigs(List.of(vanished(SWITCH_TOPIC)));
+
+        assertThat(removed.size(), is(0));
+
+        discovery.processConfigs(List.of(vanished(SENSOR_TOPIC)));
+
+        assertThat(removed, is(List.of(discovered.get(0).getThingUID())));
+    }
+
+    @Test
+    public void invalidConfigsAreSkipped() {
+        discovery.processConfigs(List.of(received(SWITCH_TOPIC, "{\"name\": \"Switch\", "),
+                received(OTHER_TOPIC, config("Switch", "device2", "Device 2")),
+                received("homeassistant/config", config("Switch", "device3", "Device 3"))));
+
+        assertThat(discovered.size(), is(1));
+        assertThat(discovered.get(0).getThingUID().getId(), is("device2"));
+    }
+}
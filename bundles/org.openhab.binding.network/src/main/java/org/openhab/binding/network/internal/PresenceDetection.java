@@ -12,18 +12,20 @@
  */
 package org.openhab.binding.network.internal;
 
-import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -79,10 +81,11 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     ExpiringCacheAsync<PresenceDetectionValue> cache;
     private final PresenceDetectionListener updateListener;
     private @Nullable ScheduledFuture<?> refreshJob;
-    protected @Nullable ExecutorService executorService;
+    PresenceDetectionEngine engine = PresenceDetectionEngine.getInstance();
+    protected @Nullable CompletableFuture<@Nullable Void> detection;
     private String dhcpState = "off";
-    Integer currentCheck = 0;
     int detectionChecks;
+    volatile boolean checkDropped;
 
     public PresenceDetection(final PresenceDetectionListener updateListener, int cacheDeviceStateTimeInMS)
             throws IllegalArgumentException {
@@ -279,14 +282,10 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         cache.getValue(callback);
     }
 
-    public ExecutorService getThreadsFor(int threadCount) {
-        return Executors.newFixedThreadPool(threadCount);
-    }
-
     /**
      * Perform a presence detection with ICMP-, ARP ping and
-     * TCP connection attempts simultaneously. A fixed thread pool will be created with as many
-     * thread as necessary to perform all tests at once.
+     * TCP connection attempts simultaneously. The checks are performed by the
+     * {@link PresenceDetectionEngine} shared by all presence detections.
      *
      * This is a NO-OP, if there is already an ongoing detection or if the cached value
      * is not expired yet.
@@ -300,7 +299,7 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * @return Return true if a presence detection is performed and false otherwise.
      */
     public boolean performPresenceDetection(boolean waitForDetectionToFinish) {
-        if (executorService != null) {
+        if (detection != null) {
             logger.debug(
                     "There is already an ongoing presence discovery for {} and a new one was issued by the scheduler! TCP Port {}",
                     hostname, tcpPorts);
@@ -313,7 +312,6 @@ public class PresenceDetection implements IPRequestReceivedCallback {
 
         Set<String> interfaceNames = null;
 
-        currentCheck = 0;
         detectionChecks = tcpPorts.size();
         if (pingMethod != null) {
             detectionChecks += 1;
@@ -327,49 +325,47 @@ public class PresenceDetection implements IPRequestReceivedCallback {
             return false;
         }
 
-        final ExecutorService executorService = getThreadsFor(detectionChecks);
-        this.executorService = executorService;
+        // TCP checks do not block a thread, all others run on the probe threads of the engine
+        int blockingChecks = pingMethod != null ? 1 : 0;
+        if (arpPingMethod == ArpPingUtilEnum.ELI_FULKERSON_ARP_PING_FOR_WINDOWS) {
+            blockingChecks += 1;
+        } else if (interfaceNames != null) {
+            blockingChecks += interfaceNames.size();
+        }
+        engine.setBlockingProbes(this, blockingChecks);
+        checkDropped = false;
+
+        final CompletableFuture<@Nullable Void> detection = new CompletableFuture<>();
+        this.detection = detection;
+        List<CompletableFuture<@Nullable Void>> checks = new ArrayList<>();
 
         for (Integer tcpPort : tcpPorts) {
-            executorService.execute(() -> {
-                Thread.currentThread().setName("presenceDetectionTCP_" + hostname + " " + String.valueOf(tcpPort));
-                performServicePing(tcpPort);
-                checkIfFinished();
-            });
+            checks.add(performServicePing(tcpPort));
         }
 
-        // ARP ping for IPv4 addresses. Use single executor for Windows tool and
-        // each own executor for each network interface for other tools
+        // ARP ping for IPv4 addresses. Use single check for Windows tool and
+        // one check for each network interface for other tools
         if (arpPingMethod == ArpPingUtilEnum.ELI_FULKERSON_ARP_PING_FOR_WINDOWS) {
-            executorService.execute(() -> {
-                Thread.currentThread().setName("presenceDetectionARP_" + hostname + " ");
-                // arp-ping.exe tool capable of handling multiple interfaces by itself
-                performARPping("");
-                checkIfFinished();
-            });
+            // arp-ping.exe tool capable of handling multiple interfaces by itself
+            checks.add(performARPping(""));
         } else if (interfaceNames != null) {
             for (final String interfaceName : interfaceNames) {
-                executorService.execute(() -> {
-                    Thread.currentThread().setName("presenceDetectionARP_" + hostname + " " + interfaceName);
-                    performARPping(interfaceName);
-                    checkIfFinished();
-                });
+                checks.add(performARPping(interfaceName));
             }
         }
 
         // ICMP ping
         if (pingMethod != null) {
-            executorService.execute(() -> {
-                if (pingMethod != IpPingMethodEnum.JAVA_PING) {
-                    Thread.currentThread().setName("presenceDetectionICMP_" + hostname);
-                    performSystemPing();
-                } else {
-                    performJavaPing();
-                }
-                checkIfFinished();
-            });
+            if (pingMethod != IpPingMethodEnum.JAVA_PING) {
+                checks.add(performSystemPing());
+            } else {
+                checks.add(performJavaPing());
+            }
         }
 
+        CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[checks.size()]))
+                .whenComplete((result, e) -> submitFinalResult(detection));
+
         if (waitForDetectionToFinish) {
             waitForPresenceDetection();
         }
@@ -380,27 +376,36 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     /**
      * Calls updateListener.finalDetectionResult() with a final result value.
      * Safe to be called from different threads. After a call to this method,
-     * the presence detection process is finished and all threads are forcefully
-     * shut down.
+     * the presence detection process is finished. Results of checks that did
+     * not finish yet are not waited for.
+     *
+     * @param detection The detection process to finish
      */
-    private synchronized void submitFinalResult() {
-        // Do nothing if we are not in a detection process
-        ExecutorService service = executorService;
-        if (service == null) {
+    private synchronized void submitFinalResult(CompletableFuture<@Nullable Void> detection) {
+        // Do nothing if we are not in this detection process anymore
+        if (this.detection != detection) {
             return;
         }
         // Finish the detection process
-        service.shutdownNow();
-        executorService = null;
+        this.detection = null;
         detectionChecks = 0;
+        engine.setBlockingProbes(this, 0);
 
         PresenceDetectionValue v;
 
         // The cache will be expired by now if cache_time < timeoutInMS. But the device might be actually reachable.
         // Therefore use lastSeenInMS here and not cache.isExpired() to determine if we got a ping response.
         if (lastSeenInMS + timeoutInMS + 100 < System.currentTimeMillis()) {
-            // We haven't seen the device in the detection process
-            v = new PresenceDetectionValue(hostname, -1);
+            @Nullable
+            PresenceDetectionValue lastValue = cache.getExpiredValue();
+            if (checkDropped && lastValue != null) {
+                // Not all checks were performed, so not seeing the device is inconclusive. Keep the last state.
+                logger.debug("Presence detection for {} dropped checks, keeping the last state", hostname);
+                v = lastValue;
+            } else {
+                // We haven't seen the device in the detection process
+                v = new PresenceDetectionValue(hostname, -1);
+            }
         } else {
             // Make the cache valid again and submit the value.
             v = cache.getExpiredValue();
@@ -412,40 +417,34 @@ public class PresenceDetection implements IPRequestReceivedCallback {
             destination.invalidateValue();
         }
         updateListener.finalDetectionResult(v);
+        detection.complete(null);
     }
 
     /**
-     * This method is called after each individual check and increases a check counter.
-     * If the counter equals the total checks,the final result is submitted. This will
-     * happen way before the "timeoutInMS", if all checks were successful.
-     * Thread safe.
-     */
-    private synchronized void checkIfFinished() {
-        currentCheck += 1;
-        if (currentCheck < detectionChecks) {
-            return;
-        }
-        submitFinalResult();
-    }
-
-    /**
-     * Waits for the presence detection threads to finish. Returns immediately
+     * Waits for the presence detection checks to finish. Returns immediately
      * if no presence detection is performed right now.
      */
     public void waitForPresenceDetection() {
-        ExecutorService service = executorService;
-        if (service == null) {
+        CompletableFuture<@Nullable Void> detection = this.detection;
+        if (detection == null) {
             return;
         }
         try {
             // We may get interrupted here by cancelRefreshJob().
-            service.awaitTermination(timeoutInMS + 100, TimeUnit.MILLISECONDS);
-            submitFinalResult();
+            detection.get(timeoutInMS + 100, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Submit what we have got so far
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // Reset interrupt flag
-            service.shutdownNow();
-            executorService = null;
+            synchronized (this) {
+                if (this.detection == detection) {
+                    this.detection = null;
+                    engine.setBlockingProbes(this, 0);
+                }
+            }
+            return;
         }
+        submitFinalResult(detection);
     }
 
     /**
@@ -473,12 +472,18 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         return v;
     }
 
-    protected void performServicePing(int tcpPort) {
+    protected CompletableFuture<@Nullable Void> performServicePing(int tcpPort) {
         logger.trace("Perform TCP presence detection for {} on port: {}", hostname, tcpPort);
-        try {
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress != null) {
-                networkUtils.servicePing(destinationAddress.getHostAddress(), tcpPort, timeoutInMS).ifPresent(o -> {
+        InetAddress destinationAddress = destination.getValue();
+        if (destinationAddress == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return engine.tcpPing(destinationAddress, tcpPort, timeoutInMS).handle((result, e) -> {
+            if (e != null) {
+                // This should not happen and might be a user configuration issue, we log a warning message therefore.
+                logger.warn("Could not create a socket connection", e);
+            } else {
+                result.ifPresent(o -> {
                     if (o.isSuccess()) {
                         PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.TCP_CONNECTION,
                                 getLatency(o, preferResponseTimeAsLatency));
@@ -487,10 +492,8 @@ public class PresenceDetection implements IPRequestReceivedCallback {
                     }
                 });
             }
-        } catch (IOException e) {
-            // This should not happen and might be a user configuration issue, we log a warning message therefore.
-            logger.warn("Could not create a socket connection", e);
-        }
+            return null;
+        });
     }
 
     /**
@@ -501,31 +504,37 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * @param interfaceName The interface name. You can request a list of interface names
      *            from {@see NetworkUtils.getInterfaceNames()} for example.
      */
-    protected void performARPping(String interfaceName) {
-        try {
-            logger.trace("Perform ARP ping presence detection for {} on interface: {}", hostname, interfaceName);
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress == null) {
-                return;
-            }
+    protected CompletableFuture<@Nullable Void> performARPping(String interfaceName) {
+        logger.trace("Perform ARP ping presence detection for {} on interface: {}", hostname, interfaceName);
+        InetAddress destinationAddress = destination.getValue();
+        if (destinationAddress == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final String key = "arp " + arpPingMethod + " " + interfaceName + " " + destinationAddress.getHostAddress()
+                + (iosDevice ? " ios" : "") + " " + timeoutInMS;
+        return engine.probe(key, System.currentTimeMillis() + timeoutInMS, () -> {
             if (iosDevice) {
                 networkUtils.wakeUpIOS(destinationAddress);
                 Thread.sleep(50);
             }
-
-            networkUtils.nativeARPPing(arpPingMethod, arpPingUtilPath, interfaceName,
-                    destinationAddress.getHostAddress(), timeoutInMS).ifPresent(o -> {
-                        if (o.isSuccess()) {
-                            PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ARP_PING,
-                                    getLatency(o, preferResponseTimeAsLatency));
-                            updateListener.partialDetectionResult(v);
-                        }
-                    });
-        } catch (IOException e) {
-            logger.trace("Failed to execute an arp ping for ip {}", hostname, e);
-        } catch (InterruptedException ignored) {
-            // This can be ignored, the thread will end anyway
-        }
+            return networkUtils.nativeARPPing(arpPingMethod, arpPingUtilPath, interfaceName,
+                    destinationAddress.getHostAddress(), timeoutInMS);
+        }).handle((result, e) -> {
+            if (PresenceDetectionEngine.isDropped(e)) {
+                checkDropped = true;
+            } else if (e != null) {
+                logger.trace("Failed to execute an arp ping for ip {}", hostname, e);
+            } else {
+                result.ifPresent(o -> {
+                    if (o.isSuccess()) {
+                        PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ARP_PING,
+                                getLatency(o, preferResponseTimeAsLatency));
+                        updateListener.partialDetectionResult(v);
+                    }
+                });
+            }
+            return null;
+        });
     }
 
     /**
@@ -534,43 +543,61 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * the TCP echo service on port 7 which barely no device or server supports nowadays.
      * (http://docs.oracle.com/javase/7/docs/api/java/net/InetAddress.html#isReachable%28int%29)
      */
-    protected void performJavaPing() {
+    protected CompletableFuture<@Nullable Void> performJavaPing() {
         logger.trace("Perform java ping presence detection for {}", hostname);
 
         InetAddress destinationAddress = destination.getValue();
         if (destinationAddress == null) {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        networkUtils.javaPing(timeoutInMS, destinationAddress).ifPresent(o -> {
-            if (o.isSuccess()) {
-                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING,
-                        getLatency(o, preferResponseTimeAsLatency));
-                updateListener.partialDetectionResult(v);
-            }
-        });
+        return engine.probe("java " + destinationAddress.getHostAddress() + " " + timeoutInMS,
+                System.currentTimeMillis() + timeoutInMS, () -> networkUtils.javaPing(timeoutInMS, destinationAddress))
+                .handle((result, e) -> {
+                    if (PresenceDetectionEngine.isDropped(e)) {
+                        checkDropped = true;
+                    } else if (e != null) {
+                        logger.trace("Failed to execute a java ping for ip {}", hostname, e);
+                    } else {
+                        result.ifPresent(o -> {
+                            if (o.isSuccess()) {
+                                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING,
+                                        getLatency(o, preferResponseTimeAsLatency));
+                                updateListener.partialDetectionResult(v);
+                            }
+                        });
+                    }
+                    return null;
+                });
     }
 
-    protected void performSystemPing() {
-        try {
-            logger.trace("Perform native ping presence detection for {}", hostname);
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress == null) {
-                return;
-            }
-
-            networkUtils.nativePing(pingMethod, destinationAddress.getHostAddress(), timeoutInMS).ifPresent(o -> {
-                if (o.isSuccess()) {
-                    PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING,
-                            getLatency(o, preferResponseTimeAsLatency));
-                    updateListener.partialDetectionResult(v);
-                }
-            });
-        } catch (IOException e) {
-            logger.trace("Failed to execute a native ping for ip {}", hostname, e);
-        } catch (InterruptedException e) {
-            // This can be ignored, the thread will end anyway
+    protected CompletableFuture<@Nullable Void> performSystemPing() {
+        logger.trace("Perform native ping presence detection for {}", hostname);
+        InetAddress destinationAddress = destination.getValue();
+        final IpPingMethodEnum pingMethod = this.pingMethod;
+        if (destinationAddress == null || pingMethod == null) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        return engine.probe("icmp " + pingMethod + " " + destinationAddress.getHostAddress() + " " + timeoutInMS,
+                System.currentTimeMillis() + timeoutInMS,
+                () -> networkUtils.nativePing(pingMethod, destinationAddress.getHostAddress(), timeoutInMS))
+                .handle((result, e) -> {
+                    if (PresenceDetectionEngine.isDropped(e)) {
+                        checkDropped = true;
+                    } else if (e != null) {
+                        logger.trace("Failed to execute a native ping for ip {}", hostname, e);
+                    } else {
+                        result.ifPresent(o -> {
+                            if (o.isSuccess()) {
+                                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING,
+                                        getLatency(o, preferResponseTimeAsLatency));
+                                updateListener.partialDetectionResult(v);
+                            }
+                        });
+                    }
+                    return null;
+                });
     }
 
     private double getLatency(PingResult pingResult, boolean preferResponseTimeAsLatency) {
@@ -622,6 +649,7 @@ public class PresenceDetection implements IPRequestReceivedCallback {
             future.cancel(true);
             refreshJob = null;
         }
+        engine.setBlockingProbes(this, 0);
         if (cachedDestination != null) {
             disableDHCPListen(cachedDestination);
         }
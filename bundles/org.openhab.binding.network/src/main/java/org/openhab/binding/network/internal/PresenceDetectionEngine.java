@@ -0,0 +1,424 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.network.internal.utils.PingResult;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A singleton that performs the probes of all {@link PresenceDetection} objects of the binding.
+ *
+ * TCP connection attempts are non-blocking connects, all handled by one selector thread. The thread is started with
+ * the first TCP probe and ends when no probe is pending anymore. Probes that block (system ping, ARP ping and java
+ * ping) run on a pool of threads, sized by the number of blocking probes the presence detections perform at once. A
+ * blocking probe that could not be started before its deadline is dropped, its future is cancelled then.
+ *
+ * Probes are identified by a key. A probe that is still running or finished less than {@link #SHARE_RESULT_MS} ago
+ * is not performed again, instead its result is shared, for example with other Things for the same host.
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class PresenceDetectionEngine {
+    static final int MAX_PROBE_THREADS = 64;
+    private static final int MAX_SHARED_PROBES = 512;
+    static final long SHARE_RESULT_MS = 1000;
+
+    private static @Nullable PresenceDetectionEngine instance;
+
+    private final Logger logger = LoggerFactory.getLogger(PresenceDetectionEngine.class);
+
+    private final ThreadPoolExecutor probeExecutor;
+    private final Map<Object, Integer> blockingProbesPerOwner = new HashMap<>();
+    private final Queue<TcpProbe> pendingConnects = new ConcurrentLinkedQueue<>();
+    private @Nullable Selector selector;
+
+    private final Map<String, SharedProbe> sharedProbes = new LinkedHashMap<String, SharedProbe>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, SharedProbe> eldest) {
+            return size() > MAX_SHARED_PROBES;
+        }
+    };
+
+    private final AtomicLong performedCount = new AtomicLong();
+    private final AtomicLong sharedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * Return the engine shared by all presence detections of the binding
+     */
+    public static synchronized PresenceDetectionEngine getInstance() {
+        PresenceDetectionEngine instance = PresenceDetectionEngine.instance;
+        if (instance == null) {
+            instance = new PresenceDetectionEngine(1);
+            PresenceDetectionEngine.instance = instance;
+        }
+        return instance;
+    }
+
+    PresenceDetectionEngine(int probeThreads) {
+        probeExecutor = new ThreadPoolExecutor(probeThreads, probeThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory("networkPresence"));
+        probeExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Set the number of blocking probes an owner, like a {@link PresenceDetection}, performs at once. The probe
+     * threads are sized to perform the blocking probes of all owners at the same time, up to
+     * {@link #MAX_PROBE_THREADS}. Owners have to remove themselves when their probes are done.
+     *
+     * @param owner The owner of the probes
+     * @param probes The number of blocking probes. 0 removes the owner.
+     */
+    public void setBlockingProbes(Object owner, int probes) {
+        synchronized (blockingProbesPerOwner) {
+            if (probes > 0) {
+                blockingProbesPerOwner.put(owner, probes);
+            } else {
+                blockingProbesPerOwner.remove(owner);
+            }
+            int total = getBlockingProbes();
+            int threads = Math.max(1, Math.min(MAX_PROBE_THREADS, total));
+            // The core size must never exceed the maximum size
+            if (threads > probeExecutor.getMaximumPoolSize()) {
+                probeExecutor.setMaximumPoolSize(threads);
+                probeExecutor.setCorePoolSize(threads);
+            } else {
+                probeExecutor.setCorePoolSize(threads);
+                probeExecutor.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of blocking probes of all owners.
+     */
+    public int getBlockingProbes() {
+        synchronized (blockingProbesPerOwner) {
+            int total = 0;
+            for (int ownerProbes : blockingProbesPerOwner.values()) {
+                total += ownerProbes;
+            }
+            return total;
+        }
+    }
+
+    public int getProbeThreads() {
+        return probeExecutor.getMaximumPoolSize();
+    }
+
+    /**
+     * Return true if the given exception of a probe result denotes a dropped probe.
+     */
+    public static boolean isDropped(@Nullable Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        return cause instanceof CancellationException;
+    }
+
+    /**
+     * Perform a blocking probe, like a system or ARP ping, on the probe threads.
+     *
+     * @param key Identifies the probe, for example by type, destination and timeout. Probes with the same key share
+     *            results.
+     * @param deadlineInMS Time (epoch milliseconds) after which the probe is not started anymore. The future is
+     *            cancelled then, see {@link #isDropped(Throwable)}.
+     * @param probe The probe to perform
+     * @return The result of the probe
+     */
+    public CompletableFuture<Optional<PingResult>> probe(String key, long deadlineInMS,
+            Callable<Optional<PingResult>> probe) {
+        return share(key, () -> {
+            CompletableFuture<Optional<PingResult>> future = new CompletableFuture<>();
+            probeExecutor.execute(() -> {
+                if (System.currentTimeMillis() > deadlineInMS) {
+                    logger.trace("Dropping probe {}, deadline passed before it could be started", key);
+                    droppedCount.incrementAndGet();
+                    future.cancel(false);
+                    return;
+                }
+                try {
+                    future.complete(probe.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        });
+    }
+
+    /**
+     * Try to establish a TCP connection to the given port, without blocking a thread.
+     *
+     * @param destination The destination address
+     * @param port The tcp port. Must be not 0.
+     * @param timeoutInMS Timeout in ms
+     * @return The result of the connection attempt. Completes exceptionally if the attempt could not be started.
+     */
+    public CompletableFuture<Optional<PingResult>> tcpPing(InetAddress destination, int port, int timeoutInMS) {
+        return share("tcp " + destination.getHostAddress() + ":" + port + " " + timeoutInMS, () -> {
+            TcpProbe probe = new TcpProbe(new InetSocketAddress(destination, port), timeoutInMS);
+            pendingConnects.add(probe);
+            try {
+                wakeUpSelector();
+            } catch (IOException e) {
+                pendingConnects.remove(probe);
+                probe.future.completeExceptionally(e);
+            }
+            return probe.future;
+        });
+    }
+
+    public long getPerformedCount() {
+        return performedCount.get();
+    }
+
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private CompletableFuture<Optional<PingResult>> share(String key,
+            Supplier<CompletableFuture<Optional<PingResult>>> start) {
+        synchronized (sharedProbes) {
+            SharedProbe shared = sharedProbes.get(key);
+            if (shared != null && shared.isRecent()) {
+                sharedCount.incrementAndGet();
+                return shared.future;
+            }
+            performedCount.incrementAndGet();
+            CompletableFuture<Optional<PingResult>> future = start.get();
+            SharedProbe probe = new SharedProbe(future);
+            future.whenComplete((result, e) -> probe.finishedInMS = System.currentTimeMillis());
+            sharedProbes.put(key, probe);
+            return future;
+        }
+    }
+
+    /**
+     * Start the selector thread if it is not running and make it register pending connects
+     */
+    private synchronized void wakeUpSelector() throws IOException {
+        Selector selector = this.selector;
+        if (selector == null) {
+            final Selector newSelector = Selector.open();
+            this.selector = newSelector;
+            Thread thread = new NamedThreadFactory("networkPresenceTCP").newThread(() -> runSelector(newSelector));
+            thread.start();
+        } else {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * End the selector thread, if there is nothing to do anymore
+     *
+     * @return true if the selector thread has to end
+     */
+    private synchronized boolean stopSelectorIfIdle(Selector selector, int activeProbes) {
+        if (activeProbes > 0 || !pendingConnects.isEmpty()) {
+            return false;
+        }
+        this.selector = null;
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close selector", e);
+        }
+        return true;
+    }
+
+    private void runSelector(Selector selector) {
+        int activeProbes = 0;
+        try {
+            while (true) {
+                TcpProbe pending;
+                while ((pending = pendingConnects.poll()) != null) {
+                    if (connect(pending, selector)) {
+                        activeProbes++;
+                    }
+                }
+                if (stopSelectorIfIdle(selector, activeProbes)) {
+                    return;
+                }
+
+                long now = System.currentTimeMillis();
+                long nextDeadline = Long.MAX_VALUE;
+                for (SelectionKey key : selector.keys()) {
+                    TcpProbe probe = (TcpProbe) key.attachment();
+                    if (key.isValid() && probe != null) {
+                        nextDeadline = Math.min(nextDeadline, probe.deadlineInMS);
+                    }
+                }
+                selector.select(Math.max(1, nextDeadline - now));
+
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    finishConnect(key);
+                    activeProbes--;
+                }
+
+                now = System.currentTimeMillis();
+                for (SelectionKey key : selector.keys()) {
+                    TcpProbe probe = (TcpProbe) key.attachment();
+                    if (key.isValid() && probe != null && probe.deadlineInMS <= now) {
+                        close(key);
+                        probe.complete(false);
+                        activeProbes--;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("TCP presence detection stopped unexpectedly", e);
+            synchronized (this) {
+                this.selector = null;
+            }
+            if (selector.isOpen()) {
+                for (SelectionKey key : selector.keys()) {
+                    TcpProbe probe = (TcpProbe) key.attachment();
+                    close(key);
+                    if (probe != null) {
+                        probe.future.completeExceptionally(e);
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+            TcpProbe pending;
+            while ((pending = pendingConnects.poll()) != null) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Start a non-blocking connect
+     *
+     * @return true if the probe waits for the connection to be established
+     */
+    private boolean connect(TcpProbe probe, Selector selector) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            probe.startedInMS = System.currentTimeMillis();
+            if (channel.connect(probe.address)) {
+                channel.close();
+                probe.complete(true);
+                return false;
+            }
+            channel.register(selector, SelectionKey.OP_CONNECT, probe);
+            return true;
+        } catch (ConnectException | NoRouteToHostException e) {
+            probe.complete(false);
+        } catch (IOException e) {
+            probe.future.completeExceptionally(e);
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+        return false;
+    }
+
+    private void finishConnect(SelectionKey key) {
+        TcpProbe probe = (TcpProbe) key.attachment();
+        boolean success;
+        try {
+            success = ((SocketChannel) key.channel()).finishConnect();
+        } catch (IOException e) {
+            success = false;
+        }
+        close(key);
+        if (probe != null) {
+            probe.complete(success);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            logger.trace("Failed to close channel", e);
+        }
+    }
+
+    private static class SharedProbe {
+        private final CompletableFuture<Optional<PingResult>> future;
+        private volatile long finishedInMS;
+
+        SharedProbe(CompletableFuture<Optional<PingResult>> future) {
+            this.future = future;
+        }
+
+        boolean isRecent() {
+            return !future.isDone() || System.currentTimeMillis() - finishedInMS < SHARE_RESULT_MS;
+        }
+    }
+
+    private static class TcpProbe {
+        private final InetSocketAddress address;
+        private final long deadlineInMS;
+        private long startedInMS;
+        private final CompletableFuture<Optional<PingResult>> future = new CompletableFuture<>();
+
+        TcpProbe(InetSocketAddress address, int timeoutInMS) {
+            this.address = address;
+            this.deadlineInMS = System.currentTimeMillis() + timeoutInMS;
+        }
+
+        void complete(boolean success) {
+            future.complete(Optional.of(new PingResult(success, System.currentTimeMillis() - startedInMS)));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.binding.network.internal.utils.PingResult;
+
+/**
+ * Tests cases for {@see PresenceDetectionEngine}
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class PresenceDetectionEngineTest {
+    private PresenceDetectionEngine subject;
+
+    @BeforeEach
+    public void setUp() {
+        subject = new PresenceDetectionEngine(1);
+    }
+
+    @Test
+    public void tcpPingTest() throws Exception {
+        InetAddress localhost = InetAddress.getLoopbackAddress();
+        int closedPort;
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, localhost)) {
+            Optional<PingResult> result = subject.tcpPing(localhost, serverSocket.getLocalPort(), 1000).get(2,
+                    TimeUnit.SECONDS);
+            assertTrue(result.isPresent());
+            assertTrue(result.get().isSuccess());
+            closedPort = serverSocket.getLocalPort();
+        }
+
+        Optional<PingResult> result = subject.tcpPing(localhost, closedPort, 1000).get(2, TimeUnit.SECONDS);
+        // The result of the open port is still shared
+        assertTrue(result.get().isSuccess());
+        assertThat(subject.getSharedCount(), is(1L));
+
+        Thread.sleep(PresenceDetectionEngine.SHARE_RESULT_MS + 10);
+        result = subject.tcpPing(localhost, closedPort, 1000).get(2, TimeUnit.SECONDS);
+        assertTrue(result.isPresent());
+        assertFalse(result.get().isSuccess());
+        assertThat(subject.getPerformedCount(), is(2L));
+    }
+
+    @Test
+    public void sharedProbeTest() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<Optional<PingResult>> first = subject.probe("key", Long.MAX_VALUE, () -> {
+            calls.incrementAndGet();
+            latch.await();
+            return Optional.of(new PingResult(true, 10));
+        });
+        CompletableFuture<Optional<PingResult>> second = subject.probe("key", Long.MAX_VALUE, () -> {
+            calls.incrementAndGet();
+            return Optional.empty();
+        });
+        latch.countDown();
+
+        assertSame(first, second);
+        assertTrue(second.get(2, TimeUnit.SECONDS).get().isSuccess());
+        assertThat(calls.get(), is(1));
+        assertThat(subject.getSharedCount(), is(1L));
+    }
+
+    @Test
+    public void droppedProbeTest() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        subject.probe("blocking", Long.MAX_VALUE, () -> {
+            latch.await();
+            return Optional.empty();
+        });
+        // Has to wait for the only probe thread, and its deadline passes in the meantime
+        CompletableFuture<Optional<PingResult>> dropped = subject.probe("dropped",
+                System.currentTimeMillis() + 50, () -> Optional.of(new PingResult(true, 10)));
+        Thread.sleep(100);
+        latch.countDown();
+
+        assertThrows(CancellationException.class, () -> dropped.get(2, TimeUnit.SECONDS));
+        assertTrue(dropped.handle((result, e) -> PresenceDetectionEngine.isDropped(e)).get());
+        assertThat(subject.getDroppedCount(), is(1L));
+    }
+
+    @Test
+    public void probeThreadsTest() {
+        Object first = new Object();
+        Object second = new Object();
+
+        subject.setBlockingProbes(first, 3);
+        subject.setBlockingProbes(second, 2);
+        assertThat(subject.getProbeThreads(), is(5));
+
+        subject.setBlockingProbes(first, 1);
+        assertThat(subject.getProbeThreads(), is(3));
+
+        subject.setBlockingProbes(second, PresenceDetectionEngine.MAX_PROBE_THREADS);
+        assertThat(subject.getProbeThreads(), is(PresenceDetectionEngine.MAX_PROBE_THREADS));
+
+        subject.setBlockingProbes(first, 0);
+        subject.setBlockingProbes(second, 0);
+        assertThat(subject.getProbeThreads(), is(1));
+    }
+}
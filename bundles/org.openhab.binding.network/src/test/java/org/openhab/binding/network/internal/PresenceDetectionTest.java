@@ -22,7 +22,7 @@ import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.Collections;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -55,7 +55,6 @@ public class PresenceDetectionTest {
     private PresenceDetection subject;
 
     private @Mock Consumer<PresenceDetectionValue> callback;
-    private @Mock ExecutorService executorService;
     private @Mock PresenceDetectionListener listener;
     private @Mock NetworkUtils networkUtils;
 
@@ -68,6 +67,7 @@ public class PresenceDetectionTest {
 
         subject = spy(new PresenceDetection(listener, (int) CACHETIME));
         subject.networkUtils = networkUtils;
+        subject.engine = spy(new PresenceDetectionEngine(4));
         subject.cache = spy(new ExpiringCacheAsync<>(CACHETIME, () -> {
             subject.performPresenceDetection(false);
         }));
@@ -89,26 +89,28 @@ public class PresenceDetectionTest {
         subject.waitForPresenceDetection();
     }
 
-    // Depending on the amount of test methods an according amount of threads is spawned.
-    // We will check if they spawn and return in time.
+    // Depending on the amount of test methods an according amount of checks is performed.
+    // We will check if they are started and the detection finishes in time, even if checks do not return.
     @Test
-    public void threadCountTest() {
-        assertNull(subject.executorService);
+    public void detectionChecksTest() {
+        assertNull(subject.detection);
 
-        doNothing().when(subject).performARPping(any());
-        doNothing().when(subject).performJavaPing();
-        doNothing().when(subject).performSystemPing();
-        doNothing().when(subject).performServicePing(anyInt());
+        CompletableFuture<Void> pendingCheck = new CompletableFuture<>();
+        doReturn(pendingCheck).when(subject).performARPping(any());
+        doReturn(pendingCheck).when(subject).performJavaPing();
+        doReturn(pendingCheck).when(subject).performSystemPing();
+        doReturn(pendingCheck).when(subject).performServicePing(anyInt());
 
         subject.performPresenceDetection(false);
 
-        // Thread count: ARP + ICMP + 1*TCP
+        // Check count: ARP + ICMP + 1*TCP
         assertThat(subject.detectionChecks, is(3));
-        assertNotNull(subject.executorService);
+        assertNotNull(subject.detection);
 
         subject.waitForPresenceDetection();
         assertThat(subject.detectionChecks, is(0));
-        assertNull(subject.executorService);
+        assertNull(subject.detection);
+        verify(listener, times(1)).finalDetectionResult(any());
     }
 
     @Test
@@ -117,7 +119,8 @@ public class PresenceDetectionTest {
                 anyString(), anyInt());
         doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils)
                 .nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(), any(), anyInt());
-        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils).servicePing(anyString(), anyInt(), anyInt());
+        doReturn(CompletableFuture.completedFuture(Optional.of(new PingResult(true, 10)))).when(subject.engine)
+                .tcpPing(any(), anyInt(), anyInt());
 
         assertTrue(subject.performPresenceDetection(false));
         subject.waitForPresenceDetection();
@@ -136,31 +139,26 @@ public class PresenceDetectionTest {
 
     @Test
     public void cacheTest() throws InterruptedException, IOException {
-        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING),
-                anyString(), anyInt());
-        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils)
-                .nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(), any(), anyInt());
-        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils).servicePing(anyString(), anyInt(), anyInt());
-
-        doReturn(executorService).when(subject).getThreadsFor(anyInt());
+        CompletableFuture<Optional<PingResult>> pendingResult = new CompletableFuture<>();
+        doReturn(pendingResult).when(subject.engine).probe(anyString(), anyLong(), any());
+        doReturn(pendingResult).when(subject.engine).tcpPing(any(), anyInt(), anyInt());
 
         // We expect no valid value
         assertTrue(subject.cache.isExpired());
         // Get value will issue a PresenceDetection internally.
         subject.getValue(callback);
         verify(subject).performPresenceDetection(eq(false));
-        assertNotNull(subject.executorService);
+        assertNotNull(subject.detection);
         // There should be no straight callback yet
         verify(callback, times(0)).accept(any());
 
-        // Perform the different presence detection threads now
-        ArgumentCaptor<Runnable> capture = ArgumentCaptor.forClass(Runnable.class);
-        verify(executorService, times(3)).execute(capture.capture());
-        for (Runnable r : capture.getAllValues()) {
-            r.run();
-        }
+        // Finish the different presence detection checks now
+        verify(subject.engine, times(2)).probe(anyString(), anyLong(), any());
+        verify(subject.engine, times(1)).tcpPing(any(), anyInt(), anyInt());
+        pendingResult.complete(Optional.of(new PingResult(true, 10)));
         // "Wait" for the presence detection to finish
         subject.waitForPresenceDetection();
+        assertNull(subject.detection);
 
         // Although there are multiple partial results and a final result,
         // the getValue() consumers get the fastest response possible, and only once.
@@ -171,11 +169,126 @@ public class PresenceDetectionTest {
         verify(callback, times(2)).accept(any());
 
         // Invalidate value, we should not get a new callback immediately again
+        doReturn(new CompletableFuture<>()).when(subject.engine).probe(anyString(), anyLong(), any());
+        doReturn(new CompletableFuture<>()).when(subject.engine).tcpPing(any(), anyInt(), anyInt());
         subject.cache.invalidateValue();
         subject.getValue(callback);
         verify(callback, times(2)).accept(any());
     }
 
+    @Test
+    public void sharedChecksTest() throws InterruptedException, IOException {
+        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING),
+                anyString(), anyInt());
+        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils)
+                .nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(), any(), anyInt());
+        doReturn(CompletableFuture.completedFuture(Optional.of(new PingResult(true, 10)))).when(subject.engine)
+                .tcpPing(any(), anyInt(), anyInt());
+
+        assertTrue(subject.performPresenceDetection(true));
+
+        // A second detection for the same host right after shares the results of the first one
+        subject.cache.invalidateValue();
+        assertTrue(subject.performPresenceDetection(true));
+
+        verify(networkUtils, times(1)).nativePing(any(), anyString(), anyInt());
+        verify(networkUtils, times(1)).nativeARPPing(any(), anyString(), anyString(), any(), anyInt());
+        assertThat(subject.engine.getSharedCount(), is(2L));
+        verify(listener, times(2)).finalDetectionResult(any());
+    }
+
+    @Test
+    public void sharedChecksRespectTimeoutTest() throws InterruptedException, IOException {
+        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING),
+                anyString(), anyInt());
+        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils)
+                .nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(), any(), anyInt());
+        doReturn(CompletableFuture.completedFuture(Optional.of(new PingResult(true, 10)))).when(subject.engine)
+                .tcpPing(any(), anyInt(), anyInt());
+
+        assertTrue(subject.performPresenceDetection(true));
+
+        // A detection with another timeout does not share the results
+        subject.cache.invalidateValue();
+        subject.setTimeout(400);
+        assertTrue(subject.performPresenceDetection(true));
+
+        verify(networkUtils, times(2)).nativePing(any(), anyString(), anyInt());
+        verify(networkUtils, times(2)).nativeARPPing(any(), anyString(), anyString(), any(), anyInt());
+        assertThat(subject.engine.getSharedCount(), is(0L));
+    }
+
+    @Test
+    public void droppedChecksKeepLastStateTest() throws InterruptedException, IOException {
+        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING),
+                anyString(), anyInt());
+        doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils)
+                .nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(), any(), anyInt());
+        doReturn(CompletableFuture.completedFuture(Optional.of(new PingResult(false, 10)))).when(subject.engine)
+                .tcpPing(any(), anyInt(), anyInt());
+
+        assertTrue(subject.performPresenceDetection(true));
+        ArgumentCaptor<PresenceDetectionValue> capture = ArgumentCaptor.forClass(PresenceDetectionValue.class);
+        verify(listener, times(1)).finalDetectionResult(capture.capture());
+        assertTrue(capture.getValue().isReachable());
+
+        // The blocking checks are dropped and the TCP check fails
+        CompletableFuture<Optional<PingResult>> dropped = new CompletableFuture<>();
+        dropped.cancel(false);
+        doReturn(dropped).when(subject.engine).probe(anyString(), anyLong(), any());
+        // Let the device not be seen within the timeout
+        Thread.sleep(subject.getTimeout() + 150);
+        subject.cache.invalidateValue();
+        assertTrue(subject.performPresenceDetection(true));
+
+        verify(listener, times(2)).finalDetectionResult(capture.capture());
+        assertTrue(capture.getValue().isReachable());
+
+        // Without dropped checks the device is unreachable
+        doReturn(CompletableFuture.completedFuture(Optional.empty())).when(subject.engine).probe(anyString(),
+                anyLong(), any());
+        subject.cache.invalidateValue();
+        assertTrue(subject.performPresenceDetection(true));
+
+        verify(listener, times(3)).finalDetectionResult(capture.capture());
+        assertFalse(capture.getValue().isReachable());
+    }
+
+    @Test
+    public void probeThreadsTest() {
+        CompletableFuture<Void> pendingCheck = new CompletableFuture<>();
+        doReturn(pendingCheck).when(subject).performARPping(any());
+        doReturn(pendingCheck).when(subject).performSystemPing();
+        doReturn(pendingCheck).when(subject).performServicePing(anyInt());
+
+        subject.performPresenceDetection(false);
+        // ARP + ICMP, the TCP check does not block a thread
+        verify(subject.engine).setBlockingProbes(subject, 2);
+        assertThat(subject.engine.getBlockingProbes(), is(2));
+
+        subject.stopAutomaticRefresh();
+        verify(subject.engine).setBlockingProbes(subject, 0);
+        assertThat(subject.engine.getBlockingProbes(), is(0));
+    }
+
+    @Test
+    public void oneShotDetectionReleasesProbeThreadsTest() {
+        CompletableFuture<Void> pendingCheck = new CompletableFuture<>();
+        doReturn(pendingCheck).when(subject).performARPping(any());
+        doReturn(pendingCheck).when(subject).performSystemPing();
+        doReturn(pendingCheck).when(subject).performServicePing(anyInt());
+
+        // Like the discovery: a single detection without automatic refresh, which is never stopped
+        subject.performPresenceDetection(false);
+        assertThat(subject.engine.getBlockingProbes(), is(2));
+        assertThat(subject.engine.getProbeThreads(), is(2));
+
+        subject.waitForPresenceDetection();
+        verify(listener, times(1)).finalDetectionResult(any());
+        assertThat(subject.engine.getBlockingProbes(), is(0));
+        assertThat(subject.engine.getProbeThreads(), is(1));
+    }
+
     @Test
     public void reuseValueTests() throws InterruptedException, IOException {
         final long START_TIME = 1000L;
@@ -14,8 +14,6 @@ package org.openhab.io.transport.modbus;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.Optional;
 
@@ -101,6 +99,30 @@ public class ModbusBitUtilities {
      */
     public static Optional<DecimalType> extractStateFromRegisters(ModbusRegisterArray registers, int index,
             ModbusConstants.ValueType type) {
+        return stateFromRawValue(extractRawFromRegisters(registers, index, type), type);
+    }
+
+    /**
+     * Read data from registers as raw 64 bit value, without allocating any objects
+     *
+     * Registers and <tt>index</tt> are interpreted the same way as with
+     * {@link #extractStateFromRegisters(ModbusRegisterArray, int, ModbusConstants.ValueType)}. The raw value is
+     * - the value itself with bit and integer types, signed types are sign extended
+     * - the 64 bits of the value with UINT64 and UINT64_SWAP, to be interpreted as unsigned
+     * - the IEEE 754 bits of the value with FLOAT32 and FLOAT32_SWAP
+     *
+     * Two raw values of the same type are equal if and only if the data is equal, which allows detecting changes with
+     * primitive comparison. Use {@link #stateFromRawValue(long, ModbusConstants.ValueType)} to convert the raw value
+     * to DecimalType.
+     *
+     * @param registers list of registers, each register represent 16bit of data
+     * @param index zero based item index
+     * @param type item type
+     * @return raw value
+     * @throws IllegalArgumentException when <tt>index</tt> is out of bounds of registers
+     */
+    public static long extractRawFromRegisters(ModbusRegisterArray registers, int index,
+            ModbusConstants.ValueType type) {
         int endBitIndex = (type.getBits() >= 16 ? 16 * index : type.getBits() * index) + type.getBits() - 1;
         // each register has 16 bits
         int lastValidIndex = registers.size() * 16 - 1;
@@ -111,107 +133,71 @@ public class ModbusBitUtilities {
         }
         switch (type) {
             case BIT:
-                return Optional
-                        .of(new DecimalType((registers.getRegister(index / 16).toUnsignedShort() >> (index % 16)) & 1));
+                return (registers.getRegister(index / 16).toUnsignedShort() >> (index % 16)) & 1;
             case INT8:
-                return Optional.of(new DecimalType(registers.getRegister(index / 2).getBytes()[1 - (index % 2)]));
+                return (byte) (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2)));
             case UINT8:
-                return Optional.of(new DecimalType(
-                        (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2))) & 0xff));
-            case INT16: {
-                ByteBuffer buff = ByteBuffer.allocate(2);
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getShort(0)));
-            }
+                return (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2))) & 0xff;
+            case INT16:
+                return (short) registers.getRegister(index).toUnsignedShort();
             case UINT16:
-                return Optional.of(new DecimalType(registers.getRegister(index).toUnsignedShort()));
-            case INT32: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0)));
-            }
-            case UINT32: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.position(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case FLOAT32: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                try {
-                    return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0)));
-                } catch (NumberFormatException e) {
-                    // floating point NaN or infinity encountered
-                    return Optional.empty();
-                }
-            }
-            case INT64: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 3).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case UINT64: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 3).getBytes());
-                return Optional.of(
-                        new DecimalType(new BigDecimal(new BigInteger(1, buff.order(ByteOrder.BIG_ENDIAN).array()))));
-            }
-            case INT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0)));
-            }
-            case UINT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.position(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case FLOAT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
+                return registers.getRegister(index).toUnsignedShort();
+            case INT32:
+            case FLOAT32:
+                return concatRegisters(registers, index, index + 1);
+            case UINT32:
+                return concatRegisters(registers, index, index + 1) & 0xffffffffL;
+            case INT32_SWAP:
+            case FLOAT32_SWAP:
+                return concatRegisters(registers, index + 1, index);
+            case UINT32_SWAP:
+                return concatRegisters(registers, index + 1, index) & 0xffffffffL;
+            case INT64:
+            case UINT64:
+                return ((long) concatRegisters(registers, index, index + 1) << 32)
+                        | (concatRegisters(registers, index + 2, index + 3) & 0xffffffffL);
+            case INT64_SWAP:
+            case UINT64_SWAP:
+                return ((long) concatRegisters(registers, index + 3, index + 2) << 32)
+                        | (concatRegisters(registers, index + 1, index) & 0xffffffffL);
+            default:
+                throw new IllegalArgumentException(type.getConfigValue());
+        }
+    }
+
+    /**
+     * Convert raw value, as returned by
+     * {@link #extractRawFromRegisters(ModbusRegisterArray, int, ModbusConstants.ValueType)}, to DecimalType
+     *
+     * @param rawValue raw value
+     * @param type item type
+     * @return number representation of the value. Empty optional is returned with NaN and infinity floating point
+     *         values
+     */
+    public static Optional<DecimalType> stateFromRawValue(long rawValue, ModbusConstants.ValueType type) {
+        switch (type) {
+            case FLOAT32:
+            case FLOAT32_SWAP:
                 try {
-                    return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0)));
+                    return Optional.of(new DecimalType(Float.intBitsToFloat((int) rawValue)));
                 } catch (NumberFormatException e) {
                     // floating point NaN or infinity encountered
                     return Optional.empty();
                 }
-            }
-            case INT64_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index + 3).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case UINT64_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index + 3).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(
-                        new DecimalType(new BigDecimal(new BigInteger(1, buff.order(ByteOrder.BIG_ENDIAN).array()))));
-            }
+            case UINT64:
+            case UINT64_SWAP:
+                return Optional.of(new DecimalType(rawValue >= 0 ? new BigDecimal(rawValue)
+                        : new BigDecimal(new BigInteger(Long.toUnsignedString(rawValue)))));
             default:
-                throw new IllegalArgumentException(type.getConfigValue());
+                return Optional.of(new DecimalType(rawValue));
         }
     }
 
+    private static int concatRegisters(ModbusRegisterArray registers, int highIndex, int lowIndex) {
+        return (registers.getRegister(highIndex).toUnsignedShort() << 16)
+                | registers.getRegister(lowIndex).toUnsignedShort();
+    }
+
     /**
      * Read data from registers and convert the result to StringType
      * Strings should start the the first byte of a register, but could
@@ -61,6 +61,13 @@ public class EndpointPoolConfiguration {
      */
     private int connectTimeoutMillis;
 
+    /**
+     * How many requests can be outstanding on a TCP connection at the same time. Requests and responses are matched
+     * using the transaction ID. One (default) means that the next request is sent only after the previous response
+     * has been received.
+     */
+    private int maxPipelinedTransactions = 1;
+
     private static StandardToStringStyle toStringStyle = new StandardToStringStyle();
 
     static {
@@ -107,10 +114,19 @@ public class EndpointPoolConfiguration {
         this.connectTimeoutMillis = connectTimeoutMillis;
     }
 
+    public int getMaxPipelinedTransactions() {
+        return maxPipelinedTransactions;
+    }
+
+    public void setMaxPipelinedTransactions(int maxPipelinedTransactions) {
+        this.maxPipelinedTransactions = maxPipelinedTransactions;
+    }
+
     @Override
     public int hashCode() {
         return new HashCodeBuilder(2149, 3117).append(interTransactionDelayMillis).append(interConnectDelayMillis)
-                .append(connectMaxTries).append(reconnectAfterMillis).append(connectTimeoutMillis).toHashCode();
+                .append(connectMaxTries).append(reconnectAfterMillis).append(connectTimeoutMillis)
+                .append(maxPipelinedTransactions).toHashCode();
     }
 
     @Override
@@ -119,7 +135,8 @@ public class EndpointPoolConfiguration {
                 .append("interTransactionDelayMillis", interTransactionDelayMillis)
                 .append("interConnectDelayMillis", interConnectDelayMillis).append("connectMaxTries", connectMaxTries)
                 .append("reconnectAfterMillis", reconnectAfterMillis)
-                .append("connectTimeoutMillis", connectTimeoutMillis).toString();
+                .append("connectTimeoutMillis", connectTimeoutMillis)
+                .append("maxPipelinedTransactions", maxPipelinedTransactions).toString();
     }
 
     @Override
@@ -137,6 +154,7 @@ public class EndpointPoolConfiguration {
         return new EqualsBuilder().append(interTransactionDelayMillis, rhs.interTransactionDelayMillis)
                 .append(interConnectDelayMillis, rhs.interConnectDelayMillis)
                 .append(connectMaxTries, rhs.connectMaxTries).append(reconnectAfterMillis, rhs.reconnectAfterMillis)
-                .append(connectTimeoutMillis, rhs.connectTimeoutMillis).isEquals();
+                .append(connectTimeoutMillis, rhs.connectTimeoutMillis)
+                .append(maxPipelinedTransactions, rhs.maxPipelinedTransactions).isEquals();
     }
 }
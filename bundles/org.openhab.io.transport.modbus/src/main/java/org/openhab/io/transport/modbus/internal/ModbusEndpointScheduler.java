@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Grants exclusive access to a single endpoint, by priority
+ *
+ * Operations waiting for the endpoint are served in priority order ({@link Priority}), and first-come-first-serve
+ * within the same priority. Operations can give up waiting after a deadline, which is used to drop polls that have
+ * become stale while the endpoint was busy.
+ *
+ * Time spent waiting (queue wait) and time the endpoint has been in use (bus occupancy) are collected for monitoring.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusEndpointScheduler {
+
+    /**
+     * Priority classes, highest priority first
+     */
+    public enum Priority {
+        WRITE,
+        ONE_OFF_READ,
+        POLL
+    }
+
+    private static class Waiter {
+        private final Priority priority;
+        private final long sequence;
+
+        Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+            Comparator.<Waiter> comparingInt(waiter -> waiter.priority.ordinal())
+                    .thenComparingLong(waiter -> waiter.sequence));
+    private long nextSequence;
+    private boolean busy;
+    private long busySince;
+
+    private final long createdMillis = System.currentTimeMillis();
+    private long grantedCount;
+    private long droppedCount;
+    private long totalQueueWaitMillis;
+    private long maxQueueWaitMillis;
+    private long busyMillis;
+
+    /**
+     * Wait for exclusive access to the endpoint. Access must be given back with {@link #release()}.
+     *
+     * @param priority priority of the operation
+     * @param deadlineMillis time (epoch milliseconds) after which waiting is given up
+     * @return true when access was granted, false if deadline passed before that
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public synchronized boolean acquire(Priority priority, long deadlineMillis) throws InterruptedException {
+        long started = System.currentTimeMillis();
+        Waiter waiter = new Waiter(priority, nextSequence++);
+        waiters.add(waiter);
+        boolean granted = false;
+        try {
+            while (busy || waiters.peek() != waiter) {
+                long remaining = deadlineMillis - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    droppedCount++;
+                    return false;
+                }
+                wait(remaining);
+            }
+            granted = true;
+        } finally {
+            waiters.remove(waiter);
+            if (!granted) {
+                // next waiter might be first in line now
+                notifyAll();
+            }
+        }
+        long now = System.currentTimeMillis();
+        busy = true;
+        busySince = now;
+        grantedCount++;
+        totalQueueWaitMillis += now - started;
+        maxQueueWaitMillis = Math.max(maxQueueWaitMillis, now - started);
+        return true;
+    }
+
+    /**
+     * Give back the access granted with {@link #acquire(Priority, long)}
+     */
+    public synchronized void release() {
+        if (!busy) {
+            throw new IllegalStateException("Endpoint access was not acquired");
+        }
+        busy = false;
+        busyMillis += System.currentTimeMillis() - busySince;
+        notifyAll();
+    }
+
+    public synchronized int getQueueLength() {
+        return waiters.size();
+    }
+
+    public synchronized long getGrantedCount() {
+        return grantedCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized long getTotalQueueWaitMillis() {
+        return totalQueueWaitMillis;
+    }
+
+    public synchronized long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis;
+    }
+
+    /**
+     * Total time the endpoint has been in use, including the ongoing operation
+     */
+    public synchronized long getBusyMillis() {
+        return busyMillis + (busy ? System.currentTimeMillis() - busySince : 0);
+    }
+
+    /**
+     * Share of time the endpoint has been in use since this scheduler was created, between 0 and 1
+     */
+    public synchronized double getOccupancy() {
+        long elapsed = System.currentTimeMillis() - createdMillis;
+        return elapsed <= 0 ? 0 : Math.min(1, (double) getBusyMillis() / elapsed);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "{queued: %d, granted: %d, dropped: %d, queue wait avg: %d ms, queue wait max: %d ms, busy: %d ms, occupancy: %.1f%%}",
+                waiters.size(), grantedCount, droppedCount, grantedCount == 0 ? 0 : totalQueueWaitMillis / grantedCount,
+                maxQueueWaitMillis, getBusyMillis(), getOccupancy() * 100);
+    }
+}
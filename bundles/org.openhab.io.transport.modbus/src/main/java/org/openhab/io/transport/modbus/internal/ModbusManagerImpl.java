@@ -13,18 +13,29 @@
 package org.openhab.io.transport.modbus.internal;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 import javax.imageio.IIOException;
 
@@ -36,7 +47,9 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jetty.util.ConcurrentHashSet;
 import org.openhab.core.common.ThreadPoolManager;
+import org.openhab.core.config.core.ConfigurableService;
 import org.openhab.io.transport.modbus.AsyncModbusFailure;
+import org.openhab.io.transport.modbus.AsyncModbusReadResult;
 import org.openhab.io.transport.modbus.AsyncModbusWriteResult;
 import org.openhab.io.transport.modbus.ModbusCommunicationInterface;
 import org.openhab.io.transport.modbus.ModbusFailureCallback;
@@ -56,10 +69,14 @@ import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpointVisitor;
 import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusUDPSlaveEndpoint;
 import org.openhab.io.transport.modbus.exception.ModbusConnectionException;
+import org.openhab.io.transport.modbus.exception.ModbusSlaveErrorResponseException;
 import org.openhab.io.transport.modbus.exception.ModbusUnexpectedResponseFunctionCodeException;
 import org.openhab.io.transport.modbus.exception.ModbusUnexpectedResponseSizeException;
 import org.openhab.io.transport.modbus.exception.ModbusUnexpectedTransactionIdException;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointScheduler.Priority;
+import org.openhab.io.transport.modbus.internal.ModbusRequestCoalescer.CoalescedRead;
 import org.openhab.io.transport.modbus.internal.pooling.ModbusSlaveConnectionFactoryImpl;
+import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -71,9 +88,12 @@ import net.wimpi.modbus.ModbusException;
 import net.wimpi.modbus.ModbusIOException;
 import net.wimpi.modbus.ModbusSlaveException;
 import net.wimpi.modbus.io.ModbusTransaction;
+import net.wimpi.modbus.io.ModbusTransport;
+import net.wimpi.modbus.msg.ExceptionResponse;
 import net.wimpi.modbus.msg.ModbusRequest;
 import net.wimpi.modbus.msg.ModbusResponse;
 import net.wimpi.modbus.net.ModbusSlaveConnection;
+import net.wimpi.modbus.net.TCPMasterConnection;
 
 /**
  * Main implementation of ModbusManager
@@ -82,9 +102,19 @@ import net.wimpi.modbus.net.ModbusSlaveConnection;
  * important with serial slaves but practice has shown that even many tcp slaves have limited
  * capability to handle many connections at the same time
  *
+ * If enabled with a non-negative 'coalesceMaxGap', regular polls of the same slave, function code and poll period are
+ * executed together, and their requests are merged with {@link ModbusRequestCoalescer} when the ranges overlap or are
+ * at most 'coalesceMaxGap' registers apart. With TCP endpoints allowing more than one outstanding transaction, such
+ * polls are executed together as well, and their requests are pipelined over one connection.
+ *
+ * Operations wait for their endpoint in {@link ModbusEndpointScheduler}, so that writes are executed before one-off
+ * reads, and those before regular polls. Polls that are still waiting when their next execution is due are dropped.
+ *
  * @author Sami Salonen - Initial contribution
  */
-@Component(service = ModbusManager.class, configurationPid = "transport.modbus")
+@Component(service = ModbusManager.class, configurationPid = "transport.modbus", //
+        property = Constants.SERVICE_PID + "=transport.modbus")
+@ConfigurableService(category = "io", label = "Modbus Transport", description_uri = "io:transport.modbus")
 @NonNullByDefault
 public class ModbusManagerImpl implements ModbusManager {
 
@@ -217,6 +247,93 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    /**
+     * Implementation for executing the requests of several PollTasks over one TCP connection
+     *
+     * Up to 'window' requests are sent before reading the responses, and responses are matched to the requests
+     * using the transaction ID. Slave exception responses are passed to the failure callback of the matching task
+     * right away, while other errors are raised so that the remaining tasks are retried.
+     *
+     * @author Sami Salonen - Initial contribution
+     *
+     */
+    private class PipelinedPollOperation implements ModbusOperation<PollTask> {
+        private final List<PollTask> pending;
+        private final int window;
+        private final Predicate<PollTask> active;
+
+        PipelinedPollOperation(List<PollTask> tasks, int window, Predicate<PollTask> active) {
+            this.pending = new CopyOnWriteArrayList<>(tasks);
+            this.window = window;
+            this.active = active;
+        }
+
+        /**
+         * Tasks that have not been completed yet
+         */
+        List<PollTask> getPending() {
+            return pending;
+        }
+
+        @Override
+        public void accept(AggregateStopWatch timer, PollTask batchTask, ModbusSlaveConnection connection)
+                throws ModbusException, ModbusUnexpectedTransactionIdException,
+                ModbusUnexpectedResponseFunctionCodeException, ModbusUnexpectedResponseSizeException {
+            String operationId = timer.operationId;
+            ModbusTransport transport = ((TCPMasterConnection) connection).getModbusTransport();
+            Map<Integer, PollTask> inFlightTasks = new LinkedHashMap<>();
+            Map<Integer, ModbusRequest> inFlightRequests = new HashMap<>();
+            Iterator<PollTask> toSend = new ArrayList<>(pending).iterator();
+            while (toSend.hasNext() || !inFlightTasks.isEmpty()) {
+                while (inFlightTasks.size() < window && toSend.hasNext()) {
+                    PollTask task = toSend.next();
+                    if (!active.test(task)) {
+                        pending.remove(task);
+                        continue;
+                    }
+                    ModbusRequest libRequest = ModbusLibraryWrapper.createRequest(task.getRequest());
+                    libRequest.setTransactionID(nextPipelinedTransactionId());
+                    logger.trace("Sending pipelined request (FC={}): {} [operation ID {}]",
+                            task.getRequest().getFunctionCode(), libRequest.getHexMessage(), operationId);
+                    timer.transaction.timeRunnableWithModbusException(() -> transport.writeMessage(libRequest));
+                    inFlightTasks.put(libRequest.getTransactionID(), task);
+                    inFlightRequests.put(libRequest.getTransactionID(), libRequest);
+                }
+                if (inFlightTasks.isEmpty()) {
+                    break;
+                }
+                AtomicReference<@Nullable ModbusResponse> responseRef = new AtomicReference<>();
+                timer.transaction.timeRunnableWithModbusException(() -> responseRef.set(transport.readResponse()));
+                ModbusResponse response = responseRef.get();
+                Objects.requireNonNull(response);
+                logger.trace("Response for pipelined read request (FC={}, transaction ID={}): {} [operation ID {}]",
+                        response.getFunctionCode(), response.getTransactionID(), response.getHexMessage(),
+                        operationId);
+                PollTask task = inFlightTasks.remove(response.getTransactionID());
+                ModbusRequest libRequest = inFlightRequests.remove(response.getTransactionID());
+                if (task == null || libRequest == null) {
+                    // oldest outstanding request is reported as the expected one
+                    throw new ModbusUnexpectedTransactionIdException(inFlightTasks.keySet().iterator().next(),
+                            response.getTransactionID());
+                }
+                ModbusReadRequestBlueprint request = task.getRequest();
+                if (response instanceof ExceptionResponse) {
+                    ModbusSlaveException error = new ModbusSlaveException(
+                            ((ExceptionResponse) response).getExceptionCode());
+                    pending.remove(task);
+                    timer.callback.timeRunnable(() -> invokeCallbackWithError(request, task.getFailureCallback(),
+                            new ModbusSlaveErrorResponseExceptionImpl(error)));
+                    continue;
+                }
+                checkFunctionCode(response, libRequest, operationId);
+                checkResponseSize(response, request, operationId);
+                pending.remove(task);
+                timer.callback.timeRunnable(() -> ModbusLibraryWrapper.invokeCallbackWithResponse(request,
+                        task.getResultCallback(), response));
+            }
+        }
+    }
+
     /**
      * Implementation for WriteTask operation
      *
@@ -294,6 +411,18 @@ public class ModbusManagerImpl implements ModbusManager {
     private static final long WARN_QUEUE_SIZE = 500;
     private static final long MONITOR_QUEUE_INTERVAL_MILLIS = 10000;
 
+    /**
+     * Configuration parameter for the maximum number of unrequested registers (or bits) read to merge two regular
+     * polls. Negative value (the default) disables merging of regular polls.
+     */
+    public static final String CONFIG_COALESCE_MAX_GAP = "coalesceMaxGap";
+    private static final int DEFAULT_COALESCE_MAX_GAP = -1;
+
+    /**
+     * Time after which the requests of polls are merged again after the slave rejected a merged request
+     */
+    private static final long COALESCING_RETRY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
     private final PollOperation pollOperation = new PollOperation();
     private final WriteOperation writeOperation = new WriteOperation();
 
@@ -312,6 +441,16 @@ public class ModbusManagerImpl implements ModbusManager {
     private volatile @Nullable KeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> connectionPool;
     private volatile @Nullable ModbusSlaveConnectionFactoryImpl connectionFactory;
     private volatile Map<PollTask, ScheduledFuture<?>> scheduledPollTasks = new ConcurrentHashMap<>();
+    private final Map<List<Object>, PollGroup> pollGroups = new ConcurrentHashMap<>();
+    private final Map<PollTask, PollGroup> pollTaskGroups = new ConcurrentHashMap<>();
+    private volatile int coalesceMaxGap = DEFAULT_COALESCE_MAX_GAP;
+    private final AtomicInteger pipelinedTransactionId = new AtomicInteger();
+    /**
+     * Schedulers granting access to the endpoints. A scheduler is kept as long as the manager, even if all
+     * communication interfaces of the endpoint are closed, since operations might still be using it. Removing it
+     * would let a later operation create another scheduler and access the endpoint concurrently.
+     */
+    private final Map<ModbusSlaveEndpoint, ModbusEndpointScheduler> endpointSchedulers = new ConcurrentHashMap<>();
     /**
      * Executor for requests
      */
@@ -500,6 +639,23 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    private int nextPipelinedTransactionId() {
+        // MBAP transaction identifier is 16 bits
+        return pipelinedTransactionId.incrementAndGet() & 0xFFFF;
+    }
+
+    /**
+     * Number of requests that can be outstanding with the endpoint, one with other than TCP endpoints
+     */
+    private int getPipelineWindow(ModbusSlaveEndpoint endpoint) {
+        ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+        if (!(endpoint instanceof ModbusTCPSlaveEndpoint) || connectionFactory == null) {
+            return 1;
+        }
+        EndpointPoolConfiguration configuration = connectionFactory.getEndpointPoolConfiguration(endpoint);
+        return configuration == null ? 1 : Math.max(1, configuration.getMaxPipelinedTransactions());
+    }
+
     private void verifyTaskIsRegistered(PollTask task) throws PollTaskUnregistered {
         if (!this.scheduledPollTasks.containsKey(task)) {
             String msg = String.format("Poll task %s is unregistered", task);
@@ -524,6 +680,25 @@ public class ModbusManagerImpl implements ModbusManager {
      */
     private <R, C extends ModbusResultCallback, F extends ModbusFailureCallback<R>, T extends TaskWithEndpoint<R, C, F>> void executeOperation(
             T task, boolean oneOffTask, ModbusOperation<T> operation) {
+        Priority priority = task instanceof WriteTask ? Priority.WRITE
+                : oneOffTask ? Priority.ONE_OFF_READ : Priority.POLL;
+        executeOperation(task, oneOffTask, operation, priority, Long.MAX_VALUE);
+    }
+
+    /**
+     * Execute operation using a retry mechanism, once the endpoint is free.
+     *
+     * Operations with the same endpoint are executed one at a time, in the order of their priority. If the endpoint
+     * is busy until the deadline, the operation is dropped without calling any callbacks.
+     *
+     * @param task
+     * @param oneOffTask
+     * @param operation
+     * @param priority priority for accessing the endpoint
+     * @param deadlineMillis time (epoch milliseconds) after which the operation is dropped if not started yet
+     */
+    private <R, C extends ModbusResultCallback, F extends ModbusFailureCallback<R>, T extends TaskWithEndpoint<R, C, F>> void executeOperation(
+            T task, boolean oneOffTask, ModbusOperation<T> operation, Priority priority, long deadlineMillis) {
         AggregateStopWatch timer = new AggregateStopWatch();
         timer.total.resume();
         String operationId = timer.operationId;
@@ -549,6 +724,24 @@ public class ModbusManagerImpl implements ModbusManager {
             throw new IllegalArgumentException("maxTries should be positive");
         }
 
+        ModbusEndpointScheduler endpointScheduler = endpointSchedulers.computeIfAbsent(endpoint,
+                e -> new ModbusEndpointScheduler());
+        timer.queue.resume();
+        try {
+            if (!endpointScheduler.acquire(priority, deadlineMillis)) {
+                logger.debug(
+                        "Endpoint {} was busy until the deadline, dropping stale operation with task {} [operation ID {}]",
+                        endpoint, task, operationId);
+                return;
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Task was canceled while waiting for the endpoint -- not executing: {} [operation ID {}]",
+                    task, operationId);
+            return;
+        } finally {
+            timer.queue.suspend();
+        }
+
         Optional<ModbusSlaveConnection> connection = Optional.empty();
         try {
             logger.trace("Starting new operation with task {}. Trying to get connection [operation ID {}]", task,
@@ -717,11 +910,212 @@ public class ModbusManagerImpl implements ModbusManager {
         } finally {
             timer.connection.timeConsumer(c -> returnConnection(endpoint, c), connection);
             logger.trace("Connection was returned to the pool, ending operation [operation ID {}]", operationId);
+            endpointScheduler.release();
             timer.suspendAllRunning();
             logger.debug("Modbus operation ended, timing info: {} [operation ID {}]", timer, operationId);
         }
     }
 
+    /**
+     * Regular polls executed together with the same schedule
+     *
+     * @author Sami Salonen - Initial contribution
+     *
+     */
+    private class PollGroup implements Runnable {
+        private final ModbusSlaveEndpoint endpoint;
+        private final long pollPeriodMillis;
+        private final Set<PollTask> tasks = new CopyOnWriteArraySet<>();
+        private volatile List<CoalescedRead> reads = List.of();
+        /**
+         * Time the slave rejected a merged request, 0 if merging is not suspended. Closing the communication interface
+         * of the endpoint, e.g. to reconnect, removes the group, so the polls registered again are merged again.
+         */
+        private volatile long coalescingRejectedMillis;
+        private @Nullable ScheduledFuture<?> future;
+
+        PollGroup(ModbusSlaveEndpoint endpoint, long pollPeriodMillis) {
+            this.endpoint = endpoint;
+            this.pollPeriodMillis = pollPeriodMillis;
+        }
+
+        void add(PollTask task) {
+            tasks.add(task);
+            updateReads();
+        }
+
+        boolean remove(PollTask task) {
+            tasks.remove(task);
+            updateReads();
+            return tasks.isEmpty();
+        }
+
+        private void updateReads() {
+            reads = ModbusRequestCoalescer.coalesce(tasks, coalescingRejectedMillis > 0 ? -1 : coalesceMaxGap);
+        }
+
+        @Override
+        public void run() {
+            if (coalescingRejectedMillis > 0
+                    && System.currentTimeMillis() - coalescingRejectedMillis > COALESCING_RETRY_MILLIS) {
+                logger.debug("Merging the requests of {} polls again", tasks.size());
+                synchronized (ModbusManagerImpl.this) {
+                    coalescingRejectedMillis = 0;
+                    updateReads();
+                }
+            }
+            // polls still waiting for the endpoint when the next poll is due are dropped
+            long deadlineMillis = System.currentTimeMillis() + pollPeriodMillis;
+            List<CoalescedRead> reads = this.reads;
+            int pipelineWindow = getPipelineWindow(endpoint);
+            if (reads.size() > 1 && pipelineWindow > 1) {
+                long started = System.currentTimeMillis();
+                logger.debug("Executing scheduled ({}ms) {} polls pipelined. Current millis: {}", pollPeriodMillis,
+                        reads.size(), started);
+                try {
+                    executePipelinedReads(reads, pipelineWindow, deadlineMillis);
+                } catch (RuntimeException e) {
+                    logger.warn(
+                            "Execution of scheduled ({}ms) pipelined polls failed unexpectedly. Ignoring exception, polling again according to poll interval.",
+                            pollPeriodMillis, e);
+                }
+                long finished = System.currentTimeMillis();
+                logger.debug(
+                        "Execution of scheduled ({}ms) pipelined polls finished at {}. Was started at millis: {} (=duration of {} millis)",
+                        pollPeriodMillis, finished, started, finished - started);
+                return;
+            }
+            for (CoalescedRead read : reads) {
+                long started = System.currentTimeMillis();
+                logger.debug("Executing scheduled ({}ms) poll {}. Current millis: {}", pollPeriodMillis, read,
+                        started);
+                try {
+                    if (read.getTasks().size() == 1) {
+                        executeOperation(read.getTasks().get(0), false, pollOperation, Priority.POLL,
+                                deadlineMillis);
+                    } else {
+                        executeCoalescedRead(read, deadlineMillis);
+                    }
+                } catch (RuntimeException e) {
+                    // We want to catch all unexpected exceptions since all unhandled exceptions make
+                    // ScheduledExecutorService halt the polling. It is better to print out the exception, and try
+                    // again
+                    // (on next poll cycle)
+                    logger.warn(
+                            "Execution of scheduled ({}ms) poll {} failed unexpectedly. Ignoring exception, polling again according to poll interval.",
+                            pollPeriodMillis, read, e);
+                }
+                long finished = System.currentTimeMillis();
+                logger.debug(
+                        "Execution of scheduled ({}ms) poll {} finished at {}. Was started at millis: {} (=duration of {} millis)",
+                        pollPeriodMillis, read, finished, started, finished - started);
+            }
+        }
+
+        /**
+         * Execute merged request and pass the slices of the result to the poll tasks.
+         *
+         * If the slave responds with an exception (e.g. some registers in the merged range do not exist), the tasks
+         * are polled separately, now and for {@link #COALESCING_RETRY_MILLIS}.
+         */
+        private void executeCoalescedRead(CoalescedRead read, long deadlineMillis) {
+            Set<CoalescedRead> rejected = new CopyOnWriteArraySet<>();
+            // merged task is not registered, the tasks are checked before calling their callbacks
+            executeOperation(createCoalescedTask(read, rejected), true, pollOperation, Priority.POLL, deadlineMillis);
+            if (!rejected.isEmpty()) {
+                executeSeparately(read, deadlineMillis);
+            }
+        }
+
+        /**
+         * Execute all reads over one connection, with up to 'window' requests outstanding at the same time.
+         */
+        private void executePipelinedReads(List<CoalescedRead> reads, int window, long deadlineMillis) {
+            Set<CoalescedRead> rejected = new CopyOnWriteArraySet<>();
+            List<PollTask> readTasks = new ArrayList<>(reads.size());
+            Set<PollTask> mergedTasks = new HashSet<>();
+            for (CoalescedRead read : reads) {
+                if (read.getTasks().size() == 1) {
+                    readTasks.add(read.getTasks().get(0));
+                } else {
+                    PollTask mergedTask = createCoalescedTask(read, rejected);
+                    readTasks.add(mergedTask);
+                    mergedTasks.add(mergedTask);
+                }
+            }
+            // merged tasks check their poll tasks themselves
+            Predicate<PollTask> active = task -> mergedTasks.contains(task) || scheduledPollTasks.containsKey(task);
+            PipelinedPollOperation operation = new PipelinedPollOperation(readTasks, window, active);
+            ModbusReadRequestBlueprint first = readTasks.get(0).getRequest();
+            int maxTries = readTasks.stream().mapToInt(task -> task.getRequest().getMaxTries()).max().orElse(1);
+            // request of the batch is used for logging and retries only
+            PollTask batchTask = new BasicPollTask(endpoint, new ModbusReadRequestBlueprint(first.getUnitID(),
+                    first.getFunctionCode(), first.getReference(), first.getDataLength(), maxTries), result -> {
+                    }, failure -> {
+                        for (PollTask task : operation.getPending()) {
+                            if (active.test(task)) {
+                                invokeCallbackWithError(task.getRequest(), task.getFailureCallback(),
+                                        failure.getCause());
+                            }
+                        }
+                    });
+            // batch task is not registered, the tasks are checked before calling their callbacks
+            executeOperation(batchTask, true, operation, Priority.POLL, deadlineMillis);
+            for (CoalescedRead read : rejected) {
+                executeSeparately(read, deadlineMillis);
+            }
+        }
+
+        /**
+         * Create unregistered task for merged request that passes the slices of the result to the poll tasks.
+         *
+         * If the slave responds with an exception, the read is added to 'rejected' and no callbacks are called.
+         */
+        private PollTask createCoalescedTask(CoalescedRead read, Set<CoalescedRead> rejected) {
+            return new BasicPollTask(endpoint, read.getRequest(), result -> {
+                for (PollTask task : read.getTasks()) {
+                    if (scheduledPollTasks.containsKey(task)) {
+                        AsyncModbusReadResult slice = ModbusRequestCoalescer.slice(result, task.getRequest());
+                        invokeCallbackSafely(task, () -> task.getResultCallback().handle(slice));
+                    }
+                }
+            }, failure -> {
+                if (failure.getCause() instanceof ModbusSlaveErrorResponseException) {
+                    rejected.add(read);
+                    return;
+                }
+                for (PollTask task : read.getTasks()) {
+                    if (scheduledPollTasks.containsKey(task)) {
+                        invokeCallbackSafely(task, () -> task.getFailureCallback()
+                                .handle(new AsyncModbusFailure<>(task.getRequest(), failure.getCause())));
+                    }
+                }
+            });
+        }
+
+        private void executeSeparately(CoalescedRead read, long deadlineMillis) {
+            logger.warn("Slave rejected merged request {}, polling the {} merged requests separately for {} minutes",
+                    read.getRequest(), read.getTasks().size(),
+                    TimeUnit.MILLISECONDS.toMinutes(COALESCING_RETRY_MILLIS));
+            synchronized (ModbusManagerImpl.this) {
+                coalescingRejectedMillis = System.currentTimeMillis();
+                updateReads();
+            }
+            for (PollTask task : read.getTasks()) {
+                executeOperation(task, false, pollOperation, Priority.POLL, deadlineMillis);
+            }
+        }
+
+        private void invokeCallbackSafely(PollTask task, Runnable callback) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                // one failing callback should not prevent the others from being called
+                logger.warn("Callback of poll task {} failed unexpectedly", task, e);
+            }
+        }
+    }
+
     private class ModbusCommunicationInterfaceImpl implements ModbusCommunicationInterface {
 
         private volatile ModbusSlaveEndpoint endpoint;
@@ -774,27 +1168,22 @@ public class ModbusManagerImpl implements ModbusManager {
                     logger.trace("Unregistering previous poll task (possibly with different period)");
                     unregisterRegularPoll(task);
                 }
-                ScheduledFuture<?> future = executor.scheduleWithFixedDelay(() -> {
-                    long started = System.currentTimeMillis();
-                    logger.debug("Executing scheduled ({}ms) poll task {}. Current millis: {}", pollPeriodMillis, task,
-                            started);
-                    try {
-                        executeOperation(task, false, pollOperation);
-                    } catch (RuntimeException e) {
-                        // We want to catch all unexpected exceptions since all unhandled exceptions make
-                        // ScheduledExecutorService halt the polling. It is better to print out the exception, and try
-                        // again
-                        // (on next poll cycle)
-                        logger.warn(
-                                "Execution of scheduled ({}ms) poll task {} failed unexpectedly. Ignoring exception, polling again according to poll interval.",
-                                pollPeriodMillis, task, e);
-                    }
-                    long finished = System.currentTimeMillis();
-                    logger.debug(
-                            "Execution of scheduled ({}ms) poll task {} finished at {}. Was started at millis: {} (=duration of {} millis)",
-                            pollPeriodMillis, task, finished, started, finished - started);
-                }, initialDelayMillis, pollPeriodMillis, TimeUnit.MILLISECONDS);
-
+                // Polls that can be merged or pipelined share the schedule of the first registered poll
+                boolean grouped = coalesceMaxGap >= 0 || getPipelineWindow(endpoint) > 1;
+                List<Object> groupKey = grouped
+                        ? Arrays.asList(endpoint, request.getUnitID(), request.getFunctionCode(), pollPeriodMillis)
+                        : List.of(task);
+                PollGroup group = pollGroups.get(groupKey);
+                if (group == null) {
+                    group = new PollGroup(endpoint, pollPeriodMillis);
+                    group.future = executor.scheduleWithFixedDelay(group, initialDelayMillis, pollPeriodMillis,
+                            TimeUnit.MILLISECONDS);
+                    pollGroups.put(groupKey, group);
+                }
+                ScheduledFuture<?> future = group.future;
+                Objects.requireNonNull(future);
+                group.add(task);
+                pollTaskGroups.put(task, group);
                 scheduledPollTasks.put(task, future);
                 pollTasksRegisteredByThisCommInterface.add(task);
                 logger.trace("Registered poll task {} with period {} using initial delay {}", task, pollPeriodMillis,
@@ -823,6 +1212,15 @@ public class ModbusManagerImpl implements ModbusManager {
                     logger.warn("Caller tried to unregister nonexisting poll task {}", task);
                     return false;
                 }
+                PollGroup group = pollTaskGroups.remove(task);
+                if (group != null) {
+                    if (!group.remove(task)) {
+                        // other polls are still using the schedule
+                        logger.debug("Unregistered regular poll task {}", task);
+                        return true;
+                    }
+                    pollGroups.values().remove(group);
+                }
                 logger.debug("Unregistering regular poll task {} (interrupting if necessary)", task);
                 future.cancel(true);
                 logger.debug("Poll task {} canceled", task);
@@ -911,6 +1309,10 @@ public class ModbusManagerImpl implements ModbusManager {
 
             // Make sure connections to this endpoint are closed when they are returned to pool (which
             // is usually pretty soon as transactions should be relatively short-lived)
+            ModbusEndpointScheduler endpointScheduler = endpointSchedulers.get(endpoint);
+            if (endpointScheduler != null) {
+                logger.debug("Endpoint {} access statistics: {}", endpoint, endpointScheduler);
+            }
             ModbusSlaveConnectionFactoryImpl localConnectionFactory = connectionFactory;
             if (localConnectionFactory != null) {
                 localConnectionFactory.disconnectOnReturn(endpoint, System.currentTimeMillis());
@@ -930,6 +1332,7 @@ public class ModbusManagerImpl implements ModbusManager {
     protected void activate(Map<String, Object> configProperties) {
         synchronized (this) {
             logger.info("Modbus manager activated");
+            coalesceMaxGap = getIntConfig(configProperties, CONFIG_COALESCE_MAX_GAP, DEFAULT_COALESCE_MAX_GAP);
             if (connectionPool == null) {
                 constructConnectionPool();
             }
@@ -947,6 +1350,19 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    private int getIntConfig(Map<String, Object> configProperties, String key, int defaultValue) {
+        Object value = configProperties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value '{}' for {}, using default {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
     @Deactivate
     protected void deactivate() {
         synchronized (this) {
@@ -996,6 +1412,9 @@ public class ModbusManagerImpl implements ModbusManager {
                         task.getRequest().getDataLength(), future.isDone(), future.isCancelled(),
                         future.getDelay(TimeUnit.MILLISECONDS), task);
             });
+            this.endpointSchedulers.forEach((endpoint, endpointScheduler) -> {
+                pollMonitorLogger.trace("POLL MONITOR: endpoint {}: {}", endpoint, endpointScheduler);
+            });
             if (scheduledThreadPoolExecutor instanceof ThreadPoolExecutor) {
                 ThreadPoolExecutor executor = ((ThreadPoolExecutor) scheduledThreadPoolExecutor);
                 pollMonitorLogger.trace(
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.AsyncModbusReadResult;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusConstants;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegister;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+
+/**
+ * Merges the read requests of poll tasks into as few requests as possible, and slices the results of the merged
+ * requests back to the requests of the individual poll tasks.
+ *
+ * Requests are merged only if they have the same unit id and function code, their ranges overlap or are at most
+ * 'maxGap' registers (or coils/discrete inputs) apart, and the merged request stays within the protocol limits
+ * {@link ModbusConstants#MAX_REGISTERS_READ_COUNT} and {@link ModbusConstants#MAX_BITS_READ_COUNT}.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusRequestCoalescer {
+
+    /**
+     * Request to execute, and the poll tasks it serves.
+     *
+     * If there is only one poll task, the request is the request of that task.
+     */
+    public static class CoalescedRead {
+        private final ModbusReadRequestBlueprint request;
+        private final List<PollTask> tasks;
+
+        CoalescedRead(ModbusReadRequestBlueprint request, List<PollTask> tasks) {
+            this.request = request;
+            this.tasks = Collections.unmodifiableList(tasks);
+        }
+
+        public ModbusReadRequestBlueprint getRequest() {
+            return request;
+        }
+
+        public List<PollTask> getTasks() {
+            return tasks;
+        }
+
+        @Override
+        public String toString() {
+            return "CoalescedRead [request=" + request + ", tasks=" + tasks.size() + "]";
+        }
+    }
+
+    /**
+     * Merge the requests of the given poll tasks
+     *
+     * @param tasks poll tasks to merge
+     * @param maxGap maximum number of unrequested registers (or bits) read to merge two requests. With negative
+     *            values, nothing is merged.
+     * @return reads covering all tasks, ordered by unit id, function code and start address
+     */
+    public static List<CoalescedRead> coalesce(Collection<PollTask> tasks, int maxGap) {
+        List<PollTask> sorted = new ArrayList<>(tasks);
+        sorted.sort(Comparator.<PollTask> comparingInt(task -> task.getRequest().getUnitID())
+                .thenComparing(task -> task.getRequest().getFunctionCode())
+                .thenComparingInt(task -> task.getRequest().getReference())
+                .thenComparingInt(task -> task.getRequest().getDataLength()));
+
+        List<CoalescedRead> reads = new ArrayList<>();
+        List<PollTask> current = new ArrayList<>();
+        int start = 0;
+        int end = 0;
+        for (PollTask task : sorted) {
+            ModbusReadRequestBlueprint request = task.getRequest();
+            int taskStart = request.getReference();
+            int taskEnd = taskStart + request.getDataLength();
+            if (!current.isEmpty() && maxGap >= 0 && isCompatible(current.get(0).getRequest(), request)
+                    && taskStart <= end + maxGap
+                    && Math.max(end, taskEnd) - start <= getMaxReadCount(request.getFunctionCode())) {
+                end = Math.max(end, taskEnd);
+                current.add(task);
+                continue;
+            }
+            if (!current.isEmpty()) {
+                reads.add(createRead(current, start, end));
+            }
+            current = new ArrayList<>();
+            current.add(task);
+            start = taskStart;
+            end = taskEnd;
+        }
+        if (!current.isEmpty()) {
+            reads.add(createRead(current, start, end));
+        }
+        return reads;
+    }
+
+    /**
+     * Slice the result of a merged read to the given request
+     *
+     * @param result result of the merged request
+     * @param request request of the poll task, contained in the merged request
+     * @return result for the request of the poll task
+     */
+    public static AsyncModbusReadResult slice(AsyncModbusReadResult result, ModbusReadRequestBlueprint request) {
+        int offset = request.getReference() - result.getRequest().getReference();
+        int length = request.getDataLength();
+        if (result.getRegisters().isPresent()) {
+            ModbusRegisterArray registers = result.getRegisters().get();
+            ModbusRegister[] slice = new ModbusRegister[length];
+            for (int i = 0; i < length; i++) {
+                slice[i] = registers.getRegister(offset + i);
+            }
+            return new AsyncModbusReadResult(request, new ModbusRegisterArray(slice));
+        } else if (result.getBits().isPresent()) {
+            BitArray bits = result.getBits().get();
+            BitArray slice = new BitArray(length);
+            for (int i = 0; i < length; i++) {
+                slice.setBit(i, bits.getBit(offset + i));
+            }
+            return new AsyncModbusReadResult(request, slice);
+        } else {
+            throw new IllegalArgumentException("Result has neither registers nor bits: " + result);
+        }
+    }
+
+    private static CoalescedRead createRead(List<PollTask> tasks, int start, int end) {
+        ModbusReadRequestBlueprint first = tasks.get(0).getRequest();
+        if (tasks.size() == 1) {
+            return new CoalescedRead(first, tasks);
+        }
+        int maxTries = tasks.stream().mapToInt(task -> task.getRequest().getMaxTries()).max().orElse(1);
+        return new CoalescedRead(new ModbusReadRequestBlueprint(first.getUnitID(), first.getFunctionCode(), start,
+                end - start, maxTries), tasks);
+    }
+
+    private static boolean isCompatible(ModbusReadRequestBlueprint a, ModbusReadRequestBlueprint b) {
+        return a.getUnitID() == b.getUnitID() && a.getFunctionCode() == b.getFunctionCode();
+    }
+
+    private static int getMaxReadCount(ModbusReadFunctionCode functionCode) {
+        switch (functionCode) {
+            case READ_COILS:
+            case READ_INPUT_DISCRETES:
+                return ModbusConstants.MAX_BITS_READ_COUNT;
+            default:
+                return ModbusConstants.MAX_REGISTERS_READ_COUNT;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link BitArray} operations, with coil reads of varying length
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BitArrayBenchmark {
+
+    @Param({ "8", "64", "" + ModbusConstants.MAX_BITS_READ_COUNT })
+    public int length;
+
+    private boolean[] values;
+    private BitArray bits;
+
+    @Setup
+    public void setUp() {
+        values = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = i % 3 == 0;
+        }
+        bits = new BitArray(values);
+    }
+
+    @Benchmark
+    public BitArray create() {
+        return new BitArray(values);
+    }
+
+    @Benchmark
+    public int getAllBits() {
+        int set = 0;
+        for (int i = 0; i < length; i++) {
+            if (bits.getBit(i)) {
+                set++;
+            }
+        }
+        return set;
+    }
+
+    @Benchmark
+    public BitArray setAllBits() {
+        BitArray copy = new BitArray(length);
+        for (int i = 0; i < length; i++) {
+            copy.setBit(i, values[i]);
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public String toBinaryString() {
+        return bits.toBinaryString();
+    }
+}
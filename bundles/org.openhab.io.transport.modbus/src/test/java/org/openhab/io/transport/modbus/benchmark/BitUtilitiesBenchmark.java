@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.io.transport.modbus.ModbusBitUtilities;
+import org.openhab.io.transport.modbus.ModbusConstants.ValueType;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for decoding registers to states, and encoding commands to registers, with every value type
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitUtilitiesBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ExtractState {
+        // all value types
+        @Param
+        public ValueType valueType;
+
+        public ModbusRegisterArray registers;
+
+        @Setup
+        public void setUp() {
+            // enough registers for 64 bit types, with varying bits
+            registers = new ModbusRegisterArray(0x4049, 0x0FDB, 0x8001, 0x7FFF);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CommandState {
+        // value types supported with commands
+        @Param({ "INT16", "UINT16", "INT32", "UINT32", "FLOAT32", "INT64", "UINT64", "INT32_SWAP", "UINT32_SWAP",
+                "FLOAT32_SWAP", "INT64_SWAP", "UINT64_SWAP" })
+        public ValueType valueType;
+
+        public DecimalType command;
+
+        @Setup
+        public void setUp() {
+            command = new DecimalType("-1004.4");
+        }
+    }
+
+    @Benchmark
+    public Optional<DecimalType> extractStateFromRegisters(ExtractState state) {
+        return ModbusBitUtilities.extractStateFromRegisters(state.registers, 0, state.valueType);
+    }
+
+    @Benchmark
+    public long extractRawFromRegisters(ExtractState state) {
+        return ModbusBitUtilities.extractRawFromRegisters(state.registers, 0, state.valueType);
+    }
+
+    @Benchmark
+    public ModbusRegisterArray commandToRegisters(CommandState state) {
+        return ModbusBitUtilities.commandToRegisters(state.command, state.valueType);
+    }
+}
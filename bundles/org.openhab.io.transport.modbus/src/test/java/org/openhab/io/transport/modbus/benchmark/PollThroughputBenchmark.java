@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.benchmark;
+
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openhab.io.transport.modbus.ModbusCommunicationInterface;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusManagerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.wimpi.modbus.ModbusCoupler;
+import net.wimpi.modbus.net.ModbusTCPListener;
+import net.wimpi.modbus.net.TCPSlaveConnection;
+import net.wimpi.modbus.net.TCPSlaveConnection.ModbusTCPTransportFactory;
+import net.wimpi.modbus.net.TCPSlaveConnectionFactory;
+import net.wimpi.modbus.procimg.SimpleProcessImage;
+import net.wimpi.modbus.procimg.SimpleRegister;
+
+/**
+ * End-to-end poll throughput of {@link ModbusManagerImpl}, against an in-process Modbus TCP slave
+ *
+ * Measures the whole path of a poll: queueing, borrowing the connection from the pool, the request-response
+ * roundtrip over loopback and the callback with the decoded registers.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PollThroughputBenchmark {
+
+    private static final int SLAVE_UNIT_ID = 1;
+    private static final int REGISTER_COUNT = 125;
+    private static final long CALLBACK_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Number of registers read with each poll
+     */
+    @Param({ "1", "125" })
+    public int length;
+
+    /**
+     * Number of polls submitted at once, before waiting for the callbacks
+     */
+    @Param({ "1", "8" })
+    public int concurrentPolls;
+
+    private ModbusTCPListener listener;
+    private BenchmarkModbusManager modbusManager;
+    private ModbusCommunicationInterface comms;
+    private ModbusReadRequestBlueprint request;
+
+    private static class BenchmarkModbusManager extends ModbusManagerImpl {
+        BenchmarkModbusManager() {
+            activate(new HashMap<>());
+        }
+
+        void close() {
+            deactivate();
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        SimpleProcessImage spi = new SimpleProcessImage();
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            spi.addRegister(new SimpleRegister(i));
+        }
+        ModbusCoupler.getReference().setProcessImage(spi);
+        ModbusCoupler.getReference().setMaster(false);
+        ModbusCoupler.getReference().setUnitID(SLAVE_UNIT_ID);
+
+        listener = new ModbusTCPListener(1, InetAddress.getByName("127.0.0.1"), new TCPSlaveConnectionFactory() {
+            @Override
+            public TCPSlaveConnection create(Socket socket) {
+                return new TCPSlaveConnection(socket, new ModbusTCPTransportFactory());
+            }
+        });
+        // Use any open port
+        listener.setPort(0);
+        listener.start();
+        long deadline = System.currentTimeMillis() + CALLBACK_TIMEOUT_MILLIS;
+        while (listener.getLocalPort() <= 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Modbus slave did not start");
+            }
+            Thread.sleep(5);
+        }
+
+        modbusManager = new BenchmarkModbusManager();
+        EndpointPoolConfiguration configuration = new EndpointPoolConfiguration();
+        // keep the connection open between polls, like with real pollers
+        configuration.setReconnectAfterMillis(-1);
+        comms = modbusManager.newModbusCommunicationInterface(
+                new ModbusTCPSlaveEndpoint("127.0.0.1", listener.getLocalPort()), configuration);
+        request = new ModbusReadRequestBlueprint(SLAVE_UNIT_ID, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0,
+                length, 1);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        comms.close();
+        modbusManager.close();
+        listener.stop();
+    }
+
+    @Benchmark
+    public int poll() throws InterruptedException {
+        CountDownLatch callbacks = new CountDownLatch(concurrentPolls);
+        AtomicInteger registersRead = new AtomicInteger();
+        for (int i = 0; i < concurrentPolls; i++) {
+            comms.submitOneTimePoll(request, result -> {
+                result.getRegisters().ifPresent(registers -> registersRead.addAndGet(registers.size()));
+                callbacks.countDown();
+            }, failure -> {
+                callbacks.countDown();
+            });
+        }
+        if (!callbacks.await(CALLBACK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timeout waiting for poll callbacks");
+        }
+        if (registersRead.get() != concurrentPolls * length) {
+            throw new IllegalStateException("Poll failed");
+        }
+        return registersRead.get();
+    }
+}
@@ -25,6 +25,7 @@ import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.openhab.core.library.types.DecimalType;
@@ -381,4 +382,22 @@ public class BitUtilitiesExtractStateFromRegistersTest {
         assertThat(String.format("registers=%s, index=%d, type=%s", registers, index, type), actualState,
                 is(equalTo(expectedStateWrapped)));
     }
+
+    @Test
+    public void testRawValues() {
+        ModbusRegisterArray registers = shortArrayToRegisterArray(0xFFFF, 0xFFFE, 0x3F80, 0x0000);
+        assertThat(ModbusBitUtilities.extractRawFromRegisters(registers, 0, ValueType.INT16), is(equalTo(-1L)));
+        assertThat(ModbusBitUtilities.extractRawFromRegisters(registers, 0, ValueType.UINT16), is(equalTo(65535L)));
+        assertThat(ModbusBitUtilities.extractRawFromRegisters(registers, 0, ValueType.INT32), is(equalTo(-2L)));
+        assertThat(ModbusBitUtilities.extractRawFromRegisters(registers, 0, ValueType.UINT32),
+                is(equalTo(0xFFFFFFFEL)));
+        assertThat(ModbusBitUtilities.extractRawFromRegisters(registers, 0, ValueType.UINT64),
+                is(equalTo(0xFFFFFFFE3F800000L)));
+        assertThat(ModbusBitUtilities.extractRawFromRegisters(registers, 2, ValueType.FLOAT32),
+                is(equalTo((long) Float.floatToRawIntBits(1.0f))));
+        assertThat(ModbusBitUtilities.extractRawFromRegisters(registers, 2, ValueType.FLOAT32_SWAP),
+                is(equalTo(0x3F80L)));
+        assertThat(ModbusBitUtilities.stateFromRawValue(-1L, ValueType.UINT64),
+                is(equalTo(Optional.of(new DecimalType("18446744073709551615")))));
+    }
 }
@@ -25,6 +25,7 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.function.LongSupplier;
 
 import org.apache.commons.lang.NotImplementedException;
@@ -155,7 +156,7 @@ public class IntegrationTestSupport extends JavaTest {
                 return artificialServerWait;
             }
         });
-        modbusManager = new NonOSGIModbusManager();
+        modbusManager = new NonOSGIModbusManager(getManagerConfiguration());
         startServer();
     }
 
@@ -165,6 +166,13 @@ public class IntegrationTestSupport extends JavaTest {
         modbusManager.close();
     }
 
+    /**
+     * @return the configuration of the modbus manager
+     */
+    protected Map<String, Object> getManagerConfiguration() {
+        return new HashMap<>();
+    }
+
     protected void waitForRequests(int expectedRequestCount) {
         waitForAssert(
                 () -> assertThat(modbustRequestCaptor.getAllReturnValues().size(), is(equalTo(expectedRequestCount))),
@@ -346,7 +354,11 @@ public class IntegrationTestSupport extends JavaTest {
 
     public static class NonOSGIModbusManager extends ModbusManagerImpl implements AutoCloseable {
         public NonOSGIModbusManager() {
-            activate(new HashMap<>());
+            this(new HashMap<>());
+        }
+
+        public NonOSGIModbusManager(Map<String, Object> configuration) {
+            activate(configuration);
         }
 
         @Override
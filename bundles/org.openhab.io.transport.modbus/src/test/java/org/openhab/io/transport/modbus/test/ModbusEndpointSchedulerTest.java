@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointScheduler;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointScheduler.Priority;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusEndpointSchedulerTest {
+
+    private Thread startWaiting(ModbusEndpointScheduler scheduler, Priority priority, List<Priority> granted,
+            CountDownLatch done) {
+        Thread thread = new Thread(() -> {
+            try {
+                if (scheduler.acquire(priority, Long.MAX_VALUE)) {
+                    granted.add(priority);
+                    scheduler.release();
+                }
+            } catch (InterruptedException e) {
+                // test fails on missing grant
+            }
+            done.countDown();
+        });
+        thread.start();
+        return thread;
+    }
+
+    private void waitForQueueLength(ModbusEndpointScheduler scheduler, int length) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getQueueLength() < length && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(scheduler.getQueueLength(), is(equalTo(length)));
+    }
+
+    @Test
+    public void testWaitersAreServedByPriority() throws InterruptedException {
+        ModbusEndpointScheduler scheduler = new ModbusEndpointScheduler();
+        List<Priority> granted = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(4);
+
+        assertThat(scheduler.acquire(Priority.POLL, Long.MAX_VALUE), is(true));
+        startWaiting(scheduler, Priority.POLL, granted, done);
+        waitForQueueLength(scheduler, 1);
+        startWaiting(scheduler, Priority.ONE_OFF_READ, granted, done);
+        waitForQueueLength(scheduler, 2);
+        startWaiting(scheduler, Priority.POLL, granted, done);
+        waitForQueueLength(scheduler, 3);
+        startWaiting(scheduler, Priority.WRITE, granted, done);
+        waitForQueueLength(scheduler, 4);
+        scheduler.release();
+
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(granted,
+                is(equalTo(List.of(Priority.WRITE, Priority.ONE_OFF_READ, Priority.POLL, Priority.POLL))));
+        assertThat(scheduler.getGrantedCount(), is(equalTo(5L)));
+    }
+
+    @Test
+    public void testStaleWaiterIsDropped() throws InterruptedException {
+        ModbusEndpointScheduler scheduler = new ModbusEndpointScheduler();
+        assertThat(scheduler.acquire(Priority.WRITE, Long.MAX_VALUE), is(true));
+
+        long started = System.currentTimeMillis();
+        assertThat(scheduler.acquire(Priority.POLL, started + 100), is(false));
+        assertThat(System.currentTimeMillis() - started, is(greaterThanOrEqualTo(100L)));
+        assertThat(scheduler.getDroppedCount(), is(equalTo(1L)));
+        assertThat(scheduler.getQueueLength(), is(equalTo(0)));
+
+        scheduler.release();
+        assertThat(scheduler.acquire(Priority.POLL, System.currentTimeMillis()), is(true));
+        scheduler.release();
+        assertThat(scheduler.getBusyMillis(), is(greaterThanOrEqualTo(100L)));
+    }
+}
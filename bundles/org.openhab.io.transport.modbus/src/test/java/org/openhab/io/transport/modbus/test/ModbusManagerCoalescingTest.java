@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.jupiter.api.Test;
+import org.openhab.io.transport.modbus.ModbusCommunicationInterface;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.internal.ModbusManagerImpl;
+
+import net.wimpi.modbus.ModbusCoupler;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ReadMultipleRegistersRequest;
+import net.wimpi.modbus.procimg.IllegalAddressException;
+import net.wimpi.modbus.procimg.Register;
+import net.wimpi.modbus.procimg.SimpleProcessImage;
+import net.wimpi.modbus.procimg.SimpleRegister;
+
+/**
+ * Tests merging of regular polls by the {@link org.openhab.io.transport.modbus.internal.ModbusManagerImpl}
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusManagerCoalescingTest extends IntegrationTestSupport {
+
+    /**
+     * Long enough that only the first poll is executed during a test
+     */
+    private static final long POLL_PERIOD_MILLIS = 10_000;
+    /**
+     * Long enough that all polls of a test are registered before the first execution
+     */
+    private static final long INITIAL_DELAY_MILLIS = 300;
+
+    @Override
+    protected Map<String, Object> getManagerConfiguration() {
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put(ModbusManagerImpl.CONFIG_COALESCE_MAX_GAP, 0);
+        return configuration;
+    }
+
+    private void generateData(SimpleProcessImage processImage) {
+        for (int i = 0; i < 100; i++) {
+            processImage.addRegister(new SimpleRegister(i));
+        }
+    }
+
+    private void assertRegisters(ModbusRegisterArray registers, int start, int length) {
+        assertThat(registers.size(), is(equalTo(length)));
+        for (int i = 0; i < length; i++) {
+            assertThat(registers.getRegister(i).toUnsignedShort(), is(equalTo(start + i)));
+        }
+    }
+
+    private List<String> capturedRequests() {
+        return modbustRequestCaptor.getAllReturnValues().stream().map(this::describe).collect(Collectors.toList());
+    }
+
+    private String describe(ModbusRequest request) {
+        ReadMultipleRegistersRequest read = (ReadMultipleRegistersRequest) request;
+        return read.getReference() + "+" + read.getWordCount();
+    }
+
+    /**
+     * Registers a regular poll of holding registers, which stores the registers received and counts the failures
+     */
+    private void registerPoll(ModbusCommunicationInterface comms, int start, int length,
+            AtomicReference<ModbusRegisterArray> registers, AtomicInteger failures, CountDownLatch callbackCalled) {
+        comms.registerRegularPoll(new ModbusReadRequestBlueprint(SLAVE_UNIT_ID,
+                ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, start, length, 1), POLL_PERIOD_MILLIS,
+                INITIAL_DELAY_MILLIS, result -> {
+                    Optional<@NonNull ModbusRegisterArray> received = result.getRegisters();
+                    if (received.isPresent()) {
+                        registers.set(received.get());
+                    } else {
+                        failures.incrementAndGet();
+                    }
+                    callbackCalled.countDown();
+                }, failure -> {
+                    failures.incrementAndGet();
+                    callbackCalled.countDown();
+                });
+    }
+
+    @Test
+    public void testMergedPollsReceiveTheirSlices() throws Exception {
+        generateData(spi);
+        AtomicReference<ModbusRegisterArray> first = new AtomicReference<>();
+        AtomicReference<ModbusRegisterArray> second = new AtomicReference<>();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch callbackCalled = new CountDownLatch(2);
+
+        try (ModbusCommunicationInterface comms = modbusManager.newModbusCommunicationInterface(getEndpoint(),
+                null)) {
+            // adjacent and overlapping ranges, merged with a 'coalesceMaxGap' of 0
+            registerPoll(comms, 2, 3, first, failures, callbackCalled);
+            registerPoll(comms, 4, 6, second, failures, callbackCalled);
+            assertTrue(callbackCalled.await(10, TimeUnit.SECONDS));
+
+            assertThat(failures.get(), is(equalTo(0)));
+            assertRegisters(first.get(), 2, 3);
+            assertRegisters(second.get(), 4, 6);
+            assertThat(capturedRequests(), is(equalTo(List.of("2+8"))));
+        }
+    }
+
+    @Test
+    public void testPollsAreNotMergedByDefault() throws Exception {
+        modbusManager.close();
+        modbusManager = new NonOSGIModbusManager();
+        generateData(spi);
+        AtomicReference<ModbusRegisterArray> first = new AtomicReference<>();
+        AtomicReference<ModbusRegisterArray> second = new AtomicReference<>();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch callbackCalled = new CountDownLatch(2);
+
+        try (ModbusCommunicationInterface comms = modbusManager.newModbusCommunicationInterface(getEndpoint(),
+                null)) {
+            registerPoll(comms, 2, 3, first, failures, callbackCalled);
+            registerPoll(comms, 4, 6, second, failures, callbackCalled);
+            assertTrue(callbackCalled.await(10, TimeUnit.SECONDS));
+
+            assertThat(failures.get(), is(equalTo(0)));
+            assertRegisters(first.get(), 2, 3);
+            assertRegisters(second.get(), 4, 6);
+            assertThat(capturedRequests(), containsInAnyOrder("2+3", "4+6"));
+        }
+    }
+
+    @Test
+    public void testRejectedMergedPollIsPolledSeparately() throws Exception {
+        // slave accepting at most 5 registers per request
+        SimpleProcessImage limitedImage = new SimpleProcessImage() {
+            @Override
+            public Register[] getRegisterRange(int offset, int count) {
+                if (count > 5) {
+                    throw new IllegalAddressException();
+                }
+                return super.getRegisterRange(offset, count);
+            }
+        };
+        generateData(limitedImage);
+        ModbusCoupler.getReference().setProcessImage(limitedImage);
+        AtomicReference<ModbusRegisterArray> first = new AtomicReference<>();
+        AtomicReference<ModbusRegisterArray> second = new AtomicReference<>();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch callbackCalled = new CountDownLatch(2);
+
+        try (ModbusCommunicationInterface comms = modbusManager.newModbusCommunicationInterface(getEndpoint(),
+                null)) {
+            registerPoll(comms, 0, 5, first, failures, callbackCalled);
+            registerPoll(comms, 5, 5, second, failures, callbackCalled);
+            assertTrue(callbackCalled.await(10, TimeUnit.SECONDS));
+
+            // the exception response of the merged request is not passed to the polls
+            assertThat(failures.get(), is(equalTo(0)));
+            assertRegisters(first.get(), 0, 5);
+            assertRegisters(second.get(), 5, 5);
+            assertThat(capturedRequests(), is(equalTo(List.of("0+10", "0+5", "5+5"))));
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.openhab.io.transport.modbus.ModbusCommunicationInterface;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.exception.ModbusSlaveErrorResponseException;
+
+import net.wimpi.modbus.Modbus;
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.io.ModbusTCPTransport;
+import net.wimpi.modbus.msg.ExceptionResponse;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ModbusResponse;
+import net.wimpi.modbus.msg.ReadMultipleRegistersRequest;
+import net.wimpi.modbus.procimg.SimpleRegister;
+
+/**
+ * Tests pipelined polls of the {@link org.openhab.io.transport.modbus.internal.ModbusManagerImpl}, i.e. several
+ * requests outstanding over one TCP connection.
+ *
+ * The tests use a slave of their own which reads all the requests of a connection before responding, since the
+ * slave of {@link IntegrationTestSupport} responds to one request at a time.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusManagerPipeliningTest extends IntegrationTestSupport {
+
+    /**
+     * Long enough that only the first poll is executed during a test
+     */
+    private static final long POLL_PERIOD_MILLIS = 10_000;
+    /**
+     * Long enough that all polls of a test are registered before the first execution
+     */
+    private static final long INITIAL_DELAY_MILLIS = 300;
+    /**
+     * Polled ranges, far enough from each other not to be merged
+     */
+    private static final int[] POLL_STARTS = new int[] { 0, 10, 20 };
+    private static final int POLL_LENGTH = 2;
+
+    /**
+     * Creates the responses to a batch of requests received by the slave
+     */
+    @FunctionalInterface
+    private interface Responder {
+        List<ModbusResponse> respond(int connectionIndex, List<ModbusRequest> requests);
+    }
+
+    /**
+     * Slave that reads a given number of requests of each connection, and only then writes the responses
+     */
+    private class PipelinedSlave implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final int[] requestsPerConnection;
+        private final Responder responder;
+        private final List<List<String>> receivedRequests = new CopyOnWriteArrayList<>();
+        private final Thread thread;
+
+        PipelinedSlave(int[] requestsPerConnection, Responder responder) throws IOException {
+            this.serverSocket = new ServerSocket(0, 1, localAddress());
+            this.requestsPerConnection = requestsPerConnection;
+            this.responder = responder;
+            this.thread = new Thread(this::serve, "ModbusTransportTestsPipelinedSlave");
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        /**
+         * Requests received, per connection
+         */
+        List<List<String>> getReceivedRequests() {
+            return receivedRequests;
+        }
+
+        private void serve() {
+            int connectionIndex = 0;
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    serveConnection(socket, connectionIndex++);
+                } catch (IOException e) {
+                    // server socket closed
+                    return;
+                }
+            }
+        }
+
+        private void serveConnection(Socket socket, int connectionIndex) {
+            ModbusTCPTransport transport = new ModbusTCPTransport(socket);
+            List<String> received = new CopyOnWriteArrayList<>();
+            receivedRequests.add(received);
+            int batchSize = connectionIndex < requestsPerConnection.length ? requestsPerConnection[connectionIndex]
+                    : 1;
+            try {
+                while (true) {
+                    List<ModbusRequest> requests = new ArrayList<>(batchSize);
+                    while (requests.size() < batchSize) {
+                        ModbusRequest request = transport.readRequest();
+                        received.add(describe(request));
+                        requests.add(request);
+                    }
+                    for (ModbusResponse response : responder.respond(connectionIndex, requests)) {
+                        transport.writeMessage(response);
+                    }
+                }
+            } catch (ModbusIOException e) {
+                // connection closed by the master
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            serverSocket.close();
+            thread.join(1000);
+        }
+    }
+
+    /**
+     * Callbacks received by a regular poll
+     */
+    private static class PollResult {
+        private final AtomicReference<@Nullable ModbusRegisterArray> registers = new AtomicReference<>();
+        private final AtomicReference<@Nullable Exception> error = new AtomicReference<>();
+        private final AtomicInteger callbackCount = new AtomicInteger();
+    }
+
+    private static String describe(ModbusRequest request) {
+        ReadMultipleRegistersRequest read = (ReadMultipleRegistersRequest) request;
+        return read.getReference() + "+" + read.getWordCount();
+    }
+
+    private static ModbusResponse createResponse(ModbusRequest request) {
+        ModbusResponse response = request.createResponse();
+        response.setTransactionID(request.getTransactionID());
+        return response;
+    }
+
+    private static ModbusResponse createExceptionResponse(ModbusRequest request) {
+        ModbusResponse response = new ExceptionResponse(request.getFunctionCode(), Modbus.ILLEGAL_ADDRESS_EXCEPTION);
+        response.setTransactionID(request.getTransactionID());
+        response.setUnitID(request.getUnitID());
+        return response;
+    }
+
+    private static List<ModbusResponse> inOrder(List<ModbusRequest> requests) {
+        return requests.stream().map(ModbusManagerPipeliningTest::createResponse).collect(Collectors.toList());
+    }
+
+    private void generateData() {
+        for (int i = 0; i < 100; i++) {
+            spi.addRegister(new SimpleRegister(i));
+        }
+    }
+
+    private void assertRegisters(PollResult result, int start) {
+        ModbusRegisterArray registers = result.registers.get();
+        assertNotNull(registers);
+        assertThat(registers.size(), is(equalTo(POLL_LENGTH)));
+        for (int i = 0; i < POLL_LENGTH; i++) {
+            assertThat(registers.getRegister(i).toUnsignedShort(), is(equalTo(start + i)));
+        }
+    }
+
+    private List<String> describePolls(int... starts) {
+        List<String> descriptions = new ArrayList<>();
+        for (int start : starts) {
+            descriptions.add(start + "+" + POLL_LENGTH);
+        }
+        return descriptions;
+    }
+
+    /**
+     * Registers the polls of {@link #POLL_STARTS} with the slave, with up to three outstanding requests, and waits
+     * for their callbacks.
+     */
+    private List<PollResult> poll(PipelinedSlave slave) throws Exception {
+        ModbusSlaveEndpoint endpoint = new ModbusTCPSlaveEndpoint("127.0.0.1", slave.getPort());
+        EndpointPoolConfiguration configuration = new EndpointPoolConfiguration();
+        configuration.setMaxPipelinedTransactions(POLL_STARTS.length);
+        List<PollResult> results = new ArrayList<>();
+        CountDownLatch callbackCalled = new CountDownLatch(POLL_STARTS.length);
+
+        try (ModbusCommunicationInterface comms = modbusManager.newModbusCommunicationInterface(endpoint,
+                configuration)) {
+            for (int start : POLL_STARTS) {
+                PollResult result = new PollResult();
+                results.add(result);
+                comms.registerRegularPoll(new ModbusReadRequestBlueprint(SLAVE_UNIT_ID,
+                        ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, start, POLL_LENGTH, 2), POLL_PERIOD_MILLIS,
+                        INITIAL_DELAY_MILLIS, response -> {
+                            result.registers.set(response.getRegisters().orElse(null));
+                            result.callbackCount.incrementAndGet();
+                            callbackCalled.countDown();
+                        }, failure -> {
+                            result.error.set(failure.getCause());
+                            result.callbackCount.incrementAndGet();
+                            callbackCalled.countDown();
+                        });
+            }
+            assertTrue(callbackCalled.await(10, TimeUnit.SECONDS));
+        }
+        for (PollResult result : results) {
+            assertThat(result.callbackCount.get(), is(equalTo(1)));
+        }
+        return results;
+    }
+
+    @Test
+    public void testPipelinedPolls() throws Exception {
+        generateData();
+        try (PipelinedSlave slave = new PipelinedSlave(new int[] { POLL_STARTS.length },
+                (connectionIndex, requests) -> inOrder(requests))) {
+            List<PollResult> results = poll(slave);
+
+            for (int i = 0; i < POLL_STARTS.length; i++) {
+                assertNull(results.get(i).error.get());
+                assertRegisters(results.get(i), POLL_STARTS[i]);
+            }
+            // all requests sent over one connection, before the first response
+            assertThat(slave.getReceivedRequests(), is(equalTo(List.of(describePolls(POLL_STARTS)))));
+        }
+    }
+
+    @Test
+    public void testPipelinedPollsWithResponsesOutOfOrder() throws Exception {
+        generateData();
+        try (PipelinedSlave slave = new PipelinedSlave(new int[] { POLL_STARTS.length },
+                (connectionIndex, requests) -> {
+                    List<ModbusResponse> responses = inOrder(requests);
+                    Collections.reverse(responses);
+                    return responses;
+                })) {
+            List<PollResult> results = poll(slave);
+
+            // responses are matched to the requests by transaction ID
+            for (int i = 0; i < POLL_STARTS.length; i++) {
+                assertNull(results.get(i).error.get());
+                assertRegisters(results.get(i), POLL_STARTS[i]);
+            }
+            assertThat(slave.getReceivedRequests(), is(equalTo(List.of(describePolls(POLL_STARTS)))));
+        }
+    }
+
+    @Test
+    public void testPipelinedPollsWithUnknownTransactionId() throws Exception {
+        generateData();
+        // the first connection answers the first request, and then with unknown transaction ID
+        try (PipelinedSlave slave = new PipelinedSlave(new int[] { POLL_STARTS.length, POLL_STARTS.length - 1 },
+                (connectionIndex, requests) -> {
+                    List<ModbusResponse> responses = inOrder(requests);
+                    if (connectionIndex == 0) {
+                        ModbusResponse unknown = responses.get(1);
+                        unknown.setTransactionID((unknown.getTransactionID() + 1000) & 0xFFFF);
+                        return responses.subList(0, 2);
+                    }
+                    return responses;
+                })) {
+            List<PollResult> results = poll(slave);
+
+            for (int i = 0; i < POLL_STARTS.length; i++) {
+                assertNull(results.get(i).error.get());
+                assertRegisters(results.get(i), POLL_STARTS[i]);
+            }
+            // connection is reset, and only the requests without response are retried
+            assertThat(slave.getReceivedRequests(), is(equalTo(List.of(describePolls(POLL_STARTS),
+                    describePolls(POLL_STARTS[1], POLL_STARTS[2])))));
+        }
+    }
+
+    @Test
+    public void testPipelinedPollsWithExceptionResponse() throws Exception {
+        generateData();
+        try (PipelinedSlave slave = new PipelinedSlave(new int[] { POLL_STARTS.length },
+                (connectionIndex, requests) -> {
+                    List<ModbusResponse> responses = inOrder(requests);
+                    responses.set(1, createExceptionResponse(requests.get(1)));
+                    return responses;
+                })) {
+            List<PollResult> results = poll(slave);
+
+            // only the poll with the exception response fails
+            assertNull(results.get(0).error.get());
+            assertRegisters(results.get(0), POLL_STARTS[0]);
+            Exception error = results.get(1).error.get();
+            assertTrue(error instanceof ModbusSlaveErrorResponseException, String.valueOf(error));
+            assertNull(results.get(1).registers.get());
+            assertNull(results.get(2).error.get());
+            assertRegisters(results.get(2), POLL_STARTS[2]);
+            // the connection is kept, and nothing is retried
+            assertThat(slave.getReceivedRequests(), is(equalTo(List.of(describePolls(POLL_STARTS)))));
+        }
+    }
+}
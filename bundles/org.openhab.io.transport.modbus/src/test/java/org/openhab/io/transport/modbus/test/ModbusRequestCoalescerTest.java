@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openhab.io.transport.modbus.AsyncModbusReadResult;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.BasicPollTask;
+import org.openhab.io.transport.modbus.internal.ModbusRequestCoalescer;
+import org.openhab.io.transport.modbus.internal.ModbusRequestCoalescer.CoalescedRead;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusRequestCoalescerTest {
+
+    private static final ModbusTCPSlaveEndpoint ENDPOINT = new ModbusTCPSlaveEndpoint("localhost", 502);
+
+    private static PollTask task(ModbusReadFunctionCode functionCode, int start, int length) {
+        return task(1, functionCode, start, length, 3);
+    }
+
+    private static PollTask task(int unitId, ModbusReadFunctionCode functionCode, int start, int length,
+            int maxTries) {
+        return new BasicPollTask(ENDPOINT,
+                new ModbusReadRequestBlueprint(unitId, functionCode, start, length, maxTries), result -> {
+                }, failure -> {
+                });
+    }
+
+    @Test
+    public void testOverlappingAndAdjacentRangesAreMerged() {
+        PollTask a = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0, 10);
+        PollTask b = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 10, 5);
+        PollTask c = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 12, 2);
+        PollTask d = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 20, 2);
+
+        List<CoalescedRead> reads = ModbusRequestCoalescer.coalesce(List.of(d, c, b, a), 0);
+
+        assertThat(reads.size(), is(equalTo(2)));
+        assertThat(reads.get(0).getRequest().getReference(), is(equalTo(0)));
+        assertThat(reads.get(0).getRequest().getDataLength(), is(equalTo(15)));
+        assertThat(reads.get(0).getTasks(), is(equalTo(List.of(a, b, c))));
+        assertThat(reads.get(1).getRequest(), is(sameInstance(d.getRequest())));
+    }
+
+    @Test
+    public void testGapThreshold() {
+        PollTask a = task(ModbusReadFunctionCode.READ_INPUT_REGISTERS, 0, 2);
+        PollTask b = task(ModbusReadFunctionCode.READ_INPUT_REGISTERS, 7, 2);
+
+        assertThat(ModbusRequestCoalescer.coalesce(List.of(a, b), 4).size(), is(equalTo(2)));
+        List<CoalescedRead> reads = ModbusRequestCoalescer.coalesce(List.of(a, b), 5);
+        assertThat(reads.size(), is(equalTo(1)));
+        assertThat(reads.get(0).getRequest().getDataLength(), is(equalTo(9)));
+        assertThat(ModbusRequestCoalescer.coalesce(List.of(a, b), -1).size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testProtocolLimitsAreRespected() {
+        PollTask a = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0, 100);
+        PollTask b = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 100, 26);
+        PollTask c = task(ModbusReadFunctionCode.READ_COILS, 0, 1000);
+        PollTask d = task(ModbusReadFunctionCode.READ_COILS, 1000, 1000);
+
+        List<CoalescedRead> reads = ModbusRequestCoalescer.coalesce(List.of(a, b, c, d), 10);
+
+        assertThat(reads.size(), is(equalTo(3)));
+        assertThat(reads.get(0).getRequest().getFunctionCode(), is(equalTo(ModbusReadFunctionCode.READ_COILS)));
+        assertThat(reads.get(0).getRequest().getDataLength(), is(equalTo(2000)));
+        assertThat(reads.get(1).getTasks(), is(equalTo(List.of(a))));
+        assertThat(reads.get(2).getTasks(), is(equalTo(List.of(b))));
+    }
+
+    @Test
+    public void testDifferentUnitsAreNotMerged() {
+        PollTask a = task(1, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0, 2, 1);
+        PollTask b = task(2, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 2, 2, 1);
+        PollTask c = task(2, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 4, 2, 5);
+
+        List<CoalescedRead> reads = ModbusRequestCoalescer.coalesce(List.of(a, b, c), 0);
+
+        assertThat(reads.size(), is(equalTo(2)));
+        assertThat(reads.get(1).getRequest().getUnitID(), is(equalTo(2)));
+        assertThat(reads.get(1).getRequest().getMaxTries(), is(equalTo(5)));
+    }
+
+    @Test
+    public void testSliceRegisters() {
+        ModbusReadRequestBlueprint merged = new ModbusReadRequestBlueprint(1,
+                ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 10, 5, 1);
+        ModbusReadRequestBlueprint request = new ModbusReadRequestBlueprint(1,
+                ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 12, 2, 1);
+
+        AsyncModbusReadResult slice = ModbusRequestCoalescer
+                .slice(new AsyncModbusReadResult(merged, new ModbusRegisterArray(1, 2, 3, 4, 5)), request);
+
+        assertThat(slice.getRequest(), is(sameInstance(request)));
+        assertThat(slice.getRegisters().get().size(), is(equalTo(2)));
+        assertThat(slice.getRegisters().get().getRegister(0).getValue(), is(equalTo(3)));
+        assertThat(slice.getRegisters().get().getRegister(1).getValue(), is(equalTo(4)));
+    }
+
+    @Test
+    public void testSliceBits() {
+        ModbusReadRequestBlueprint merged = new ModbusReadRequestBlueprint(1, ModbusReadFunctionCode.READ_COILS, 0,
+                4, 1);
+        ModbusReadRequestBlueprint request = new ModbusReadRequestBlueprint(1, ModbusReadFunctionCode.READ_COILS, 1,
+                3, 1);
+
+        AsyncModbusReadResult slice = ModbusRequestCoalescer
+                .slice(new AsyncModbusReadResult(merged, new BitArray(false, true, false, true)), request);
+
+        assertThat(slice.getBits().get(), is(equalTo(new BitArray(true, false, true))));
+    }
+}
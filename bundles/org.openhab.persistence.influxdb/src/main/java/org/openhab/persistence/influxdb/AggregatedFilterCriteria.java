@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.persistence.FilterCriteria;
+
+/**
+ * Asks for the values of a time range downsampled by InfluxDB, e.g. for a chart. The time range is split into about
+ * <code>points</code> time buckets, and one value per bucket is returned.
+ *
+ * Only queries of a single Number, Dimmer or Rollershutter item with begin and end date, without state filter and
+ * without paging are downsampled. Queries with a plain {@link FilterCriteria}, like the ones of the persistence
+ * extensions, always return the stored values.
+ *
+ * @author Theo Weiss - Initial contribution
+ */
+@NonNullByDefault
+public class AggregatedFilterCriteria extends FilterCriteria {
+
+    /**
+     * Function computing the value of a time bucket
+     */
+    public enum Aggregation {
+        MIN,
+        MAX,
+        AVG,
+        LAST
+    }
+
+    private final Aggregation aggregation;
+    private final int points;
+
+    public AggregatedFilterCriteria(Aggregation aggregation, int points) {
+        this.aggregation = aggregation;
+        this.points = points;
+    }
+
+    public Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+}
@@ -12,21 +12,34 @@
  */
 package org.openhab.persistence.influxdb;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.OpenHAB;
+import org.openhab.core.common.ThreadPoolManager;
 import org.openhab.core.config.core.ConfigurableService;
+import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.MetadataRegistry;
+import org.openhab.core.library.items.DimmerItem;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.RollershutterItem;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceItemInfo;
@@ -34,11 +47,13 @@ import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.strategy.PersistenceStrategy;
 import org.openhab.core.types.State;
+import org.openhab.persistence.influxdb.AggregatedFilterCriteria.Aggregation;
 import org.openhab.persistence.influxdb.internal.FilterCriteriaQueryCreator;
 import org.openhab.persistence.influxdb.internal.InfluxDBConfiguration;
 import org.openhab.persistence.influxdb.internal.InfluxDBHistoricItem;
 import org.openhab.persistence.influxdb.internal.InfluxDBPersistentItemInfo;
 import org.openhab.persistence.influxdb.internal.InfluxDBRepository;
+import org.openhab.persistence.influxdb.internal.InfluxDBSpool;
 import org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtils;
 import org.openhab.persistence.influxdb.internal.InfluxPoint;
 import org.openhab.persistence.influxdb.internal.InfluxRow;
@@ -81,6 +96,9 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
 
     protected static final String CONFIG_URI = "persistence:influxdb";
 
+    private static final int SPOOL_CHECK_INTERVAL = 10;
+    private static final int SPOOL_REPLAY_BATCH_SIZE = 5000;
+
     // External dependencies
     private final ItemRegistry itemRegistry;
     private final MetadataRegistry metadataRegistry;
@@ -92,6 +110,11 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
     private @NonNullByDefault({}) ItemToStorePointCreator itemToStorePointCreator;
     private @NonNullByDefault({}) InfluxDBRepository influxDBRepository;
 
+    private final ScheduledExecutorService scheduler = ThreadPoolManager.getScheduledPool("persistence");
+    private @Nullable InfluxDBSpool spool;
+    private @Nullable ScheduledFuture<?> spoolJob;
+    private volatile boolean available;
+
     @Activate
     public InfluxDBPersistenceService(final @Reference ItemRegistry itemRegistry,
             final @Reference MetadataRegistry metadataRegistry) {
@@ -109,7 +132,13 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
         if (loadConfiguration(config)) {
             itemToStorePointCreator = new ItemToStorePointCreator(configuration, metadataRegistry);
             influxDBRepository = createInfluxDBRepository();
-            influxDBRepository.connect();
+            if (configuration.getSpoolSize() > 0) {
+                influxDBRepository.setWriteFailureHandler(this::spoolFailedPoints);
+            }
+            available = influxDBRepository.connect();
+            if (configuration.getSpoolSize() > 0) {
+                startSpool();
+            }
         } else {
             logger.error("Cannot load configuration, persistence service wont work");
         }
@@ -117,6 +146,56 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
         logger.debug("InfluxDB persistence service is now activated");
     }
 
+    private void startSpool() {
+        try {
+            spool = new InfluxDBSpool(Paths.get(OpenHAB.getUserDataFolder(), "persistence", "influxdb", "spool"),
+                    configuration.getSpoolSize() * 1024L * 1024L);
+            spoolJob = scheduler.scheduleWithFixedDelay(this::checkSpool, SPOOL_CHECK_INTERVAL, SPOOL_CHECK_INTERVAL,
+                    TimeUnit.SECONDS);
+        } catch (IOException e) {
+            logger.warn("Cannot create spool, points stored while InfluxDB is unavailable are lost: {}",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Checks the connection and writes the spooled points once InfluxDB is available
+     */
+    private void checkSpool() {
+        final InfluxDBSpool currentSpool = spool;
+        final InfluxDBRepository currentRepository = influxDBRepository;
+        if (currentSpool == null || currentRepository == null) {
+            return;
+        }
+        try {
+            available = currentRepository.checkConnectionStatus();
+            if (available && !currentSpool.isEmpty()) {
+                int replayed = currentSpool.replay(SPOOL_REPLAY_BATCH_SIZE, currentRepository::write);
+                logger.debug("Wrote {} spooled points to InfluxDB", replayed);
+                if (!currentSpool.isEmpty()) {
+                    available = false;
+                }
+            }
+        } catch (RuntimeException e) {
+            available = false;
+            logger.debug("InfluxDB is not available: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Spools points that were accepted by {@link #store(Item, String)} but could not be written later on
+     */
+    private void spoolFailedPoints(List<String> lines) {
+        final InfluxDBSpool currentSpool = spool;
+        if (currentSpool == null) {
+            logger.warn("Writing {} points failed, points are lost", lines.size());
+            return;
+        }
+        available = false;
+        logger.debug("Spooling {} points because InfluxDB is not available", lines.size());
+        lines.forEach(currentSpool::append);
+    }
+
     // Visible for testing
     protected InfluxDBRepository createInfluxDBRepository() {
         return RepositoryFactory.createRepository(configuration);
@@ -128,6 +207,16 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
     @Deactivate
     public void deactivate() {
         logger.debug("InfluxDB persistence service deactivated");
+        final ScheduledFuture<?> currentSpoolJob = spoolJob;
+        if (currentSpoolJob != null) {
+            currentSpoolJob.cancel(false);
+            spoolJob = null;
+        }
+        final InfluxDBSpool currentSpool = spool;
+        if (currentSpool != null) {
+            currentSpool.close();
+            spool = null;
+        }
         if (influxDBRepository != null) {
             influxDBRepository.disconnect();
             influxDBRepository = null;
@@ -199,11 +288,24 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
 
     @Override
     public void store(Item item, @Nullable String alias) {
-        if (influxDBRepository != null && influxDBRepository.isConnected()) {
+        final InfluxDBSpool currentSpool = spool;
+        if (influxDBRepository != null && (influxDBRepository.isConnected() || currentSpool != null)) {
             InfluxPoint point = itemToStorePointCreator.convert(item, alias);
-            if (point != null) {
+            if (point != null && currentSpool != null && !available) {
+                logger.trace("Spooling item {} as InfluxDB point {}", item, point);
+                currentSpool.append(point.toLineProtocol());
+            } else if (point != null) {
                 logger.trace("Storing item {} in InfluxDB point {}", item, point);
-                influxDBRepository.write(point);
+                try {
+                    influxDBRepository.write(point);
+                } catch (RuntimeException e) {
+                    if (currentSpool == null) {
+                        throw e;
+                    }
+                    available = false;
+                    logger.debug("Spooling point {} because InfluxDB is not available: {}", point, e.getMessage());
+                    currentSpool.append(point.toLineProtocol());
+                }
             } else {
                 logger.trace("Ignoring item {} as is cannot be converted to a InfluxDB point", item);
             }
@@ -222,21 +324,55 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
                     filter.getItemName(), filter.getOrdering().toString(), filter.getState(), filter.getOperator(),
                     filter.getBeginDate(), filter.getEndDate(), filter.getPageSize(), filter.getPageNumber());
 
+            Aggregation aggregation = getAggregation(filter);
             String query = RepositoryFactory.createQueryCreator(configuration).createQuery(filter,
-                    configuration.getRetentionPolicy());
+                    configuration.getRetentionPolicy(), aggregation,
+                    aggregation == null ? 0 : ((AggregatedFilterCriteria) filter).getPoints());
             logger.trace("Query {}", query);
-            List<InfluxRow> results = influxDBRepository.query(query);
-            return results.stream().map(this::mapRow2HistoricItem).collect(Collectors.toList());
+            final InfluxDBRepository currentRepository = influxDBRepository;
+            // executed lazily by each iterator, rows are mapped while they are streamed
+            return () -> {
+                HistoricItemMapper mapper = new HistoricItemMapper();
+                return currentRepository.query(query).map(mapper::map).iterator();
+            };
         } else {
             logger.debug("query ignored, InfluxDB is not yet connected");
             return Collections.emptyList();
         }
     }
 
-    private HistoricItem mapRow2HistoricItem(InfluxRow row) {
-        State state = InfluxDBStateConvertUtils.objectToState(row.getValue(), row.getItemName(), itemRegistry);
-        return new InfluxDBHistoricItem(row.getItemName(), state,
-                ZonedDateTime.ofInstant(row.getTime(), ZoneId.systemDefault()));
+    /**
+     * Maps the rows of a query, the item and its state converter are resolved once per item name and query
+     */
+    private class HistoricItemMapper {
+        private final ZoneId zone = ZoneId.systemDefault();
+        private final Map<String, Function<Object, State>> converters = new HashMap<>();
+
+        private HistoricItem map(InfluxRow row) {
+            Function<Object, State> converter = converters.computeIfAbsent(row.getItemName(),
+                    itemName -> InfluxDBStateConvertUtils.createStateConverter(itemRegistry.get(itemName)));
+            return new InfluxDBHistoricItem(row.getItemName(), converter.apply(row.getValue()),
+                    ZonedDateTime.ofInstant(row.getTime(), zone));
+        }
+    }
+
+    /**
+     * Only queries asking for it with an {@link AggregatedFilterCriteria} are aggregated, and only values of numeric
+     * items can be aggregated
+     */
+    private @Nullable Aggregation getAggregation(FilterCriteria filter) {
+        String itemName = filter.getItemName();
+        if (!(filter instanceof AggregatedFilterCriteria) || itemName == null) {
+            return null;
+        }
+        Item item = itemRegistry.get(itemName);
+        if (item instanceof GroupItem) {
+            item = ((GroupItem) item).getBaseItem();
+        }
+        if (item instanceof NumberItem || item instanceof DimmerItem || item instanceof RollershutterItem) {
+            return ((AggregatedFilterCriteria) filter).getAggregation();
+        }
+        return null;
     }
 
     @Override
@@ -12,8 +12,13 @@
  */
 package org.openhab.persistence.influxdb.internal;
 
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.persistence.influxdb.AggregatedFilterCriteria.Aggregation;
 
 /**
  * Creates InfluxDB query sentence given a OpenHab persistence {@link FilterCriteria}
@@ -29,7 +34,42 @@ public interface FilterCriteriaQueryCreator {
      * @param retentionPolicy Name of the retentionPolicy/bucket to use in query
      * @return Created query as an String
      */
-    String createQuery(FilterCriteria criteria, String retentionPolicy);
+    default String createQuery(FilterCriteria criteria, String retentionPolicy) {
+        return createQuery(criteria, retentionPolicy, null, 0);
+    }
+
+    /**
+     * Create query from {@link FilterCriteria}, downsampling the values into time buckets if the criteria allow it
+     * (see {@link #getAggregationInterval(FilterCriteria, Aggregation, int)})
+     *
+     * @param criteria Criteria to create query from
+     * @param retentionPolicy Name of the retentionPolicy/bucket to use in query
+     * @param aggregation Function to apply to the values of each time bucket, null to return the raw values
+     * @param aggregationPoints Number of time buckets the queried time range is split into
+     * @return Created query as an String
+     */
+    String createQuery(FilterCriteria criteria, String retentionPolicy, @Nullable Aggregation aggregation,
+            int aggregationPoints);
+
+    /**
+     * Get the time bucket width in seconds to aggregate the values of a query to about
+     * <code>aggregationPoints</code> points. Only unpaged queries of a single item with begin and end date and
+     * without state filter are aggregated.
+     *
+     * @return bucket width in seconds, 0 if the query must return the raw values
+     */
+    default long getAggregationInterval(FilterCriteria criteria, @Nullable Aggregation aggregation,
+            int aggregationPoints) {
+        ZonedDateTime begin = criteria.getBeginDate();
+        ZonedDateTime end = criteria.getEndDate();
+        if (aggregation == null || aggregationPoints <= 0 || begin == null || end == null
+                || criteria.getItemName() == null || criteria.getState() != null
+                || criteria.getPageSize() != Integer.MAX_VALUE) {
+            return 0;
+        }
+        long rangeSeconds = Duration.between(begin, end).getSeconds();
+        return Math.max(1, (rangeSeconds + aggregationPoints - 1) / aggregationPoints);
+    }
 
     default String getOperationSymbol(FilterCriteria.Operator operator, InfluxDBVersion version) {
         switch (operator) {
@@ -49,4 +89,19 @@ public interface FilterCriteriaQueryCreator {
                 throw new UnnexpectedConditionException("Not expected operator " + operator);
         }
     }
+
+    default String getAggregationFunction(Aggregation aggregation) {
+        switch (aggregation) {
+            case MIN:
+                return "min";
+            case MAX:
+                return "max";
+            case AVG:
+                return "mean";
+            case LAST:
+                return "last";
+            default:
+                throw new UnnexpectedConditionException("Not expected aggregation " + aggregation);
+        }
+    }
 }
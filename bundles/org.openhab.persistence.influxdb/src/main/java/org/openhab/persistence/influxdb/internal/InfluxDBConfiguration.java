@@ -39,6 +39,7 @@ public class InfluxDBConfiguration {
     public static final String ADD_CATEGORY_TAG_PARAM = "addCategoryTag";
     public static final String ADD_LABEL_TAG_PARAM = "addLabelTag";
     public static final String ADD_TYPE_TAG_PARAM = "addTypeTag";
+    public static final String SPOOL_SIZE_PARAM = "spoolSize";
     public static InfluxDBConfiguration NO_CONFIGURATION = new InfluxDBConfiguration(Collections.emptyMap());
     private final Logger logger = LoggerFactory.getLogger(InfluxDBConfiguration.class);
     private final String url;
@@ -54,6 +55,8 @@ public class InfluxDBConfiguration {
     private final boolean addTypeTag;
     private final boolean addLabelTag;
 
+    private final int spoolSize;
+
     public InfluxDBConfiguration(Map<String, Object> config) {
         url = (String) config.getOrDefault(URL_PARAM, "http://127.0.0.1:8086");
         user = (String) config.getOrDefault(USER_PARAM, "openhab");
@@ -67,6 +70,8 @@ public class InfluxDBConfiguration {
         addCategoryTag = getConfigBooleanValue(config, ADD_CATEGORY_TAG_PARAM, false);
         addLabelTag = getConfigBooleanValue(config, ADD_LABEL_TAG_PARAM, false);
         addTypeTag = getConfigBooleanValue(config, ADD_TYPE_TAG_PARAM, false);
+
+        spoolSize = getConfigIntValue(config, SPOOL_SIZE_PARAM, 0);
     }
 
     private static boolean getConfigBooleanValue(Map<String, Object> config, String key, boolean defaultValue) {
@@ -80,6 +85,21 @@ public class InfluxDBConfiguration {
         }
     }
 
+    private static int getConfigIntValue(Map<String, Object> config, String key, int defaultValue) {
+        Object object = config.get(key);
+        if (object instanceof Number) {
+            return ((Number) object).intValue();
+        } else if (object instanceof String) {
+            try {
+                return Integer.parseInt(((String) object).trim());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        } else {
+            return defaultValue;
+        }
+    }
+
     private InfluxDBVersion parseInfluxVersion(@Nullable Object value) {
         try {
             return InfluxDBVersion.valueOf((String) value);
@@ -156,6 +176,13 @@ public class InfluxDBConfiguration {
         return addLabelTag;
     }
 
+    /**
+     * @return maximum size of the spool for points written while InfluxDB is unavailable in MB, 0 if disabled
+     */
+    public int getSpoolSize() {
+        return spoolSize;
+    }
+
     public String getUser() {
         return user;
     }
@@ -174,7 +201,8 @@ public class InfluxDBConfiguration {
                 + password.length() + " chars" + '\'' + ", token='" + token.length() + " chars" + '\''
                 + ", databaseName='" + databaseName + '\'' + ", retentionPolicy='" + retentionPolicy + '\''
                 + ", version=" + version + ", replaceUnderscore=" + replaceUnderscore + ", addCategoryTag="
-                + addCategoryTag + ", addTypeTag=" + addTypeTag + ", addLabelTag=" + addLabelTag + '}';
+                + addCategoryTag + ", addTypeTag=" + addTypeTag + ", addLabelTag=" + addLabelTag + ", spoolSize="
+                + spoolSize + '}';
         return sb;
     }
 
@@ -14,6 +14,8 @@ package org.openhab.persistence.influxdb.internal;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 
@@ -58,17 +60,34 @@ public interface InfluxDBRepository {
     Map<String, Integer> getStoredItemsCount();
 
     /**
-     * Executes Flux query
+     * Executes query and streams the results, only a bounded number of rows is held in memory
      *
      * @param query Query
-     * @return Query results
+     * @return Query results, closing the stream cancels the query
      */
-    List<InfluxRow> query(String query);
+    Stream<InfluxRow> query(String query);
 
     /**
-     * Write point to database
+     * Write point to database. The point may be written asynchronously, points whose write failed are passed to the
+     * write failure handler.
      *
      * @param influxPoint Point to write
      */
     void write(InfluxPoint influxPoint);
+
+    /**
+     * Set the handler for points that could not be written by {@link #write(InfluxPoint)}, must be called before
+     * {@link #connect()}. Without a handler, failed points are only logged.
+     *
+     * @param handler Receives the failed points in line protocol with millisecond precision
+     */
+    void setWriteFailureHandler(Consumer<List<String>> handler);
+
+    /**
+     * Write points in line protocol with millisecond precision and wait until they are written
+     *
+     * @param lines Points in line protocol
+     * @return True if successful, otherwise false
+     */
+    boolean write(List<String> lines);
 }
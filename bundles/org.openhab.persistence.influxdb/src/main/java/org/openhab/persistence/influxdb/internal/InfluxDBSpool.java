@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded, append-only spool for points that could not be written to InfluxDB.
+ *
+ * Points are appended in line protocol to memory-mapped segment files, each record is written as its length followed
+ * by its UTF-8 bytes. A segment is closed when it is full or when the spool is replayed, only closed segments are
+ * replayed and they are deleted once all their points have been written. If the spool exceeds its maximum size, the
+ * oldest segment is dropped.
+ *
+ * A segment that has only partially been replayed is replayed again from the start, which is harmless because
+ * InfluxDB overwrites points with the same measurement, tags and time.
+ *
+ * @author Theo Weiss - Initial contribution
+ */
+@NonNullByDefault
+public class InfluxDBSpool {
+    public static final int SEGMENT_SIZE = 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".spool";
+
+    private final Logger logger = LoggerFactory.getLogger(InfluxDBSpool.class);
+
+    private final Path directory;
+    private final int maxSegments;
+    private final int segmentSize;
+
+    /** closed segments, oldest first */
+    private final Deque<Path> segments = new LinkedList<>();
+    private @Nullable Path activeSegment;
+    private @Nullable MappedByteBuffer activeBuffer;
+    private long nextSegmentNumber;
+    private long droppedSegments;
+
+    /**
+     * @param directory the directory of the segment files, segments of a previous run are replayed
+     * @param maxSize maximum size of the spool in bytes
+     */
+    public InfluxDBSpool(Path directory, long maxSize) throws IOException {
+        this(directory, maxSize, SEGMENT_SIZE);
+    }
+
+    // Visible for testing
+    InfluxDBSpool(Path directory, long maxSize, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.max(2, maxSize / segmentSize);
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            segments.addAll(files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted()
+                    .collect(Collectors.toList()));
+        }
+        Path last = segments.peekLast();
+        if (last != null) {
+            String name = last.getFileName().toString();
+            nextSegmentNumber = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())) + 1;
+            logger.info("Found {} spooled InfluxDB segments, they will be written once InfluxDB is available",
+                    segments.size());
+        }
+    }
+
+    /**
+     * Appends a point in line protocol.
+     *
+     * @return false if the point could not be spooled
+     */
+    public synchronized boolean append(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length + Integer.BYTES > segmentSize) {
+            logger.warn("Point can't be spooled, its size {} is not supported", bytes.length);
+            return false;
+        }
+        try {
+            MappedByteBuffer buffer = activeBuffer;
+            if (buffer == null || buffer.remaining() < bytes.length + Integer.BYTES) {
+                rollSegment();
+                buffer = openSegment();
+            }
+            buffer.putInt(bytes.length).put(bytes);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Point can't be spooled: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        MappedByteBuffer buffer = activeBuffer;
+        return segments.isEmpty() && (buffer == null || buffer.position() == 0);
+    }
+
+    /**
+     * Writes all spooled points, oldest first.
+     *
+     * The writer is called without holding the lock of the spool, so points can be appended meanwhile.
+     *
+     * @param batchSize the maximum number of points passed to the writer at once
+     * @param writer writes the points and returns if it was successful
+     * @return the number of replayed points
+     */
+    public int replay(int batchSize, Predicate<List<String>> writer) {
+        List<Path> replaySegments;
+        synchronized (this) {
+            rollSegment();
+            replaySegments = new ArrayList<>(segments);
+        }
+        int replayed = 0;
+        for (Path segment : replaySegments) {
+            List<String> lines;
+            try {
+                lines = readSegment(segment);
+            } catch (NoSuchFileException e) {
+                // dropped meanwhile
+                continue;
+            } catch (IOException e) {
+                logger.warn("Spooled segment {} can't be read, dropping it: {}", segment, e.getMessage());
+                lines = List.of();
+            }
+            for (int i = 0; i < lines.size(); i += batchSize) {
+                List<String> batch = lines.subList(i, Math.min(i + batchSize, lines.size()));
+                if (!writer.test(batch)) {
+                    return replayed;
+                }
+                replayed += batch.size();
+            }
+            synchronized (this) {
+                segments.remove(segment);
+                deleteSegment(segment);
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Closes the active segment, all points are kept for the next start.
+     */
+    public synchronized void close() {
+        rollSegment();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size() + (activeSegment == null ? 0 : 1);
+    }
+
+    public synchronized long getDroppedSegmentCount() {
+        return droppedSegments;
+    }
+
+    private MappedByteBuffer openSegment() throws IOException {
+        while (segments.size() + 1 > maxSegments) {
+            Path oldest = segments.removeFirst();
+            droppedSegments++;
+            logger.warn("InfluxDB spool is full, dropping oldest points from {}", oldest.getFileName());
+            deleteSegment(oldest);
+        }
+        Path segment = directory.resolve(String.format("%016d%s", nextSegmentNumber++, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // the mapping stays valid after closing the channel, the file is zero filled
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        activeSegment = segment;
+        activeBuffer = buffer;
+        logger.debug("Opened InfluxDB spool segment {}", segment.getFileName());
+        return buffer;
+    }
+
+    private void rollSegment() {
+        Path segment = activeSegment;
+        MappedByteBuffer buffer = activeBuffer;
+        if (segment != null && buffer != null) {
+            if (buffer.position() == 0) {
+                // keep using the empty segment
+                return;
+            }
+            buffer.force();
+            segments.addLast(segment);
+        }
+        activeSegment = null;
+        activeBuffer = null;
+    }
+
+    private void deleteSegment(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            // e.g. still mapped on Windows, replaying it again after a restart is harmless
+            logger.debug("Spooled segment {} can't be deleted: {}", segment, e.getMessage());
+        }
+    }
+
+    private List<String> readSegment(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        List<String> lines = new ArrayList<>();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                // end of the segment or a record cut off by a crash
+                break;
+            }
+            lines.add(new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8));
+            buffer.position(buffer.position() + length);
+        }
+        return lines;
+    }
+}
@@ -14,8 +14,10 @@ package org.openhab.persistence.influxdb.internal;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.TimeZone;
+import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -112,32 +114,41 @@ public class InfluxDBStateConvertUtils {
     }
 
     public static State objectToState(Object value, Item itemToSetState) {
-        String valueStr = String.valueOf(value);
+        return createStateConverter(itemToSetState).apply(value);
+    }
 
+    /**
+     * Returns a converter of values to {@link State}s which are suitable for the given {@link Item}, so the type
+     * of the item is resolved once for all values of a query.
+     *
+     * @param itemToSetState the item the values belong to, null if it is unknown
+     * @return the converter
+     */
+    public static Function<Object, State> createStateConverter(@Nullable Item itemToSetState) {
         Item item = itemToSetState;
         if (item instanceof GroupItem) {
             item = ((GroupItem) item).getBaseItem();
         }
         if (item instanceof ColorItem) {
-            return new HSBType(valueStr);
+            return value -> new HSBType(String.valueOf(value));
         } else if (item instanceof LocationItem) {
-            return new PointType(valueStr);
+            return value -> new PointType(String.valueOf(value));
         } else if (item instanceof NumberItem) {
-            return new DecimalType(valueStr);
+            return value -> new DecimalType(String.valueOf(value));
         } else if (item instanceof DimmerItem) {
-            return new PercentType(valueStr);
+            return value -> new PercentType(String.valueOf(value));
         } else if (item instanceof SwitchItem) {
-            return toBoolean(valueStr) ? OnOffType.ON : OnOffType.OFF;
+            return value -> toBoolean(String.valueOf(value)) ? OnOffType.ON : OnOffType.OFF;
         } else if (item instanceof ContactItem) {
-            return toBoolean(valueStr) ? OpenClosedType.OPEN : OpenClosedType.CLOSED;
+            return value -> toBoolean(String.valueOf(value)) ? OpenClosedType.OPEN : OpenClosedType.CLOSED;
         } else if (item instanceof RollershutterItem) {
-            return new PercentType(valueStr);
+            return value -> new PercentType(String.valueOf(value));
         } else if (item instanceof DateTimeItem) {
-            Instant i = Instant.ofEpochMilli(new BigDecimal(valueStr).longValue());
-            ZonedDateTime z = ZonedDateTime.ofInstant(i, TimeZone.getDefault().toZoneId());
-            return new DateTimeType(z);
+            ZoneId zone = TimeZone.getDefault().toZoneId();
+            return value -> new DateTimeType(ZonedDateTime
+                    .ofInstant(Instant.ofEpochMilli(new BigDecimal(String.valueOf(value)).longValue()), zone));
         } else {
-            return new StringType(valueStr);
+            return value -> new StringType(String.valueOf(value));
         }
     }
 
@@ -12,10 +12,14 @@
  */
 package org.openhab.persistence.influxdb.internal;
 
+import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.FIELD_VALUE_NAME;
+
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.eclipse.jdt.annotation.DefaultLocation;
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -59,6 +63,48 @@ public class InfluxPoint {
         return Collections.unmodifiableMap(tags);
     }
 
+    /**
+     * Returns the point in InfluxDB line protocol with millisecond precision. Numbers are written with the same types
+     * as the clients use, so spooled points don't conflict with the type of already written values.
+     */
+    public String toLineProtocol() {
+        StringBuilder line = new StringBuilder(64);
+        escape(line, measurementName, ", ");
+        // sorted tags are written faster by InfluxDB
+        new TreeMap<>(tags).forEach((key, tagValue) -> {
+            line.append(',');
+            escape(line, key, ", =");
+            line.append('=');
+            escape(line, tagValue, ", =");
+        });
+        line.append(' ').append(FIELD_VALUE_NAME).append('=');
+        Object currentValue = value;
+        if (currentValue instanceof BigDecimal) {
+            line.append(((BigDecimal) currentValue).toPlainString());
+        } else if (currentValue instanceof Double || currentValue instanceof Float) {
+            line.append(currentValue);
+        } else if (currentValue instanceof Number) {
+            line.append(currentValue).append('i');
+        } else if (currentValue instanceof Boolean) {
+            line.append(currentValue);
+        } else {
+            line.append('"');
+            escape(line, currentValue == null ? "" : currentValue.toString(), "\\\"");
+            line.append('"');
+        }
+        return line.append(' ').append(time.toEpochMilli()).toString();
+    }
+
+    private static void escape(StringBuilder line, String value, String characters) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (characters.indexOf(c) >= 0) {
+                line.append('\\');
+            }
+            line.append(c);
+        }
+    }
+
     public static final class Builder {
         private String measurementName;
         private Instant time;
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import java.lang.ref.Cleaner;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Passes the rows of a streaming query from the callbacks of the client to a lazily evaluated {@link Stream}.
+ *
+ * Only a bounded number of rows is buffered, the client thread waits while the consumer is behind. If the consumer
+ * doesn't take rows for {@link #PRODUCER_TIMEOUT_MS} (e.g. because it stopped iterating without closing the stream)
+ * or the stream is closed, {@link #add(InfluxRow)} returns false and the client should cancel the query. A consumer
+ * dropping an iterator of the stream without closing it closes the stream as soon as the iterator is garbage collected.
+ *
+ * If the query fails or doesn't return rows for {@link #CONSUMER_TIMEOUT} seconds, the consumer gets an
+ * {@link UnnexpectedConditionException} instead of a partial result.
+ *
+ * @author Theo Weiss - Initial contribution
+ */
+@NonNullByDefault
+public class StreamingQueryResult {
+    private static final int CAPACITY = 1000;
+    private static final int CONSUMER_TIMEOUT = 60;
+    private static final long PRODUCER_TIMEOUT_MS = 5000;
+    private static final Object END = new Object();
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Logger logger = LoggerFactory.getLogger(StreamingQueryResult.class);
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final long producerTimeoutInMS;
+    private volatile boolean closed;
+
+    public StreamingQueryResult() {
+        this(PRODUCER_TIMEOUT_MS);
+    }
+
+    StreamingQueryResult(long producerTimeoutInMS) {
+        this.producerTimeoutInMS = producerTimeoutInMS;
+    }
+
+    /**
+     * Adds a row, called by the client.
+     *
+     * @return false if the consumer is gone and the query should be cancelled
+     */
+    public boolean add(InfluxRow row) {
+        return offer(row);
+    }
+
+    /**
+     * Ends the stream after all added rows, called by the client.
+     */
+    public void complete() {
+        offer(END);
+    }
+
+    /**
+     * Ends the stream after all added rows because the query failed, called by the client.
+     */
+    public void fail(Throwable error) {
+        offer(error);
+    }
+
+    private boolean offer(Object element) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (queue.offer(element, producerTimeoutInMS, TimeUnit.MILLISECONDS)) {
+                return !closed;
+            }
+            logger.debug("Query result hasn't been read for {} ms, cancelling query", producerTimeoutInMS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+        return false;
+    }
+
+    /**
+     * Returns the stream of rows, closing it cancels the query.
+     */
+    public Stream<InfluxRow> stream() {
+        Iterator<InfluxRow> iterator = new Iterator<>() {
+            private @Nullable InfluxRow next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    next = take();
+                    done = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public InfluxRow next() {
+                InfluxRow row = hasNext() ? next : null;
+                if (row == null) {
+                    throw new NoSuchElementException();
+                }
+                next = null;
+                return row;
+            }
+        };
+        // the cleaning action must not reference the iterator
+        CLEANER.register(iterator, this::close);
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * @return the next row, null at the end of the result
+     * @throws UnnexpectedConditionException if the query failed or timed out
+     */
+    private @Nullable InfluxRow take() {
+        Object element;
+        try {
+            element = queue.poll(CONSUMER_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new UnnexpectedConditionException("Interrupted while waiting for the query result", e);
+        }
+        if (element instanceof InfluxRow) {
+            return (InfluxRow) element;
+        }
+        close();
+        if (element instanceof Throwable) {
+            Throwable error = (Throwable) element;
+            throw new UnnexpectedConditionException("Query failed: " + error.getMessage(), error);
+        } else if (element == null) {
+            throw new UnnexpectedConditionException(
+                    "Query didn't return rows for " + CONSUMER_TIMEOUT + " seconds, query cancelled");
+        }
+        return null;
+    }
+
+    private void close() {
+        closed = true;
+        // unblock the client
+        queue.clear();
+    }
+}
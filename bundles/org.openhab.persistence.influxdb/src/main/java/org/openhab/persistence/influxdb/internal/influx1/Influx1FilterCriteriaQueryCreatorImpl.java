@@ -13,17 +13,21 @@
 package org.openhab.persistence.influxdb.internal.influx1;
 
 import static org.influxdb.querybuilder.BuiltQuery.QueryBuilder.*;
+import static org.influxdb.querybuilder.time.DurationLiteral.SECOND;
 import static org.openhab.persistence.influxdb.internal.InfluxDBConstants.*;
 import static org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtils.stateToObject;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.influxdb.dto.Query;
 import org.influxdb.querybuilder.Appender;
 import org.influxdb.querybuilder.BuiltQuery;
 import org.influxdb.querybuilder.Select;
+import org.influxdb.querybuilder.SelectionQueryImpl;
 import org.influxdb.querybuilder.Where;
 import org.influxdb.querybuilder.clauses.SimpleClause;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.persistence.influxdb.AggregatedFilterCriteria.Aggregation;
 import org.openhab.persistence.influxdb.internal.FilterCriteriaQueryCreator;
 import org.openhab.persistence.influxdb.internal.InfluxDBVersion;
 
@@ -36,7 +40,8 @@ import org.openhab.persistence.influxdb.internal.InfluxDBVersion;
 public class Influx1FilterCriteriaQueryCreatorImpl implements FilterCriteriaQueryCreator {
 
     @Override
-    public String createQuery(FilterCriteria criteria, String retentionPolicy) {
+    public String createQuery(FilterCriteria criteria, String retentionPolicy, @Nullable Aggregation aggregation,
+            int aggregationPoints) {
         final String tableName;
         boolean hasCriteriaName = criteria.getItemName() != null;
         if (hasCriteriaName) {
@@ -45,8 +50,15 @@ public class Influx1FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
             tableName = "/.*/";
         }
 
-        Select select = select(COLUMN_VALUE_NAME_V1).fromRaw(null,
-                fullQualifiedTableName(retentionPolicy, tableName, hasCriteriaName));
+        long aggregationInterval = getAggregationInterval(criteria, aggregation, aggregationPoints);
+        SelectionQueryImpl selection;
+        if (aggregation != null && aggregationInterval > 0) {
+            selection = select().function(getAggregationFunction(aggregation), COLUMN_VALUE_NAME_V1)
+                    .as(COLUMN_VALUE_NAME_V1);
+        } else {
+            selection = select(COLUMN_VALUE_NAME_V1);
+        }
+        Select select = selection.fromRaw(null, fullQualifiedTableName(retentionPolicy, tableName, hasCriteriaName));
 
         Where where = select.where();
         if (criteria.getBeginDate() != null) {
@@ -64,6 +76,10 @@ public class Influx1FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
                     stateToObject(criteria.getState())));
         }
 
+        if (aggregationInterval > 0) {
+            select = select.groupBy(time(aggregationInterval, SECOND)).fill("none");
+        }
+
         if (criteria.getOrdering() == FilterCriteria.Ordering.DESCENDING) {
             select = select.orderBy(desc());
         } else if (criteria.getOrdering() == FilterCriteria.Ordering.ASCENDING) {
@@ -22,10 +22,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.influxdb.BatchOptions;
 import org.influxdb.InfluxDB;
+import org.influxdb.InfluxDB.ConsistencyLevel;
 import org.influxdb.InfluxDBFactory;
 import org.influxdb.dto.Point;
 import org.influxdb.dto.Pong;
@@ -35,6 +39,7 @@ import org.openhab.persistence.influxdb.internal.InfluxDBConfiguration;
 import org.openhab.persistence.influxdb.internal.InfluxDBRepository;
 import org.openhab.persistence.influxdb.internal.InfluxPoint;
 import org.openhab.persistence.influxdb.internal.InfluxRow;
+import org.openhab.persistence.influxdb.internal.StreamingQueryResult;
 import org.openhab.persistence.influxdb.internal.UnnexpectedConditionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,10 +52,13 @@ import org.slf4j.LoggerFactory;
  */
 @NonNullByDefault
 public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
+    private static final int QUERY_CHUNK_SIZE = 10000;
+
     private final Logger logger = LoggerFactory.getLogger(InfluxDB1RepositoryImpl.class);
     private InfluxDBConfiguration configuration;
     @Nullable
     private InfluxDB client;
+    private @Nullable Consumer<List<String>> writeFailureHandler;
 
     public InfluxDB1RepositoryImpl(InfluxDBConfiguration configuration) {
         this.configuration = configuration;
@@ -67,7 +75,8 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
                 configuration.getPassword());
         createdClient.setDatabase(configuration.getDatabaseName());
         createdClient.setRetentionPolicy(configuration.getRetentionPolicy());
-        createdClient.enableBatch(200, 100, TimeUnit.MILLISECONDS);
+        createdClient.enableBatch(
+                BatchOptions.DEFAULTS.actions(200).flushDuration(100).exceptionHandler(this::handleBatchFailure));
         this.client = createdClient;
         return checkConnectionStatus();
     }
@@ -120,6 +129,44 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
         }
     }
 
+    @Override
+    public void setWriteFailureHandler(Consumer<List<String>> handler) {
+        this.writeFailureHandler = handler;
+    }
+
+    /**
+     * Called by the batch thread of the client, the points of a failed batch are not retried by the client
+     */
+    private void handleBatchFailure(Iterable<Point> points, Throwable e) {
+        final Consumer<List<String>> handler = writeFailureHandler;
+        if (handler == null) {
+            logger.warn("Writing points failed, points are lost: {}", e.getMessage());
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        points.forEach(point -> lines.add(point.lineProtocol(TimeUnit.MILLISECONDS)));
+        logger.debug("Writing {} points failed: {}", lines.size(), e.getMessage());
+        handler.accept(lines);
+    }
+
+    @Override
+    public boolean write(List<String> lines) {
+        final InfluxDB currentClient = this.client;
+        if (currentClient != null) {
+            try {
+                // written directly, not through the batch of the client
+                currentClient.write(configuration.getDatabaseName(), configuration.getRetentionPolicy(),
+                        ConsistencyLevel.ONE, TimeUnit.MILLISECONDS, lines);
+                return true;
+            } catch (RuntimeException e) {
+                handleDatabaseException(e);
+            }
+        } else {
+            logger.warn("Write of {} points ignored due to client isn't connected", lines.size());
+        }
+        return false;
+    }
+
     private Point convertPointToClientFormat(InfluxPoint point) {
         Point.Builder clientPoint = Point.measurement(point.getMeasurementName()).time(point.getTime().toEpochMilli(),
                 TimeUnit.MILLISECONDS);
@@ -142,21 +189,37 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
         }
     }
 
+    /**
+     * Executes the query as chunked query, the chunks are streamed from the client
+     */
     @Override
-    public List<InfluxRow> query(String query) {
+    public Stream<InfluxRow> query(String query) {
         final InfluxDB currentClient = client;
         if (currentClient != null) {
             Query parsedQuery = new Query(query, configuration.getDatabaseName());
-            List<QueryResult.Result> results = currentClient.query(parsedQuery, TimeUnit.MILLISECONDS).getResults();
-            return convertClientResutToRepository(results);
+            StreamingQueryResult result = new StreamingQueryResult();
+            currentClient.query(parsedQuery, QUERY_CHUNK_SIZE, (cancellable, chunk) -> {
+                if (chunk.getError() != null) {
+                    result.fail(new UnnexpectedConditionException(chunk.getError()));
+                } else if (!convertClientResutToRepository(chunk.getResults(), result)) {
+                    cancellable.cancel();
+                }
+            }, result::complete, result::fail);
+            return result.stream();
         } else {
             logger.warn("Returning empty list because queryAPI isn't present");
-            return Collections.emptyList();
+            return Stream.empty();
         }
     }
 
-    private List<InfluxRow> convertClientResutToRepository(List<QueryResult.Result> results) {
-        List<InfluxRow> rows = new ArrayList<>();
+    /**
+     * @return false if the rows are no longer consumed
+     */
+    private boolean convertClientResutToRepository(@Nullable List<QueryResult.Result> results,
+            StreamingQueryResult rows) {
+        if (results == null) {
+            return true;
+        }
         for (QueryResult.Result result : results) {
             List<QueryResult.Series> seriess = result.getSeries();
             if (result.getError() != null) {
@@ -187,21 +250,33 @@ public class InfluxDB1RepositoryImpl implements InfluxDBRepository {
                                 }
                             }
                             if (valueColumn == null || timestampColumn == null) {
-                                throw new IllegalStateException("missing column");
+                                rows.fail(new IllegalStateException("missing column"));
+                                return false;
                             }
                             for (int i = 0; i < valuess.size(); i++) {
-                                Double rawTime = (Double) valuess.get(i).get(timestampColumn);
-                                Instant time = Instant.ofEpochMilli(rawTime.longValue());
+                                Instant time = parseTime(valuess.get(i).get(timestampColumn));
                                 Object value = valuess.get(i).get(valueColumn);
                                 logger.trace("adding historic item {}: time {} value {}", itemName, time, value);
-                                rows.add(new InfluxRow(time, itemName, value));
+                                if (!rows.add(new InfluxRow(time, itemName, value))) {
+                                    return false;
+                                }
                             }
                         }
                     }
                 }
             }
         }
-        return rows;
+        return true;
+    }
+
+    /**
+     * Chunked queries return the time in RFC3339 format, not as epoch milliseconds
+     */
+    private Instant parseTime(Object rawTime) {
+        if (rawTime instanceof Number) {
+            return Instant.ofEpochMilli(((Number) rawTime).longValue());
+        }
+        return Instant.parse(rawTime.toString());
     }
 
     @Override
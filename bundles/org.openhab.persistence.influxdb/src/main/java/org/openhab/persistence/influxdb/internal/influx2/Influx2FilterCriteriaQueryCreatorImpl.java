@@ -19,7 +19,9 @@ import static org.openhab.persistence.influxdb.internal.InfluxDBStateConvertUtil
 import java.time.temporal.ChronoUnit;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.persistence.influxdb.AggregatedFilterCriteria.Aggregation;
 import org.openhab.persistence.influxdb.internal.FilterCriteriaQueryCreator;
 import org.openhab.persistence.influxdb.internal.InfluxDBVersion;
 
@@ -35,7 +37,8 @@ import com.influxdb.query.dsl.functions.restriction.Restrictions;
 @NonNullByDefault
 public class Influx2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQueryCreator {
     @Override
-    public String createQuery(FilterCriteria criteria, String retentionPolicy) {
+    public String createQuery(FilterCriteria criteria, String retentionPolicy, @Nullable Aggregation aggregation,
+            int aggregationPoints) {
         Flux flux = Flux.from(retentionPolicy);
 
         if (criteria.getBeginDate() != null || criteria.getEndDate() != null) {
@@ -62,6 +65,13 @@ public class Influx2FilterCriteriaQueryCreatorImpl implements FilterCriteriaQuer
             flux = flux.filter(restrictions);
         }
 
+        long aggregationInterval = getAggregationInterval(criteria, aggregation, aggregationPoints);
+        if (aggregation != null && aggregationInterval > 0) {
+            // not part of the Flux DSL yet
+            flux = flux.expression("aggregateWindow(every: " + aggregationInterval + "s, fn: "
+                    + getAggregationFunction(aggregation) + ", createEmpty: false)");
+        }
+
         if (criteria.getOrdering() != null) {
             boolean desc = criteria.getOrdering() == FilterCriteria.Ordering.DESCENDING;
             flux = flux.sort().withDesc(desc).withColumns(new String[] { COLUMN_TIME_NAME_V2 });
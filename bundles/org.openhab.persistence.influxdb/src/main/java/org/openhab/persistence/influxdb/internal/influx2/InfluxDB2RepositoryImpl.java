@@ -19,7 +19,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -29,6 +29,7 @@ import org.openhab.persistence.influxdb.internal.InfluxDBConstants;
 import org.openhab.persistence.influxdb.internal.InfluxDBRepository;
 import org.openhab.persistence.influxdb.internal.InfluxPoint;
 import org.openhab.persistence.influxdb.internal.InfluxRow;
+import org.openhab.persistence.influxdb.internal.StreamingQueryResult;
 import org.openhab.persistence.influxdb.internal.UnnexpectedConditionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +42,8 @@ import com.influxdb.client.WriteApi;
 import com.influxdb.client.domain.Ready;
 import com.influxdb.client.domain.WritePrecision;
 import com.influxdb.client.write.Point;
+import com.influxdb.exceptions.InfluxException;
+import com.influxdb.query.FluxRecord;
 import com.influxdb.query.FluxTable;
 
 /**
@@ -58,6 +61,8 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
     private QueryApi queryAPI;
     @Nullable
     private WriteApi writeAPI;
+    @Nullable
+    private Consumer<List<String>> writeFailureHandler;
 
     public InfluxDB2RepositoryImpl(InfluxDBConfiguration configuration) {
         this.configuration = configuration;
@@ -141,13 +146,44 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
     @Override
     public void write(InfluxPoint point) {
         final WriteApi currentWriteAPI = writeAPI;
-        if (currentWriteAPI != null) {
+        final InfluxDBClient currentClient = client;
+        final Consumer<List<String>> handler = writeFailureHandler;
+        if (handler != null && currentClient != null) {
+            // the asynchronous write API doesn't report which points failed, so write synchronously
+            try {
+                currentClient.getWriteApiBlocking().writePoint(convertPointToClientFormat(point));
+            } catch (InfluxException e) {
+                logger.debug("Writing point {} failed: {}", point, e.getMessage());
+                handler.accept(List.of(point.toLineProtocol()));
+            }
+        } else if (currentWriteAPI != null) {
             currentWriteAPI.writePoint(convertPointToClientFormat(point));
         } else {
             logger.warn("Write point {} ignored due to writeAPI isn't present", point);
         }
     }
 
+    @Override
+    public void setWriteFailureHandler(Consumer<List<String>> handler) {
+        this.writeFailureHandler = handler;
+    }
+
+    @Override
+    public boolean write(List<String> lines) {
+        final InfluxDBClient currentClient = client;
+        if (currentClient != null) {
+            try {
+                currentClient.getWriteApiBlocking().writeRecords(WritePrecision.MS, lines);
+                return true;
+            } catch (InfluxException e) {
+                logger.warn("database error: {}", e.getMessage());
+            }
+        } else {
+            logger.warn("Write of {} points ignored due to client isn't connected", lines.size());
+        }
+        return false;
+    }
+
     private Point convertPointToClientFormat(InfluxPoint point) {
         Point clientPoint = Point.measurement(point.getMeasurementName()).time(point.getTime(), WritePrecision.MS);
         setPointValue(point.getValue(), clientPoint);
@@ -170,34 +206,33 @@ public class InfluxDB2RepositoryImpl implements InfluxDBRepository {
     }
 
     /**
-     * Executes Flux query
+     * Executes Flux query, the records are streamed from the client
      *
      * @param query Query
      * @return Query results
      */
     @Override
-    public List<InfluxRow> query(String query) {
+    public Stream<InfluxRow> query(String query) {
         final QueryApi currentQueryAPI = queryAPI;
         if (currentQueryAPI != null) {
-            List<FluxTable> clientResult = currentQueryAPI.query(query);
-            return convertClientResutToRepository(clientResult);
+            StreamingQueryResult result = new StreamingQueryResult();
+            currentQueryAPI.query(query, (cancellable, record) -> {
+                if (!result.add(mapRawResultToHistoric(record))) {
+                    cancellable.cancel();
+                }
+            }, result::fail, result::complete);
+            return result.stream();
         } else {
             logger.warn("Returning empty list because queryAPI isn't present");
-            return Collections.emptyList();
+            return Stream.empty();
         }
     }
 
-    private List<InfluxRow> convertClientResutToRepository(List<FluxTable> clientResult) {
-        return clientResult.stream().flatMap(this::mapRawResultToHistoric).collect(Collectors.toList());
-    }
-
-    private Stream<InfluxRow> mapRawResultToHistoric(FluxTable rawRow) {
-        return rawRow.getRecords().stream().map(r -> {
-            String itemName = (String) r.getValueByKey(InfluxDBConstants.TAG_ITEM_NAME);
-            Object value = r.getValueByKey(COLUMN_VALUE_NAME_V2);
-            Instant time = (Instant) r.getValueByKey(COLUMN_TIME_NAME_V2);
-            return new InfluxRow(time, itemName, value);
-        });
+    private InfluxRow mapRawResultToHistoric(FluxRecord record) {
+        String itemName = (String) record.getValueByKey(InfluxDBConstants.TAG_ITEM_NAME);
+        Object value = record.getValueByKey(COLUMN_VALUE_NAME_V2);
+        Instant time = (Instant) record.getValueByKey(COLUMN_TIME_NAME_V2);
+        return new InfluxRow(time, itemName, value);
     }
 
     /**
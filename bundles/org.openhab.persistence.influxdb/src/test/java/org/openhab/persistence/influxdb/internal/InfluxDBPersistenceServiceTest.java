@@ -12,10 +12,15 @@
  */
 package org.openhab.persistence.influxdb.internal;
 
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.time.Instant;
+import java.time.ZonedDateTime;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.DefaultLocation;
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -23,10 +28,16 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.MetadataRegistry;
+import org.openhab.core.library.items.StringItem;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.persistence.influxdb.AggregatedFilterCriteria;
+import org.openhab.persistence.influxdb.AggregatedFilterCriteria.Aggregation;
 import org.openhab.persistence.influxdb.InfluxDBPersistenceService;
 
 /**
@@ -38,13 +49,14 @@ public class InfluxDBPersistenceServiceTest {
     private InfluxDBPersistenceService instance;
 
     private @Mock InfluxDBRepository influxDBRepository;
+    private @Mock ItemRegistry itemRegistry;
 
     private Map<String, Object> validConfig;
     private Map<String, Object> invalidConfig;
 
     @BeforeEach
     public void before() {
-        instance = new InfluxDBPersistenceService(mock(ItemRegistry.class), mock(MetadataRegistry.class)) {
+        instance = new InfluxDBPersistenceService(itemRegistry, mock(MetadataRegistry.class)) {
             @Override
             protected InfluxDBRepository createInfluxDBRepository() {
                 return influxDBRepository;
@@ -61,6 +73,7 @@ public class InfluxDBPersistenceServiceTest {
         invalidConfig = null;
         instance = null;
         influxDBRepository = null;
+        itemRegistry = null;
     }
 
     @Test
@@ -93,7 +106,7 @@ public class InfluxDBPersistenceServiceTest {
         instance.activate(validConfig);
         when(influxDBRepository.isConnected()).thenReturn(true);
         instance.store(ItemTestHelper.createNumberItem("number", 5));
-        verify(influxDBRepository).write(any());
+        verify(influxDBRepository).write(any(InfluxPoint.class));
     }
 
     @Test
@@ -101,6 +114,67 @@ public class InfluxDBPersistenceServiceTest {
         instance.activate(validConfig);
         when(influxDBRepository.isConnected()).thenReturn(false);
         instance.store(ItemTestHelper.createNumberItem("number", 5));
-        verify(influxDBRepository, never()).write(any());
+        verify(influxDBRepository, never()).write(any(InfluxPoint.class));
+    }
+
+    @Test
+    public void queryResultCanBeIteratedRepeatedly() {
+        instance.activate(validConfig);
+        when(influxDBRepository.isConnected()).thenReturn(true);
+        when(influxDBRepository.query(any()))
+                .thenAnswer(invocation -> Stream.of(new InfluxRow(Instant.ofEpochMilli(1), "number", 5)));
+        when(itemRegistry.get("number")).thenReturn(ItemTestHelper.createNumberItem("number", 5));
+
+        FilterCriteria filter = new FilterCriteria();
+        filter.setItemName("number");
+        Iterable<HistoricItem> result = instance.query(filter);
+
+        for (int i = 0; i < 2; i++) {
+            int count = 0;
+            for (HistoricItem item : result) {
+                assertThat(item.getName(), is("number"));
+                count++;
+            }
+            assertThat(count, is(1));
+        }
+        verify(influxDBRepository, times(2)).query(any());
+    }
+
+    @Test
+    public void queryIsOnlyAggregatedIfAskedFor() {
+        instance.activate(validConfig);
+        when(influxDBRepository.isConnected()).thenReturn(true);
+        when(influxDBRepository.query(any())).thenAnswer(invocation -> Stream.empty());
+        when(itemRegistry.get("number")).thenReturn(ItemTestHelper.createNumberItem("number", 5));
+
+        FilterCriteria criteria = new FilterCriteria();
+        AggregatedFilterCriteria aggregatedCriteria = new AggregatedFilterCriteria(Aggregation.AVG, 1000);
+        for (FilterCriteria filter : new FilterCriteria[] { criteria, aggregatedCriteria }) {
+            filter.setItemName("number");
+            filter.setBeginDate(ZonedDateTime.now().minusDays(1));
+            filter.setEndDate(ZonedDateTime.now());
+            instance.query(filter).iterator();
+        }
+
+        ArgumentCaptor<String> queries = ArgumentCaptor.forClass(String.class);
+        verify(influxDBRepository, times(2)).query(queries.capture());
+        assertThat(queries.getAllValues().get(0), not(containsString("aggregateWindow")));
+        assertThat(queries.getAllValues().get(1), containsString("aggregateWindow(every: 87s, fn: mean"));
+    }
+
+    @Test
+    public void queryOfNonNumericItemIsNotAggregated() {
+        instance.activate(validConfig);
+        when(influxDBRepository.isConnected()).thenReturn(true);
+        when(influxDBRepository.query(any())).thenAnswer(invocation -> Stream.empty());
+        when(itemRegistry.get("string")).thenReturn(new StringItem("string"));
+
+        FilterCriteria filter = new AggregatedFilterCriteria(Aggregation.AVG, 1000);
+        filter.setItemName("string");
+        filter.setBeginDate(ZonedDateTime.now().minusDays(1));
+        filter.setEndDate(ZonedDateTime.now());
+        instance.query(filter).iterator();
+
+        verify(influxDBRepository).query(argThat(query -> !query.contains("aggregateWindow")));
     }
 }
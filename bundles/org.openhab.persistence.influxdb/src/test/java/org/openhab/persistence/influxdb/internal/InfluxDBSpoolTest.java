@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.jdt.annotation.DefaultLocation;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Theo Weiss - Initial contribution
+ */
+@SuppressWarnings("null") // In case of any NPE it will cause test fail that it's the expected result
+@NonNullByDefault(value = { DefaultLocation.PARAMETER, DefaultLocation.RETURN_TYPE })
+public class InfluxDBSpoolTest {
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void replayShouldWriteAllPointsInOrder() throws IOException {
+        InfluxDBSpool instance = new InfluxDBSpool(folder, 100 * SEGMENT_SIZE, SEGMENT_SIZE);
+        List<String> lines = createLines(200);
+        lines.forEach(instance::append);
+        assertThat(instance.getSegmentCount(), greaterThan(1));
+
+        List<String> written = new ArrayList<>();
+        int replayed = instance.replay(50, batch -> {
+            assertThat(batch.size(), lessThanOrEqualTo(50));
+            return written.addAll(batch);
+        });
+
+        assertThat(replayed, is(200));
+        assertThat(written, is(lines));
+        assertThat(instance.isEmpty(), is(true));
+    }
+
+    @Test
+    public void failedReplayShouldKeepThePoints() throws IOException {
+        InfluxDBSpool instance = new InfluxDBSpool(folder, 100 * SEGMENT_SIZE, SEGMENT_SIZE);
+        List<String> lines = createLines(10);
+        lines.forEach(instance::append);
+
+        assertThat(instance.replay(50, batch -> false), is(0));
+        assertThat(instance.isEmpty(), is(false));
+
+        List<String> written = new ArrayList<>();
+        instance.replay(50, written::addAll);
+        assertThat(written, is(lines));
+    }
+
+    @Test
+    public void pointsShouldBeReplayedAfterRestart() throws IOException {
+        InfluxDBSpool instance = new InfluxDBSpool(folder, 100 * SEGMENT_SIZE, SEGMENT_SIZE);
+        List<String> lines = createLines(100);
+        lines.forEach(instance::append);
+        instance.close();
+
+        InfluxDBSpool restarted = new InfluxDBSpool(folder, 100 * SEGMENT_SIZE, SEGMENT_SIZE);
+        restarted.append("after restart");
+        List<String> written = new ArrayList<>();
+        restarted.replay(1000, written::addAll);
+        assertThat(written.subList(0, 100), is(lines));
+        assertThat(written.get(100), is("after restart"));
+    }
+
+    @Test
+    public void fullSpoolShouldDropOldestPoints() throws IOException {
+        InfluxDBSpool instance = new InfluxDBSpool(folder, 4 * SEGMENT_SIZE, SEGMENT_SIZE);
+        List<String> lines = createLines(1000);
+        lines.forEach(instance::append);
+
+        assertThat(instance.getSegmentCount(), is(4));
+        assertThat(instance.getDroppedSegmentCount(), greaterThan(0L));
+        List<String> written = new ArrayList<>();
+        instance.replay(1000, written::addAll);
+        assertThat(written, is(lines.subList(lines.size() - written.size(), lines.size())));
+    }
+
+    @Test
+    public void pointShouldBeConvertedToLineProtocol() {
+        Instant time = Instant.ofEpochMilli(1600000000123L);
+        assertThat(InfluxPoint.newBuilder("my item").withTime(time).withValue(new BigDecimal("21.50"))
+                .withTag("item", "my item").withTag("label", "a,b=c").build().toLineProtocol(),
+                is("my\\ item,item=my\\ item,label=a\\,b\\=c value=21.50 1600000000123"));
+        assertThat(InfluxPoint.newBuilder("time").withTime(time).withValue(1600000000000L).build().toLineProtocol(),
+                is("time value=1600000000000i 1600000000123"));
+        assertThat(InfluxPoint.newBuilder("text").withTime(time).withValue("say \"hi\"").build().toLineProtocol(),
+                is("text value=\"say \\\"hi\\\"\" 1600000000123"));
+    }
+
+    private List<String> createLines(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "item,item=item value=" + i + " " + (1600000000000L + i))
+                .collect(Collectors.toList());
+    }
+}
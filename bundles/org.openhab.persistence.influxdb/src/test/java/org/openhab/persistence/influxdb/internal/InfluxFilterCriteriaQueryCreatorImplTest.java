@@ -27,6 +27,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.persistence.influxdb.AggregatedFilterCriteria.Aggregation;
 import org.openhab.persistence.influxdb.internal.influx1.Influx1FilterCriteriaQueryCreatorImpl;
 import org.openhab.persistence.influxdb.internal.influx2.Influx2FilterCriteriaQueryCreatorImpl;
 
@@ -159,6 +160,56 @@ public class InfluxFilterCriteriaQueryCreatorImplTest {
                         + "|> sort(desc:false, columns:[\"_time\"])"));
     }
 
+    @Test
+    public void testAggregation() {
+        FilterCriteria criteria = createBaseCriteria();
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime tomorrow = now.plus(1, ChronoUnit.DAYS);
+        criteria.setBeginDate(now);
+        criteria.setEndDate(tomorrow);
+
+        String queryV1 = instanceV1.createQuery(criteria, RETENTION_POLICY, Aggregation.AVG, 1000);
+        String expectedQueryV1 = String.format(
+                "SELECT mean(value) AS value FROM origin.sampleItem WHERE time >= '%s' AND time <= '%s' "
+                        + "GROUP BY time(87s) fill(none);",
+                now.toInstant(), tomorrow.toInstant());
+        assertThat(queryV1, equalTo(expectedQueryV1));
+
+        String queryV2 = instanceV2.createQuery(criteria, RETENTION_POLICY, Aggregation.MAX, 1000);
+        String expectedQueryV2 = String.format(
+                "from(bucket:\"origin\")\n\t" + "|> range(start:%s, stop:%s)\n\t"
+                        + "|> filter(fn: (r) => r[\"_measurement\"] == \"sampleItem\")\n\t"
+                        + "|> aggregateWindow(every: 87s, fn: max, createEmpty: false)",
+                INFLUX2_DATE_FORMATTER.format(now.toInstant()), INFLUX2_DATE_FORMATTER.format(tomorrow.toInstant()));
+        assertThat(queryV2, equalTo(expectedQueryV2));
+    }
+
+    @Test
+    public void testAggregationNeedsRange() {
+        FilterCriteria criteria = createBaseCriteria();
+        criteria.setBeginDate(ZonedDateTime.now());
+
+        String queryV1 = instanceV1.createQuery(criteria, RETENTION_POLICY, Aggregation.AVG, 1000);
+        assertThat(queryV1, equalTo(instanceV1.createQuery(criteria, RETENTION_POLICY)));
+
+        String queryV2 = instanceV2.createQuery(criteria, RETENTION_POLICY, Aggregation.AVG, 1000);
+        assertThat(queryV2, equalTo(instanceV2.createQuery(criteria, RETENTION_POLICY)));
+    }
+
+    @Test
+    public void testAggregationIgnoredForPagination() {
+        FilterCriteria criteria = createBaseCriteria();
+        criteria.setBeginDate(ZonedDateTime.now().minus(1, ChronoUnit.DAYS));
+        criteria.setEndDate(ZonedDateTime.now());
+        criteria.setPageSize(10);
+
+        String queryV1 = instanceV1.createQuery(criteria, RETENTION_POLICY, Aggregation.LAST, 1000);
+        assertThat(queryV1, equalTo(instanceV1.createQuery(criteria, RETENTION_POLICY)));
+
+        String queryV2 = instanceV2.createQuery(criteria, RETENTION_POLICY, Aggregation.LAST, 1000);
+        assertThat(queryV2, equalTo(instanceV2.createQuery(criteria, RETENTION_POLICY)));
+    }
+
     private FilterCriteria createBaseCriteria() {
         return createBaseCriteria(ITEM_NAME);
     }
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.DefaultLocation;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Theo Weiss - Initial contribution
+ */
+@SuppressWarnings("null") // In case of any NPE it will cause test fail that it's the expected result
+@NonNullByDefault(value = { DefaultLocation.PARAMETER, DefaultLocation.RETURN_TYPE })
+public class StreamingQueryResultTest {
+
+    @Test
+    public void allRowsShouldBeStreamedInOrder() {
+        StreamingQueryResult instance = new StreamingQueryResult();
+        CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 10000; i++) {
+                instance.add(new InfluxRow(Instant.ofEpochMilli(i), "item", i));
+            }
+            instance.complete();
+        });
+
+        List<Object> values = instance.stream().map(InfluxRow::getValue).collect(Collectors.toList());
+
+        assertThat(values.size(), is(10000));
+        assertThat(values.get(0), is(0));
+        assertThat(values.get(9999), is(9999));
+    }
+
+    @Test
+    public void failedQueryShouldBeReportedToTheConsumer() {
+        StreamingQueryResult instance = new StreamingQueryResult();
+        instance.add(new InfluxRow(Instant.ofEpochMilli(1), "item", 1));
+        instance.fail(new IllegalStateException("test"));
+
+        Iterator<InfluxRow> rows = instance.stream().iterator();
+        assertThat(rows.next().getValue(), is(1));
+        UnnexpectedConditionException e = assertThrows(UnnexpectedConditionException.class, rows::hasNext);
+        assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+    }
+
+    @Test
+    public void closedStreamShouldCancelTheQuery() throws Exception {
+        StreamingQueryResult instance = new StreamingQueryResult();
+        CompletableFuture<Integer> added = CompletableFuture.supplyAsync(() -> {
+            int count = 0;
+            while (instance.add(new InfluxRow(Instant.ofEpochMilli(count), "item", count))) {
+                count++;
+            }
+            return count;
+        });
+
+        try (Stream<InfluxRow> stream = instance.stream()) {
+            assertThat(stream.limit(10).count(), is(10L));
+        }
+
+        assertThat(added.get(10, TimeUnit.SECONDS), is(lessThan(10000)));
+    }
+
+    @Test
+    public void abandonedStreamShouldCancelTheQuery() throws Exception {
+        StreamingQueryResult instance = new StreamingQueryResult(100);
+        CompletableFuture<Integer> added = CompletableFuture.supplyAsync(() -> {
+            int count = 0;
+            while (instance.add(new InfluxRow(Instant.ofEpochMilli(count), "item", count))) {
+                count++;
+            }
+            return count;
+        });
+
+        // stop iterating without closing the stream
+        Iterator<InfluxRow> rows = instance.stream().iterator();
+        rows.next();
+
+        assertThat(added.get(10, TimeUnit.SECONDS), is(lessThan(10000)));
+    }
+}
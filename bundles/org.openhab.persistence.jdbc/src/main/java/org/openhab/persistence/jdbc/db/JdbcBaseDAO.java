@@ -14,16 +14,21 @@ package org.openhab.persistence.jdbc.db;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.knowm.yank.Yank;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
@@ -46,6 +51,7 @@ import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.types.State;
+import org.openhab.persistence.jdbc.model.AggregatedFilterCriteria;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.openhab.persistence.jdbc.model.JdbcHistoricItem;
@@ -79,6 +85,15 @@ public class JdbcBaseDAO {
     protected String sqlGetItemTables;
     protected String sqlCreateItemTable;
     protected String sqlInsertItemValue;
+    protected String sqlInsertItemTimeValue;
+    // single table layout, not supported if sqlCreateSingleTable is null
+    protected @Nullable String sqlCreateSingleTable;
+    protected @Nullable String sqlCreateSingleTableIndex;
+    protected String sqlInsertSingleTableValue;
+
+    // rows read per query when iterating over a history query result
+    protected int histItemFetchSize = 1000;
+    private final Map<String, String> histItemQueries = new ConcurrentHashMap<>();
 
     /********
      * INIT *
@@ -138,6 +153,11 @@ public class JdbcBaseDAO {
         sqlGetItemTables = "SELECT table_name FROM information_schema.tables WHERE table_type='BASE TABLE' AND table_schema='#jdbcUriDatabaseName#' AND NOT table_name='#itemsManageTable#'";
         sqlCreateItemTable = "CREATE TABLE IF NOT EXISTS #tableName# (time #tablePrimaryKey# NOT NULL, value #dbType#, PRIMARY KEY(time))";
         sqlInsertItemValue = "INSERT INTO #tableName# (TIME, VALUE) VALUES( #tablePrimaryValue#, ? ) ON DUPLICATE KEY UPDATE VALUE= ?";
+        // used instead of #tablePrimaryValue# when the time is taken on the openHAB side (batched writes)
+        sqlInsertItemTimeValue = "?";
+        sqlCreateSingleTable = "CREATE TABLE IF NOT EXISTS #tableName# (itemid INT NOT NULL, time #tablePrimaryKey# NOT NULL, value_num #tableSingleNumber#, value_str #tableSingleString#, PRIMARY KEY(itemid, time), INDEX #tableName#_time (time))";
+        sqlCreateSingleTableIndex = null;
+        sqlInsertSingleTableValue = "INSERT INTO #tableName# (itemid, time, value_num, value_str) VALUES( ?, ?, ?, ? ) ON DUPLICATE KEY UPDATE value_num=VALUES(value_num), value_str=VALUES(value_str)";
     }
 
     /**
@@ -157,6 +177,8 @@ public class JdbcBaseDAO {
         sqlTypes.put("SWITCHITEM", "VARCHAR(6)");
         sqlTypes.put("tablePrimaryKey", "TIMESTAMP");
         sqlTypes.put("tablePrimaryValue", "NOW()");
+        sqlTypes.put("tableSingleNumber", "DOUBLE");
+        sqlTypes.put("tableSingleString", "TEXT");
     }
 
     /**
@@ -327,53 +349,469 @@ public class JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
-    public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
+    /**
+     * Converts the current state of the item into a value object which can be written later on by
+     * {@link #doStoreItemValues(List)}. The time of the value is taken now, not when it is written.
+     */
+    public ItemVO doPrepareItemValue(Item item, ItemVO vo) {
+        ItemVO preparedVO = storeItemValueProvider(item, vo);
+        preparedVO.setTime(new Date());
+        return preparedVO;
+    }
+
+    /**
+     * Writes values prepared by {@link #doPrepareItemValue(Item, ItemVO)} as one JDBC batch.
+     * All values have to belong to the same item table.
+     *
+     * @return false if the database rejected the batch
+     */
+    public boolean doStoreItemValues(List<ItemVO> vol) {
+        if (vol.isEmpty()) {
+            return true;
+        }
+        String sql = storeItemValuesSqlProvider(vol.get(0));
+        Object[][] params = new Object[vol.size()][];
+        for (int i = 0; i < vol.size(); i++) {
+            params[i] = storeItemValuesParamsProvider(vol.get(i));
+        }
+        logger.debug("JDBC::doStoreItemValues sql={} count={}", sql, vol.size());
+        return Yank.executeBatch(sql, params) != null;
+    }
+
+    /**
+     * Returns the result of a history query. Rows are read lazily while iterating, in pages of at most
+     * {@link #histItemFetchSize} rows. Every page after the first one continues after the time of the last row
+     * read (keyset paging), so no page has to skip rows on the database side.
+     */
+    public Iterable<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
             String table, String name) {
-        String sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name);
-        logger.debug("JDBC::doGetHistItemFilterQuery sql={}", sql);
-        List<Object[]> m = Yank.queryObjectArrays(sql, null);
+        return () -> new HistItemIterator(item, filter, numberDecimalcount, table, name, null);
+    }
+
+    /*********************
+     * SINGLE TABLE DAOs *
+     *********************/
+    public boolean isSingleTableSupported() {
+        return sqlCreateSingleTable != null;
+    }
+
+    public void doCreateSingleTableIfNot(String table) {
+        String createTable = sqlCreateSingleTable;
+        if (createTable == null) {
+            return;
+        }
+        String[] placeholders = new String[] { "#tableName#", "#tableName#", "#tablePrimaryKey#",
+                "#tableSingleNumber#", "#tableSingleString#" };
+        String[] values = new String[] { table, table, sqlTypes.get("tablePrimaryKey"),
+                sqlTypes.get("tableSingleNumber"), sqlTypes.get("tableSingleString") };
+        String sql = StringUtilsExt.replaceArrayMerge(createTable, placeholders, values);
+        logger.debug("JDBC::doCreateSingleTableIfNot sql={}", sql);
+        Yank.execute(sql, null);
+        String createIndex = sqlCreateSingleTableIndex;
+        if (createIndex != null) {
+            sql = StringUtilsExt.replaceArrayMerge(createIndex, new String[] { "#tableName#", "#tableName#" },
+                    new String[] { table, table });
+            logger.debug("JDBC::doCreateSingleTableIfNot sql={}", sql);
+            Yank.execute(sql, null);
+        }
+    }
+
+    /**
+     * Converts the current state of the item into a value object for the single table layout. Numeric states,
+     * including percent values and date times (as epoch milliseconds), go into the number column, all other states
+     * into the string column.
+     */
+    public ItemVO doPrepareSingleTableValue(Item item, ItemVO vo) {
+        String itemType = getItemType(item);
+        State state = item.getState();
+        Object value = null;
+        if ("DATETIMEITEM".equals(itemType) && state instanceof DateTimeType) {
+            value = ((DateTimeType) state).getZonedDateTime().toInstant().toEpochMilli();
+        } else if (isSingleTableNumber(itemType)) {
+            Number number = state instanceof Number ? (Number) state : item.getStateAs(DecimalType.class);
+            if (number != null) {
+                value = number.doubleValue();
+            }
+        }
+        if (value == null) {
+            value = state.toString();
+        }
+        logger.debug("JDBC::doPrepareSingleTableValue: item '{}' as Type '{}' with value '{}'", item.getName(),
+                itemType, value);
+        vo.setValue(value);
+        vo.setTime(new Date());
+        return vo;
+    }
+
+    /**
+     * Writes values prepared by {@link #doPrepareSingleTableValue(Item, ItemVO)} as one JDBC batch.
+     *
+     * @return false if the database rejected the batch
+     */
+    public boolean doStoreSingleTableValues(List<ItemVO> vol) {
+        if (vol.isEmpty()) {
+            return true;
+        }
+        String sql = StringUtilsExt.replaceArrayMerge(sqlInsertSingleTableValue, new String[] { "#tableName#" },
+                new String[] { vol.get(0).getTableName() });
+        Object[][] params = new Object[vol.size()][];
+        for (int i = 0; i < vol.size(); i++) {
+            ItemVO vo = vol.get(i);
+            Object value = vo.getValue();
+            params[i] = value instanceof Number
+                    ? new Object[] { vo.getItemId(), timeAsObject(vo.getTime()), value, null }
+                    : new Object[] { vo.getItemId(), timeAsObject(vo.getTime()), null, value };
+        }
+        logger.debug("JDBC::doStoreSingleTableValues sql={} count={}", sql, vol.size());
+        return Yank.executeBatch(sql, params) != null;
+    }
+
+    public Iterable<HistoricItem> doGetSingleTableFilterQuery(Item item, FilterCriteria filter,
+            int numberDecimalcount, String table, int itemId) {
+        return () -> new HistItemIterator(item, filter, numberDecimalcount, table, item.getName(), itemId);
+    }
+
+    /**
+     * Copies all rows of a per-item table into the single table.
+     *
+     * @return number of copied rows
+     */
+    public long doCopyItemTableToSingleTable(String itemTable, int itemId, String table) {
+        long count = 0;
+        Object lastTime = null;
+        while (true) {
+            String sql = histItemFilterQueryProvider(itemTable, false, -1, lastTime != null, false, true, false);
+            Object[] params = lastTime != null ? new Object[] { lastTime, histItemFetchSize }
+                    : new Object[] { histItemFetchSize };
+            List<Object[]> rows = Yank.queryObjectArrays(sql, params);
+            if (rows == null || rows.isEmpty()) {
+                return count;
+            }
+            List<ItemVO> vol = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                if (row[1] == null) {
+                    continue;
+                }
+                ItemVO vo = new ItemVO(table, null);
+                vo.setItemId(itemId);
+                vo.setTime(objectAsTime(row[0]));
+                if (row[1] instanceof Number || row[1] instanceof String) {
+                    vo.setValue(row[1] instanceof Number ? ((Number) row[1]).doubleValue() : row[1]);
+                } else {
+                    // date time values are stored as epoch milliseconds
+                    vo.setValue(objectAsLong(row[1]).doubleValue());
+                }
+                vol.add(vo);
+            }
+            doStoreSingleTableValues(vol);
+            count += vol.size();
+            if (rows.size() < histItemFetchSize) {
+                return count;
+            }
+            lastTime = rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    protected boolean isSingleTableNumber(String itemType) {
+        return "NUMBERITEM".equals(itemType) || "DIMMERITEM".equals(itemType) || "ROLLERSHUTTERITEM".equals(itemType)
+                || "DATETIMEITEM".equals(itemType);
+    }
 
-        List<HistoricItem> items = new ArrayList<>();
-        for (int i = 0; i < m.size(); i++) {
-            items.add(new JdbcHistoricItem(item.getName(), getState(item, m.get(i)[1]), objectAsDate(m.get(i)[0])));
+    protected State getSingleTableState(Item item, Object v) {
+        String itemType = getItemType(item);
+        if ("NUMBERITEM".equals(itemType)) {
+            return new DecimalType(((Number) v).doubleValue());
+        } else if ("DIMMERITEM".equals(itemType) || "ROLLERSHUTTERITEM".equals(itemType)) {
+            return new PercentType(((Number) v).intValue());
+        } else if ("DATETIMEITEM".equals(itemType)) {
+            return new DateTimeType(
+                    ZonedDateTime.ofInstant(Instant.ofEpochMilli(((Number) v).longValue()), ZoneId.systemDefault()));
         }
-        return items;
+        return getState(item, v);
     }
 
     /*************
      * Providers *
      *************/
-    static final DateTimeFormatter JDBC_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-    private String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
-            String simpleName) {
-        logger.debug(
-                "JDBC::getHistItemFilterQueryProvider filter = {}, numberDecimalcount = {}, table = {}, simpleName = {}",
-                filter.toString(), numberDecimalcount, table, simpleName);
-
-        String filterString = "";
-        if (filter.getBeginDate() != null) {
-            filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME>'" + JDBC_DATE_FORMAT.format(filter.getBeginDate()) + "'";
+    /**
+     * Builds the parameterized history query. Parameters are bound in this order: lower time bound (if
+     * <code>hasBegin</code>), upper time bound (if <code>hasEnd</code>), limit, offset (if <code>hasOffset</code>).
+     * The SQL text only depends on its arguments, so it is cached and the driver can reuse its prepared statement.
+     */
+    protected String histItemFilterQueryProvider(String table, boolean round, int numberDecimalcount,
+            boolean hasBegin, boolean hasEnd, boolean ascending, boolean hasOffset) {
+        return histItemFilterQueryProvider(table, "value", false, round, numberDecimalcount, hasBegin, hasEnd,
+                ascending, hasOffset);
+    }
+
+    /**
+     * Builds the parameterized history query for the given value column. If <code>hasItemId</code> is set, the
+     * item id is bound as first parameter (single table layout).
+     */
+    protected String histItemFilterQueryProvider(String table, String column, boolean hasItemId, boolean round,
+            int numberDecimalcount, boolean hasBegin, boolean hasEnd, boolean ascending, boolean hasOffset) {
+        String key = table + '|' + column + '|' + hasItemId + '|' + (round ? numberDecimalcount : -1) + '|'
+                + hasBegin + '|' + hasEnd + '|' + ascending + '|' + hasOffset;
+        return histItemQueries.computeIfAbsent(key, k -> {
+            String filterString = "";
+            if (hasItemId) {
+                filterString += " WHERE itemid=?";
+            }
+            if (hasBegin) {
+                filterString += filterString.isEmpty() ? " WHERE" : " AND";
+                filterString += " TIME>?";
+            }
+            if (hasEnd) {
+                filterString += filterString.isEmpty() ? " WHERE" : " AND";
+                filterString += " TIME<?";
+            }
+            filterString += ascending ? " ORDER BY time ASC" : " ORDER BY time DESC";
+            filterString += histItemLimitProvider(hasOffset);
+            String queryString = "SELECT time, " + histItemValueProvider(column, round, numberDecimalcount) + " FROM "
+                    + histItemTableProvider(table) + filterString;
+            logger.debug("JDBC::histItemFilterQueryProvider queryString = {}", queryString);
+            return queryString;
+        });
+    }
+
+    protected String histItemValueProvider(String column, boolean round, int numberDecimalcount) {
+        // SELECT time, ROUND(value,3) FROM number_item_0114 ORDER BY time DESC LIMIT 1
+        // rounding HALF UP
+        return round ? "ROUND(" + column + "," + numberDecimalcount + ")" : column;
+    }
+
+    protected String histItemLimitProvider(boolean hasOffset) {
+        return hasOffset ? " LIMIT ? OFFSET ?" : " LIMIT ?";
+    }
+
+    /**
+     * Builds the downsampled history query, returning one row per time bucket of <code>interval</code> seconds.
+     * Parameters are bound in this order: item id (if <code>hasItemId</code>, twice for LAST), lower time bound,
+     * upper time bound.
+     */
+    protected String histItemAggregateQueryProvider(String table, String column, boolean hasItemId, boolean round,
+            int numberDecimalcount, boolean ascending, String aggregation, long interval) {
+        String itemFilter = hasItemId ? " itemid=? AND" : "";
+        String bucket = histItemBucketProvider(interval);
+        String queryString;
+        if ("LAST".equals(aggregation)) {
+            // the time is the primary key, so the last time of each bucket identifies its last row
+            queryString = "SELECT time, " + histItemValueProvider(column, round, numberDecimalcount) + " FROM "
+                    + histItemTableProvider(table) + " WHERE" + itemFilter + " time IN (SELECT MAX(time) FROM "
+                    + histItemTableProvider(table) + " WHERE" + itemFilter + " TIME>? AND TIME<? GROUP BY " + bucket
+                    + ")";
+        } else {
+            queryString = "SELECT MIN(time), "
+                    + histItemValueProvider(aggregation + "(" + column + ")", round, numberDecimalcount) + " FROM "
+                    + histItemTableProvider(table) + " WHERE" + itemFilter + " TIME>? AND TIME<? GROUP BY " + bucket;
+        }
+        queryString += ascending ? " ORDER BY 1 ASC" : " ORDER BY 1 DESC";
+        logger.debug("JDBC::histItemAggregateQueryProvider queryString = {}", queryString);
+        return queryString;
+    }
+
+    /**
+     * Adds the parameters of {@link #histItemAggregateQueryProvider}.
+     */
+    private void histItemAggregateParamsProvider(List<Object> params, String aggregation, @Nullable Integer itemId,
+            @Nullable Object lowerBound, @Nullable Object upperBound) {
+        if (itemId != null) {
+            params.add(itemId);
+            if ("LAST".equals(aggregation)) {
+                // the item id is used in the outer and in the inner query
+                params.add(itemId);
+            }
+        }
+        params.add(lowerBound);
+        params.add(upperBound);
+    }
+
+    /**
+     * Returns the expression numbering the time bucket of <code>interval</code> seconds a row belongs to.
+     */
+    protected String histItemBucketProvider(long interval) {
+        return "FLOOR(UNIX_TIMESTAMP(time) / " + interval + ")";
+    }
+
+    /**
+     * Adds the parameters of {@link #histItemLimitProvider(boolean)}, the offset only if it is greater than 0.
+     */
+    protected void histItemLimitParamsProvider(List<Object> params, int limit, int offset) {
+        params.add(limit);
+        if (offset > 0) {
+            params.add(offset);
         }
-        if (filter.getEndDate() != null) {
-            filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME<'" + JDBC_DATE_FORMAT.format(filter.getEndDate()) + "'";
+    }
+
+    protected String histItemTableProvider(String table) {
+        return table;
+    }
+
+    /**
+     * Returns the width of the time buckets in seconds, so that the queried time range is split into about the
+     * requested number of buckets. Only {@link AggregatedFilterCriteria} without paging of numeric items with begin
+     * and end date are aggregated.
+     *
+     * @return bucket width in seconds, 0 if the query has to return all rows
+     */
+    long getAggregationInterval(Item item, FilterCriteria filter) {
+        if (!(filter instanceof AggregatedFilterCriteria)) {
+            return 0;
         }
-        filterString += (filter.getOrdering() == Ordering.ASCENDING) ? " ORDER BY time ASC" : " ORDER BY time DESC ";
-        if (filter.getPageSize() != 0x7fffffff) {
-            filterString += " LIMIT " + filter.getPageNumber() * filter.getPageSize() + "," + filter.getPageSize();
+        int points = ((AggregatedFilterCriteria) filter).getPoints();
+        ZonedDateTime begin = filter.getBeginDate();
+        ZonedDateTime end = filter.getEndDate();
+        String itemType = getItemType(item);
+        if (points <= 0 || begin == null || end == null || filter.getPageSize() != Integer.MAX_VALUE
+                || !("NUMBERITEM".equals(itemType) || "DIMMERITEM".equals(itemType)
+                        || "ROLLERSHUTTERITEM".equals(itemType))) {
+            return 0;
         }
-        // SELECT time, ROUND(value,3) FROM number_item_0114 ORDER BY time DESC LIMIT 0,1
-        // rounding HALF UP
-        String queryString = "NUMBERITEM".equalsIgnoreCase(simpleName) && numberDecimalcount > -1
-                ? "SELECT time, ROUND(value," + numberDecimalcount + ") FROM " + table
-                : "SELECT time, value FROM " + table;
-        if (!filterString.isEmpty()) {
-            queryString += filterString;
+        long rangeSeconds = Duration.between(begin, end).getSeconds();
+        return Math.max(1, (rangeSeconds + points - 1) / points);
+    }
+
+    private String histItemColumn(Item item, @Nullable Integer itemId) {
+        if (itemId == null) {
+            return "value";
+        }
+        return isSingleTableNumber(getItemType(item)) ? "value_num" : "value_str";
+    }
+
+    private boolean isHistItemRounded(String name, String column, int numberDecimalcount) {
+        return "NUMBERITEM".equalsIgnoreCase(name) && numberDecimalcount > -1 && !"value_str".equals(column);
+    }
+
+    private HistoricItem histItemProvider(Item item, boolean singleTable, Object time, Object value) {
+        State state = singleTable ? getSingleTableState(item, value) : getState(item, value);
+        return new JdbcHistoricItem(item.getName(), state, objectAsDate(time));
+    }
+
+    /**
+     * Reads the rows of one history query page by page.
+     */
+    private class HistItemIterator implements Iterator<HistoricItem> {
+        private final Item item;
+        private final String table;
+        private final @Nullable Integer itemId;
+        private final String column;
+        private final boolean round;
+        private final int numberDecimalcount;
+        private final boolean ascending;
+        private final long aggregationInterval;
+        private final String aggregation;
+        private @Nullable Object lowerBound;
+        private @Nullable Object upperBound;
+        private int offset;
+        private long remaining;
+
+        private List<Object[]> rows = List.of();
+        private int rowIndex = 0;
+        private boolean exhausted = false;
+
+        HistItemIterator(Item item, FilterCriteria filter, int numberDecimalcount, String table, String name,
+                @Nullable Integer itemId) {
+            logger.debug(
+                    "JDBC::HistItemIterator filter = {}, numberDecimalcount = {}, table = {}, simpleName = {}, itemId = {}",
+                    filter, numberDecimalcount, table, name, itemId);
+            this.item = item;
+            this.table = table;
+            this.itemId = itemId;
+            this.column = histItemColumn(item, itemId);
+            this.round = isHistItemRounded(name, column, numberDecimalcount);
+            this.numberDecimalcount = numberDecimalcount;
+            this.ascending = filter.getOrdering() == Ordering.ASCENDING;
+            this.aggregationInterval = getAggregationInterval(item, filter);
+            this.aggregation = filter instanceof AggregatedFilterCriteria
+                    ? ((AggregatedFilterCriteria) filter).getAggregation().name()
+                    : "";
+            ZonedDateTime begin = filter.getBeginDate();
+            ZonedDateTime end = filter.getEndDate();
+            this.lowerBound = begin == null ? null : timeAsObject(Date.from(begin.toInstant()));
+            this.upperBound = end == null ? null : timeAsObject(Date.from(end.toInstant()));
+            if (filter.getPageSize() != Integer.MAX_VALUE) {
+                this.offset = filter.getPageNumber() * filter.getPageSize();
+                this.remaining = filter.getPageSize();
+            } else {
+                this.offset = 0;
+                this.remaining = Long.MAX_VALUE;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (rowIndex < rows.size()) {
+                return true;
+            }
+            if (exhausted || remaining <= 0) {
+                return false;
+            }
+            fetchPage();
+            return rowIndex < rows.size();
+        }
+
+        @Override
+        public HistoricItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] row = rows.get(rowIndex++);
+            return histItemProvider(item, itemId != null, row[0], row[1]);
+        }
+
+        private void fetchPage() {
+            if (aggregationInterval > 0) {
+                fetchAggregatedRows();
+                return;
+            }
+            int limit = (int) Math.min(remaining, histItemFetchSize);
+            boolean hasOffset = offset > 0;
+            String sql = histItemFilterQueryProvider(table, column, itemId != null, round, numberDecimalcount,
+                    lowerBound != null, upperBound != null, ascending, hasOffset);
+            List<Object> params = new ArrayList<>(5);
+            if (itemId != null) {
+                params.add(itemId);
+            }
+            if (lowerBound != null) {
+                params.add(lowerBound);
+            }
+            if (upperBound != null) {
+                params.add(upperBound);
+            }
+            histItemLimitParamsProvider(params, limit, offset);
+            logger.debug("JDBC::doGetHistItemFilterQuery sql={} params={}", sql, params);
+            List<Object[]> page = Yank.queryObjectArrays(sql, params.toArray());
+            rows = page == null ? List.of() : page;
+            rowIndex = 0;
+            remaining -= rows.size();
+            offset = 0;
+            if (rows.size() < limit) {
+                exhausted = true;
+            } else {
+                // continue after the last row, the time column is the primary key
+                Object lastTime = rows.get(rows.size() - 1)[0];
+                if (ascending) {
+                    lowerBound = lastTime;
+                } else {
+                    upperBound = lastTime;
+                }
+            }
+        }
+
+        /**
+         * Reads one row per time bucket, the number of buckets is limited by the aggregation.
+         */
+        private void fetchAggregatedRows() {
+            String sql = histItemAggregateQueryProvider(table, column, itemId != null, round, numberDecimalcount,
+                    ascending, aggregation, aggregationInterval);
+            List<Object> params = new ArrayList<>(5);
+            histItemAggregateParamsProvider(params, aggregation, itemId, lowerBound, upperBound);
+            logger.debug("JDBC::doGetHistItemFilterQuery sql={} params={}", sql, params);
+            List<Object[]> result = Yank.queryObjectArrays(sql, params.toArray());
+            rows = result == null ? List.of() : result;
+            rowIndex = 0;
+            exhausted = true;
         }
-        logger.debug("JDBC::query queryString = {}", queryString);
-        return queryString;
     }
 
     private String updateItemTableNamesProvider(List<ItemVO> namesList) {
@@ -387,6 +825,16 @@ public class JdbcBaseDAO {
         return queryString;
     }
 
+    protected String storeItemValuesSqlProvider(ItemVO vo) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+                new String[] { "#tableName#", "#tablePrimaryValue#" },
+                new String[] { vo.getTableName(), sqlInsertItemTimeValue });
+    }
+
+    protected Object[] storeItemValuesParamsProvider(ItemVO vo) {
+        return new Object[] { timeAsObject(vo.getTime()), vo.getValue(), vo.getValue() };
+    }
+
     protected ItemVO storeItemValueProvider(Item item, ItemVO vo) {
         String itemType = getItemType(item);
 
@@ -470,7 +918,7 @@ public class JdbcBaseDAO {
             } else if (it.toUpperCase().contains("DECIMAL") || it.toUpperCase().contains("NUMERIC")) {
                 return new DecimalType((BigDecimal) v);
             } else if (it.toUpperCase().contains("INT")) {
-                return new DecimalType(((Integer) v).intValue());
+                return new DecimalType(((Number) v).intValue());
             }
             return DecimalType.valueOf(((String) v).toString());
         } else if (item instanceof ColorItem) {
@@ -500,6 +948,17 @@ public class JdbcBaseDAO {
         return ZonedDateTime.ofInstant(((Timestamp) v).toInstant(), ZoneId.systemDefault());
     }
 
+    protected Date objectAsTime(Object v) {
+        if (v instanceof java.lang.String) {
+            return Timestamp.valueOf(v.toString());
+        }
+        return (Date) v;
+    }
+
+    protected Object timeAsObject(Date time) {
+        return new Timestamp(time.getTime());
+    }
+
     protected Long objectAsLong(Object v) {
         if (v instanceof Long) {
             return ((Number) v).longValue();
@@ -510,10 +969,8 @@ public class JdbcBaseDAO {
     }
 
     protected Integer objectAsInteger(Object v) {
-        if (v instanceof Byte) {
-            return ((Byte) v).intValue();
-        }
-        return ((Integer) v).intValue();
+        // Integer, Byte or an averaged value
+        return ((Number) v).intValue();
     }
 
     public String getItemType(Item i) {
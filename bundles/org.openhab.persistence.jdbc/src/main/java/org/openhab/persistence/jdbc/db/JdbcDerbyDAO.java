@@ -12,18 +12,12 @@
  */
 package org.openhab.persistence.jdbc.db;
 
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 
 import org.knowm.yank.Yank;
 import org.openhab.core.items.Item;
-import org.openhab.core.persistence.FilterCriteria;
-import org.openhab.core.persistence.FilterCriteria.Ordering;
-import org.openhab.core.persistence.HistoricItem;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
-import org.openhab.persistence.jdbc.model.JdbcHistoricItem;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +52,8 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
         // Prevent error against duplicate time value (seldom): No powerful Merge found:
         // http://www.codeproject.com/Questions/162627/how-to-insert-new-record-in-my-table-if-not-exists
         sqlInsertItemValue = "INSERT INTO #tableName# (TIME, VALUE) VALUES( #tablePrimaryValue#, CAST( ? as #dbType#) )";
+        // single table layout is not supported
+        sqlCreateSingleTable = null;
     }
 
     private void initSqlTypes() {
@@ -154,83 +150,58 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
     }
 
     @Override
-    public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
-            String table, String name) {
-        String sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name);
-        List<Object[]> m = Yank.queryObjectArrays(sql, null);
-
-        logger.debug("JDBC::doGetHistItemFilterQuery got Array length={}", m.size());
+    protected String storeItemValuesSqlProvider(ItemVO vo) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+                new String[] { "#tableName#", "#dbType#", "#tablePrimaryValue#" },
+                new String[] { vo.getTableName().toUpperCase(), vo.getDbType(), sqlInsertItemTimeValue });
+    }
 
-        List<HistoricItem> items = new ArrayList<>();
-        for (int i = 0; i < m.size(); i++) {
-            logger.debug("JDBC::doGetHistItemFilterQuery 0='{}' 1='{}'", m.get(i)[0], m.get(i)[1]);
-            items.add(new JdbcHistoricItem(item.getName(), getState(item, m.get(i)[1]), objectAsDate(m.get(i)[0])));
-        }
-        return items;
+    @Override
+    protected Object[] storeItemValuesParamsProvider(ItemVO vo) {
+        return new Object[] { timeAsObject(vo.getTime()), vo.getValue() };
     }
 
     /****************************
      * SQL generation Providers *
      ****************************/
-    static final DateTimeFormatter JDBC_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-    /**
-     * @param filter
-     * @param numberDecimalcount
-     * @param table
-     * @return
-     */
-    private String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
-            String simpleName) {
-        logger.debug(
-                "JDBC::getHistItemFilterQueryProvider filter = {}, numberDecimalcount = {}, table = {}, simpleName = {}",
-                StringUtilsExt.filterToString(filter), numberDecimalcount, table, simpleName);
-
-        String filterString = "";
-        if (filter.getBeginDate() != null) {
-            filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME>'" + JDBC_DATE_FORMAT.format(filter.getBeginDate()) + "'";
-        }
-        if (filter.getEndDate() != null) {
-            filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME<'" + JDBC_DATE_FORMAT.format(filter.getEndDate()) + "'";
-        }
-        filterString += (filter.getOrdering() == Ordering.ASCENDING) ? " ORDER BY time ASC" : " ORDER BY time DESC";
-        if (filter.getPageSize() != 0x7fffffff) {
-            // TODO: TESTING!!!
-            // filterString += " LIMIT " + filter.getPageNumber() *
-            // filter.getPageSize() + "," + filter.getPageSize();
-            // SELECT time, value FROM ohscriptfiles_sw_ace_paths_0001 ORDER BY
-            // time DESC OFFSET 1 ROWS FETCH NEXT 0 ROWS ONLY
-            // filterString += " OFFSET " + filter.getPageSize() +" ROWS FETCH
-            // FIRST||NEXT " + filter.getPageNumber() * filter.getPageSize() + "
-            // ROWS ONLY";
-            filterString += " OFFSET " + filter.getPageSize() + " ROWS FETCH FIRST "
-                    + (filter.getPageNumber() * filter.getPageSize() + 1) + " ROWS ONLY";
+    @Override
+    protected String histItemValueProvider(String column, boolean round, int numberDecimalcount) {
+        if (!round) {
+            return column;
         }
-
         // http://www.seemoredata.com/en/showthread.php?132-Round-function-in-Apache-Derby
-        // simulated round function in Derby: CAST(value 0.0005 AS DECIMAL(15,3))
-        // simulated round function in Derby: "CAST(value 0.0005 AS DECIMAL(15,"+numberDecimalcount+"))"
-
-        String queryString = "SELECT time,";
-        if ("NUMBERITEM".equalsIgnoreCase(simpleName) && numberDecimalcount > -1) {
-            // rounding HALF UP
-            queryString += "CAST(value 0.";
-            for (int i = 0; i < numberDecimalcount; i++) {
-                queryString += "0";
-            }
-            queryString += "5 AS DECIMAL(31," + numberDecimalcount + "))"; // 31 is DECIMAL max precision
-                                                                           // https://db.apache.org/derby/docs/10.0/manuals/develop/develop151.html
-        } else {
-            queryString += " value FROM " + table.toUpperCase();
+        // simulated round function in Derby: CAST(value + 0.0005 AS DECIMAL(31,3)), rounding HALF UP
+        // 31 is DECIMAL max precision https://db.apache.org/derby/docs/10.0/manuals/develop/develop151.html
+        String value = "CAST(" + column + " + 0.";
+        for (int i = 0; i < numberDecimalcount; i++) {
+            value += "0";
         }
+        return value + "5 AS DECIMAL(31," + numberDecimalcount + "))";
+    }
+
+    @Override
+    protected String histItemLimitProvider(boolean hasOffset) {
+        return hasOffset ? " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY" : " FETCH FIRST ? ROWS ONLY";
+    }
 
-        if (!filterString.isEmpty()) {
-            queryString += filterString;
+    @Override
+    protected void histItemLimitParamsProvider(List<Object> params, int limit, int offset) {
+        // OFFSET comes before FETCH in Derby
+        if (offset > 0) {
+            params.add(offset);
         }
-        logger.debug("JDBC::query queryString = {}", queryString);
-        return queryString;
+        params.add(limit);
+    }
+
+    @Override
+    protected String histItemTableProvider(String table) {
+        return table.toUpperCase();
+    }
+
+    @Override
+    protected String histItemBucketProvider(long interval) {
+        // integer division
+        return "{fn TIMESTAMPDIFF(SQL_TSI_SECOND, TIMESTAMP('1970-01-01 00:00:00'), time)} / " + interval;
     }
 
     /*****************
@@ -45,12 +45,17 @@ public class JdbcH2DAO extends JdbcBaseDAO {
         // SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( NOW(), CAST( ? as #dbType#) )";
         // http://stackoverflow.com/questions/19768051/h2-sql-database-insert-if-the-record-does-not-exist
         sqlInsertItemValue = "MERGE INTO #tableName# (TIME, VALUE) VALUES( #tablePrimaryValue#, CAST( ? as #dbType#) )";
+        sqlCreateSingleTable = "CREATE TABLE IF NOT EXISTS #tableName# (itemid INT NOT NULL, time #tablePrimaryKey# NOT NULL, value_num #tableSingleNumber#, value_str #tableSingleString#, PRIMARY KEY(itemid, time))";
+        sqlCreateSingleTableIndex = "CREATE INDEX IF NOT EXISTS #tableName#_time ON #tableName# (time)";
+        sqlInsertSingleTableValue = "MERGE INTO #tableName# (itemid, time, value_num, value_str) KEY(itemid, time) VALUES( ?, ?, ?, ? )";
     }
 
     /**
      * INFO: http://www.java2s.com/Code/Java/Database-SQL-JDBC/StandardSQLDataTypeswithTheirJavaEquivalents.htm
      */
     private void initSqlTypes() {
+        // TEXT would be read as CLOB
+        sqlTypes.put("tableSingleString", "VARCHAR");
     }
 
     /**
@@ -81,9 +86,25 @@ public class JdbcH2DAO extends JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
+    @Override
+    protected String storeItemValuesSqlProvider(ItemVO vo) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+                new String[] { "#tableName#", "#dbType#", "#tablePrimaryValue#" },
+                new String[] { vo.getTableName(), vo.getDbType(), sqlInsertItemTimeValue });
+    }
+
+    @Override
+    protected Object[] storeItemValuesParamsProvider(ItemVO vo) {
+        return new Object[] { timeAsObject(vo.getTime()), vo.getValue() };
+    }
+
     /****************************
      * SQL generation Providers *
      ****************************/
+    @Override
+    protected String histItemBucketProvider(long interval) {
+        return "DATEDIFF('SECOND', TIMESTAMP '1970-01-01 00:00:00', time) / " + interval;
+    }
 
     /*****************
      * H E L P E R S *
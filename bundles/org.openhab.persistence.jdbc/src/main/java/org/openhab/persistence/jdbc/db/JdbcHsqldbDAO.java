@@ -54,6 +54,10 @@ public class JdbcHsqldbDAO extends JdbcBaseDAO {
         sqlInsertItemValue = "MERGE INTO #tableName# "
                 + "USING (VALUES #tablePrimaryValue#, CAST( ? as #dbType#)) temp (TIME, VALUE) ON (#tableName#.TIME=temp.TIME) "
                 + "WHEN NOT MATCHED THEN INSERT (TIME, VALUE) VALUES (temp.TIME, temp.VALUE)";
+        // untyped parameters are not allowed inside of VALUES
+        sqlInsertItemTimeValue = "CAST( ? as TIMESTAMP)";
+        // single table layout is not supported
+        sqlCreateSingleTable = null;
     }
 
     /**
@@ -111,6 +115,18 @@ public class JdbcHsqldbDAO extends JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
+    @Override
+    protected String storeItemValuesSqlProvider(ItemVO vo) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+                new String[] { "#tableName#", "#dbType#", "#tableName#", "#tablePrimaryValue#" },
+                new String[] { vo.getTableName(), vo.getDbType(), vo.getTableName(), sqlInsertItemTimeValue });
+    }
+
+    @Override
+    protected Object[] storeItemValuesParamsProvider(ItemVO vo) {
+        return new Object[] { timeAsObject(vo.getTime()), vo.getValue() };
+    }
+
     /****************************
      * SQL generation Providers *
      ****************************/
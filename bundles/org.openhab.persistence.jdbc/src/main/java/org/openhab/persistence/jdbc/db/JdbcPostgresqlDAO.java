@@ -12,18 +12,12 @@
  */
 package org.openhab.persistence.jdbc.db;
 
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 
 import org.knowm.yank.Yank;
 import org.openhab.core.items.Item;
-import org.openhab.core.persistence.FilterCriteria;
-import org.openhab.core.persistence.FilterCriteria.Ordering;
-import org.openhab.core.persistence.HistoricItem;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
-import org.openhab.persistence.jdbc.model.JdbcHistoricItem;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +55,11 @@ public class JdbcPostgresqlDAO extends JdbcBaseDAO {
         // SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( NOW(), CAST( ? as #dbType#) ) ON
         // CONFLICT DO NOTHING";
         sqlInsertItemValue = "INSERT INTO #tableName# (TIME, VALUE) VALUES( #tablePrimaryValue#, CAST( ? as #dbType#) )";
+        // single table layout, a BRIN index keeps time range scans cheap on append-only data
+        sqlCreateSingleTable = "CREATE TABLE IF NOT EXISTS #tableName# (itemid INTEGER NOT NULL, time #tablePrimaryKey# NOT NULL, value_num #tableSingleNumber#, value_str #tableSingleString#, CONSTRAINT #tableName#_pkey PRIMARY KEY (itemid, time))";
+        sqlCreateSingleTableIndex = "CREATE INDEX IF NOT EXISTS #tableName#_time ON #tableName# USING BRIN (time)";
+        // requires PostgreSQL >= 9.5
+        sqlInsertSingleTableValue = "INSERT INTO #tableName# (itemid, time, value_num, value_str) VALUES( ?, ?, ?, ? ) ON CONFLICT (itemid, time) DO UPDATE SET value_num=EXCLUDED.value_num, value_str=EXCLUDED.value_str";
     }
 
     /**
@@ -78,6 +77,8 @@ public class JdbcPostgresqlDAO extends JdbcBaseDAO {
         sqlTypes.put("ROLLERSHUTTERITEM", "SMALLINT");
         sqlTypes.put("STRINGITEM", "VARCHAR");
         sqlTypes.put("SWITCHITEM", "VARCHAR");
+        sqlTypes.put("tableSingleNumber", "DOUBLE PRECISION");
+        sqlTypes.put("tableSingleString", "VARCHAR");
         logger.debug("JDBC::initSqlTypes: Initialized the type array sqlTypes={}", sqlTypes.values());
     }
 
@@ -143,60 +144,28 @@ public class JdbcPostgresqlDAO extends JdbcBaseDAO {
     }
 
     @Override
-    public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
-            String table, String name) {
-        String sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name);
-        logger.debug("JDBC::doGetHistItemFilterQuery sql={}", sql);
-        List<Object[]> m = Yank.queryObjectArrays(sql, null);
-
-        List<HistoricItem> items = new ArrayList<>();
-        for (int i = 0; i < m.size(); i++) {
-            items.add(new JdbcHistoricItem(item.getName(), getState(item, m.get(i)[1]), objectAsDate(m.get(i)[0])));
-        }
-        return items;
+    protected String storeItemValuesSqlProvider(ItemVO vo) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+                new String[] { "#tableName#", "#dbType#", "#tablePrimaryValue#" },
+                new String[] { vo.getTableName(), vo.getDbType(), sqlInsertItemTimeValue });
+    }
+
+    @Override
+    protected Object[] storeItemValuesParamsProvider(ItemVO vo) {
+        return new Object[] { timeAsObject(vo.getTime()), vo.getValue() };
     }
 
     /****************************
      * SQL generation Providers *
      ****************************/
-    static final DateTimeFormatter JDBC_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    @Override
+    protected String histItemValueProvider(String column, boolean round, int numberDecimalcount) {
+        return round ? "ROUND(CAST (" + column + " AS numeric)," + numberDecimalcount + ")" : column;
+    }
 
-    /**
-     * @param filter
-     * @param numberDecimalcount
-     * @param table
-     * @return
-     */
-    private String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
-            String simpleName) {
-        logger.debug(
-                "JDBC::getHistItemFilterQueryProvider filter = {}, numberDecimalcount = {}, table = {}, simpleName = {}",
-                filter.toString(), numberDecimalcount, table, simpleName);
-
-        String filterString = "";
-        if (filter.getBeginDate() != null) {
-            filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME>'" + JDBC_DATE_FORMAT.format(filter.getBeginDate()) + "'";
-        }
-        if (filter.getEndDate() != null) {
-            filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME<'" + JDBC_DATE_FORMAT.format(filter.getEndDate()) + "'";
-        }
-        filterString += (filter.getOrdering() == Ordering.ASCENDING) ? " ORDER BY time ASC" : " ORDER BY time DESC";
-        if (filter.getPageSize() != 0x7fffffff) {
-            // see:
-            // http://www.jooq.org/doc/3.5/manual/sql-building/sql-statements/select-statement/limit-clause/
-            filterString += " OFFSET " + filter.getPageNumber() * filter.getPageSize() + " LIMIT "
-                    + filter.getPageSize();
-        }
-        String queryString = "NUMBERITEM".equalsIgnoreCase(simpleName) && numberDecimalcount > -1
-                ? "SELECT time, ROUND(CAST (value AS numeric)," + numberDecimalcount + ") FROM " + table
-                : "SELECT time, value FROM " + table;
-        if (!filterString.isEmpty()) {
-            queryString += filterString;
-        }
-        logger.debug("JDBC::query queryString = {}", queryString);
-        return queryString;
+    @Override
+    protected String histItemBucketProvider(long interval) {
+        return "FLOOR(EXTRACT(EPOCH FROM time) / " + interval + ")";
     }
 
     /*****************
@@ -12,6 +12,11 @@
  */
 package org.openhab.persistence.jdbc.db;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
 import org.knowm.yank.Yank;
 import org.openhab.core.items.Item;
 import org.openhab.persistence.jdbc.model.ItemVO;
@@ -47,6 +52,8 @@ public class JdbcSqliteDAO extends JdbcBaseDAO {
         sqlIfTableExists = "SELECT name FROM sqlite_master WHERE type='table' AND name='#searchTable#'";
         sqlCreateItemsTableIfNot = "CREATE TABLE IF NOT EXISTS #itemsManageTable# (ItemId INTEGER PRIMARY KEY AUTOINCREMENT, #colname# #coltype# NOT NULL)";
         sqlInsertItemValue = "INSERT OR IGNORE INTO #tableName# (TIME, VALUE) VALUES( #tablePrimaryValue#, CAST( ? as #dbType#) )";
+        // single table layout is not supported
+        sqlCreateSingleTable = null;
     }
 
     /**
@@ -100,13 +107,40 @@ public class JdbcSqliteDAO extends JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
+    @Override
+    protected String storeItemValuesSqlProvider(ItemVO vo) {
+        return StringUtilsExt.replaceArrayMerge(sqlInsertItemValue,
+                new String[] { "#tableName#", "#dbType#", "#tablePrimaryValue#" },
+                new String[] { vo.getTableName(), vo.getDbType(), sqlInsertItemTimeValue });
+    }
+
+    @Override
+    protected Object[] storeItemValuesParamsProvider(ItemVO vo) {
+        return new Object[] { timeAsObject(vo.getTime()), vo.getValue() };
+    }
+
     /****************************
      * SQL generation Providers *
      ****************************/
+    @Override
+    protected String histItemBucketProvider(long interval) {
+        // integer division, time is stored as text
+        return "CAST(strftime('%s', time) AS INTEGER) / " + interval;
+    }
 
     /*****************
      * H E L P E R S *
      *****************/
+    private static final DateTimeFormatter SQLITE_TIME_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * SQLite stores the time column as text, use the same format as the 'tablePrimaryValue' function does.
+     */
+    @Override
+    protected Object timeAsObject(Date time) {
+        return SQLITE_TIME_FORMAT.format(LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault()));
+    }
 
     /******************************
      * public Getters and Setters *
@@ -58,6 +58,16 @@ public class JdbcConfiguration {
     private int tableIdDigitCount = 4;
     private boolean rebuildTableNames = false;
 
+    // single table layout
+    private boolean singleTable = false;
+    private String singleTableName = "item_values";
+    private boolean migrateToSingleTable = false;
+
+    // batched writes, disabled if batchSize is 0
+    private int batchSize = 0;
+    private int batchInterval = 1000;
+    private int batchQueueSize = 10000;
+
     private int errReconnectThreshold = 0;
 
     public int timerCount = 0;
@@ -173,6 +183,49 @@ public class JdbcConfiguration {
             logger.debug("JDBC::updateConfig: rebuildTableNames={}", rebuildTableNames);
         }
 
+        String st = (String) configuration.get("singleTable");
+        if (st != null && !st.isBlank()) {
+            singleTable = Boolean.parseBoolean(st);
+            logger.debug("JDBC::updateConfig: singleTable={}", singleTable);
+        }
+
+        String sn = (String) configuration.get("singleTableName");
+        if (sn != null && !sn.isBlank()) {
+            singleTableName = sn;
+            logger.debug("JDBC::updateConfig: singleTableName={}", singleTableName);
+        }
+
+        String mt = (String) configuration.get("migrateToSingleTable");
+        if (mt != null && !mt.isBlank()) {
+            migrateToSingleTable = Boolean.parseBoolean(mt);
+            logger.debug("JDBC::updateConfig: migrateToSingleTable={}", migrateToSingleTable);
+        }
+
+        if (singleTable && !dBDAO.isSingleTableSupported()) {
+            logger.error(
+                    "JDBC::updateConfig: single table layout is not supported for serviceName '{}', using one table per item.",
+                    serviceName);
+            singleTable = false;
+        }
+
+        String bs = (String) configuration.get("batchSize");
+        if (bs != null && !bs.isBlank() && isNumericPattern.matcher(bs).matches()) {
+            batchSize = Integer.parseInt(bs);
+            logger.debug("JDBC::updateConfig: batchSize={}", batchSize);
+        }
+
+        String bi = (String) configuration.get("batchInterval");
+        if (bi != null && !bi.isBlank() && isNumericPattern.matcher(bi).matches()) {
+            batchInterval = Integer.parseInt(bi);
+            logger.debug("JDBC::updateConfig: batchInterval={}", batchInterval);
+        }
+
+        String bq = (String) configuration.get("batchQueueSize");
+        if (bq != null && !bq.isBlank() && isNumericPattern.matcher(bq).matches()) {
+            batchQueueSize = Integer.parseInt(bq);
+            logger.debug("JDBC::updateConfig: batchQueueSize={}", batchQueueSize);
+        }
+
         // undocumented
         String ac = (String) configuration.get("maximumPoolSize");
         if (ac != null && !ac.isBlank()) {
@@ -350,6 +403,30 @@ public class JdbcConfiguration {
         return tableIdDigitCount;
     }
 
+    public boolean getSingleTable() {
+        return singleTable;
+    }
+
+    public String getSingleTableName() {
+        return singleTableName;
+    }
+
+    public boolean getMigrateToSingleTable() {
+        return migrateToSingleTable;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getBatchInterval() {
+        return batchInterval;
+    }
+
+    public int getBatchQueueSize() {
+        return batchQueueSize;
+    }
+
     public JdbcBaseDAO getDBDAO() {
         return dBDAO;
     }
@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.knowm.yank.Yank;
@@ -24,6 +25,7 @@ import org.openhab.core.items.Item;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceItemInfo;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.openhab.persistence.jdbc.model.JdbcPersistenceItemInfo;
@@ -42,7 +44,11 @@ public class JdbcMapper {
     protected int errCnt;
     protected boolean initialized = false;
     protected JdbcConfiguration conf = null;
-    protected final Map<String, String> sqlTables = new HashMap<>();
+    // accessed by the storing, querying and writer threads
+    protected final Map<String, String> sqlTables = new ConcurrentHashMap<>();
+    // item ids of the single table layout
+    protected final Map<String, Integer> itemIds = new ConcurrentHashMap<>();
+    protected JdbcWriteBuffer writeBuffer = null;
     private long afterAccessMin = 10000;
     private long afterAccessMax = 0;
     private static final String ITEM_NAME_PATTERN = "[^a-zA-Z_0-9\\-]";
@@ -146,29 +152,84 @@ public class JdbcMapper {
             return item;
         }
         long timerStart = System.currentTimeMillis();
+        JdbcWriteBuffer buffer = writeBuffer;
+        if (conf.getSingleTable()) {
+            Integer itemId = getItemId(item);
+            if (itemId == null) {
+                logger.error("JDBC::store: Unable to store item '{}', no item id.", item.getName());
+                return item;
+            }
+            ItemVO vo = new ItemVO(tableName, null);
+            vo.setItemId(itemId);
+            vo = conf.getDBDAO().doPrepareSingleTableValue(item, vo);
+            if (buffer != null) {
+                buffer.add(vo);
+                logTime("bufferItemValue", timerStart, System.currentTimeMillis());
+            } else {
+                conf.getDBDAO().doStoreSingleTableValues(List.of(vo));
+                logTime("storeItemValue", timerStart, System.currentTimeMillis());
+                errCnt = 0;
+            }
+            return item;
+        }
+        if (buffer != null) {
+            buffer.add(conf.getDBDAO().doPrepareItemValue(item, new ItemVO(tableName, null)));
+            logTime("bufferItemValue", timerStart, System.currentTimeMillis());
+            return item;
+        }
         conf.getDBDAO().doStoreItemValue(item, new ItemVO(tableName, null));
         logTime("storeItemValue", timerStart, System.currentTimeMillis());
         errCnt = 0;
         return item;
     }
 
-    public List<HistoricItem> getHistItemFilterQuery(FilterCriteria filter, int numberDecimalcount, String table,
+    public Iterable<HistoricItem> getHistItemFilterQuery(FilterCriteria filter, int numberDecimalcount, String table,
             Item item) {
         logger.debug(
                 "JDBC::getHistItemFilterQuery filter='{}' numberDecimalcount='{}' table='{}' item='{}' itemName='{}'",
                 (filter != null), numberDecimalcount, table, item, item.getName());
         if (table != null) {
-            long timerStart = System.currentTimeMillis();
-            List<HistoricItem> r = conf.getDBDAO().doGetHistItemFilterQuery(item, filter, numberDecimalcount, table,
-                    item.getName());
-            logTime("insertItemValue", timerStart, System.currentTimeMillis());
-            return r;
+            // rows are read lazily while the result is iterated
+            if (conf.getSingleTable()) {
+                Integer itemId = getItemId(item);
+                if (itemId == null) {
+                    logger.error("JDBC::getHistItemFilterQuery: no item id for item '{}'", item.getName());
+                    return null;
+                }
+                return conf.getDBDAO().doGetSingleTableFilterQuery(item, filter, numberDecimalcount, table, itemId);
+            }
+            return conf.getDBDAO().doGetHistItemFilterQuery(item, filter, numberDecimalcount, table, item.getName());
         } else {
             logger.error("JDBC::getHistItemFilterQuery: TABLE is NULL; cannot get data from non-existent table.");
         }
         return null;
     }
 
+    /*****************
+     * WRITE BUFFER *
+     *****************/
+    protected void startWriteBuffer() {
+        stopWriteBuffer();
+        if (conf.getBatchSize() > 0) {
+            logger.debug("JDBC::startWriteBuffer: batched writes enabled, batchSize={} batchInterval={} ms",
+                    conf.getBatchSize(), conf.getBatchInterval());
+            JdbcBaseDAO dao = conf.getDBDAO();
+            writeBuffer = new JdbcWriteBuffer(conf.getSingleTable() ? dao::doStoreSingleTableValues
+                    : dao::doStoreItemValues, conf.getBatchSize(), conf.getBatchInterval(), conf.getBatchQueueSize());
+        }
+    }
+
+    protected void stopWriteBuffer() {
+        JdbcWriteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            writeBuffer = null;
+            buffer.shutdown();
+            logger.info("JDBC::stopWriteBuffer: written {} values in {} batches, dropped {} values, failed {} values",
+                    buffer.getWrittenCount(), buffer.getFlushCount(), buffer.getDroppedCount(),
+                    buffer.getFailedCount());
+        }
+    }
+
     /***********************
      * DATABASE CONNECTION *
      ***********************/
@@ -218,7 +279,9 @@ public class JdbcMapper {
     protected void checkDBSchema() {
         // Create Items Table if does not exist
         createItemsTableIfNot(new ItemsVO());
-        if (conf.getRebuildTableNames()) {
+        if (conf.getSingleTable()) {
+            checkSingleTableSchema();
+        } else if (conf.getRebuildTableNames()) {
             formatTableNames();
             logger.info(
                     "JDBC::checkDBSchema: Rebuild complete, configure the 'rebuildTableNames' setting to 'false' to stop rebuilds on startup");
@@ -234,6 +297,44 @@ public class JdbcMapper {
         }
     }
 
+    private void checkSingleTableSchema() {
+        String singleTable = conf.getSingleTableName();
+        long timerStart = System.currentTimeMillis();
+        conf.getDBDAO().doCreateSingleTableIfNot(singleTable);
+        logTime("createSingleTable", timerStart, System.currentTimeMillis());
+
+        errCnt = 0;
+        List<ItemsVO> al = getItemIDTableNames();
+        for (ItemsVO vo : al) {
+            itemIds.put(vo.getItemname(), vo.getItemid());
+            sqlTables.put(vo.getItemname(), singleTable);
+        }
+        if (conf.getMigrateToSingleTable()) {
+            migrateToSingleTable(al);
+            logger.info(
+                    "JDBC::checkDBSchema: Migration complete, configure the 'migrateToSingleTable' setting to 'false' to stop migrations on startup");
+        }
+    }
+
+    /**
+     * Copies the values of all per-item tables into the single table. Already copied values are overwritten, the
+     * per-item tables are left untouched.
+     */
+    private void migrateToSingleTable(List<ItemsVO> al) {
+        String singleTable = conf.getSingleTableName();
+        long total = 0;
+        for (ItemsVO vo : al) {
+            String itemTable = getTableName(vo.getItemid(), vo.getItemname());
+            long timerStart = System.currentTimeMillis();
+            long count = conf.getDBDAO().doCopyItemTableToSingleTable(itemTable, vo.getItemid(), singleTable);
+            logger.info("JDBC::migrateToSingleTable: copied {} values of item '{}' from '{}' in {} ms", count,
+                    vo.getItemname(), itemTable, System.currentTimeMillis() - timerStart);
+            total += count;
+        }
+        logger.info("JDBC::migrateToSingleTable: copied {} values of {} items into '{}'", total, al.size(),
+                singleTable);
+    }
+
     protected String getTable(Item item) {
         int rowId = 0;
         ItemsVO isvo;
@@ -258,6 +359,14 @@ public class JdbcMapper {
             logger.error("JDBC::getTable: Creating table for item '{}' failed.", itemName);
         }
         // Create the table name
+        if (conf.getSingleTable()) {
+            if (rowId == 0) {
+                return null;
+            }
+            itemIds.put(itemName, rowId);
+            sqlTables.put(itemName, conf.getSingleTableName());
+            return conf.getSingleTableName();
+        }
         logger.debug("JDBC::getTable: getTableName with rowId={} itemName={}", rowId, itemName);
         tableName = getTableName(rowId, itemName);
 
@@ -290,6 +399,37 @@ public class JdbcMapper {
         return tableName;
     }
 
+    /**
+     * Returns the id of an item in the single table layout. An item that is not known yet is looked up in the items
+     * table, and added to it if it is missing there as well, like {@link #getTable(Item)} does for per-item tables.
+     *
+     * @return the item id, or null if the item could not be added to the items table
+     */
+    protected Integer getItemId(Item item) {
+        String itemName = item.getName();
+        Integer itemId = itemIds.get(itemName);
+        if (itemId != null) {
+            return itemId;
+        }
+        synchronized (itemIds) {
+            itemId = itemIds.get(itemName);
+            if (itemId == null) {
+                logger.debug("JDBC::getItemId: no item id found for item '{}', reading items table", itemName);
+                for (ItemsVO vo : getItemIDTableNames()) {
+                    itemIds.putIfAbsent(vo.getItemname(), vo.getItemid());
+                }
+                itemId = itemIds.get(itemName);
+            }
+            if (itemId == null) {
+                // not in the items table, let getTable create the entry
+                sqlTables.remove(itemName);
+                getTable(item);
+                itemId = itemIds.get(itemName);
+            }
+            return itemId;
+        }
+    }
+
     private void formatTableNames() {
         boolean tmpinit = initialized;
         if (tmpinit) {
@@ -95,6 +95,7 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
     @Deactivate
     public void deactivate(final int reason) {
         logger.debug("JDBC::deactivate:  persistence bundle stopping. Disconnecting from database. reason={}", reason);
+        stopWriteBuffer();
         // closeConnection();
         initialized = false;
     }
@@ -193,11 +194,10 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
             table = getTable(item);
         }
 
-        long timerStart = System.currentTimeMillis();
-        List<HistoricItem> items = getHistItemFilterQuery(filter, conf.getNumberDecimalcount(), table, item);
-
-        logger.debug("JDBC::query: query for {} returned {} rows in {} ms", item.getName(), items.size(),
-                System.currentTimeMillis() - timerStart);
+        Iterable<HistoricItem> items = getHistItemFilterQuery(filter, conf.getNumberDecimalcount(), table, item);
+        if (items == null) {
+            return List.of();
+        }
 
         // Success
         errCnt = 0;
@@ -207,9 +207,11 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
     public void updateConfig(Map<Object, Object> configuration) {
         logger.debug("JDBC::updateConfig");
 
+        stopWriteBuffer();
         conf = new JdbcConfiguration(configuration);
         if (conf.valid && checkDBAccessability()) {
             checkDBSchema();
+            startWriteBuffer();
             // connection has been established ... initialization completed!
             initialized = true;
         } else {
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.common.NamedThreadFactory;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
+import org.openhab.persistence.jdbc.model.ItemVO;
+import org.openhab.persistence.jdbc.utils.MovingAverage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffers item values in a bounded queue and writes them from a single writer thread as JDBC batch inserts,
+ * grouped per item table. A flush is triggered when 'batchSize' values are pending or 'batchInterval' has passed.
+ *
+ * If the queue is full (the database can not keep up), the storing thread is blocked for at most one
+ * 'batchInterval' before the value is dropped.
+ *
+ * If a batch is rejected, e.g. because one of its values collides with an existing row, its values are written one
+ * by one, so that only the colliding values are lost.
+ *
+ * @author Helmut Lehmeyer - Initial contribution
+ */
+@NonNullByDefault
+public class JdbcWriteBuffer {
+    private final Logger logger = LoggerFactory.getLogger(JdbcWriteBuffer.class);
+
+    private final BatchWriter dao;
+    private final int batchSize;
+    private final int batchInterval;
+    private final BlockingQueue<ItemVO> queue;
+    private final ScheduledExecutorService writer = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("jdbc-writer"));
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private volatile long lastFlushTime = 0;
+    private final MovingAverage flushTimeAverage = new MovingAverage(50);
+
+    /**
+     * Writes the values of one table as one batch.
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        /**
+         * @return true if all values were written
+         */
+        boolean write(List<ItemVO> values);
+    }
+
+    /**
+     * @param dao writes the values of one table as batch, e.g. {@link JdbcBaseDAO#doStoreItemValues(List)}
+     */
+    public JdbcWriteBuffer(BatchWriter dao, int batchSize, int batchInterval, int queueSize) {
+        this.dao = dao;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchInterval = Math.max(1, batchInterval);
+        this.queue = new ArrayBlockingQueue<>(Math.max(this.batchSize, queueSize));
+        writer.scheduleWithFixedDelay(this::flushSafe, this.batchInterval, this.batchInterval, TimeUnit.MILLISECONDS);
+        logger.debug("JDBC::JdbcWriteBuffer: started with batchSize={} batchInterval={} ms queueSize={}",
+                this.batchSize, this.batchInterval, queue.remainingCapacity());
+    }
+
+    /**
+     * Adds a prepared value to the buffer.
+     *
+     * @param vo value prepared by {@link JdbcBaseDAO#doPrepareItemValue} or
+     *            {@link JdbcBaseDAO#doPrepareSingleTableValue}
+     * @return false if the value had to be dropped because the buffer stayed full
+     */
+    public boolean add(ItemVO vo) {
+        boolean added = queue.offer(vo);
+        if (!added) {
+            // database is behind, make the caller wait for the writer
+            triggerFlush();
+            try {
+                added = queue.offer(vo, batchInterval, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!added) {
+            long dropped = droppedCount.incrementAndGet();
+            logger.warn("JDBC::JdbcWriteBuffer: write queue is full, dropped value for table '{}' ({} dropped so far)",
+                    vo.getTableName(), dropped);
+            return false;
+        }
+        if (queue.size() >= batchSize) {
+            triggerFlush();
+        }
+        return true;
+    }
+
+    /**
+     * Stops the writer thread after writing all pending values.
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(batchInterval * 2L, TimeUnit.MILLISECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // write what is left on the calling thread
+        flushSafe();
+        logger.debug("JDBC::JdbcWriteBuffer: stopped, written={} dropped={} failed={}", writtenCount.get(),
+                droppedCount.get(), failedCount.get());
+    }
+
+    private void triggerFlush() {
+        if (flushPending.compareAndSet(false, true)) {
+            try {
+                writer.execute(this::flushSafe);
+            } catch (RejectedExecutionException e) {
+                flushPending.set(false);
+            }
+        }
+    }
+
+    private void flushSafe() {
+        flushPending.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // keep the scheduled writer alive
+            logger.warn("JDBC::JdbcWriteBuffer: writing batch failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean write(List<ItemVO> values) {
+        try {
+            return dao.write(values);
+        } catch (RuntimeException e) {
+            logger.debug("JDBC::JdbcWriteBuffer: writing {} values failed: {}", values.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the values of one table as batch, or one by one if the batch is rejected.
+     *
+     * @return number of values written
+     */
+    private int writeTable(List<ItemVO> values) {
+        if (write(values)) {
+            return values.size();
+        }
+        int written = 0;
+        if (values.size() > 1) {
+            logger.debug("JDBC::JdbcWriteBuffer: batch for table '{}' failed, writing {} values one by one",
+                    values.get(0).getTableName(), values.size());
+            for (ItemVO vo : values) {
+                if (write(Collections.singletonList(vo))) {
+                    written++;
+                }
+            }
+        }
+        int failed = values.size() - written;
+        if (failed > 0) {
+            long total = failedCount.addAndGet(failed);
+            logger.warn("JDBC::JdbcWriteBuffer: failed to write {} values into table '{}' ({} failed so far)",
+                    failed, values.get(0).getTableName(), total);
+        }
+        return written;
+    }
+
+    private synchronized void flush() {
+        List<ItemVO> pending = new ArrayList<>(Math.min(queue.size(), batchSize * 4));
+        while (queue.drainTo(pending, batchSize * 4) > 0) {
+            long timerStart = System.currentTimeMillis();
+
+            // group per table, keep insertion (= time) order
+            Map<String, Map<String, ItemVO>> tables = new LinkedHashMap<>();
+            for (ItemVO vo : pending) {
+                Map<String, ItemVO> values = tables.computeIfAbsent(vo.getTableName(), k -> new LinkedHashMap<>());
+                // same item and time would violate the primary key, last value wins
+                values.put(vo.getItemId() + "|" + vo.getTime().getTime(), vo);
+            }
+            int written = 0;
+            for (Map<String, ItemVO> values : tables.values()) {
+                written += writeTable(new ArrayList<>(values.values()));
+            }
+
+            lastFlushTime = System.currentTimeMillis() - timerStart;
+            synchronized (flushTimeAverage) {
+                flushTimeAverage.add(lastFlushTime);
+            }
+            flushCount.incrementAndGet();
+            writtenCount.addAndGet(written);
+            logger.debug("JDBC::JdbcWriteBuffer: wrote {} of {} values into {} tables in {} ms, {} values pending",
+                    written, pending.size(), tables.size(), lastFlushTime, queue.size());
+            pending.clear();
+        }
+    }
+
+    /***********
+     * METRICS *
+     ***********/
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Number of values the database rejected
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getLastFlushTime() {
+        return lastFlushTime;
+    }
+
+    public int getAverageFlushTime() {
+        synchronized (flushTimeAverage) {
+            return flushTimeAverage.getAverageInteger();
+        }
+    }
+}
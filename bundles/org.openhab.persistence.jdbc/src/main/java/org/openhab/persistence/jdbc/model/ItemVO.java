@@ -29,6 +29,7 @@ public class ItemVO implements Serializable {
     private static final long serialVersionUID = 1871441039821454890L;
 
     private String tableName;
+    private int itemId;
     private String newTableName;
     private String dbType;
     private String jdbcType;
@@ -60,6 +61,14 @@ public class ItemVO implements Serializable {
         this.tableName = tableName;
     }
 
+    public int getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(int itemId) {
+        this.itemId = itemId;
+    }
+
     public String getNewTableName() {
         return newTableName;
     }
@@ -151,6 +160,8 @@ public class ItemVO implements Serializable {
         StringBuilder builder = new StringBuilder();
         builder.append("ItemVO [tableName=");
         builder.append(tableName);
+        builder.append(", itemId=");
+        builder.append(itemId);
         builder.append(", newTableName=");
         builder.append(newTableName);
         builder.append(", dbType=");
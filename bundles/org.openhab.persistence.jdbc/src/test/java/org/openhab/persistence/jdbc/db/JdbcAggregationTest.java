@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.StringItem;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.persistence.jdbc.model.AggregatedFilterCriteria;
+import org.openhab.persistence.jdbc.model.AggregatedFilterCriteria.Aggregation;
+
+/**
+ * Tests the downsampling of history queries into time buckets.
+ *
+ * @author Helmut Lehmeyer - Initial contribution
+ */
+public class JdbcAggregationTest {
+
+    private static final ZonedDateTime BEGIN = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneId.systemDefault());
+    private static final ZonedDateTime END = BEGIN.plusDays(1);
+
+    private static FilterCriteria timeRange(FilterCriteria filter) {
+        filter.setBeginDate(BEGIN);
+        filter.setEndDate(END);
+        return filter;
+    }
+
+    @Test
+    public void testOnlyAggregatedFilterCriteriaAreAggregated() {
+        JdbcBaseDAO dao = new JdbcH2DAO();
+        NumberItem item = new NumberItem("number");
+
+        // e.g. the queries of the persistence extensions
+        assertEquals(0, dao.getAggregationInterval(item, timeRange(new FilterCriteria())));
+        // one day split into 1000 buckets
+        assertEquals(87,
+                dao.getAggregationInterval(item, timeRange(new AggregatedFilterCriteria(Aggregation.AVG, 1000))));
+    }
+
+    @Test
+    public void testAggregationNeedsUnpagedTimeRangeOfNumericItem() {
+        JdbcBaseDAO dao = new JdbcH2DAO();
+        NumberItem item = new NumberItem("number");
+
+        FilterCriteria noEnd = new AggregatedFilterCriteria(Aggregation.AVG, 1000);
+        noEnd.setBeginDate(BEGIN);
+        assertEquals(0, dao.getAggregationInterval(item, noEnd));
+
+        FilterCriteria paged = timeRange(new AggregatedFilterCriteria(Aggregation.AVG, 1000));
+        paged.setPageSize(10);
+        assertEquals(0, dao.getAggregationInterval(item, paged));
+
+        assertEquals(0, dao.getAggregationInterval(new StringItem("string"),
+                timeRange(new AggregatedFilterCriteria(Aggregation.AVG, 1000))));
+    }
+
+    @Test
+    public void testBucketQueriesOfEachDialect() {
+        assertEquals(
+                "SELECT MIN(time), ROUND(AVG(value),2) FROM item0001 WHERE TIME>? AND TIME<? GROUP BY FLOOR(UNIX_TIMESTAMP(time) / 87) ORDER BY 1 ASC",
+                new JdbcMysqlDAO().histItemAggregateQueryProvider("item0001", "value", false, true, 2, true, "AVG",
+                        87));
+        assertEquals(
+                "SELECT MIN(time), ROUND(AVG(value),2) FROM item0001 WHERE TIME>? AND TIME<? GROUP BY FLOOR(UNIX_TIMESTAMP(time) / 87) ORDER BY 1 ASC",
+                new JdbcMariadbDAO().histItemAggregateQueryProvider("item0001", "value", false, true, 2, true, "AVG",
+                        87));
+        assertEquals(
+                "SELECT MIN(time), ROUND(AVG(value),2) FROM item0001 WHERE TIME>? AND TIME<? GROUP BY FLOOR(UNIX_TIMESTAMP(time) / 87) ORDER BY 1 ASC",
+                new JdbcHsqldbDAO().histItemAggregateQueryProvider("item0001", "value", false, true, 2, true, "AVG",
+                        87));
+        assertEquals(
+                "SELECT MIN(time), CAST(AVG(value) + 0.005 AS DECIMAL(31,2)) FROM ITEM0001 WHERE TIME>? AND TIME<? GROUP BY {fn TIMESTAMPDIFF(SQL_TSI_SECOND, TIMESTAMP('1970-01-01 00:00:00'), time)} / 87 ORDER BY 1 ASC",
+                new JdbcDerbyDAO().histItemAggregateQueryProvider("item0001", "value", false, true, 2, true, "AVG",
+                        87));
+        assertEquals(
+                "SELECT MIN(time), ROUND(AVG(value),2) FROM item0001 WHERE TIME>? AND TIME<? GROUP BY DATEDIFF('SECOND', TIMESTAMP '1970-01-01 00:00:00', time) / 87 ORDER BY 1 ASC",
+                new JdbcH2DAO().histItemAggregateQueryProvider("item0001", "value", false, true, 2, true, "AVG", 87));
+        assertEquals(
+                "SELECT MIN(time), ROUND(CAST (AVG(value) AS numeric),2) FROM item0001 WHERE TIME>? AND TIME<? GROUP BY FLOOR(EXTRACT(EPOCH FROM time) / 87) ORDER BY 1 ASC",
+                new JdbcPostgresqlDAO().histItemAggregateQueryProvider("item0001", "value", false, true, 2, true,
+                        "AVG", 87));
+        assertEquals(
+                "SELECT MIN(time), ROUND(AVG(value),2) FROM item0001 WHERE TIME>? AND TIME<? GROUP BY CAST(strftime('%s', time) AS INTEGER) / 87 ORDER BY 1 ASC",
+                new JdbcSqliteDAO().histItemAggregateQueryProvider("item0001", "value", false, true, 2, true, "AVG",
+                        87));
+    }
+
+    @Test
+    public void testLastValueQueryOfSingleTable() {
+        assertEquals(
+                "SELECT time, value_num FROM item_values WHERE itemid=? AND time IN (SELECT MAX(time) FROM item_values WHERE itemid=? AND TIME>? AND TIME<? GROUP BY FLOOR(EXTRACT(EPOCH FROM time) / 87)) ORDER BY 1 DESC",
+                new JdbcPostgresqlDAO().histItemAggregateQueryProvider("item_values", "value_num", true, false, -1,
+                        false, "LAST", 87));
+    }
+
+    @Test
+    public void testBucketQueriesOnH2() throws SQLException {
+        JdbcBaseDAO dao = new JdbcH2DAO();
+        LocalDateTime begin = BEGIN.toLocalDateTime();
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:aggregation")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE item0001 (time TIMESTAMP NOT NULL, value DOUBLE, PRIMARY KEY(time))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO item0001 VALUES (?, ?)")) {
+                // a value every 10 seconds for 2 minutes
+                for (int i = 0; i < 12; i++) {
+                    insert.setTimestamp(1, Timestamp.valueOf(begin.plusSeconds(i * 10)));
+                    insert.setDouble(2, i);
+                    insert.executeUpdate();
+                }
+            }
+
+            // 30 second buckets hold the values 0-2, 3-5, 6-8 and 9-11
+            assertEquals(List.of("0:1.0", "30:4.0", "60:7.0", "90:10.0"), query(connection, begin,
+                    dao.histItemAggregateQueryProvider("item0001", "value", false, false, -1, true, "AVG", 30)));
+            assertEquals(List.of("90:9.0", "60:6.0", "30:3.0", "0:0.0"), query(connection, begin,
+                    dao.histItemAggregateQueryProvider("item0001", "value", false, false, -1, false, "MIN", 30)));
+            assertEquals(List.of("20:2.0", "50:5.0", "80:8.0", "110:11.0"), query(connection, begin,
+                    dao.histItemAggregateQueryProvider("item0001", "value", false, false, -1, true, "LAST", 30)));
+        }
+    }
+
+    /**
+     * Runs a bucket query of the whole test data and returns "seconds after begin:value" of each row
+     */
+    private static List<String> query(Connection connection, LocalDateTime begin, String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (PreparedStatement query = connection.prepareStatement(sql)) {
+            query.setTimestamp(1, Timestamp.valueOf(begin.minusSeconds(1)));
+            query.setTimestamp(2, Timestamp.valueOf(begin.plusHours(1)));
+            try (ResultSet result = query.executeQuery()) {
+                while (result.next()) {
+                    long seconds = (result.getTimestamp(1).getTime() - Timestamp.valueOf(begin).getTime()) / 1000;
+                    rows.add(seconds + ":" + result.getDouble(2));
+                }
+            }
+        }
+        return rows;
+    }
+}
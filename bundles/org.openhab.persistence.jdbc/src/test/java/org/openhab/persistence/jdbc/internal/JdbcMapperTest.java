@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.openhab.core.items.Item;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
+import org.openhab.persistence.jdbc.model.ItemVO;
+import org.openhab.persistence.jdbc.model.ItemsVO;
+
+/**
+ * Tests the single table layout of the {@link JdbcMapper}.
+ *
+ * @author Helmut Lehmeyer - Initial contribution
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class JdbcMapperTest {
+
+    private static final String SINGLE_TABLE = "item_values";
+
+    private @Mock JdbcConfiguration conf;
+    private @Mock JdbcBaseDAO dao;
+
+    private JdbcMapper mapper;
+    private List<ItemsVO> itemsTable;
+
+    @BeforeEach
+    public void setUp() {
+        itemsTable = new ArrayList<>();
+        itemsTable.add(itemsEntry("knownItem", 1));
+        itemsTable.add(itemsEntry("otherItem", 2));
+
+        when(conf.getDBDAO()).thenReturn(dao);
+        when(conf.getSingleTable()).thenReturn(true);
+        when(conf.getSingleTableName()).thenReturn(SINGLE_TABLE);
+        when(conf.getTableNamePrefix()).thenReturn("item");
+        when(conf.getTableIdDigitCount()).thenReturn(4);
+        when(dao.doGetItemIDTableNames(any())).thenAnswer(invocation -> new ArrayList<>(itemsTable));
+        when(dao.doCreateNewEntryInItemsTable(any())).thenAnswer(invocation -> {
+            ItemsVO vo = invocation.getArgument(0);
+            itemsTable.add(itemsEntry(vo.getItemname(), itemsTable.size() + 1));
+            return (long) itemsTable.size();
+        });
+        when(dao.doPrepareSingleTableValue(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(dao.doStoreSingleTableValues(any())).thenReturn(true);
+
+        mapper = new JdbcMapper();
+        mapper.conf = conf;
+    }
+
+    private static ItemsVO itemsEntry(String itemName, int itemId) {
+        ItemsVO vo = new ItemsVO();
+        vo.setItemname(itemName);
+        vo.setItemid(itemId);
+        return vo;
+    }
+
+    private static Item item(String name) {
+        Item item = mock(Item.class);
+        when(item.getName()).thenReturn(name);
+        return item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ItemVO> storedValues(int times) {
+        ArgumentCaptor<List<ItemVO>> captor = ArgumentCaptor.forClass(List.class);
+        verify(dao, times(times)).doStoreSingleTableValues(captor.capture());
+        List<ItemVO> values = new ArrayList<>();
+        captor.getAllValues().forEach(values::addAll);
+        return values;
+    }
+
+    @Test
+    public void testSchemaCheckReadsItemIds() {
+        mapper.checkDBSchema();
+
+        verify(dao).doCreateSingleTableIfNot(SINGLE_TABLE);
+        verify(dao, never()).doCopyItemTableToSingleTable(anyString(), anyInt(), anyString());
+        assertEquals(1, mapper.itemIds.get("knownItem"));
+        assertEquals(2, mapper.itemIds.get("otherItem"));
+        assertEquals(SINGLE_TABLE, mapper.sqlTables.get("knownItem"));
+    }
+
+    @Test
+    public void testStoreKnownAndNewItems() {
+        mapper.checkDBSchema();
+
+        mapper.storeItemValue(item("knownItem"));
+        mapper.storeItemValue(item("newItem"));
+
+        List<ItemVO> values = storedValues(2);
+        assertEquals(1, values.get(0).getItemId());
+        assertEquals(SINGLE_TABLE, values.get(0).getTableName());
+        assertEquals(3, values.get(1).getItemId());
+        assertEquals(3, mapper.itemIds.get("newItem"));
+        verify(dao, times(1)).doCreateNewEntryInItemsTable(any());
+    }
+
+    @Test
+    public void testStoreItemWithTableButWithoutItemId() {
+        mapper.checkDBSchema();
+        // the item is known, but its id is not (anymore)
+        mapper.itemIds.remove("otherItem");
+
+        mapper.storeItemValue(item("otherItem"));
+
+        assertEquals(2, storedValues(1).get(0).getItemId());
+        // resolved from the items table, no new entry
+        verify(dao, never()).doCreateNewEntryInItemsTable(any());
+    }
+
+    @Test
+    public void testStoreItemMissingInItemsTable() {
+        mapper.checkDBSchema();
+        mapper.itemIds.remove("otherItem");
+        itemsTable.removeIf(vo -> "otherItem".equals(vo.getItemname()));
+
+        mapper.storeItemValue(item("otherItem"));
+
+        assertEquals(2, storedValues(1).get(0).getItemId());
+        verify(dao, times(1)).doCreateNewEntryInItemsTable(any());
+    }
+
+    @Test
+    public void testConcurrentStores() throws Exception {
+        mapper.checkDBSchema();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final Item item = item(i % 2 == 0 ? "knownItem" : "otherItem");
+                futures.add(executor.submit(() -> mapper.storeItemValue(item)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<ItemVO> values = storedValues(200);
+        assertTrue(values.stream().allMatch(vo -> vo.getItemId() == 1 || vo.getItemId() == 2));
+    }
+
+    @Test
+    public void testMigrationCopiesAllItemTables() {
+        when(conf.getMigrateToSingleTable()).thenReturn(true);
+        when(dao.doCopyItemTableToSingleTable(anyString(), anyInt(), anyString())).thenReturn(10L);
+
+        mapper.checkDBSchema();
+
+        verify(dao).doCopyItemTableToSingleTable("item0001", 1, SINGLE_TABLE);
+        verify(dao).doCopyItemTableToSingleTable("item0002", 2, SINGLE_TABLE);
+        assertEquals(1, mapper.itemIds.get("knownItem"));
+        assertEquals(2, mapper.itemIds.get("otherItem"));
+    }
+
+    @Test
+    public void testMigrationWithRealItemNames() {
+        when(conf.getMigrateToSingleTable()).thenReturn(true);
+        when(conf.getTableUseRealItemNames()).thenReturn(true);
+
+        mapper.checkDBSchema();
+
+        verify(dao).doCopyItemTableToSingleTable("knownitem_0001", 1, SINGLE_TABLE);
+        verify(dao).doCopyItemTableToSingleTable("otheritem_0002", 2, SINGLE_TABLE);
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.openhab.persistence.jdbc.internal.JdbcWriteBuffer.BatchWriter;
+import org.openhab.persistence.jdbc.model.ItemVO;
+
+/**
+ * Tests the {@link JdbcWriteBuffer}.
+ *
+ * @author Helmut Lehmeyer - Initial contribution
+ */
+public class JdbcWriteBufferTest {
+
+    private static final int NEVER = 60000;
+
+    /**
+     * Records all written batches, as "table:value" strings
+     */
+    private static class RecordingWriter implements BatchWriter {
+        final List<List<String>> batches = new ArrayList<>();
+
+        @Override
+        public synchronized boolean write(List<ItemVO> values) {
+            batches.add(values.stream().map(vo -> vo.getTableName() + ":" + vo.getValue())
+                    .collect(Collectors.toList()));
+            return true;
+        }
+    }
+
+    private static ItemVO value(String table, int itemId, long time, Object value) {
+        ItemVO vo = new ItemVO(table, null);
+        vo.setItemId(itemId);
+        vo.setTime(new Date(time));
+        vo.setValue(value);
+        return vo;
+    }
+
+    @Test
+    public void testValuesAreWrittenPerTableInOrder() {
+        RecordingWriter writer = new RecordingWriter();
+        JdbcWriteBuffer buffer = new JdbcWriteBuffer(writer, 100, NEVER, 100);
+
+        buffer.add(value("item1", 0, 1, "a1"));
+        buffer.add(value("item2", 0, 1, "b1"));
+        buffer.add(value("item1", 0, 2, "a2"));
+        buffer.add(value("item1", 0, 3, "a3"));
+        buffer.shutdown();
+
+        assertEquals(List.of(List.of("item1:a1", "item1:a2", "item1:a3"), List.of("item2:b1")), writer.batches);
+        assertEquals(4, buffer.getWrittenCount());
+        assertEquals(1, buffer.getFlushCount());
+    }
+
+    @Test
+    public void testSameItemAndTimeIsWrittenOnce() {
+        RecordingWriter writer = new RecordingWriter();
+        JdbcWriteBuffer buffer = new JdbcWriteBuffer(writer, 100, NEVER, 100);
+
+        buffer.add(value("item1", 0, 1, "first"));
+        buffer.add(value("item1", 0, 2, "other"));
+        // not consecutive, but would violate the primary key as well
+        buffer.add(value("item1", 0, 1, "last"));
+        // single table, other items may have the same time
+        buffer.add(value("items", 1, 1, "x"));
+        buffer.add(value("items", 2, 1, "y"));
+        buffer.shutdown();
+
+        assertEquals(List.of(List.of("item1:last", "item1:other"), List.of("items:x", "items:y")), writer.batches);
+        assertEquals(4, buffer.getWrittenCount());
+        assertEquals(0, buffer.getFailedCount());
+    }
+
+    @Test
+    public void testPendingValuesAreWrittenOnShutdown() {
+        RecordingWriter writer = new RecordingWriter();
+        JdbcWriteBuffer buffer = new JdbcWriteBuffer(writer, 100, NEVER, 100);
+
+        buffer.add(value("item1", 0, 1, "a1"));
+        buffer.add(value("item1", 0, 2, "a2"));
+        assertEquals(2, buffer.getQueueDepth());
+        assertTrue(writer.batches.isEmpty());
+
+        buffer.shutdown();
+
+        assertEquals(0, buffer.getQueueDepth());
+        assertEquals(List.of(List.of("item1:a1", "item1:a2")), writer.batches);
+    }
+
+    @Test
+    public void testRejectedBatchIsWrittenOneByOne() {
+        RecordingWriter writer = new RecordingWriter() {
+            @Override
+            public synchronized boolean write(List<ItemVO> values) {
+                // a batch with a colliding value is rejected as a whole
+                if (values.stream().anyMatch(vo -> "collision".equals(vo.getValue()))) {
+                    return false;
+                }
+                return super.write(values);
+            }
+        };
+        JdbcWriteBuffer buffer = new JdbcWriteBuffer(writer, 100, NEVER, 100);
+
+        buffer.add(value("item1", 0, 1, "a1"));
+        buffer.add(value("item1", 0, 2, "collision"));
+        buffer.add(value("item1", 0, 3, "a3"));
+        buffer.add(value("item2", 0, 1, "b1"));
+        buffer.shutdown();
+
+        assertEquals(List.of(List.of("item1:a1"), List.of("item1:a3"), List.of("item2:b1")), writer.batches);
+        assertEquals(3, buffer.getWrittenCount());
+        assertEquals(1, buffer.getFailedCount());
+    }
+
+    @Test
+    public void testFailingDatabaseIsNotCountedAsWritten() {
+        JdbcWriteBuffer buffer = new JdbcWriteBuffer(values -> {
+            throw new IllegalStateException("database gone");
+        }, 100, NEVER, 100);
+
+        buffer.add(value("item1", 0, 1, "a1"));
+        buffer.add(value("item1", 0, 2, "a2"));
+        buffer.add(value("item2", 0, 1, "b1"));
+        buffer.shutdown();
+
+        assertEquals(0, buffer.getWrittenCount());
+        assertEquals(3, buffer.getFailedCount());
+    }
+
+    @Test
+    public void testFullBatchIsWrittenWithoutWaitingForTheInterval() throws InterruptedException {
+        RecordingWriter writer = new RecordingWriter();
+        JdbcWriteBuffer buffer = new JdbcWriteBuffer(writer, 2, NEVER, 100);
+
+        buffer.add(value("item1", 0, 1, "a1"));
+        buffer.add(value("item1", 0, 2, "a2"));
+        for (int i = 0; i < 100 && buffer.getWrittenCount() < 2; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, buffer.getWrittenCount());
+        buffer.shutdown();
+    }
+}
@@ -13,24 +13,39 @@
 package org.openhab.persistence.mapdb.internal;
 
 import java.io.File;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.mapdb.BTreeKeySerializer;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
+import org.mapdb.Fun;
+import org.mapdb.Serializer;
 import org.openhab.core.OpenHAB;
 import org.openhab.core.common.ThreadPoolManager;
+import org.openhab.core.config.core.ConfigurableService;
 import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Operator;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceItemInfo;
 import org.openhab.core.persistence.PersistenceService;
@@ -38,8 +53,10 @@ import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.strategy.PersistenceStrategy;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
+import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
 import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,35 +68,65 @@ import com.google.gson.GsonBuilder;
  * This is the implementation of the MapDB {@link PersistenceService}. To learn more about MapDB please visit their
  * <a href="http://www.mapdb.org/">website</a>.
  *
+ * By default only the last state of every item is kept. With 'history=true', every stored state is additionally
+ * appended to a tree map keyed by item name and timestamp, so that the service can answer range queries. History
+ * entries older than 'historyRetention' days are removed. History keys have millisecond resolution, a state stored in
+ * the same millisecond as the previous one of the item is stored one millisecond later. By default every stored
+ * state is committed, with 'commitInterval' commits are grouped and written every 'commitInterval' milliseconds.
+ *
  * @author Jens Viebig - Initial contribution
  * @author Martin Kühl - Port to 3.x
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class, QueryablePersistenceService.class })
+@Component(service = { PersistenceService.class,
+        QueryablePersistenceService.class }, configurationPid = "org.openhab.mapdb", configurationPolicy = ConfigurationPolicy.OPTIONAL, //
+        property = Constants.SERVICE_PID + "=org.openhab.mapdb")
+@ConfigurableService(category = "persistence", label = "MapDB Persistence Service", description_uri = MapDbPersistenceService.CONFIG_URI)
 public class MapDbPersistenceService implements QueryablePersistenceService {
 
+    protected static final String CONFIG_URI = "persistence:mapdb";
+
     private static final String SERVICE_ID = "mapdb";
     private static final String SERVICE_LABEL = "MapDB";
     private static final String DB_FOLDER_NAME = OpenHAB.getUserDataFolder() + File.separator + "persistence"
             + File.separator + "mapdb";
     private static final String DB_FILE_NAME = "storage.mapdb";
 
+    private static final String CONFIG_HISTORY = "history";
+    private static final String CONFIG_HISTORY_RETENTION = "historyRetention";
+    private static final String CONFIG_COMMIT_INTERVAL = "commitInterval";
+    private static final int DEFAULT_HISTORY_RETENTION = 30;
+    private static final int DEFAULT_COMMIT_INTERVAL = 0;
+
     private final Logger logger = LoggerFactory.getLogger(MapDbPersistenceService.class);
 
     private final ExecutorService threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
+    private final ScheduledExecutorService scheduler = ThreadPoolManager
+            .getScheduledPool(getClass().getSimpleName());
 
     /** holds the local instance of the MapDB database */
 
     private @NonNullByDefault({}) DB db;
     private @NonNullByDefault({}) Map<String, String> map;
+    private @Nullable NavigableMap<Fun.Tuple2<String, Long>, byte[]> history;
+
+    private int historyRetention = DEFAULT_HISTORY_RETENTION;
+    private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private final AtomicBoolean commitPending = new AtomicBoolean();
+    private @Nullable ScheduledFuture<?> commitJob;
+    private @Nullable ScheduledFuture<?> retentionJob;
 
     private transient Gson mapper = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
             .create();
 
     @Activate
-    public void activate() {
+    public void activate(final Map<String, Object> config) {
         logger.debug("MapDB persistence service is being activated");
 
+        boolean historyEnabled = Boolean.parseBoolean(String.valueOf(config.get(CONFIG_HISTORY)));
+        historyRetention = getConfigIntValue(config, CONFIG_HISTORY_RETENTION, DEFAULT_HISTORY_RETENTION);
+        commitInterval = getConfigIntValue(config, CONFIG_COMMIT_INTERVAL, DEFAULT_COMMIT_INTERVAL);
+
         File folder = new File(DB_FOLDER_NAME);
         if (!folder.exists()) {
             if (!folder.mkdirs()) {
@@ -92,17 +139,53 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         File dbFile = new File(DB_FOLDER_NAME, DB_FILE_NAME);
         db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
         map = db.createTreeMap("itemStore").makeOrGet();
-        logger.debug("MapDB persistence service is now activated");
+        if (historyEnabled) {
+            history = db.createTreeMap("itemHistory").keySerializer(BTreeKeySerializer.TUPLE2)
+                    .valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+            if (historyRetention > 0) {
+                retentionJob = scheduler.scheduleWithFixedDelay(this::removeExpiredHistory, 1, 60, TimeUnit.MINUTES);
+            }
+        }
+        if (commitInterval > 0) {
+            commitJob = scheduler.scheduleWithFixedDelay(this::commitPending, commitInterval, commitInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+        logger.debug("MapDB persistence service is now activated (history: {}, retention: {} days, commit: {} ms)",
+                historyEnabled, historyRetention, commitInterval);
     }
 
     @Deactivate
     public void deactivate() {
         logger.debug("MapDB persistence service deactivated");
+        ScheduledFuture<?> job = commitJob;
+        if (job != null) {
+            job.cancel(false);
+            commitJob = null;
+        }
+        job = retentionJob;
+        if (job != null) {
+            job.cancel(false);
+            retentionJob = null;
+        }
         if (db != null) {
+            commitPending();
             db.close();
         }
     }
 
+    private int getConfigIntValue(final Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value == null || value.toString().isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring illegal value '{}' for '{}', using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
     @Override
     public String getId() {
         return SERVICE_ID;
@@ -135,12 +218,22 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         logger.debug("store called for {}", localAlias);
 
         State state = item.getState();
+        Date now = new Date();
         MapDbItem mItem = new MapDbItem();
         mItem.setName(localAlias);
         mItem.setState(state);
-        mItem.setTimestamp(new Date());
+        mItem.setTimestamp(now);
         String json = serialize(mItem);
         map.put(localAlias, json);
+        NavigableMap<Fun.Tuple2<String, Long>, byte[]> localHistory = history;
+        if (localHistory != null) {
+            byte[] value = StateBinarySerializer.serialize(state);
+            long time = now.getTime();
+            // keep states stored within the same millisecond, in the order they were stored
+            while (localHistory.putIfAbsent(Fun.t2(localAlias, time), value) != null) {
+                time++;
+            }
+        }
         commit();
         if (logger.isDebugEnabled()) {
             logger.debug("Stored '{}' with state '{}' as '{}' in MapDB database", localAlias, state, json);
@@ -149,6 +242,15 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
+        NavigableMap<Fun.Tuple2<String, Long>, byte[]> localHistory = history;
+        if (localHistory != null && filter.getItemName() != null) {
+            List<HistoricItem> items = queryHistory(localHistory, filter);
+            // fall back to the last state for items which have been stored before the history was enabled
+            if (!items.isEmpty() || filter.getBeginDate() != null) {
+                return items;
+            }
+        }
+
         String json = map.get(filter.getItemName());
         if (json == null) {
             return List.of();
@@ -174,8 +276,117 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         return Optional.of(item);
     }
 
+    private List<HistoricItem> queryHistory(NavigableMap<Fun.Tuple2<String, Long>, byte[]> localHistory,
+            FilterCriteria filter) {
+        String name = filter.getItemName();
+        ZonedDateTime begin = filter.getBeginDate();
+        ZonedDateTime end = filter.getEndDate();
+        long beginTime = begin == null ? Long.MIN_VALUE : begin.toInstant().toEpochMilli();
+        long endTime = end == null ? Long.MAX_VALUE : end.toInstant().toEpochMilli();
+
+        NavigableMap<Fun.Tuple2<String, Long>, byte[]> range = localHistory.subMap(Fun.t2(name, beginTime), true,
+                Fun.t2(name, endTime), true);
+        if (filter.getOrdering() == Ordering.DESCENDING) {
+            range = range.descendingMap();
+        }
+
+        List<HistoricItem> items = new ArrayList<>();
+        long skip = (long) filter.getPageNumber() * filter.getPageSize();
+        for (Map.Entry<Fun.Tuple2<String, Long>, byte[]> entry : range.entrySet()) {
+            State state = StateBinarySerializer.deserialize(entry.getValue());
+            if (state == null || !matches(state, filter)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            MapDbItem item = new MapDbItem();
+            item.setName(name);
+            item.setState(state);
+            item.setTimestamp(new Date(entry.getKey().b));
+            items.add(item);
+            if (items.size() >= filter.getPageSize()) {
+                break;
+            }
+        }
+        return items;
+    }
+
+    private boolean matches(State state, FilterCriteria filter) {
+        State filterState = filter.getState();
+        Operator operator = filter.getOperator();
+        if (filterState == null || operator == null) {
+            return true;
+        }
+        if (operator == Operator.EQ) {
+            return state.equals(filterState);
+        } else if (operator == Operator.NEQ) {
+            return !state.equals(filterState);
+        }
+        DecimalType value = state.as(DecimalType.class);
+        DecimalType filterValue = filterState.as(DecimalType.class);
+        if (value == null || filterValue == null) {
+            return false;
+        }
+        int result = value.compareTo(filterValue);
+        switch (operator) {
+            case GT:
+                return result > 0;
+            case GTE:
+                return result >= 0;
+            case LT:
+                return result < 0;
+            case LTE:
+                return result <= 0;
+            default:
+                return false;
+        }
+    }
+
+    private void removeExpiredHistory() {
+        NavigableMap<Fun.Tuple2<String, Long>, byte[]> localHistory = history;
+        if (localHistory == null || localHistory.isEmpty()) {
+            return;
+        }
+        long expiry = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(historyRetention);
+        int removed = 0;
+        Fun.Tuple2<String, Long> key = localHistory.firstKey();
+        while (key != null) {
+            String name = key.a;
+            Iterator<Fun.Tuple2<String, Long>> expired = localHistory
+                    .subMap(Fun.t2(name, Long.MIN_VALUE), true, Fun.t2(name, expiry), false).keySet().iterator();
+            while (expired.hasNext()) {
+                expired.next();
+                expired.remove();
+                removed++;
+            }
+            // continue with the next item
+            key = localHistory.higherKey(Fun.t2(name, Long.MAX_VALUE));
+        }
+        if (removed > 0) {
+            logger.debug("Removed {} history entries older than {} days", removed, historyRetention);
+            commit();
+        }
+    }
+
     private void commit() {
-        threadPool.submit(() -> db.commit());
+        if (commitInterval > 0) {
+            // written by the commit job
+            commitPending.set(true);
+        } else {
+            threadPool.submit(() -> db.commit());
+        }
+    }
+
+    private void commitPending() {
+        if (commitPending.getAndSet(false)) {
+            try {
+                db.commit();
+            } catch (RuntimeException e) {
+                logger.warn("Committing MapDB database failed: {}", e.getMessage());
+            }
+        }
     }
 
     private static <T> Stream<T> streamOptional(Optional<T> opt) {
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.TypeParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A compact binary format for openHAB State values, used for the history entries.
+ *
+ * Every value starts with a type byte. The common state types are written without their class name, decimals are
+ * written as scale and unscaled value if they fit into a long. All other states are written like in
+ * {@link StateTypeAdapter}, as class name and full string.
+ *
+ * @author Jens Viebig - Initial contribution
+ */
+@NonNullByDefault
+public class StateBinarySerializer {
+
+    private static final byte TYPE_GENERIC = 0;
+    private static final byte TYPE_DECIMAL = 1;
+    private static final byte TYPE_PERCENT = 2;
+    private static final byte TYPE_QUANTITY = 3;
+    private static final byte TYPE_STRING = 4;
+    private static final byte TYPE_ON = 5;
+    private static final byte TYPE_OFF = 6;
+    private static final byte TYPE_OPEN = 7;
+    private static final byte TYPE_CLOSED = 8;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StateBinarySerializer.class);
+
+    private StateBinarySerializer() {
+    }
+
+    public static byte[] serialize(State state) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            // exact class checks, e.g. HSBType is a PercentType
+            Class<?> type = state.getClass();
+            if (state == OnOffType.ON) {
+                out.writeByte(TYPE_ON);
+            } else if (state == OnOffType.OFF) {
+                out.writeByte(TYPE_OFF);
+            } else if (state == OpenClosedType.OPEN) {
+                out.writeByte(TYPE_OPEN);
+            } else if (state == OpenClosedType.CLOSED) {
+                out.writeByte(TYPE_CLOSED);
+            } else if (type == DecimalType.class && fitsLong(((DecimalType) state).toBigDecimal())) {
+                out.writeByte(TYPE_DECIMAL);
+                writeDecimal(out, ((DecimalType) state).toBigDecimal());
+            } else if (type == PercentType.class && fitsLong(((PercentType) state).toBigDecimal())) {
+                out.writeByte(TYPE_PERCENT);
+                writeDecimal(out, ((PercentType) state).toBigDecimal());
+            } else if (type == QuantityType.class) {
+                out.writeByte(TYPE_QUANTITY);
+                writeString(out, state.toFullString());
+            } else if (type == StringType.class) {
+                out.writeByte(TYPE_STRING);
+                writeString(out, state.toFullString());
+            } else {
+                out.writeByte(TYPE_GENERIC);
+                writeString(out, type.getName());
+                writeString(out, state.toFullString());
+            }
+        } catch (IOException e) {
+            // can not happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static @Nullable State deserialize(byte[] value) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_ON:
+                    return OnOffType.ON;
+                case TYPE_OFF:
+                    return OnOffType.OFF;
+                case TYPE_OPEN:
+                    return OpenClosedType.OPEN;
+                case TYPE_CLOSED:
+                    return OpenClosedType.CLOSED;
+                case TYPE_DECIMAL:
+                    return new DecimalType(readDecimal(in));
+                case TYPE_PERCENT:
+                    return new PercentType(readDecimal(in));
+                case TYPE_QUANTITY:
+                    return new QuantityType<>(readString(in));
+                case TYPE_STRING:
+                    return new StringType(readString(in));
+                case TYPE_GENERIC:
+                    String valueTypeName = readString(in);
+                    String valueAsString = readString(in);
+                    @SuppressWarnings("unchecked")
+                    Class<? extends State> valueType = (Class<? extends State>) Class.forName(valueTypeName);
+                    return TypeParser.parseState(List.of(valueType), valueAsString);
+                default:
+                    LOGGER.warn("Couldn't deserialize state: unknown type {}", type);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Couldn't deserialize state: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private static boolean fitsLong(BigDecimal value) {
+        return value.unscaledValue().bitLength() < Long.SIZE && value.scale() >= Short.MIN_VALUE
+                && value.scale() <= Short.MAX_VALUE;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        out.writeShort(value.scale());
+        out.writeLong(value.unscaledValue().longValue());
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readShort();
+        return new BigDecimal(BigInteger.valueOf(in.readLong()), scale);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
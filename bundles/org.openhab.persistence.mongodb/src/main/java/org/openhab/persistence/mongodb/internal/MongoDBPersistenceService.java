@@ -17,14 +17,24 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import org.bson.types.ObjectId;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.ThreadPoolManager;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
@@ -50,6 +60,7 @@ import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.strategy.PersistenceStrategy;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
+import org.openhab.persistence.mongodb.internal.MongoDBQueryResult.ChunkReader;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -59,7 +70,12 @@ import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
@@ -69,6 +85,10 @@ import com.mongodb.MongoClientURI;
 /**
  * This is the implementation of the MongoDB {@link PersistenceService}.
  *
+ * Documents are either written one by one or, if 'batchSize' is configured, buffered and written as unordered bulk
+ * writes. With 'buckets=true' the samples of an item are packed into one document per hour, which is stored in a
+ * separate collection. Queries read both collections, so the samples written before are still found.
+ *
  * @author Thorsten Hoeger - Initial contribution
  */
 @NonNullByDefault
@@ -79,8 +99,15 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
     private static final String FIELD_ID = "_id";
     private static final String FIELD_ITEM = "item";
     private static final String FIELD_REALNAME = "realName";
-    private static final String FIELD_TIMESTAMP = "timestamp";
+    static final String FIELD_TIMESTAMP = "timestamp";
     private static final String FIELD_VALUE = "value";
+    private static final String FIELD_START = "start";
+    private static final String FIELD_COUNT = "count";
+    static final String FIELD_SAMPLES = "samples";
+
+    private static final String BUCKET_COLLECTION_SUFFIX = "_buckets";
+    private static final long BUCKET_DURATION = TimeUnit.HOURS.toMillis(1);
+    private static final int DEFAULT_BATCH_INTERVAL = 1000;
 
     private final Logger logger = LoggerFactory.getLogger(MongoDBPersistenceService.class);
 
@@ -89,11 +116,23 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
     private @NonNullByDefault({}) String collection;
 
     private boolean initialized = false;
+    private boolean buckets = false;
+
+    // buffered documents, written by the scheduler if 'batchSize' is configured
+    private final ScheduledExecutorService scheduler = ThreadPoolManager.getScheduledPool("persistence");
+    private final Queue<DBObject> pendingDocuments = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private int batchSize;
+    private int batchQueueSize;
+    private @Nullable ScheduledFuture<?> flushJob;
 
     protected final ItemRegistry itemRegistry;
 
-    private @NonNullByDefault({}) MongoClient cl;
-    private @NonNullByDefault({}) DBCollection mongoCollection;
+    private volatile @NonNullByDefault({}) MongoClient cl;
+    private volatile @NonNullByDefault({}) DBCollection mongoCollection;
+    // the hourly buckets, only used with 'buckets=true'
+    private volatile @Nullable DBCollection bucketCollection;
 
     @Activate
     public MongoDBPersistenceService(final @Reference ItemRegistry itemRegistry) {
@@ -122,9 +161,23 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
             return;
         }
 
+        buckets = Boolean.parseBoolean(String.valueOf(config.get("buckets")));
+        logger.debug("MongoDB time-series buckets {}", buckets);
+
         disconnectFromDatabase();
         connectToDatabase();
 
+        batchSize = Math.max(0, getConfigIntValue(config, "batchSize", 0));
+        if (batchSize > 0) {
+            int batchInterval = Math.max(1, getConfigIntValue(config, "batchInterval", DEFAULT_BATCH_INTERVAL));
+            int queueSize = getConfigIntValue(config, "batchQueueSize", 0);
+            batchQueueSize = queueSize > 0 ? Math.max(queueSize, batchSize) : batchSize * 10;
+            flushJob = scheduler.scheduleWithFixedDelay(this::flushDocuments, batchInterval, batchInterval,
+                    TimeUnit.MILLISECONDS);
+            logger.debug("MongoDB bulk writes with batchSize={} batchInterval={} ms batchQueueSize={}", batchSize,
+                    batchInterval, batchQueueSize);
+        }
+
         // connection has been established... initialization completed!
         initialized = true;
     }
@@ -132,9 +185,29 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
     @Deactivate
     public void deactivate(final int reason) {
         logger.debug("MongoDB persistence bundle stopping. Disconnecting from database.");
+        ScheduledFuture<?> job = flushJob;
+        if (job != null) {
+            job.cancel(false);
+            flushJob = null;
+            // write what is left
+            flushDocuments();
+        }
         disconnectFromDatabase();
     }
 
+    private int getConfigIntValue(final Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value == null || value.toString().isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring illegal value '{}' for mongodb:{}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
     @Override
     public String getId() {
         return "mongodb";
@@ -181,11 +254,119 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
         obj.put(FIELD_REALNAME, realName);
         obj.put(FIELD_TIMESTAMP, new Date());
         obj.put(FIELD_VALUE, value);
-        this.mongoCollection.save(obj);
+
+        if (batchSize > 0) {
+            bufferDocument(obj);
+        } else if (buckets) {
+            writeDocuments(List.of(obj));
+        } else {
+            this.mongoCollection.save(obj);
+        }
 
         logger.debug("MongoDB save {}={}", name, value);
     }
 
+    /**
+     * Adds a document to the documents written by the next bulk write. If the database can not keep up and
+     * 'batchQueueSize' documents are pending, the document is dropped.
+     */
+    private void bufferDocument(DBObject document) {
+        if (pendingCount.incrementAndGet() > batchQueueSize) {
+            pendingCount.decrementAndGet();
+            logger.warn("MongoDB write queue is full, dropped update of {}", document.get(FIELD_ITEM));
+            return;
+        }
+        pendingDocuments.add(document);
+        if (pendingCount.get() >= batchSize && flushPending.compareAndSet(false, true)) {
+            scheduler.execute(this::flushDocuments);
+        }
+    }
+
+    /**
+     * Writes the buffered documents in bulk writes of at most 'batchSize' documents.
+     */
+    private synchronized void flushDocuments() {
+        flushPending.set(false);
+        while (true) {
+            List<DBObject> documents = new ArrayList<>(batchSize);
+            DBObject document;
+            while (documents.size() < batchSize && (document = pendingDocuments.poll()) != null) {
+                documents.add(document);
+            }
+            if (documents.isEmpty()) {
+                return;
+            }
+            pendingCount.addAndGet(-documents.size());
+            try {
+                writeDocuments(documents);
+            } catch (RuntimeException e) {
+                // the documents are lost, the next bulk write may succeed again
+                logger.warn("MongoDB bulk write of {} documents failed: {}", documents.size(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes sample documents as one unordered bulk write, either as documents or into the hourly buckets.
+     * Does not connect to the database, as this is done by the storing thread.
+     */
+    private void writeDocuments(List<DBObject> documents) {
+        DBCollection collection = buckets ? bucketCollection : mongoCollection;
+        if (collection == null) {
+            logger.warn("MongoDB: No connection to database, dropped {} documents", documents.size());
+            return;
+        }
+        BulkWriteOperation bulk = collection.initializeUnorderedBulkOperation();
+        // number of documents in each write of the bulk operation
+        List<Integer> writeSizes = new ArrayList<>(documents.size());
+        if (buckets) {
+            // one update per item and hour
+            Map<String, List<DBObject>> bucketDocuments = new LinkedHashMap<>();
+            for (DBObject document : documents) {
+                long start = getBucketStart((Date) document.get(FIELD_TIMESTAMP));
+                bucketDocuments.computeIfAbsent(document.get(FIELD_ITEM) + "/" + start, k -> new ArrayList<>())
+                        .add(document);
+            }
+            for (List<DBObject> bucket : bucketDocuments.values()) {
+                DBObject first = bucket.get(0);
+                BasicDBList samples = new BasicDBList();
+                for (DBObject document : bucket) {
+                    samples.add(new BasicDBObject(FIELD_TIMESTAMP, document.get(FIELD_TIMESTAMP)).append(FIELD_VALUE,
+                            document.get(FIELD_VALUE)));
+                }
+                DBObject query = new BasicDBObject(FIELD_ITEM, first.get(FIELD_ITEM)).append(FIELD_START,
+                        new Date(getBucketStart((Date) first.get(FIELD_TIMESTAMP))));
+                DBObject update = new BasicDBObject("$push",
+                        new BasicDBObject(FIELD_SAMPLES, new BasicDBObject("$each", samples)))
+                                .append("$inc", new BasicDBObject(FIELD_COUNT, bucket.size()))
+                                .append("$setOnInsert", new BasicDBObject(FIELD_REALNAME, first.get(FIELD_REALNAME)));
+                bulk.find(query).upsert().updateOne(update);
+                writeSizes.add(bucket.size());
+            }
+        } else {
+            for (DBObject document : documents) {
+                bulk.insert(document);
+                writeSizes.add(1);
+            }
+        }
+        try {
+            BulkWriteResult result = bulk.execute();
+            logger.trace("MongoDB bulk write of {} documents: {}", documents.size(), result);
+        } catch (BulkWriteException e) {
+            // unordered, all other documents have been written
+            int failed = 0;
+            for (BulkWriteError error : e.getWriteErrors()) {
+                failed += writeSizes.get(error.getIndex());
+            }
+            logger.warn("MongoDB bulk write: {} of {} documents failed, first error: {}", failed, documents.size(),
+                    e.getWriteErrors().get(0).getMessage());
+        }
+    }
+
+    private static long getBucketStart(Date timestamp) {
+        return timestamp.getTime() - Math.floorMod(timestamp.getTime(), BUCKET_DURATION);
+    }
+
     private Object convertValue(State state) {
         Object value;
         if (state instanceof PercentType) {
@@ -228,12 +409,22 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
     private void connectToDatabase() {
         try {
             logger.debug("Connect MongoDB");
-            this.cl = new MongoClient(new MongoClientURI(this.url));
-            mongoCollection = cl.getDB(this.db).getCollection(this.collection);
+            MongoClient cl = new MongoClient(new MongoClientURI(this.url));
+            DBCollection mongoCollection = cl.getDB(this.db).getCollection(this.collection);
 
             BasicDBObject idx = new BasicDBObject();
             idx.append(FIELD_TIMESTAMP, 1).append(FIELD_ITEM, 1);
-            this.mongoCollection.createIndex(idx);
+            mongoCollection.createIndex(idx);
+            // used for the queries of a single item
+            mongoCollection.createIndex(new BasicDBObject(FIELD_ITEM, 1).append(FIELD_TIMESTAMP, 1));
+            if (buckets) {
+                DBCollection bucketCollection = cl.getDB(this.db)
+                        .getCollection(this.collection + BUCKET_COLLECTION_SUFFIX);
+                bucketCollection.createIndex(new BasicDBObject(FIELD_ITEM, 1).append(FIELD_START, 1));
+                this.bucketCollection = bucketCollection;
+            }
+            this.mongoCollection = mongoCollection;
+            this.cl = cl;
             logger.debug("Connect MongoDB ... done");
         } catch (Exception e) {
             logger.error("Failed to connect to database {}", this.url);
@@ -246,6 +437,7 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
      */
     private void disconnectFromDatabase() {
         this.mongoCollection = null;
+        this.bucketCollection = null;
         if (this.cl != null) {
             this.cl.close();
         }
@@ -262,15 +454,15 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
             connectToDatabase();
         }
 
-        if (!isConnected()) {
+        DBCollection mongoCollection = this.mongoCollection;
+        if (mongoCollection == null) {
             return Collections.emptyList();
         }
 
         String name = filter.getItemName();
         Item item = getItem(name);
 
-        List<HistoricItem> items = new ArrayList<>();
-        DBObject query = new BasicDBObject();
+        BasicDBObject query = new BasicDBObject();
         if (filter.getItemName() != null) {
             query.put(FIELD_ITEM, filter.getItemName());
         }
@@ -279,43 +471,144 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
             Object value = convertValue(filter.getState());
             query.put(FIELD_VALUE, new BasicDBObject(op, value));
         }
+        BasicDBObject timestamp = new BasicDBObject();
         if (filter.getBeginDate() != null) {
-            query.put(FIELD_TIMESTAMP, new BasicDBObject("$gte", filter.getBeginDate()));
+            timestamp.put("$gte", Date.from(filter.getBeginDate().toInstant()));
         }
-        if (filter.getBeginDate() != null) {
-            query.put(FIELD_TIMESTAMP, new BasicDBObject("$lte", filter.getBeginDate()));
-        }
-
-        Integer sortDir = (filter.getOrdering() == Ordering.ASCENDING) ? 1 : -1;
-        DBCursor cursor = this.mongoCollection.find(query).sort(new BasicDBObject(FIELD_TIMESTAMP, sortDir))
-                .skip(filter.getPageNumber() * filter.getPageSize()).limit(filter.getPageSize());
-
-        while (cursor.hasNext()) {
-            BasicDBObject obj = (BasicDBObject) cursor.next();
-
-            final State state;
-            if (item instanceof NumberItem) {
-                state = new DecimalType(obj.getDouble(FIELD_VALUE));
-            } else if (item instanceof DimmerItem) {
-                state = new PercentType(obj.getInt(FIELD_VALUE));
-            } else if (item instanceof SwitchItem) {
-                state = OnOffType.valueOf(obj.getString(FIELD_VALUE));
-            } else if (item instanceof ContactItem) {
-                state = OpenClosedType.valueOf(obj.getString(FIELD_VALUE));
-            } else if (item instanceof RollershutterItem) {
-                state = new PercentType(obj.getInt(FIELD_VALUE));
-            } else if (item instanceof DateTimeItem) {
-                state = new DateTimeType(
-                        ZonedDateTime.ofInstant(obj.getDate(FIELD_VALUE).toInstant(), ZoneId.systemDefault()));
-            } else {
-                state = new StringType(obj.getString(FIELD_VALUE));
+        if (filter.getEndDate() != null) {
+            timestamp.put("$lte", Date.from(filter.getEndDate().toInstant()));
+        }
+        if (!timestamp.isEmpty()) {
+            query.put(FIELD_TIMESTAMP, timestamp);
+        }
+
+        boolean ascending = filter.getOrdering() == Ordering.ASCENDING;
+        Integer sortDir = ascending ? 1 : -1;
+        DBObject sort = new BasicDBObject(FIELD_TIMESTAMP, sortDir).append(FIELD_ID, sortDir);
+        String after = ascending ? "$gt" : "$lt";
+
+        ChunkReader documents = (last, skip, limit) -> {
+            DBObject chunkQuery = query;
+            if (last != null) {
+                // continue after the last document read, documents with the same timestamp are ordered by id
+                BasicDBList next = new BasicDBList();
+                next.add(new BasicDBObject(FIELD_TIMESTAMP, new BasicDBObject(after, last.get(FIELD_TIMESTAMP))));
+                next.add(new BasicDBObject(FIELD_TIMESTAMP, last.get(FIELD_TIMESTAMP)).append(FIELD_ID,
+                        new BasicDBObject(after, last.get(FIELD_ID))));
+                BasicDBList and = new BasicDBList();
+                and.add(query);
+                and.add(new BasicDBObject("$or", next));
+                chunkQuery = new BasicDBObject("$and", and);
+            }
+            return find(mongoCollection, chunkQuery, sort, skip, limit);
+        };
+
+        ChunkReader bucketDocuments = null;
+        DBCollection bucketCollection = this.bucketCollection;
+        if (bucketCollection != null) {
+            BasicDBObject bucketQuery = new BasicDBObject(FIELD_ITEM, name);
+            BasicDBObject start = new BasicDBObject();
+            if (filter.getBeginDate() != null) {
+                start.put("$gte", new Date(getBucketStart(Date.from(filter.getBeginDate().toInstant()))));
+            }
+            if (filter.getEndDate() != null) {
+                start.put("$lte", Date.from(filter.getEndDate().toInstant()));
+            }
+            if (!start.isEmpty()) {
+                bucketQuery.put(FIELD_START, start);
             }
+            DBObject bucketSort = new BasicDBObject(FIELD_START, sortDir);
+            bucketDocuments = (last, skip, limit) -> {
+                DBObject chunkQuery = bucketQuery;
+                if (last != null) {
+                    // there is only one bucket per item and hour
+                    BasicDBList and = new BasicDBList();
+                    and.add(bucketQuery);
+                    and.add(new BasicDBObject(FIELD_START, new BasicDBObject(after, last.get(FIELD_START))));
+                    chunkQuery = new BasicDBObject("$and", and);
+                }
+                return find(bucketCollection, chunkQuery, bucketSort, skip, limit);
+            };
+        }
+
+        return new MongoDBQueryResult(documents, bucketDocuments, getSampleFilter(filter), ascending,
+                (long) filter.getPageNumber() * filter.getPageSize(), filter.getPageSize(),
+                obj -> new MongoDBItem(name, convertState(item, (BasicDBObject) obj), ZonedDateTime
+                        .ofInstant(((Date) obj.get(FIELD_TIMESTAMP)).toInstant(), ZoneId.systemDefault())));
+    }
+
+    private List<DBObject> find(DBCollection collection, DBObject query, DBObject sort, int skip, int limit) {
+        DBCursor cursor = collection.find(query).sort(sort).skip(skip).limit(limit);
+        try {
+            return cursor.toArray();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns the filter of the samples in the buckets, which are not filtered by the database.
+     */
+    private Predicate<DBObject> getSampleFilter(FilterCriteria filter) {
+        Date begin = filter.getBeginDate() == null ? null : Date.from(filter.getBeginDate().toInstant());
+        Date end = filter.getEndDate() == null ? null : Date.from(filter.getEndDate().toInstant());
+        Operator operator = filter.getOperator();
+        Object filterValue = filter.getState() == null || operator == null ? null : convertValue(filter.getState());
+        return sample -> {
+            Date timestamp = (Date) sample.get(FIELD_TIMESTAMP);
+            return (begin == null || !timestamp.before(begin)) && (end == null || !timestamp.after(end))
+                    && (filterValue == null || matches(sample.get(FIELD_VALUE), operator, filterValue));
+        };
+    }
 
-            items.add(new MongoDBItem(name, state,
-                    ZonedDateTime.ofInstant(obj.getDate(FIELD_TIMESTAMP).toInstant(), ZoneId.systemDefault())));
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private boolean matches(@Nullable Object value, @Nullable Operator operator, Object filterValue) {
+        if (value == null || operator == null) {
+            return false;
+        }
+        int result;
+        if (value instanceof Number && filterValue instanceof Number) {
+            result = Double.compare(((Number) value).doubleValue(), ((Number) filterValue).doubleValue());
+        } else if (value instanceof Comparable && value.getClass() == filterValue.getClass()) {
+            result = ((Comparable) value).compareTo(filterValue);
+        } else {
+            return operator == Operator.NEQ;
+        }
+        switch (operator) {
+            case EQ:
+                return result == 0;
+            case NEQ:
+                return result != 0;
+            case GT:
+                return result > 0;
+            case GTE:
+                return result >= 0;
+            case LT:
+                return result < 0;
+            case LTE:
+                return result <= 0;
+            default:
+                return false;
         }
+    }
 
-        return items;
+    private State convertState(@Nullable Item item, BasicDBObject obj) {
+        if (item instanceof NumberItem) {
+            return new DecimalType(obj.getDouble(FIELD_VALUE));
+        } else if (item instanceof DimmerItem) {
+            return new PercentType(obj.getInt(FIELD_VALUE));
+        } else if (item instanceof SwitchItem) {
+            return OnOffType.valueOf(obj.getString(FIELD_VALUE));
+        } else if (item instanceof ContactItem) {
+            return OpenClosedType.valueOf(obj.getString(FIELD_VALUE));
+        } else if (item instanceof RollershutterItem) {
+            return new PercentType(obj.getInt(FIELD_VALUE));
+        } else if (item instanceof DateTimeItem) {
+            return new DateTimeType(
+                    ZonedDateTime.ofInstant(obj.getDate(FIELD_VALUE).toInstant(), ZoneId.systemDefault()));
+        } else {
+            return new StringType(obj.getString(FIELD_VALUE));
+        }
     }
 
     private @Nullable String convertOperator(Operator operator) {
@@ -331,7 +624,7 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
             case LTE:
                 return "$lte";
             case NEQ:
-                return "$neq";
+                return "$ne";
             default:
                 return null;
         }
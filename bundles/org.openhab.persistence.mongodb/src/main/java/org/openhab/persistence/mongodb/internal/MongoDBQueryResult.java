@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mongodb.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.persistence.HistoricItem;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.DBObject;
+
+/**
+ * The result of a history query, which is read in chunks while it is iterated. Each chunk continues after the last
+ * document of the previous chunk, so the database never skips the documents that have already been read.
+ *
+ * In bucket mode, the samples of the hourly bucket documents are unwound and merged with the documents written
+ * before bucket mode was enabled.
+ *
+ * Every call to {@link #iterator()} runs the query again.
+ *
+ * @author Thorsten Hoeger - Initial contribution
+ */
+@NonNullByDefault
+class MongoDBQueryResult implements Iterable<HistoricItem> {
+
+    /** maximum number of documents read at once */
+    static final int CHUNK_SIZE = 1000;
+    /** maximum number of bucket documents read at once, each may hold thousands of samples */
+    static final int BUCKET_CHUNK_SIZE = 10;
+
+    /**
+     * Reads a chunk of the documents of a query.
+     */
+    @FunctionalInterface
+    interface ChunkReader {
+        /**
+         * @param last the last document of the previous chunk, null for the first chunk
+         * @param skip the number of documents to skip, only set for the first chunk
+         * @param limit the maximum number of documents to read
+         * @return the documents, in the order of the query
+         */
+        List<DBObject> read(@Nullable DBObject last, int skip, int limit);
+    }
+
+    private final ChunkReader documents;
+    private final @Nullable ChunkReader buckets;
+    private final Predicate<DBObject> sampleFilter;
+    private final Comparator<DBObject> order;
+    private final long offset;
+    private final int pageSize;
+    private final Function<DBObject, HistoricItem> converter;
+
+    /**
+     * @param documents reads the sample documents
+     * @param buckets reads the bucket documents, null if buckets are not used
+     * @param sampleFilter filters the samples of the bucket documents, the documents are filtered by the query
+     * @param ascending the order of the documents and buckets
+     * @param offset the number of samples to skip
+     * @param pageSize the maximum number of samples
+     * @param converter converts a sample to a historic item
+     */
+    MongoDBQueryResult(ChunkReader documents, @Nullable ChunkReader buckets, Predicate<DBObject> sampleFilter,
+            boolean ascending, long offset, int pageSize, Function<DBObject, HistoricItem> converter) {
+        this.documents = documents;
+        this.buckets = buckets;
+        this.sampleFilter = sampleFilter;
+        Comparator<DBObject> order = Comparator
+                .comparing(sample -> (Date) sample.get(MongoDBPersistenceService.FIELD_TIMESTAMP));
+        this.order = ascending ? order : order.reversed();
+        this.offset = offset;
+        this.pageSize = pageSize;
+        this.converter = converter;
+    }
+
+    @Override
+    public Iterator<HistoricItem> iterator() {
+        ChunkReader buckets = this.buckets;
+        if (buckets == null) {
+            // the database skips the samples of the previous pages
+            return new ResultIterator(new ChunkIterator(documents, CHUNK_SIZE, offset, pageSize), 0);
+        }
+        // samples of both collections are merged, so the previous pages can only be skipped here
+        Iterator<DBObject> samples = new MergeIterator(new ChunkIterator(documents, CHUNK_SIZE, 0, offset + pageSize),
+                new SampleIterator(new ChunkIterator(buckets, BUCKET_CHUNK_SIZE, 0, Long.MAX_VALUE)));
+        return new ResultIterator(samples, offset);
+    }
+
+    /**
+     * Reads the documents of a query chunk by chunk.
+     */
+    private static class ChunkIterator implements Iterator<DBObject> {
+        private final ChunkReader reader;
+        private final int chunkSize;
+        private long skip;
+        private long remaining;
+        private Iterator<DBObject> chunk = Collections.emptyIterator();
+        private @Nullable DBObject last;
+        private boolean complete;
+
+        ChunkIterator(ChunkReader reader, int chunkSize, long skip, long limit) {
+            this.reader = reader;
+            this.chunkSize = chunkSize;
+            this.skip = skip;
+            this.remaining = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!chunk.hasNext()) {
+                if (complete || remaining <= 0 || skip > Integer.MAX_VALUE) {
+                    return false;
+                }
+                int limit = (int) Math.min(chunkSize, remaining);
+                List<DBObject> read = reader.read(last, (int) skip, limit);
+                skip = 0;
+                remaining -= read.size();
+                complete = read.size() < limit;
+                if (!read.isEmpty()) {
+                    last = read.get(read.size() - 1);
+                }
+                chunk = read.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public DBObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunk.next();
+        }
+    }
+
+    /**
+     * Unwinds the matching samples of bucket documents.
+     */
+    private class SampleIterator implements Iterator<DBObject> {
+        private final Iterator<DBObject> buckets;
+        private Iterator<DBObject> samples = Collections.emptyIterator();
+
+        SampleIterator(Iterator<DBObject> buckets) {
+            this.buckets = buckets;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!samples.hasNext()) {
+                if (!buckets.hasNext()) {
+                    return false;
+                }
+                List<DBObject> bucketSamples = new ArrayList<>();
+                Object list = buckets.next().get(MongoDBPersistenceService.FIELD_SAMPLES);
+                if (list instanceof BasicDBList) {
+                    for (Object sample : (BasicDBList) list) {
+                        if (sample instanceof DBObject && sampleFilter.test((DBObject) sample)) {
+                            bucketSamples.add((DBObject) sample);
+                        }
+                    }
+                }
+                bucketSamples.sort(order);
+                samples = bucketSamples.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public DBObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return samples.next();
+        }
+    }
+
+    /**
+     * Merges two iterators of samples in the order of the query.
+     */
+    private class MergeIterator implements Iterator<DBObject> {
+        private final Iterator<DBObject> first;
+        private final Iterator<DBObject> second;
+        private @Nullable DBObject nextFirst;
+        private @Nullable DBObject nextSecond;
+
+        MergeIterator(Iterator<DBObject> first, Iterator<DBObject> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextFirst == null && first.hasNext()) {
+                nextFirst = first.next();
+            }
+            if (nextSecond == null && second.hasNext()) {
+                nextSecond = second.next();
+            }
+            return nextFirst != null || nextSecond != null;
+        }
+
+        @Override
+        public DBObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DBObject nextFirst = this.nextFirst;
+            DBObject nextSecond = this.nextSecond;
+            if (nextSecond != null && (nextFirst == null || order.compare(nextSecond, nextFirst) < 0)) {
+                this.nextSecond = null;
+                return nextSecond;
+            }
+            this.nextFirst = null;
+            return Objects.requireNonNull(nextFirst);
+        }
+    }
+
+    /**
+     * Converts the samples of the requested page.
+     */
+    private class ResultIterator implements Iterator<HistoricItem> {
+        private final Iterator<DBObject> samples;
+        private long skip;
+        private int returned;
+
+        ResultIterator(Iterator<DBObject> samples, long skip) {
+            this.samples = samples;
+            this.skip = skip;
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (; skip > 0 && samples.hasNext(); skip--) {
+                samples.next();
+            }
+            return returned < pageSize && samples.hasNext();
+        }
+
+        @Override
+        public HistoricItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            returned++;
+            return converter.apply(samples.next());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mongodb.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.persistence.mongodb.internal.MongoDBQueryResult.ChunkReader;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * Tests the chunked reading and the bucket unwinding of the {@link MongoDBQueryResult}.
+ *
+ * @author Thorsten Hoeger - Initial contribution
+ */
+@NonNullByDefault
+public class MongoDBQueryResultTest {
+
+    /**
+     * Serves chunks of a sorted list of documents and records the reads
+     */
+    private static class ListReader implements ChunkReader {
+        final List<DBObject> documents;
+        final List<String> reads = new ArrayList<>();
+
+        ListReader(List<DBObject> documents) {
+            this.documents = documents;
+        }
+
+        @Override
+        public List<DBObject> read(@Nullable DBObject last, int skip, int limit) {
+            reads.add((last == null ? "-" : String.valueOf(last.get("value"))) + "/" + skip + "/" + limit);
+            int from = Math.min(documents.size(), (last == null ? 0 : documents.indexOf(last) + 1) + skip);
+            return new ArrayList<>(documents.subList(from, Math.min(documents.size(), from + limit)));
+        }
+    }
+
+    private static DBObject sample(long time) {
+        return new BasicDBObject("timestamp", new Date(time)).append("value", String.valueOf(time));
+    }
+
+    private static DBObject bucket(long... times) {
+        BasicDBList samples = new BasicDBList();
+        for (long time : times) {
+            samples.add(sample(time));
+        }
+        return new BasicDBObject("samples", samples);
+    }
+
+    private static List<DBObject> samples(int count) {
+        List<DBObject> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            samples.add(sample(i));
+        }
+        return samples;
+    }
+
+    private static HistoricItem convert(DBObject sample) {
+        return new MongoDBItem("item", new StringType((String) sample.get("value")),
+                ZonedDateTime.ofInstant(((Date) sample.get("timestamp")).toInstant(), ZoneId.systemDefault()));
+    }
+
+    private static List<Long> times(Iterable<HistoricItem> result) {
+        List<Long> times = new ArrayList<>();
+        for (HistoricItem item : result) {
+            times.add(item.getTimestamp().toInstant().toEpochMilli());
+        }
+        return times;
+    }
+
+    private static List<Long> range(long from, long to) {
+        List<Long> range = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            range.add(i);
+        }
+        return range;
+    }
+
+    @Test
+    public void testChunksContinueAfterTheLastDocument() {
+        ListReader documents = new ListReader(samples(2500));
+        MongoDBQueryResult result = new MongoDBQueryResult(documents, null, sample -> true, true, 0,
+                Integer.MAX_VALUE, MongoDBQueryResultTest::convert);
+
+        assertEquals(range(0, 2500), times(result));
+        // no chunk skips the documents read before
+        assertEquals(List.of("-/0/1000", "999/0/1000", "1999/0/1000"), documents.reads);
+    }
+
+    @Test
+    public void testPageIsSkippedByTheDatabase() {
+        ListReader documents = new ListReader(samples(2500));
+        MongoDBQueryResult result = new MongoDBQueryResult(documents, null, sample -> true, true, 2 * 10, 10,
+                MongoDBQueryResultTest::convert);
+
+        assertEquals(range(20, 30), times(result));
+        assertEquals(List.of("-/20/10"), documents.reads);
+    }
+
+    @Test
+    public void testEveryIteratorRunsTheQuery() {
+        ListReader documents = new ListReader(samples(5));
+        MongoDBQueryResult result = new MongoDBQueryResult(documents, null, sample -> true, true, 0,
+                Integer.MAX_VALUE, MongoDBQueryResultTest::convert);
+
+        assertEquals(range(0, 5), times(result));
+        assertEquals(range(0, 5), times(result));
+        assertEquals(2, documents.reads.size());
+    }
+
+    @Test
+    public void testBucketSamplesAreUnwoundAndMergedWithDocuments() {
+        // written before buckets were enabled
+        ListReader documents = new ListReader(List.of(sample(1), sample(5), sample(9)));
+        // samples of a bucket are not necessarily sorted
+        ListReader buckets = new ListReader(List.of(bucket(3, 2, 4), bucket(8, 7), bucket(12, 10)));
+        MongoDBQueryResult result = new MongoDBQueryResult(documents, buckets,
+                sample -> ((Date) sample.get("timestamp")).getTime() <= 10, true, 0, Integer.MAX_VALUE,
+                MongoDBQueryResultTest::convert);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 7L, 8L, 9L, 10L), times(result));
+    }
+
+    @Test
+    public void testBucketSamplesInDescendingOrder() {
+        ListReader documents = new ListReader(List.of(sample(9), sample(5), sample(1)));
+        ListReader buckets = new ListReader(List.of(bucket(12, 10), bucket(8, 7), bucket(3, 2, 4)));
+        MongoDBQueryResult result = new MongoDBQueryResult(documents, buckets, sample -> true, false, 0,
+                Integer.MAX_VALUE, MongoDBQueryResultTest::convert);
+
+        assertEquals(List.of(12L, 10L, 9L, 8L, 7L, 5L, 4L, 3L, 2L, 1L), times(result));
+    }
+
+    @Test
+    public void testBucketPagesAreSkippedAfterMerging() {
+        ListReader documents = new ListReader(List.of(sample(1), sample(5), sample(9)));
+        ListReader buckets = new ListReader(List.of(bucket(3, 2, 4), bucket(8, 7), bucket(12, 10)));
+        MongoDBQueryResult result = new MongoDBQueryResult(documents, buckets, sample -> true, true, 1 * 4, 4,
+                MongoDBQueryResultTest::convert);
+
+        assertEquals(List.of(5L, 7L, 8L, 9L), times(result));
+        // neither collection can skip documents on its own
+        assertEquals(List.of("-/0/8"), documents.reads);
+        assertEquals("-/0/" + MongoDBQueryResult.BUCKET_CHUNK_SIZE, buckets.reads.get(0));
+    }
+}
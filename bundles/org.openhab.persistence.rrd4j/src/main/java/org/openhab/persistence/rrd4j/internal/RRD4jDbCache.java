@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.rrd4j.core.RrdDb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a bounded number of {@link RrdDb} handles open, so that frequently updated items do not reopen their
+ * database file on every access. Least recently used handles are closed when the cache is full or when they
+ * have not been used for the configured idle time.
+ *
+ * Access to a database is guarded by a striped lock: callers have to hold {@link #getLock(String)} for the
+ * database name while calling {@link #get(String)} and while using the returned handle. Handles are only closed by
+ * the cache while holding their lock, so a handle is never closed while it is in use.
+ *
+ * @author Kai Kreuzer - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jDbCache {
+
+    /**
+     * Opens or creates the database for a name, returns null if no database can be created for it.
+     */
+    @FunctionalInterface
+    public interface DbOpener {
+        @Nullable
+        RrdDb open(String name) throws IOException;
+    }
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Logger logger = LoggerFactory.getLogger(RRD4jDbCache.class);
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Map<String, CachedDb> dbs = new LinkedHashMap<>(16, 0.75f, true);
+    private final DbOpener opener;
+
+    private volatile int maxSize;
+    private volatile long maxIdleMillis;
+    private volatile boolean active = true;
+
+    public RRD4jDbCache(DbOpener opener, int maxSize, int maxIdleSeconds) {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.opener = opener;
+        configure(maxSize, maxIdleSeconds);
+    }
+
+    /**
+     * @param maxSize the maximum number of open handles, at least one handle is kept open
+     * @param maxIdleSeconds time after which an unused handle is closed
+     */
+    public void configure(int maxSize, int maxIdleSeconds) {
+        this.maxSize = Math.max(1, maxSize);
+        this.maxIdleMillis = Math.max(1, maxIdleSeconds) * 1000L;
+    }
+
+    /**
+     * Returns the lock guarding the database with the given name. Different names may share the same lock.
+     */
+    public ReentrantLock getLock(String name) {
+        return locks[Math.floorMod(name.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Returns the open database for the given name, opening it if necessary. The caller must hold
+     * {@link #getLock(String)} for this name.
+     *
+     * @return the database or null if it can not be created
+     */
+    public @Nullable RrdDb get(String name) throws IOException {
+        if (!getLock(name).isHeldByCurrentThread()) {
+            throw new IllegalStateException("Lock for rrd4j database '" + name + "' is not held");
+        }
+        long now = System.currentTimeMillis();
+        synchronized (dbs) {
+            CachedDb cached = dbs.get(name);
+            if (cached != null) {
+                if (!cached.db.isClosed()) {
+                    cached.lastAccess = now;
+                    return cached.db;
+                }
+                dbs.remove(name);
+            }
+        }
+        if (!active) {
+            logger.debug("Not opening rrd4j database '{}' since the service is shutting down", name);
+            return null;
+        }
+
+        RrdDb db = opener.open(name);
+        if (db == null) {
+            return null;
+        }
+        List<CachedDb> evicted = new ArrayList<>();
+        synchronized (dbs) {
+            dbs.put(name, new CachedDb(name, db, now));
+            int overflow = dbs.size() - maxSize;
+            Iterator<CachedDb> it = dbs.values().iterator();
+            while (overflow > 0 && it.hasNext()) {
+                CachedDb eldest = it.next();
+                // skip handles that are currently in use, tryLock can not block while holding the monitor
+                if (eldest.db != db && getLock(eldest.name).tryLock()) {
+                    it.remove();
+                    evicted.add(eldest);
+                    overflow--;
+                }
+            }
+        }
+        closeAndUnlock(evicted);
+        return db;
+    }
+
+    /**
+     * Closes all handles which have not been used for longer than the idle time.
+     */
+    public void evictIdle() {
+        long oldestAccess = System.currentTimeMillis() - maxIdleMillis;
+        List<CachedDb> evicted = new ArrayList<>();
+        synchronized (dbs) {
+            Iterator<CachedDb> it = dbs.values().iterator();
+            while (it.hasNext()) {
+                CachedDb cached = it.next();
+                if (cached.lastAccess >= oldestAccess) {
+                    // entries are ordered by access, all following entries are newer
+                    break;
+                }
+                if (getLock(cached.name).tryLock()) {
+                    it.remove();
+                    evicted.add(cached);
+                }
+            }
+        }
+        if (!evicted.isEmpty()) {
+            logger.trace("Closing {} idle rrd4j database(s)", evicted.size());
+        }
+        closeAndUnlock(evicted);
+    }
+
+    /**
+     * Closes all open handles, waiting for handles which are currently in use.
+     *
+     * @param shutdown if true, no databases are opened anymore afterwards
+     */
+    public void closeAll(boolean shutdown) {
+        if (shutdown) {
+            active = false;
+        }
+        List<String> names;
+        synchronized (dbs) {
+            names = new ArrayList<>(dbs.keySet());
+        }
+        for (String name : names) {
+            ReentrantLock lock = getLock(name);
+            lock.lock();
+            try {
+                CachedDb cached;
+                synchronized (dbs) {
+                    cached = dbs.remove(name);
+                }
+                if (cached != null) {
+                    close(cached);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (dbs) {
+            return dbs.size();
+        }
+    }
+
+    private void closeAndUnlock(List<CachedDb> evicted) {
+        for (CachedDb cached : evicted) {
+            try {
+                close(cached);
+            } finally {
+                getLock(cached.name).unlock();
+            }
+        }
+    }
+
+    private void close(CachedDb cached) {
+        try {
+            cached.db.close();
+        } catch (IOException e) {
+            logger.debug("Error closing rrd4j database '{}': {}", cached.name, e.getMessage());
+        }
+    }
+
+    private static class CachedDb {
+        final String name;
+        final RrdDb db;
+        volatile long lastAccess;
+
+        CachedDb(String name, RrdDb db, long lastAccess) {
+            this.name = name;
+            this.db = db;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
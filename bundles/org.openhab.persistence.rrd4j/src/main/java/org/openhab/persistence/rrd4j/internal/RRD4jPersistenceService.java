@@ -18,7 +18,6 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -30,6 +29,8 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.measure.Quantity;
 import javax.measure.Unit;
@@ -65,14 +66,17 @@ import org.openhab.core.types.State;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
 import org.rrd4j.core.FetchData;
 import org.rrd4j.core.FetchRequest;
+import org.rrd4j.core.RrdBackendFactory;
 import org.rrd4j.core.RrdDb;
 import org.rrd4j.core.RrdDef;
+import org.rrd4j.core.RrdNioBackendFactory;
 import org.rrd4j.core.Sample;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -87,14 +91,22 @@ import org.slf4j.LoggerFactory;
  * @author Karel Goderis - remove TimerThread dependency
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class,
-        QueryablePersistenceService.class }, configurationPid = "org.openhab.rrd4j", configurationPolicy = ConfigurationPolicy.OPTIONAL)
+@Component(service = { PersistenceService.class, QueryablePersistenceService.class,
+        RRD4jPersistenceService.class }, configurationPid = "org.openhab.rrd4j", configurationPolicy = ConfigurationPolicy.OPTIONAL)
 public class RRD4jPersistenceService implements QueryablePersistenceService {
 
     private static final String DEFAULT_OTHER = "default_other";
     private static final String DEFAULT_NUMERIC = "default_numeric";
     private static final String DEFAULT_QUANTIFIABLE = "default_quantifiable";
 
+    private static final String CONFIG_BACKEND = "backend";
+    private static final String CONFIG_CACHE_SIZE = "cacheSize";
+    private static final String CONFIG_CACHE_IDLE_TIME = "cacheIdleTime";
+    private static final String BACKEND_FILE = "FILE";
+    private static final String BACKEND_NIO = "NIO";
+    private static final int DEFAULT_CACHE_SIZE = 100;
+    private static final int DEFAULT_CACHE_IDLE_TIME = 600;
+
     private static final Set<String> SUPPORTED_TYPES = Set.of(CoreItemFactory.SWITCH, CoreItemFactory.CONTACT,
             CoreItemFactory.DIMMER, CoreItemFactory.NUMBER, CoreItemFactory.ROLLERSHUTTER);
 
@@ -109,13 +121,25 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
 
     private final Logger logger = LoggerFactory.getLogger(RRD4jPersistenceService.class);
 
-    private final Map<String, ScheduledFuture<?>> scheduledJobs = new HashMap<>();
+    private final Map<String, Double> pendingSamples = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastStoreTimes = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedSamples = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private @Nullable ScheduledFuture<?> flushJob;
+
+    private final RrdNioBackendFactory nioBackendFactory = new RrdNioBackendFactory();
+    private volatile RrdBackendFactory backendFactory = nioBackendFactory;
+
+    private final RRD4jDbCache dbCache = new RRD4jDbCache(this::openDB, DEFAULT_CACHE_SIZE, DEFAULT_CACHE_IDLE_TIME);
+    private @Nullable ScheduledFuture<?> evictionJob;
 
     protected final ItemRegistry itemRegistry;
 
     @Activate
     public RRD4jPersistenceService(final @Reference ItemRegistry itemRegistry) {
         this.itemRegistry = itemRegistry;
+        // sync the memory mapped files on our own threads instead of the global rrd4j pool
+        nioBackendFactory.setSyncThreadPool(scheduler);
     }
 
     @Override
@@ -129,16 +153,46 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
     }
 
     @Override
-    public synchronized void store(final Item item, @Nullable final String alias) {
+    public void store(final Item item, @Nullable final String alias) {
         if (!isSupportedItemType(item)) {
             logger.trace("Ignoring item '{}' since its type {} is not supported", item.getName(), item.getType());
             return;
         }
         final String name = alias == null ? item.getName() : alias;
-        RrdDb db = getDB(name);
-        if (db != null) {
+        Double value = getSampleValue(item);
+        if (value == null) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        ReentrantLock lock = dbCache.getLock(name);
+        lock.lock();
+        try {
+            if (pendingSamples.replace(name, value) != null) {
+                // a value for this item is already waiting for the next step, only the latest one is kept
+                coalescedSamples.incrementAndGet();
+                return;
+            }
+            RrdDb db = getDB(name);
+            if (db != null && !storeSample(name, db, value, now)) {
+                // rrd4j needs at least one second between two samples, the flush loop stores it later
+                pendingSamples.put(name, value);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a value into the database, the caller must hold the lock of the database.
+     *
+     * @return false if there already is a sample for this second, the value has not been stored then
+     */
+    private boolean storeSample(String name, RrdDb db, double value, long now) {
+        try {
+            if (now <= db.getLastUpdateTime()) {
+                return false;
+            }
             ConsolFun function = getConsolidationFunction(db);
-            long now = System.currentTimeMillis() / 1000;
             if (function != ConsolFun.AVERAGE) {
                 try {
                     // we store the last value again, so that the value change
@@ -159,66 +213,121 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
                     logger.debug("Error storing last value (again): {}", e.getMessage());
                 }
             }
-            try {
-                Sample sample = db.createSample();
-                sample.setTime(now);
-
-                Double value = null;
-
-                if (item instanceof NumberItem && item.getState() instanceof QuantityType) {
-                    NumberItem nItem = (NumberItem) item;
-                    QuantityType<?> qState = (QuantityType<?>) item.getState();
-                    Unit<? extends Quantity<?>> unit = nItem.getUnit();
-                    if (unit != null) {
-                        QuantityType<?> convertedState = qState.toUnit(unit);
-                        if (convertedState != null) {
-                            value = convertedState.doubleValue();
-                        } else {
-                            logger.warn(
-                                    "Failed to convert state '{}' to unit '{}'. Please check your item definition for correctness.",
-                                    qState, unit);
-                        }
-                    } else {
-                        value = qState.doubleValue();
-                    }
-                } else {
-                    DecimalType state = item.getStateAs(DecimalType.class);
-                    if (state != null) {
-                        value = state.toBigDecimal().doubleValue();
-                    }
-                }
-                if (value != null) {
-                    if (db.getDatasource(DATASOURCE_STATE).getType() == DsType.COUNTER) { // counter values must be
-                                                                                          // adjusted by stepsize
-                        value = value * db.getRrdDef().getStep();
-                    }
-                    sample.setValue(DATASOURCE_STATE, value);
-                    sample.update();
-                    logger.debug("Stored '{}' as value '{}' in rrd4j database", name, value);
-                }
-            } catch (IllegalArgumentException e) {
-                String message = e.getMessage();
-                if (message != null && message.contains("at least one second step is required")) {
-                    // we try to store the value one second later
-                    ScheduledFuture<?> job = scheduledJobs.get(name);
-                    if (job != null) {
-                        job.cancel(true);
-                        scheduledJobs.remove(name);
-                    }
-                    job = scheduler.schedule(() -> store(item, name), 1, TimeUnit.SECONDS);
-                    scheduledJobs.put(name, job);
+            Sample sample = db.createSample();
+            sample.setTime(now);
+            double storeValue = value;
+            if (db.getDatasource(DATASOURCE_STATE).getType() == DsType.COUNTER) { // counter values must be
+                                                                                  // adjusted by stepsize
+                storeValue = value * db.getRrdDef().getStep();
+            }
+            sample.setValue(DATASOURCE_STATE, storeValue);
+            sample.update();
+            lastStoreTimes.put(name, now);
+            logger.debug("Stored '{}' as value '{}' in rrd4j database", name, storeValue);
+        } catch (IllegalArgumentException e) {
+            String message = e.getMessage();
+            if (message != null && message.contains("at least one second step is required")) {
+                return false;
+            }
+            droppedSamples.incrementAndGet();
+            logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
+        } catch (Exception e) {
+            droppedSamples.incrementAndGet();
+            logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
+        }
+        return true;
+    }
+
+    private @Nullable Double getSampleValue(Item item) {
+        if (item instanceof NumberItem && item.getState() instanceof QuantityType) {
+            NumberItem nItem = (NumberItem) item;
+            QuantityType<?> qState = (QuantityType<?>) item.getState();
+            Unit<? extends Quantity<?>> unit = nItem.getUnit();
+            if (unit != null) {
+                QuantityType<?> convertedState = qState.toUnit(unit);
+                if (convertedState != null) {
+                    return convertedState.doubleValue();
                 } else {
-                    logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
+                    logger.warn(
+                            "Failed to convert state '{}' to unit '{}'. Please check your item definition for correctness.",
+                            qState, unit);
+                    return null;
                 }
-            } catch (Exception e) {
-                logger.warn("Could not persist '{}' to rrd4j database: {}", name, e.getMessage());
+            } else {
+                return qState.doubleValue();
             }
+        } else {
+            DecimalType state = item.getStateAs(DecimalType.class);
+            return state != null ? state.toBigDecimal().doubleValue() : null;
+        }
+    }
+
+    /**
+     * Stores the values which were received within the same second as a previous value. Runs once per second, which
+     * is the smallest possible step of a database.
+     */
+    private void flushPendingSamples() {
+        if (pendingSamples.isEmpty()) {
+            return;
+        }
+        int stored = 0;
+        for (String name : pendingSamples.keySet()) {
+            ReentrantLock lock = dbCache.getLock(name);
+            lock.lock();
             try {
-                db.close();
-            } catch (IOException e) {
-                logger.debug("Error closing rrd4j database: {}", e.getMessage());
+                Double value = pendingSamples.get(name);
+                if (value == null) {
+                    continue;
+                }
+                RrdDb db = getDB(name);
+                if (db == null) {
+                    pendingSamples.remove(name);
+                    droppedSamples.incrementAndGet();
+                } else if (storeSample(name, db, value, System.currentTimeMillis() / 1000)) {
+                    pendingSamples.remove(name);
+                    stored++;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not store pending value of '{}': {}", name, e.getMessage());
+            } finally {
+                lock.unlock();
             }
         }
+        logger.trace("Stored {} pending values, {} still pending, {} coalesced and {} dropped so far", stored,
+                pendingSamples.size(), coalescedSamples.get(), droppedSamples.get());
+    }
+
+    /**
+     * @return the number of values which were replaced by a newer value before they could be stored
+     */
+    public long getCoalescedSampleCount() {
+        return coalescedSamples.get();
+    }
+
+    /**
+     * @return the number of values which could not be stored
+     */
+    public long getDroppedSampleCount() {
+        return droppedSamples.get();
+    }
+
+    /**
+     * Returns the time of the last value stored into a database, which changes whenever the content of the database
+     * changes. Unlike {@link RrdDb#getLastUpdateTime()} it does not need the database to be opened.
+     *
+     * @param name the name of the database
+     * @return the time in seconds, 0 if no value has been stored since the service was started
+     */
+    public long getLastStoreTime(String name) {
+        Long lastStoreTime = lastStoreTimes.get(name);
+        return lastStoreTime == null ? 0 : lastStoreTime;
+    }
+
+    /**
+     * @return the number of values waiting for the next step of their database
+     */
+    public int getPendingSampleCount() {
+        return pendingSamples.size();
     }
 
     @Override
@@ -230,12 +339,21 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
     public Iterable<HistoricItem> query(FilterCriteria filter) {
         String itemName = filter.getItemName();
 
-        RrdDb db = getDB(itemName);
-        if (db == null) {
-            logger.debug("Could not find item '{}' in rrd4j database", itemName);
-            return List.of();
+        ReentrantLock lock = dbCache.getLock(itemName);
+        lock.lock();
+        try {
+            RrdDb db = getDB(itemName);
+            if (db == null) {
+                logger.debug("Could not find item '{}' in rrd4j database", itemName);
+                return List.of();
+            }
+            return query(filter, itemName, db);
+        } finally {
+            lock.unlock();
         }
+    }
 
+    private Iterable<HistoricItem> query(FilterCriteria filter, String itemName, RrdDb db) {
         Item item = null;
         Unit<?> unit = null;
         try {
@@ -311,13 +429,26 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         return Set.of();
     }
 
-    protected synchronized @Nullable RrdDb getDB(String alias) {
+    /**
+     * Returns the cached database handle for an item, the caller must hold the lock of the item in the
+     * {@link RRD4jDbCache}. The handle must not be closed by the caller.
+     */
+    protected @Nullable RrdDb getDB(String alias) {
+        try {
+            return dbCache.get(alias);
+        } catch (IOException e) {
+            logger.error("Could not open rrd4j database for '{}': {}", alias, e.getMessage());
+            return null;
+        }
+    }
+
+    private @Nullable RrdDb openDB(String alias) {
         RrdDb db = null;
         File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
         try {
             if (file.exists()) {
                 // recreate the RrdDb instance from the file
-                db = new RrdDb(file.getAbsolutePath());
+                db = new RrdDb(file.getAbsolutePath(), backendFactory);
             } else {
                 File folder = new File(DB_FOLDER);
                 if (!folder.exists()) {
@@ -326,7 +457,7 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
                 RrdDef rrdDef = getRrdDef(alias, file);
                 if (rrdDef != null) {
                     // create a new database file
-                    db = new RrdDb(rrdDef);
+                    db = new RrdDb(rrdDef, backendFactory);
                 } else {
                     logger.debug(
                             "Did not create rrd4j database for item '{}' since no rrd definition could be determined. This is likely due to an unsupported item type.",
@@ -428,6 +559,32 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
     @Activate
     protected void activate(final Map<String, Object> config) {
         modified(config);
+        evictionJob = scheduler.scheduleWithFixedDelay(dbCache::evictIdle, 1, 1, TimeUnit.MINUTES);
+        // run shortly after each full second, so that a new step has begun for all pending values
+        long delay = 1050 - System.currentTimeMillis() % 1000;
+        flushJob = scheduler.scheduleAtFixedRate(this::flushPendingSamples, delay, 1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        ScheduledFuture<?> job = evictionJob;
+        if (job != null) {
+            job.cancel(false);
+            evictionJob = null;
+        }
+        job = flushJob;
+        if (job != null) {
+            job.cancel(false);
+            flushJob = null;
+        }
+        flushPendingSamples();
+        if (!pendingSamples.isEmpty()) {
+            droppedSamples.addAndGet(pendingSamples.size());
+            logger.debug("Dropping {} values which could not be stored before shutdown", pendingSamples.size());
+            pendingSamples.clear();
+        }
+        dbCache.closeAll(true);
+        scheduler.shutdown();
     }
 
     @Modified
@@ -435,6 +592,8 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         // clean existing definitions
         rrdDefs.clear();
 
+        configureDbAccess(config);
+
         // add default configurations
 
         RrdDefConfig defaultNumeric = new RrdDefConfig(DEFAULT_NUMERIC);
@@ -483,8 +642,9 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         while (keys.hasNext()) {
             String key = keys.next();
 
-            if (key.equals("service.pid") || key.equals("component.name")) {
-                // ignore service.pid and name
+            if (key.equals("service.pid") || key.equals("component.name") || key.equals(CONFIG_BACKEND)
+                    || key.equals(CONFIG_CACHE_SIZE) || key.equals(CONFIG_CACHE_IDLE_TIME)) {
+                // ignore service.pid and name, the service settings are handled in configureDbAccess()
                 continue;
             }
 
@@ -541,6 +701,44 @@ public class RRD4jPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    private void configureDbAccess(final Map<String, Object> config) {
+        String backend = String.valueOf(config.getOrDefault(CONFIG_BACKEND, BACKEND_NIO)).trim().toUpperCase();
+        RrdBackendFactory newBackendFactory;
+        if (backend.equals(BACKEND_FILE)) {
+            newBackendFactory = RrdBackendFactory.getFactory(BACKEND_FILE);
+        } else {
+            if (!backend.equals(BACKEND_NIO)) {
+                logger.warn("Unknown rrd4j backend '{}', using '{}'", backend, BACKEND_NIO);
+            }
+            newBackendFactory = nioBackendFactory;
+        }
+
+        int cacheSize = getConfigIntValue(config, CONFIG_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+        int cacheIdleTime = getConfigIntValue(config, CONFIG_CACHE_IDLE_TIME, DEFAULT_CACHE_IDLE_TIME);
+        dbCache.configure(cacheSize, cacheIdleTime);
+
+        if (newBackendFactory != backendFactory) {
+            // handles opened by the old backend must not be used anymore
+            backendFactory = newBackendFactory;
+            dbCache.closeAll(false);
+        }
+        logger.debug("Using rrd4j backend '{}', keeping up to {} databases open for {} seconds",
+                backendFactory.getName(), cacheSize, cacheIdleTime);
+    }
+
+    private int getConfigIntValue(final Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value == null || value.toString().isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring illegal value '{}' for '{}', using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
     private class RrdArchiveDef {
         public @Nullable ConsolFun fcn;
         public double xff;
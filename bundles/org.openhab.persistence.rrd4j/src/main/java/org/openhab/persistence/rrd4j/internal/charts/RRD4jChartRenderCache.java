@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal.charts;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.common.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches rendered charts and renders them on a bounded number of threads.
+ *
+ * The cache key has to contain everything the image depends on, including the time a value was last stored into the
+ * databases, so that a cached chart is never outdated. Concurrent requests for the same key wait for a single rendering.
+ *
+ * @author Kai Kreuzer - Initial contribution
+ */
+@NonNullByDefault
+public class RRD4jChartRenderCache {
+
+    private static final int RENDER_THREADS = 2;
+    private static final int RENDER_QUEUE_SIZE = 16;
+    private static final int RENDER_TIMEOUT = 30;
+
+    private final Logger logger = LoggerFactory.getLogger(RRD4jChartRenderCache.class);
+
+    private final int maxSize;
+    private final Map<String, BufferedImage> images;
+    private final Map<String, CompletableFuture<BufferedImage>> renderings = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(RENDER_THREADS, RENDER_THREADS, 60,
+            TimeUnit.SECONDS, new ArrayBlockingQueue<>(RENDER_QUEUE_SIZE), new NamedThreadFactory("RRD4jChart"));
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong totalRenderTime = new AtomicLong();
+    private volatile long lastRenderTime;
+
+    public RRD4jChartRenderCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.images = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.@Nullable Entry<String, BufferedImage> eldest) {
+                return size() > RRD4jChartRenderCache.this.maxSize;
+            }
+        };
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the cached chart for the key or renders it.
+     *
+     * @param key identifies the chart, see class description
+     * @param renderer renders the chart if it is not cached
+     * @return the chart or null if it could not be rendered
+     */
+    public @Nullable BufferedImage get(String key, Callable<BufferedImage> renderer) {
+        BufferedImage image;
+        synchronized (images) {
+            image = images.get(key);
+        }
+        if (image != null) {
+            hits.incrementAndGet();
+            return image;
+        }
+
+        CompletableFuture<BufferedImage> newRendering = new CompletableFuture<>();
+        CompletableFuture<BufferedImage> rendering = renderings.putIfAbsent(key, newRendering);
+        if (rendering != null) {
+            coalesced.incrementAndGet();
+        } else {
+            rendering = newRendering;
+            try {
+                executor.execute(() -> render(key, renderer, newRendering));
+            } catch (RejectedExecutionException e) {
+                renderings.remove(key);
+                logger.warn("Too many charts are being rendered, rejecting chart request");
+                return null;
+            }
+        }
+
+        try {
+            return rendering.get(RENDER_TIMEOUT, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            logger.error("Error generating graph: {}", cause == null ? e.getMessage() : cause.getMessage());
+        } catch (TimeoutException e) {
+            logger.warn("Generating graph took longer than {} seconds", RENDER_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private void render(String key, Callable<BufferedImage> renderer, CompletableFuture<BufferedImage> rendering) {
+        long start = System.currentTimeMillis();
+        try {
+            BufferedImage image = renderer.call();
+            synchronized (images) {
+                images.put(key, image);
+            }
+            rendering.complete(image);
+        } catch (Exception e) {
+            rendering.completeExceptionally(e);
+        } finally {
+            renderings.remove(key);
+            lastRenderTime = System.currentTimeMillis() - start;
+            totalRenderTime.addAndGet(lastRenderTime);
+            renders.incrementAndGet();
+        }
+        logger.debug("Rendered chart in {} ms ({} renderings, {} cache hits, {} coalesced requests)", lastRenderTime,
+                renders.get(), hits.get(), coalesced.get());
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        synchronized (images) {
+            images.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public long getRenderCount() {
+        return renders.get();
+    }
+
+    public long getLastRenderTime() {
+        return lastRenderTime;
+    }
+
+    public long getAverageRenderTime() {
+        long count = renders.get();
+        return count == 0 ? 0 : totalRenderTime.get() / count;
+    }
+}
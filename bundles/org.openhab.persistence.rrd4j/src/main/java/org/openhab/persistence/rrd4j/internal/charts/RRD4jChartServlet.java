@@ -17,9 +17,11 @@ import java.awt.Font;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 
 import javax.imageio.ImageIO;
@@ -82,6 +84,8 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
 
     protected static final Map<String, Long> PERIODS = new HashMap<>();
 
+    private static final int RENDER_CACHE_SIZE = 20;
+
     static {
         PERIODS.put("h", -3600000L);
         PERIODS.put("4h", -14400000L);
@@ -103,6 +107,11 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     @Reference
     protected ItemUIRegistry itemUIRegistry;
 
+    @Reference
+    protected RRD4jPersistenceService persistenceService;
+
+    private final RRD4jChartRenderCache renderCache = new RRD4jChartRenderCache(RENDER_CACHE_SIZE);
+
     @Activate
     protected void activate() {
         try {
@@ -118,6 +127,7 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     @Deactivate
     protected void deactivate() {
         httpService.unregister(SERVLET_NAME);
+        renderCache.shutdown();
     }
 
     @Override
@@ -164,22 +174,15 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
      * @param graphDef the graph definition to fill
      * @param item the item to add a line for
      * @param counter defines the number of the datasource and is used to determine the line color
+     * @param consolFun the consolidation function of the item's database
      */
-    protected void addLine(RrdGraphDef graphDef, Item item, int counter) {
+    protected void addLine(RrdGraphDef graphDef, Item item, int counter, ConsolFun consolFun) {
         Color color = LINECOLORS[counter % LINECOLORS.length];
         String label = itemUIRegistry.getLabel(item.getName());
-        String rrdName = RRD4jPersistenceService.DB_FOLDER + File.separator + item.getName() + ".rrd";
-        ConsolFun consolFun;
+        String rrdName = getRrdName(item);
         if (label != null && label.contains("[") && label.contains("]")) {
             label = label.substring(0, label.indexOf('['));
         }
-        try {
-            RrdDb db = new RrdDb(rrdName);
-            consolFun = db.getRrdDef().getArcDefs()[0].getConsolFun();
-            db.close();
-        } catch (IOException e) {
-            consolFun = ConsolFun.MAX;
-        }
         if (item instanceof NumberItem) {
             // we only draw a line
             graphDef.datasource(Integer.toString(counter), rrdName, "state", consolFun); // RRD4jService.getConsolidationFunction(item));
@@ -223,27 +226,13 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
     @Override
     public BufferedImage createChart(String service, String theme, Date startTime, Date endTime, int height, int width,
             String items, String groups, Integer dpi, Boolean legend) throws ItemNotFoundException {
-        RrdGraphDef graphDef = new RrdGraphDef();
-
-        long period = (startTime.getTime() - endTime.getTime()) / 1000;
-
-        graphDef.setWidth(width);
-        graphDef.setHeight(height);
-        graphDef.setAntiAliasing(true);
-        graphDef.setImageFormat("PNG");
-        graphDef.setStartTime(period);
-        graphDef.setTextAntiAliasing(true);
-        graphDef.setLargeFont(new Font("SansSerif", Font.PLAIN, 15));
-        graphDef.setSmallFont(new Font("SansSerif", Font.PLAIN, 11));
-
-        int seriesCounter = 0;
+        List<Item> chartItems = new ArrayList<>();
 
         // Loop through all the items
         if (items != null) {
             String[] itemNames = items.split(",");
             for (String itemName : itemNames) {
-                Item item = itemUIRegistry.getItem(itemName);
-                addLine(graphDef, item, seriesCounter++);
+                chartItems.add(itemUIRegistry.getItem(itemName));
             }
         }
 
@@ -254,29 +243,86 @@ public class RRD4jChartServlet implements Servlet, ChartProvider {
                 Item item = itemUIRegistry.getItem(groupName);
                 if (item instanceof GroupItem) {
                     GroupItem groupItem = (GroupItem) item;
-                    for (Item member : groupItem.getMembers()) {
-                        addLine(graphDef, member, seriesCounter++);
-                    }
+                    chartItems.addAll(groupItem.getMembers());
                 } else {
                     throw new ItemNotFoundException("Item '" + item.getName() + "' defined in groups is not a group.");
                 }
             }
         }
 
+        // the time axis moves with the end time, align it to the width of one pixel
+        long period = Math.max(1, (endTime.getTime() - startTime.getTime()) / 1000);
+        long pixelTime = Math.max(1, period / Math.max(1, width));
+        long end = (endTime.getTime() / 1000 / pixelTime + 1) * pixelTime;
+
+        return renderCache.get(getCacheKey(chartItems, end - period, end, height, width),
+                () -> renderChart(chartItems, end - period, end, height, width));
+    }
+
+    /**
+     * Returns the key of a chart in the render cache. It contains the time a value was last stored into one of the
+     * databases of the chart, so the databases don't have to be opened to find out if a cached chart is outdated.
+     */
+    String getCacheKey(List<Item> chartItems, long start, long end, int height, int width) {
+        long lastStore = 0;
+        StringBuilder key = new StringBuilder();
+        for (Item item : chartItems) {
+            lastStore = Math.max(lastStore, persistenceService.getLastStoreTime(item.getName()));
+            key.append(item.getName()).append(',');
+        }
+        return key.append('|').append(start).append('|').append(end).append('|').append(width).append('x')
+                .append(height).append('|').append(lastStore).toString();
+    }
+
+    private BufferedImage renderChart(List<Item> chartItems, long start, long end, int height, int width)
+            throws IOException {
+        RrdGraphDef graphDef = new RrdGraphDef();
+
+        graphDef.setWidth(width);
+        graphDef.setHeight(height);
+        graphDef.setAntiAliasing(true);
+        graphDef.setImageFormat("PNG");
+        graphDef.setTimeSpan(start, end);
+        graphDef.setTextAntiAliasing(true);
+        graphDef.setLargeFont(new Font("SansSerif", Font.PLAIN, 15));
+        graphDef.setSmallFont(new Font("SansSerif", Font.PLAIN, 11));
+
+        for (int seriesCounter = 0; seriesCounter < chartItems.size(); seriesCounter++) {
+            Item item = chartItems.get(seriesCounter);
+            addLine(graphDef, item, seriesCounter, getConsolidationFunction(item));
+        }
+
         // Write the chart as a PNG image
-        RrdGraph graph;
-        try {
-            graph = new RrdGraph(graphDef);
-            BufferedImage bi = new BufferedImage(graph.getRrdGraphInfo().getWidth(),
-                    graph.getRrdGraphInfo().getHeight(), BufferedImage.TYPE_INT_RGB);
-            graph.render(bi.getGraphics());
+        RrdGraph graph = new RrdGraph(graphDef);
+        BufferedImage bi = new BufferedImage(graph.getRrdGraphInfo().getWidth(), graph.getRrdGraphInfo().getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        graph.render(bi.getGraphics());
+        return bi;
+    }
 
-            return bi;
+    private ConsolFun getConsolidationFunction(Item item) {
+        try {
+            RrdDb db = new RrdDb(getRrdName(item), true);
+            try {
+                return db.getRrdDef().getArcDefs()[0].getConsolFun();
+            } finally {
+                db.close();
+            }
         } catch (IOException e) {
-            logger.error("Error generating graph.", e);
+            logger.trace("Could not read rrd4j database of item '{}': {}", item.getName(), e.getMessage());
+            return ConsolFun.MAX;
         }
+    }
 
-        return null;
+    private String getRrdName(Item item) {
+        return RRD4jPersistenceService.DB_FOLDER + File.separator + item.getName() + ".rrd";
+    }
+
+    /**
+     * @return the statistics of the chart render cache
+     */
+    public RRD4jChartRenderCache getRenderCache() {
+        return renderCache;
     }
 
     @Override
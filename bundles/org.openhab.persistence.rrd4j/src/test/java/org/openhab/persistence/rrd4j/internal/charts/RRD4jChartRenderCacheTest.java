@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.rrd4j.internal.charts;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.persistence.rrd4j.internal.RRD4jPersistenceService;
+
+/**
+ * Tests the caching of rendered charts.
+ *
+ * @author Kai Kreuzer - Initial contribution
+ */
+public class RRD4jChartRenderCacheTest {
+
+    private final RRD4jChartRenderCache cache = new RRD4jChartRenderCache(2);
+    private final AtomicInteger renderings = new AtomicInteger();
+
+    @AfterEach
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    private BufferedImage render() {
+        renderings.incrementAndGet();
+        return new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Test
+    public void testCachedChartIsNotRenderedAgain() {
+        BufferedImage image = cache.get("chart", this::render);
+
+        assertSame(image, cache.get("chart", this::render));
+        assertEquals(1, renderings.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testChartOfOtherKeyIsRendered() {
+        BufferedImage image = cache.get("chart", this::render);
+
+        assertNotSame(image, cache.get("other", this::render));
+        assertEquals(2, renderings.get());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedChartIsEvicted() {
+        cache.get("first", this::render);
+        cache.get("second", this::render);
+        cache.get("first", this::render);
+        cache.get("third", this::render);
+
+        cache.get("first", this::render);
+        assertEquals(3, renderings.get());
+        cache.get("second", this::render);
+        assertEquals(4, renderings.get());
+    }
+
+    @Test
+    public void testStoredValueInvalidatesCachedChart() {
+        RRD4jChartServlet servlet = new RRD4jChartServlet();
+        servlet.persistenceService = mock(RRD4jPersistenceService.class);
+        List<Item> items = List.of(new NumberItem("first"), new NumberItem("second"));
+        when(servlet.persistenceService.getLastStoreTime("first")).thenReturn(100L);
+        String key = servlet.getCacheKey(items, 0, 3600, 240, 480);
+
+        assertEquals(key, servlet.getCacheKey(items, 0, 3600, 240, 480));
+        // a value older than the last one of the chart doesn't change its last store time
+        when(servlet.persistenceService.getLastStoreTime("second")).thenReturn(50L);
+        assertEquals(key, servlet.getCacheKey(items, 0, 3600, 240, 480));
+
+        when(servlet.persistenceService.getLastStoreTime("second")).thenReturn(101L);
+        assertNotEquals(key, servlet.getCacheKey(items, 0, 3600, 240, 480));
+        assertNotEquals(key, servlet.getCacheKey(items, 1, 3601, 240, 480));
+    }
+}
@@ -66,6 +66,10 @@ import com.igormaznitsa.jbbp.model.JBBPFieldUShort;
  * json.toString() = {"a":3,"b":-6,"c":255}
  * </pre>
  *
+ * <p>
+ * The parser rule is prepared once in the constructor. Instances are thread safe, and should be reused for all
+ * conversions with the same rule.
+ *
  * @author Pauli Anttila - Initial contribution
  *
  */
@@ -73,7 +77,7 @@ public class Bin2Json {
 
     private final Logger logger = LoggerFactory.getLogger(Bin2Json.class);
 
-    private JBBPParser parser;
+    private final JBBPParser parser;
 
     /**
      *
@@ -12,6 +12,9 @@
  */
 package org.openhab.transform.bin2json.internal;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.transform.TransformationException;
@@ -20,9 +23,14 @@ import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.JsonObject;
+
 /**
  * The implementation of {@link TransformationService} which transforms the
  * hexa string formatted binary data by Binary Block Parser syntax to JSON format.
+ * <p>
+ * Callers holding binary data can use {@link #transform(String, byte[])} instead, which is not part of the
+ * {@link TransformationService} interface and saves the conversion to and from the hexadecimal string.
  *
  * @author Pauli Anttila - Initial contribution
  */
@@ -30,8 +38,20 @@ import org.slf4j.LoggerFactory;
 @Component(property = { "smarthome.transform=BIN2JSON" })
 public class Bin2JsonTransformationService implements TransformationService {
 
+    static final int PARSER_CACHE_SIZE = 100;
+
     private Logger logger = LoggerFactory.getLogger(Bin2JsonTransformationService.class);
 
+    // converters with prepared parsers, by parser rule
+    private final Map<String, Bin2Json> converters = new LinkedHashMap<String, Bin2Json>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, Bin2Json> eldest) {
+            return size() > PARSER_CACHE_SIZE;
+        }
+    };
+
     /**
      * Transforms the input <code>source</code> by Java Binary Block Parser syntax.
      *
@@ -40,13 +60,35 @@ public class Bin2JsonTransformationService implements TransformationService {
      */
     @Override
     public @Nullable String transform(String syntax, String source) throws TransformationException {
-        final long startTime = System.currentTimeMillis();
         logger.debug("About to transform '{}' by the Bin2Json syntax '{}'", source, syntax);
+        return convert(syntax, converter -> converter.convert(source));
+    }
+
+    /**
+     * Transforms the binary <code>source</code> by Java Binary Block Parser syntax, without converting it to a
+     * hexadecimal string first. The result is the same as the one of {@link #transform(String, String)} for the
+     * hexadecimal string of the data.
+     *
+     * @param syntax Java Binary Block Parser syntax.
+     * @param source the binary data to transform
+     * @return the JSON formatted result
+     * @throws TransformationException when the syntax is illegal or the data does not match it
+     */
+    public String transform(String syntax, byte[] source) throws TransformationException {
+        logger.debug("About to transform {} bytes by the Bin2Json syntax '{}'", source.length, syntax);
+        return convert(syntax, converter -> converter.convert(source));
+    }
+
+    /**
+     * Converts the source of a transformation with the cached converter of the syntax
+     */
+    private String convert(String syntax, Conversion conversion) throws TransformationException {
+        final long startTime = System.currentTimeMillis();
 
         String result = "";
 
         try {
-            result = String.valueOf(new Bin2Json(syntax).convert(source));
+            result = String.valueOf(conversion.convert(getConverter(syntax)));
             logger.debug("transformation resulted '{}'", result);
             return result;
         } catch (ConversionException e) {
@@ -56,4 +98,20 @@ public class Bin2JsonTransformationService implements TransformationService {
                     result);
         }
     }
+
+    Bin2Json getConverter(String syntax) throws ConversionException {
+        synchronized (converters) {
+            Bin2Json converter = converters.get(syntax);
+            if (converter == null) {
+                converter = new Bin2Json(syntax);
+                converters.put(syntax, converter);
+            }
+            return converter;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Conversion {
+        JsonObject convert(Bin2Json converter) throws ConversionException;
+    }
 }
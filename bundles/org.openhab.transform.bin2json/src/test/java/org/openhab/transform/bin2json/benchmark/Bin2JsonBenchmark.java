@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.bin2json.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.core.transform.TransformationException;
+import org.openhab.core.util.HexUtils;
+import org.openhab.transform.bin2json.internal.Bin2Json;
+import org.openhab.transform.bin2json.internal.Bin2JsonTransformationService;
+import org.openhab.transform.bin2json.internal.ConversionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Benchmarks for {@link Bin2JsonTransformationService}, comparing transformations with cached parsers to preparing
+ * the parser for every conversion
+ *
+ * @author Pauli Anttila - Initial contribution
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Bin2JsonBenchmark {
+
+    @Param({ "byte a; byte b; ubyte c;",
+            "ushort id; int value; bit:4 flags; bit:4 mode; ubyte[8] payload; long timestamp;" })
+    public String syntax;
+
+    private Bin2JsonTransformationService service;
+    private byte[] data;
+    private String hexData;
+
+    @Setup
+    public void setUp() throws ConversionException {
+        service = new Bin2JsonTransformationService();
+        data = new byte[32];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+        hexData = HexUtils.bytesToHex(data);
+    }
+
+    @Benchmark
+    public String transformHexString() throws TransformationException {
+        return service.transform(syntax, hexData);
+    }
+
+    @Benchmark
+    public String transformBytes() throws TransformationException {
+        return service.transform(syntax, data);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String transformHexStringConcurrently() throws TransformationException {
+        return service.transform(syntax, hexData);
+    }
+
+    /**
+     * Conversion as done before parsers were cached
+     */
+    @Benchmark
+    public JsonObject prepareAndConvert() throws ConversionException {
+        return new Bin2Json(syntax).convert(hexData);
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.bin2json.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.transform.TransformationException;
+
+/**
+ * @author Pauli Anttila - Initial contribution
+ */
+public class Bin2JsonTransformationServiceTest {
+
+    private static final String SYNTAX = "byte a; byte b; ubyte c;";
+    private static final String SOURCE = "03FAFF";
+    private static final String RESULT = "{\"a\":3,\"b\":-6,\"c\":255}";
+
+    private Bin2JsonTransformationService service;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        service = new Bin2JsonTransformationService();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTransform() throws TransformationException {
+        assertEquals(RESULT, service.transform(SYNTAX, SOURCE));
+    }
+
+    @Test
+    public void testTransformBytes() throws TransformationException {
+        assertEquals(RESULT, service.transform(SYNTAX, new byte[] { 3, (byte) 0xFA, (byte) 0xFF }));
+    }
+
+    @Test
+    public void testTransformIllegalSyntax() {
+        assertThrows(TransformationException.class, () -> service.transform("byte a; foo b;", SOURCE));
+    }
+
+    @Test
+    public void testTransformIllegalSource() {
+        assertThrows(TransformationException.class, () -> service.transform(SYNTAX, "03FAXX"));
+    }
+
+    @Test
+    public void testConverterIsReused() throws Exception {
+        Bin2Json converter = service.getConverter(SYNTAX);
+        assertEquals(RESULT, service.transform(SYNTAX, SOURCE));
+        assertSame(converter, service.getConverter(SYNTAX));
+        assertNotSame(converter, service.getConverter("byte a;"));
+    }
+
+    @Test
+    public void testConverterCacheIsBounded() throws Exception {
+        Bin2Json first = service.getConverter(syntax(0));
+        Bin2Json second = service.getConverter(syntax(1));
+        for (int i = 2; i < Bin2JsonTransformationService.PARSER_CACHE_SIZE; i++) {
+            service.getConverter(syntax(i));
+        }
+        // cache is full, and all rules are still cached
+        assertSame(first, service.getConverter(syntax(0)));
+
+        // least recently used rule is evicted
+        service.getConverter(syntax(Bin2JsonTransformationService.PARSER_CACHE_SIZE));
+        assertSame(first, service.getConverter(syntax(0)));
+        assertNotSame(second, service.getConverter(syntax(1)));
+    }
+
+    @Test
+    public void testConcurrentTransforms() throws Exception {
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final int value = i % 100;
+            // a few rules shared by all threads, each with its own data
+            final String syntax = syntax(i % 4);
+            tasks.add(() -> {
+                String source = String.format("%02X%02X", value, 0);
+                String result = service.transform(syntax, source);
+                return result.contains("\"v\":" + value);
+            });
+        }
+        List<Future<Boolean>> results = executor.invokeAll(tasks, 30, TimeUnit.SECONDS);
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        for (int i = 0; i < 4; i++) {
+            assertSame(service.getConverter(syntax(i)), service.getConverter(syntax(i)));
+        }
+    }
+
+    /**
+     * Distinct rules, all parsing the first byte as 'v'
+     */
+    private static String syntax(int index) {
+        return "ubyte v; byte[1] pad" + index + ";";
+    }
+}
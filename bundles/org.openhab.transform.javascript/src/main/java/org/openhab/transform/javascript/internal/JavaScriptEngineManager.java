@@ -13,13 +13,18 @@
 package org.openhab.transform.javascript.internal;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
+import javax.script.Bindings;
 import javax.script.Compilable;
 import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
@@ -27,14 +32,20 @@ import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.transform.TransformationException;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Simple cache for compiled JavaScript files.
  *
+ * Script engines are not thread safe. Transformations borrow an engine from a pool for the time of the evaluation,
+ * and each engine compiles a script once. The pool is bounded, so at most {@link #MAX_ENGINES} transformations are
+ * evaluated at the same time and the others wait for an engine.
+ *
  * @author Thomas Kordelle - pre compiled scripts
  *
  */
@@ -42,39 +53,126 @@ import org.slf4j.LoggerFactory;
 @Component(service = JavaScriptEngineManager.class)
 public class JavaScriptEngineManager {
 
+    static final int MAX_ENGINES = Math.min(4, Runtime.getRuntime().availableProcessors());
+
     private final Logger logger = LoggerFactory.getLogger(JavaScriptEngineManager.class);
     private final ScriptEngineManager manager = new ScriptEngineManager();
     /* keep memory foot print low. max 2 concurrent threads are estimated */
-    private final Map<String, CompiledScript> compiledScriptMap = new ConcurrentHashMap<>(4, 0.5f, 2);
+    private final Map<String, TransformationScript> scriptMap = new ConcurrentHashMap<>(4, 0.5f, 2);
+    private final BlockingQueue<PooledEngine> idleEngines = new LinkedBlockingQueue<>();
+    private final int maxEngines;
+    // permits for engines not created yet
+    private final Semaphore engineSlots;
+
+    /**
+     * Script source and statistics of the executions
+     */
+    private static class TransformationScript {
+        private final String source;
+        private final ScriptStatistics statistics = new ScriptStatistics();
+
+        TransformationScript(String source) {
+            this.source = source;
+        }
+    }
+
+    /**
+     * Script engine with the scripts compiled by it. Scripts are weakly referenced, so that compilations of reloaded
+     * and removed scripts are released.
+     */
+    private static class PooledEngine {
+        private final ScriptEngine engine;
+        private final Map<TransformationScript, CompiledScript> compiledScripts = new WeakHashMap<>();
+
+        PooledEngine(ScriptEngine engine) {
+            this.engine = engine;
+        }
+    }
+
+    /**
+     * Execution statistics of a script, logged when the script is replaced or removed from the cache
+     */
+    private static class ScriptStatistics {
+        private long executions;
+        private long totalNanos;
+        private long maxNanos;
+
+        synchronized void record(long nanos) {
+            executions++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("{executions: %d, avg: %d us, max: %d us}", executions,
+                    executions == 0 ? 0 : totalNanos / executions / 1000, maxNanos / 1000);
+        }
+    }
+
+    public JavaScriptEngineManager() {
+        this(MAX_ENGINES);
+    }
+
+    JavaScriptEngineManager(int maxEngines) {
+        this.maxEngines = Math.max(1, maxEngines);
+        engineSlots = new Semaphore(this.maxEngines);
+    }
 
     /**
-     * Get a pre compiled script {@link CompiledScript} from cache. If it is not in the cache, then load it from
-     * storage and put a pre compiled version into the cache.
+     * Evaluate a script with the given input. If the script is not in the cache, then load it from storage and put
+     * it into the cache. The script is compiled once by each engine evaluating it.
      *
-     * @param filename name of the JavaScript file to load
-     * @return a pre compiled script {@link CompiledScript}
-     * @throws TransformationException if compile of JavaScript failed
+     * @param filename name of the JavaScript file to evaluate
+     * @param input value of the 'input' variable of the script
+     * @return result of the script
+     * @throws TransformationException if loading or compiling the script failed
+     * @throws ScriptException if evaluating the script failed
      */
-    protected CompiledScript getScript(final String filename) throws TransformationException {
-        synchronized (compiledScriptMap) {
-            CompiledScript compiledScript = compiledScriptMap.get(filename);
-            if (compiledScript != null) {
-                logger.debug("Loading JavaScript {} from cache.", filename);
-                return compiledScript;
-            } else {
-                final String path = TransformationScriptWatcher.TRANSFORM_FOLDER + File.separator + filename;
-                logger.debug("Loading script {} from storage ", path);
-                try (final Reader reader = new InputStreamReader(new FileInputStream(path))) {
-                    final ScriptEngine engine = manager.getEngineByName("javascript");
-                    final CompiledScript cScript = ((Compilable) engine).compile(reader);
-                    logger.debug("Putting compiled JavaScript {} to cache.", cScript);
-                    compiledScriptMap.put(filename, cScript);
-                    return cScript;
-                } catch (IOException | ScriptException e) {
-                    throw new TransformationException("An error occurred while loading JavaScript. " + e.getMessage(),
-                            e);
-                }
+    protected @Nullable Object eval(final String filename, final String input)
+            throws TransformationException, ScriptException {
+        TransformationScript script = getScript(filename);
+        PooledEngine engine = borrowEngine();
+        try {
+            CompiledScript compiledScript = compile(filename, script, engine);
+            Bindings bindings = engine.engine.createBindings();
+            bindings.put("input", input);
+            final long evalStartTime = System.nanoTime();
+            Object result = compiledScript.eval(bindings);
+            script.statistics.record(System.nanoTime() - evalStartTime);
+            logger.trace("JavaScript {} statistics {}", filename, script.statistics);
+            return result;
+        } finally {
+            idleEngines.add(engine);
+        }
+    }
+
+    /**
+     * Load a script from storage again and compile it, so that syntax errors are logged right away. Nothing is done
+     * for scripts that are not used in transformations.
+     *
+     * The script is compiled by an idle engine of the pool, which is then ready for the next transformation. Other
+     * engines compile the script when they evaluate it for the first time.
+     *
+     * @param filename name of the script file to reload
+     */
+    protected void reloadScript(String filename) {
+        if (!scriptMap.containsKey(filename)) {
+            return;
+        }
+        logger.debug("Reloading JavaScript {}.", filename);
+        try {
+            TransformationScript script = loadScript(filename);
+            PooledEngine engine = borrowEngine();
+            try {
+                compile(filename, script, engine);
+            } finally {
+                idleEngines.add(engine);
             }
+            logStatistics(filename, scriptMap.put(filename, script));
+        } catch (TransformationException e) {
+            logger.warn("Could not reload JavaScript {}: {}", filename, e.getMessage());
+            logStatistics(filename, scriptMap.remove(filename));
         }
     }
 
@@ -85,6 +183,102 @@ public class JavaScriptEngineManager {
      */
     protected void removeFromCache(String fileName) {
         logger.debug("Removing JavaScript {} from cache.", fileName);
-        compiledScriptMap.remove(fileName);
+        logStatistics(fileName, scriptMap.remove(fileName));
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        scriptMap.forEach(this::logStatistics);
+        scriptMap.clear();
+    }
+
+    /**
+     * Number of script engines created
+     */
+    int getEngineCount() {
+        return maxEngines - engineSlots.availablePermits();
+    }
+
+    private void logStatistics(String filename, @Nullable TransformationScript script) {
+        if (script != null) {
+            logger.debug("JavaScript {} statistics {}", filename, script.statistics);
+        }
+    }
+
+    private TransformationScript getScript(final String filename) throws TransformationException {
+        TransformationScript script = scriptMap.get(filename);
+        if (script == null) {
+            synchronized (scriptMap) {
+                script = scriptMap.get(filename);
+                if (script == null) {
+                    script = loadScript(filename);
+                    scriptMap.put(filename, script);
+                }
+            }
+        } else {
+            logger.debug("Loading JavaScript {} from cache.", filename);
+        }
+        return script;
+    }
+
+    private TransformationScript loadScript(String filename) throws TransformationException {
+        final String path = TransformationScriptWatcher.TRANSFORM_FOLDER + File.separator + filename;
+        logger.debug("Loading script {} from storage ", path);
+        try {
+            return new TransformationScript(new String(Files.readAllBytes(Paths.get(path)), Charset.defaultCharset()));
+        } catch (IOException e) {
+            throw new TransformationException("An error occurred while loading JavaScript. " + e.getMessage(), e);
+        }
+    }
+
+    private CompiledScript compile(String filename, TransformationScript script, PooledEngine engine)
+            throws TransformationException {
+        CompiledScript compiledScript = engine.compiledScripts.get(script);
+        if (compiledScript != null) {
+            return compiledScript;
+        }
+        try {
+            compiledScript = ((Compilable) engine.engine).compile(script.source);
+        } catch (ScriptException e) {
+            throw new TransformationException("An error occurred while loading JavaScript. " + e.getMessage(), e);
+        }
+        logger.debug("Putting compiled JavaScript {} to cache.", filename);
+        engine.compiledScripts.put(script, compiledScript);
+        return compiledScript;
+    }
+
+    /**
+     * Take an idle engine, create one if the pool is not full yet, or wait for one to be returned
+     */
+    private PooledEngine borrowEngine() throws TransformationException {
+        PooledEngine engine = idleEngines.poll();
+        if (engine != null) {
+            return engine;
+        }
+        if (engineSlots.tryAcquire()) {
+            try {
+                return new PooledEngine(createEngine());
+            } catch (TransformationException | RuntimeException e) {
+                engineSlots.release();
+                throw e;
+            }
+        }
+        try {
+            return idleEngines.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransformationException("Interrupted while waiting for a JavaScript engine");
+        }
+    }
+
+    private ScriptEngine createEngine() throws TransformationException {
+        ScriptEngine engine;
+        synchronized (manager) {
+            engine = manager.getEngineByName("javascript");
+        }
+        if (engine == null) {
+            throw new TransformationException("An error occurred while loading JavaScript. No JavaScript engine");
+        }
+        return engine;
     }
 }
@@ -16,6 +16,7 @@ import static java.nio.file.StandardWatchEventKinds.*;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchEvent.Kind;
 
@@ -27,7 +28,8 @@ import org.osgi.service.component.annotations.Reference;
 
 /**
  * The {@link TransformationScriptWatcher} watches the transformation directory for files. If a deleted/modified file is
- * detected, the script is passed to the {@link JavaScriptEngineManager}.
+ * detected, the script is passed to the {@link JavaScriptEngineManager}. Modified scripts are reloaded and compiled
+ * right away.
  *
  * @author Thomas Kordelle - pre compiled scripts
  *
@@ -68,7 +70,6 @@ public class TransformationScriptWatcher extends AbstractWatchService {
         return new Kind<?>[] { ENTRY_DELETE, ENTRY_MODIFY };
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     protected void processWatchEvent(WatchEvent<?> event, Kind<?> kind, Path path) {
         logger.debug("New watch event {} for path {}.", kind, path);
@@ -77,11 +78,13 @@ public class TransformationScriptWatcher extends AbstractWatchService {
             return;
         }
 
-        final WatchEvent<Path> ev = (WatchEvent<Path>) event;
-        final Path filename = ev.context();
+        final String filename = Paths.get(TRANSFORM_FOLDER).relativize(path).toString();
 
-        logger.debug("Reloading javascript file {}.", filename);
-
-        manager.removeFromCache(filename.toString());
+        if (kind == ENTRY_MODIFY) {
+            logger.debug("Reloading javascript file {}.", filename);
+            manager.reloadScript(filename);
+        } else {
+            manager.removeFromCache(filename);
+        }
     }
 }
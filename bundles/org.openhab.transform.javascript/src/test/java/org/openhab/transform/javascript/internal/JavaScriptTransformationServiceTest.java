@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.javascript.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.script.ScriptEngineManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.OpenHAB;
+import org.openhab.core.transform.TransformationException;
+
+/**
+ * @author Pauli Anttila - Initial contribution
+ */
+public class JavaScriptTransformationServiceTest {
+
+    private static final String BASE_FOLDER = "target";
+    private static final String CONFIG_FOLDER = BASE_FOLDER + File.separator + "conf";
+    private static final String SCRIPT = "js" + File.separator + "test.js";
+    // a variable per evaluation, which would be overwritten by other threads when sharing an engine
+    private static final String SCRIPT_SOURCE = "var value = input; java.lang.Thread.yield(); value + '!'";
+    private static final int MAX_ENGINES = 2;
+
+    static {
+        System.setProperty(OpenHAB.CONFIG_DIR_PROG_ARGUMENT, CONFIG_FOLDER);
+    }
+
+    private JavaScriptEngineManager manager;
+    private JavaScriptTransformationService service;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        assumeTrue(new ScriptEngineManager().getEngineByName("javascript") != null, "No JavaScript engine");
+        manager = new JavaScriptEngineManager(MAX_ENGINES);
+        service = new JavaScriptTransformationService();
+        service.setJavaScriptEngineManager(manager);
+        executor = Executors.newFixedThreadPool(8);
+        writeScript(SCRIPT_SOURCE);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        Files.deleteIfExists(getScriptPath());
+    }
+
+    private Path getScriptPath() {
+        return Paths.get(TransformationScriptWatcher.TRANSFORM_FOLDER, SCRIPT);
+    }
+
+    private void writeScript(String source) throws IOException {
+        Path path = getScriptPath();
+        Files.createDirectories(path.getParent());
+        Files.write(path, source.getBytes(Charset.defaultCharset()));
+    }
+
+    /**
+     * Transform concurrently and check that every result matches its input
+     */
+    private void transformConcurrently(int count, String suffix) throws Exception {
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final String input = "input" + i;
+            tasks.add(() -> service.transform(SCRIPT, input));
+        }
+        List<Future<String>> results = executor.invokeAll(tasks, 60, TimeUnit.SECONDS);
+        for (int i = 0; i < count; i++) {
+            assertEquals("input" + i + suffix, results.get(i).get());
+        }
+    }
+
+    @Test
+    public void testTransform() throws TransformationException {
+        assertEquals("foo!", service.transform(SCRIPT, "foo"));
+        assertEquals("bar!", service.transform(SCRIPT, "bar"));
+    }
+
+    @Test
+    public void testTransformMissingScript() {
+        assertThrows(TransformationException.class,
+                () -> service.transform("js" + File.separator + "missing.js", "foo"));
+    }
+
+    @Test
+    public void testConcurrentTransforms() throws Exception {
+        transformConcurrently(400, "!");
+
+        // engines are bounded, and the other transformations waited for them
+        assertTrue(manager.getEngineCount() <= MAX_ENGINES, "Engines: " + manager.getEngineCount());
+    }
+
+    @Test
+    public void testReloadedScriptIsUsedByAllEngines() throws Exception {
+        // all engines compile the script
+        transformConcurrently(100, "!");
+
+        writeScript("var value = input; value + '?'");
+        manager.reloadScript(SCRIPT);
+
+        transformConcurrently(100, "?");
+    }
+
+    @Test
+    public void testReloadWithSyntaxErrorRemovesScript() throws Exception {
+        assertEquals("foo!", service.transform(SCRIPT, "foo"));
+
+        writeScript("var value = ;");
+        manager.reloadScript(SCRIPT);
+
+        assertThrows(TransformationException.class, () -> service.transform(SCRIPT, "foo"));
+    }
+
+    @Test
+    public void testReloadOfUnusedScriptIsIgnored() throws Exception {
+        manager.reloadScript(SCRIPT);
+
+        assertEquals(0, manager.getEngineCount());
+    }
+}
@@ -12,7 +12,9 @@
  */
 package org.openhab.transform.jsonpath.internal;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -24,9 +26,12 @@ import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.ParseContext;
 import com.jayway.jsonpath.PathNotFoundException;
 
 /**
@@ -41,8 +46,33 @@ import com.jayway.jsonpath.PathNotFoundException;
 @Component(property = { "smarthome.transform=JSONPATH" })
 public class JSonPathTransformationService implements TransformationService {
 
+    private static final int PATH_CACHE_SIZE = 100;
+    private static final int DOCUMENT_CACHE_SIZE = 8;
+
     private final Logger logger = LoggerFactory.getLogger(JSonPathTransformationService.class);
 
+    // parse context and compiled paths are thread safe, and shared by all transformations
+    private final ParseContext parseContext = JsonPath.using(Configuration.defaultConfiguration());
+    private final Map<String, JsonPath> compiledPaths = new LinkedHashMap<String, JsonPath>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, JsonPath> eldest) {
+            return size() > PATH_CACHE_SIZE;
+        }
+    };
+    // Recently parsed documents. Several paths are often applied to the same document, e.g. MQTT channels reading
+    // different fields of the same message.
+    private final Map<String, DocumentContext> parsedDocuments = new LinkedHashMap<String, DocumentContext>(16,
+            0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, DocumentContext> eldest) {
+            return size() > DOCUMENT_CACHE_SIZE;
+        }
+    };
+
     /**
      * Transforms the input <code>source</code> by JSonPath expression.
      *
@@ -60,7 +90,7 @@ public class JSonPathTransformationService implements TransformationService {
         logger.debug("about to transform '{}' by the function '{}'", source, jsonPathExpression);
 
         try {
-            Object transformationResult = JsonPath.read(source, jsonPathExpression);
+            Object transformationResult = getParsedDocument(source).read(getCompiledPath(jsonPathExpression));
             logger.debug("transformation resulted in '{}'", transformationResult);
             if (transformationResult == null) {
                 return null;
@@ -76,6 +106,31 @@ public class JSonPathTransformationService implements TransformationService {
         }
     }
 
+    private JsonPath getCompiledPath(String jsonPathExpression) {
+        synchronized (compiledPaths) {
+            JsonPath compiledPath = compiledPaths.get(jsonPathExpression);
+            if (compiledPath == null) {
+                compiledPath = JsonPath.compile(jsonPathExpression);
+                compiledPaths.put(jsonPathExpression, compiledPath);
+            }
+            return compiledPath;
+        }
+    }
+
+    private DocumentContext getParsedDocument(String source) {
+        DocumentContext document;
+        synchronized (parsedDocuments) {
+            document = parsedDocuments.get(source);
+        }
+        if (document == null) {
+            document = parseContext.parse(source);
+            synchronized (parsedDocuments) {
+                parsedDocuments.put(source, document);
+            }
+        }
+        return document;
+    }
+
     private String flattenList(List<?> list) {
         if (list.size() == 1) {
             return list.get(0).toString();
@@ -127,4 +127,24 @@ public class JSonPathTransformationServiceTest {
         String transformedResponse = processor.transform("$.data", json);
         assertEquals(list, transformedResponse);
     }
+
+    @Test
+    public void testSamePathWithDifferentDocuments() throws TransformationException {
+        assertEquals("bob", processor.transform("$[0].name", jsonArray));
+        assertEquals("carol", processor.transform("$[0].name", "[{ \"name\":\"carol\" }]"));
+        assertEquals("bob", processor.transform("$[0].name", jsonArray));
+    }
+
+    @Test
+    public void testInvalidPathIsNotCached() {
+        assertThrows(TransformationException.class, () -> processor.transform("$$", jsonArray));
+        assertThrows(TransformationException.class, () -> processor.transform("$$", jsonArray));
+    }
+
+    @Test
+    public void testDifferentPathsOnSameDocument() throws TransformationException {
+        assertEquals("1", processor.transform("$[0].id", jsonArray));
+        assertEquals("alice", processor.transform("$[1].name", jsonArray));
+        assertEquals("[1, 2]", processor.transform("$.*.id", jsonArray));
+    }
 }
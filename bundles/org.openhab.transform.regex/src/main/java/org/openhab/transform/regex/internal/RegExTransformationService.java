@@ -12,8 +12,12 @@
  */
 package org.openhab.transform.regex.internal;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -36,10 +40,42 @@ import org.slf4j.LoggerFactory;
 @Component(property = { "smarthome.transform=REGEX" })
 public class RegExTransformationService implements TransformationService {
 
+    private static final int PATTERN_CACHE_SIZE = 100;
+
     private final Logger logger = LoggerFactory.getLogger(RegExTransformationService.class);
 
     private static final Pattern SUBSTR_PATTERN = Pattern.compile("^s/(.*?[^\\\\])/(.*?[^\\\\])/(.*)$");
 
+    private final Map<String, CompiledRegex> compiledRegexes = new LinkedHashMap<String, CompiledRegex>(16, 0.75f,
+            true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<String, CompiledRegex> eldest) {
+            return size() > PATTERN_CACHE_SIZE;
+        }
+    };
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * Compiled form of a regular expression given to {@link #transform(String, String)}
+     *
+     * Either the substitution form (s/regex/substitution/options), or the pattern to match and extract the first group
+     * with.
+     */
+    private static class CompiledRegex {
+        private final Pattern pattern;
+        private final @Nullable String substitution;
+        private final boolean global;
+
+        CompiledRegex(Pattern pattern, @Nullable String substitution, boolean global) {
+            this.pattern = pattern;
+            this.substitution = substitution;
+            this.global = global;
+        }
+    }
+
     @Override
     public @Nullable String transform(String regExpression, String source) throws TransformationException {
         if (regExpression == null || source == null) {
@@ -50,30 +86,36 @@ public class RegExTransformationService implements TransformationService {
 
         String result = "";
 
-        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
-        if (substMatcher.matches()) {
+        CompiledRegex compiledRegex = getCompiledRegex(regExpression);
+        String substitution = compiledRegex.substitution;
+        if (substitution != null) {
             logger.debug("Using substitution form of regex transformation");
-            String regex = substMatcher.group(1);
-            String substitution = substMatcher.group(2);
-            String options = substMatcher.group(3);
-            if (options.equals("g")) {
-                result = source.trim().replaceAll(regex, substitution);
+            Matcher substMatcher = compiledRegex.pattern.matcher(source.trim());
+            if (compiledRegex.global) {
+                result = substMatcher.replaceAll(substitution);
             } else {
-                result = source.trim().replaceFirst(regex, substitution);
-            }
-            if (result != null) {
-                return result;
+                result = substMatcher.replaceFirst(substitution);
             }
+            return result;
         }
 
-        Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+        // match the trimmed source, without copying it
+        int start = 0;
+        int end = source.length();
+        while (start < end && source.charAt(start) <= ' ') {
+            start++;
+        }
+        while (start < end && source.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        Matcher matcher = compiledRegex.pattern.matcher(source).region(start, end);
         if (!matcher.matches()) {
             logger.debug(
                     "the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation",
                     regExpression, source);
             return null;
         }
-        matcher.reset();
+        matcher.reset().region(start, end);
 
         while (matcher.find()) {
             if (matcher.groupCount() == 0) {
@@ -94,4 +136,36 @@ public class RegExTransformationService implements TransformationService {
 
         return result;
     }
+
+    private CompiledRegex getCompiledRegex(String regExpression) throws TransformationException {
+        CompiledRegex compiledRegex;
+        synchronized (compiledRegexes) {
+            compiledRegex = compiledRegexes.get(regExpression);
+        }
+        if (compiledRegex != null) {
+            cacheHits.incrementAndGet();
+            return compiledRegex;
+        }
+        cacheMisses.incrementAndGet();
+
+        try {
+            Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
+            if (substMatcher.matches()) {
+                compiledRegex = new CompiledRegex(Pattern.compile(substMatcher.group(1)), substMatcher.group(2),
+                        substMatcher.group(3).equals("g"));
+            } else {
+                compiledRegex = new CompiledRegex(Pattern.compile("^" + regExpression + "$", Pattern.DOTALL), null,
+                        false);
+            }
+        } catch (PatternSyntaxException e) {
+            throw new TransformationException("the given regex '" + regExpression + "' is invalid", e);
+        }
+        logger.debug("Compiled regex '{}', regex cache hits {}, misses {}", regExpression, cacheHits.get(),
+                cacheMisses.get());
+
+        synchronized (compiledRegexes) {
+            compiledRegexes.put(regExpression, compiledRegex);
+        }
+        return compiledRegex;
+    }
 }
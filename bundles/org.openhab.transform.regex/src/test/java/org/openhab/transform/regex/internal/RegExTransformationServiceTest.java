@@ -75,4 +75,26 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("varX=12 varY=54 ", transformedResponse);
     }
+
+    @Test
+    public void testTransformByRegex_trimmedSource() throws TransformationException {
+        // method under test
+        String transformedResponse = processor.transform("^(\\d+) W$", "  \n42 W\t ");
+
+        // Asserts
+        assertEquals("42", transformedResponse);
+    }
+
+    @Test
+    public void testTransformByRegex_repeatedRegex() throws TransformationException {
+        assertEquals("SetMode(42)", processor.transform("s/^OP:(.*?),ARG:(.*)$/$1($2)/", "OP:SetMode,ARG:42"));
+        assertEquals("SetLevel(7)", processor.transform("s/^OP:(.*?),ARG:(.*)$/$1($2)/", "OP:SetLevel,ARG:7"));
+        assertEquals("8", processor.transform(".*?<current_conditions>.*?<temp_c data=\"(.*?)\".*", source));
+        assertEquals("8", processor.transform(".*?<current_conditions>.*?<temp_c data=\"(.*?)\".*", source));
+    }
+
+    @Test
+    public void testTransformByRegex_invalidRegex() {
+        assertThrows(TransformationException.class, () -> processor.transform("(unclosed", source));
+    }
 }
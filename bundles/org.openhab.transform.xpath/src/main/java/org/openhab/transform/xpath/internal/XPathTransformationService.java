@@ -13,12 +13,16 @@
 package org.openhab.transform.xpath.internal;
 
 import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -41,8 +45,49 @@ import org.xml.sax.InputSource;
 @Component(property = { "smarthome.transform=XPATH" })
 public class XPathTransformationService implements TransformationService {
 
+    private static final int EXPRESSION_CACHE_SIZE = 100;
+
     private final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+    private final DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+    private final XPathFactory xpathFactory = XPathFactory.newInstance();
+
+    // Document builders, XPath objects and compiled expressions are not thread safe, each thread has its own
+    private final ThreadLocal<@Nullable XPathContext> contexts = new ThreadLocal<>();
+
+    private static class XPathContext {
+        private final DocumentBuilder builder;
+        private final XPath xpath;
+        private final Map<String, XPathExpression> expressions = new LinkedHashMap<String, XPathExpression>(16,
+                0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.@Nullable Entry<String, XPathExpression> eldest) {
+                return size() > EXPRESSION_CACHE_SIZE;
+            }
+        };
+
+        XPathContext(DocumentBuilder builder, XPath xpath) {
+            this.builder = builder;
+            this.xpath = xpath;
+        }
+
+        XPathExpression getExpression(String xpathExpression) throws XPathExpressionException {
+            XPathExpression expr = expressions.get(xpathExpression);
+            if (expr == null) {
+                expr = xpath.compile(xpathExpression);
+                expressions.put(xpathExpression, expr);
+            }
+            return expr;
+        }
+    }
+
+    public XPathTransformationService() {
+        domFactory.setNamespaceAware(true);
+        domFactory.setValidating(false);
+    }
+
     @Override
     public @Nullable String transform(String xpathExpression, String source) throws TransformationException {
         if (xpathExpression == null || source == null) {
@@ -54,10 +99,9 @@ public class XPathTransformationService implements TransformationService {
         StringReader stringReader = null;
 
         try {
-            DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-            domFactory.setNamespaceAware(true);
-            domFactory.setValidating(false);
-            DocumentBuilder builder = domFactory.newDocumentBuilder();
+            XPathContext context = getContext();
+            DocumentBuilder builder = context.builder;
+            builder.reset();
 
             stringReader = new StringReader(source);
             InputSource inputSource = new InputSource(stringReader);
@@ -65,8 +109,7 @@ public class XPathTransformationService implements TransformationService {
 
             Document doc = builder.parse(inputSource);
 
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression expr = xpath.compile(xpathExpression);
+            XPathExpression expr = context.getExpression(xpathExpression);
 
             String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
 
@@ -81,4 +124,16 @@ public class XPathTransformationService implements TransformationService {
             }
         }
     }
+
+    private XPathContext getContext() throws ParserConfigurationException {
+        XPathContext context = contexts.get();
+        if (context == null) {
+            // the factories are shared by all threads
+            synchronized (this) {
+                context = new XPathContext(domFactory.newDocumentBuilder(), xpathFactory.newXPath());
+            }
+            contexts.set(context);
+        }
+        return context;
+    }
 }
@@ -14,6 +14,13 @@ package org.openhab.transform.xpath.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openhab.core.transform.TransformationException;
@@ -38,4 +45,33 @@ public class XPathTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("8", transformedResponse);
     }
+
+    @Test
+    public void testRepeatedTransformations() throws TransformationException {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+            assertEquals("46", processor.transform("//current_conditions/temp_f/@data", source));
+        }
+    }
+
+    @Test
+    public void testConcurrentTransformations() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> processor.transform("//current_conditions/temp_c/@data", source)));
+            }
+            for (Future<String> result : results) {
+                assertEquals("8", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidExpression() {
+        assertThrows(TransformationException.class, () -> processor.transform("//current_conditions[", source));
+    }
 }
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.xslt.internal;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.OpenHAB;
+import org.openhab.core.transform.TransformationException;
+import org.openhab.core.transform.TransformationService;
+import org.osgi.service.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for compiled XSLT stylesheets.
+ *
+ * Stylesheets are compiled to {@link Templates} once, and each thread reuses its own {@link Transformer} created from
+ * them. Entries are removed by the {@link XsltTransformationWatcher} when the stylesheet file changes.
+ *
+ * @author Thomas.Eichstaedt-Engelen - Initial contribution
+ */
+@NonNullByDefault
+@Component(service = XsltTemplatesCache.class)
+public class XsltTemplatesCache {
+
+    public static final String TRANSFORM_FOLDER = OpenHAB.getConfigFolder() + File.separator
+            + TransformationService.TRANSFORM_FOLDER_NAME;
+
+    private final Logger logger = LoggerFactory.getLogger(XsltTemplatesCache.class);
+    // TransformerFactory is not thread safe, it is only used while holding the lock of the map
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private final Map<String, CompiledStylesheet> compiledStylesheets = new ConcurrentHashMap<>();
+
+    private static class CompiledStylesheet {
+        private final Templates templates;
+        private final ThreadLocal<Transformer> transformers;
+
+        CompiledStylesheet(Templates templates) {
+            this.templates = templates;
+            this.transformers = ThreadLocal.withInitial(() -> {
+                try {
+                    return templates.newTransformer();
+                } catch (TransformerConfigurationException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the compiled stylesheet from cache. If it is not in the cache, load it from storage and put the compiled
+     * version into the cache.
+     *
+     * @param filename name of the XSLT file, relative to the transform folder
+     * @return compiled stylesheet
+     * @throws TransformationException if the file could not be read or compiled
+     */
+    public Templates getTemplates(String filename) throws TransformationException {
+        return getCompiledStylesheet(filename).templates;
+    }
+
+    /**
+     * Get a {@link Transformer} of the stylesheet for the calling thread. The transformer is reset before it is
+     * returned, and must not be shared with other threads.
+     *
+     * @param filename name of the XSLT file, relative to the transform folder
+     * @return transformer of the calling thread
+     * @throws TransformationException if the file could not be read or compiled
+     */
+    public Transformer getTransformer(String filename) throws TransformationException {
+        CompiledStylesheet stylesheet = getCompiledStylesheet(filename);
+        try {
+            Transformer transformer = stylesheet.transformers.get();
+            transformer.reset();
+            return transformer;
+        } catch (IllegalStateException e) {
+            throw new TransformationException("creating transformer for '" + filename + "' throws exception",
+                    e.getCause());
+        }
+    }
+
+    /**
+     * Remove a compiled stylesheet from cache.
+     *
+     * @param filename name of the XSLT file, relative to the transform folder
+     */
+    public void removeFromCache(String filename) {
+        logger.debug("Removing XSLT {} from cache.", filename);
+        compiledStylesheets.remove(toKey(filename));
+    }
+
+    /**
+     * Remove all compiled stylesheets from cache.
+     */
+    public void clear() {
+        logger.debug("Removing all XSLT files from cache.");
+        compiledStylesheets.clear();
+    }
+
+    private String toKey(String filename) {
+        // same key for a file, regardless of the separators used
+        return filename.replace(File.separatorChar, '/');
+    }
+
+    private CompiledStylesheet getCompiledStylesheet(String filename) throws TransformationException {
+        String key = toKey(filename);
+        CompiledStylesheet stylesheet = compiledStylesheets.get(key);
+        if (stylesheet != null) {
+            return stylesheet;
+        }
+        synchronized (compiledStylesheets) {
+            stylesheet = compiledStylesheets.get(key);
+            if (stylesheet != null) {
+                return stylesheet;
+            }
+            String path = TRANSFORM_FOLDER + File.separator + filename;
+            logger.debug("Loading XSLT {} from storage.", path);
+            try {
+                stylesheet = new CompiledStylesheet(transformerFactory.newTemplates(new StreamSource(new File(path))));
+            } catch (TransformerConfigurationException e) {
+                throw new TransformationException("compiling file '" + filename + "' throws exception", e);
+            }
+            compiledStylesheets.put(key, stylesheet);
+            return stylesheet;
+        }
+    }
+}
@@ -12,22 +12,20 @@
  */
 package org.openhab.transform.xslt.internal;
 
-import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
 
-import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
-import org.openhab.core.OpenHAB;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,12 +41,20 @@ public class XsltTransformationService implements TransformationService {
 
     private final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
 
+    private final XsltTemplatesCache templatesCache;
+
+    @Activate
+    public XsltTransformationService(@Reference XsltTemplatesCache templatesCache) {
+        this.templatesCache = templatesCache;
+    }
+
     /**
      * Transforms the input <code>source</code> by XSLT.
      *
      * The method expects the transformation rule to be read from a file which
      * is stored under the 'configurations/transform' folder. To organize the
-     * various transformations one should use subfolders.
+     * various transformations one should use subfolders. Compiled stylesheets are
+     * cached until the file changes.
      *
      * @param filename the name of the file which contains the XSLT transformation rule.
      *            The name may contain subfoldernames as well
@@ -60,29 +66,20 @@ public class XsltTransformationService implements TransformationService {
             throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
         }
 
-        Source xsl = null;
+        logger.debug("about to transform '{}' by the file '{}'", source, filename);
 
+        Transformer transformer;
         try {
-            String path = OpenHAB.getConfigFolder() + File.separator + TransformationService.TRANSFORM_FOLDER_NAME
-                    + File.separator + filename;
-            xsl = new StreamSource(new File(path));
-        } catch (Exception e) {
-            String message = "opening file '" + filename + "' throws exception";
-
-            logger.error("{}", message, e);
-            throw new TransformationException(message, e);
+            transformer = templatesCache.getTransformer(filename);
+        } catch (TransformationException e) {
+            logger.error("{}", e.getMessage(), e);
+            throw e;
         }
 
-        logger.debug("about to transform '{}' by the function '{}'", source, xsl);
-
-        StringReader xml = new StringReader(source);
         StringWriter out = new StringWriter();
 
-        Transformer transformer;
-
         try {
-            transformer = TransformerFactory.newInstance().newTransformer(xsl);
-            transformer.transform(new StreamSource(xml), new StreamResult(out));
+            transformer.transform(new StreamSource(new StringReader(source)), new StreamResult(out));
         } catch (Exception e) {
             logger.error("transformation throws exception", e);
             throw new TransformationException("transformation throws exception", e);
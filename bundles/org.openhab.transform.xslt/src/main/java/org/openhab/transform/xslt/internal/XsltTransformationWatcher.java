@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.xslt.internal;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchEvent.Kind;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.service.AbstractWatchService;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * The {@link XsltTransformationWatcher} watches the transformation directory for files. If a deleted/modified file is
+ * detected, the compiled stylesheet is removed from the {@link XsltTemplatesCache}.
+ *
+ * @author Thomas.Eichstaedt-Engelen - Initial contribution
+ */
+@Component
+@NonNullByDefault
+public class XsltTransformationWatcher extends AbstractWatchService {
+
+    private final XsltTemplatesCache cache;
+
+    @Activate
+    public XsltTransformationWatcher(@Reference XsltTemplatesCache cache) {
+        super(XsltTemplatesCache.TRANSFORM_FOLDER);
+        this.cache = cache;
+    }
+
+    @Override
+    protected boolean watchSubDirectories() {
+        return true;
+    }
+
+    @Override
+    protected Kind<?>[] getWatchEventKinds(@Nullable Path directory) {
+        return new Kind<?>[] { ENTRY_DELETE, ENTRY_MODIFY };
+    }
+
+    @Override
+    protected void processWatchEvent(@Nullable WatchEvent<?> event, @Nullable Kind<?> kind, @Nullable Path path) {
+        logger.debug("New watch event {} for path {}.", kind, path);
+
+        if (kind == OVERFLOW || path == null) {
+            // events were lost, any file may have changed
+            cache.clear();
+            return;
+        }
+
+        Path filename = Paths.get(XsltTemplatesCache.TRANSFORM_FOLDER).relativize(path);
+        cache.removeFromCache(filename.toString());
+    }
+}
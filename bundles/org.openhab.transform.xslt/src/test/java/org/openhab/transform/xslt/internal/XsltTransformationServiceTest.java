@@ -14,6 +14,8 @@ package org.openhab.transform.xslt.internal;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import javax.xml.transform.Templates;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openhab.core.transform.TransformationException;
@@ -23,11 +25,13 @@ import org.openhab.core.transform.TransformationException;
  */
 public class XsltTransformationServiceTest extends AbstractTransformationServiceTest {
 
+    private XsltTemplatesCache cache;
     private XsltTransformationService processor;
 
     @BeforeEach
     public void init() {
-        processor = new XsltTransformationService();
+        cache = new XsltTemplatesCache();
+        processor = new XsltTransformationService(cache);
     }
 
     @Test
@@ -38,4 +42,27 @@ public class XsltTransformationServiceTest extends AbstractTransformationService
         // Asserts
         assertEquals("8", transformedResponse);
     }
+
+    @Test
+    public void testCompiledStylesheetIsCached() throws TransformationException {
+        assertEquals("8", processor.transform("http/google_weather.xsl", source));
+        assertEquals("8", processor.transform("http/google_weather.xsl", source));
+
+        assertSame(cache.getTemplates("http/google_weather.xsl"), cache.getTemplates("http/google_weather.xsl"));
+    }
+
+    @Test
+    public void testRemovedStylesheetIsCompiledAgain() throws TransformationException {
+        Templates templates = cache.getTemplates("http/google_weather.xsl");
+
+        cache.removeFromCache("http/google_weather.xsl");
+
+        assertNotSame(templates, cache.getTemplates("http/google_weather.xsl"));
+        assertEquals("8", processor.transform("http/google_weather.xsl", source));
+    }
+
+    @Test
+    public void testMissingFile() {
+        assertThrows(TransformationException.class, () -> processor.transform("http/missing.xsl", source));
+    }
 }